@@ -25,6 +25,7 @@ import com.super2k.openglen.EGLRenderer;
 import com.super2k.openglen.RenderSetting;
 import com.super2k.openglen.SurfaceConfiguration;
 import com.super2k.openglen.android.utils.EGLUtils;
+import com.super2k.openglen.utils.FramePacer;
 import com.super2k.openglen.utils.JavaUtils;
 import com.super2k.openglen.utils.Log;
 import com.super2k.openglen.utils.Logger;
@@ -71,6 +72,12 @@ public class GLES20EGLRenderer extends GLES20Renderer implements EGLRenderer {
     protected boolean mDisableSwapBuffer = false;    //True to disable EGLSwapBuffer
                                                      //- eg no visible result.
 
+    /**
+     * Paces the frames in swapBuffers(), by default no waiting is done since
+     * eglSwapBuffers is synced to display refresh. Frame delta and jitter are still measured.
+     */
+    protected FramePacer mFramePacer = new FramePacer(0);
+
     /**
      * Creates a new GLES20 EGL renderer, this shall be used when more controll of EGL is needed.
      * Renderring is done on a SurfaceView
@@ -232,6 +239,7 @@ public class GLES20EGLRenderer extends GLES20Renderer implements EGLRenderer {
     @Override
     public boolean swapBuffers() {
 
+        mFramePacer.pace();
         if (!mDisableSwapBuffer)   {
             boolean result = mEgl.eglSwapBuffers(mEglDisplay, mEglSurface);
             if (!result)    {
@@ -254,5 +262,10 @@ public class GLES20EGLRenderer extends GLES20Renderer implements EGLRenderer {
         return mEglConfig;
     }
 
+    @Override
+    public FramePacer getFramePacer() {
+        return mFramePacer;
+    }
+
 
 }
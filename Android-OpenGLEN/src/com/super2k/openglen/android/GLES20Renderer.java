@@ -116,16 +116,7 @@ public class GLES20Renderer extends GLESBaseRenderer implements Renderer {
     @Override
     public void setViewPort(int x, int y, int width, int height) {
         super.setViewPort(x, y, width, height);
-        GLES20.glViewport(x, y, width, height);
-    }
-
-    @Override
-    protected void enableVertexAttributes(int count, int[] attributeArrays, int offset) {
-
-        for (int i = offset; i < count; i++) {
-            GLES20.glEnableVertexAttribArray(attributeArrays[i]);
-        }
-
+        mGraphicsUtilities.viewport(x, y, width, height);
     }
 
 
@@ -134,13 +125,10 @@ public class GLES20Renderer extends GLESBaseRenderer implements Renderer {
 
         int vcount = blit.getVertexCount();
         int indexCount = blit.getIndexCount();
-        int stride = blit.mArrayByteStride;
         if (blit.arrayVBOName != -1) {
-            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, blit.arrayVBOName);
-            GLES20.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, stride, 0);
-            GLES20.glVertexAttribPointer(1, 3, GLES20.GL_FLOAT, false, stride, 3 * 4);
-            GLES20.glVertexAttribPointer(2, 2, GLES20.GL_FLOAT, false, stride,6 * 4);
-            GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, blit.elementVBOName);
+            mGraphicsUtilities.bindBuffer(GLES20.GL_ARRAY_BUFFER, blit.arrayVBOName);
+            mProgramHandler.setVertexAttribPointers(blit.getVertexFormat(), 0);
+            mGraphicsUtilities.bindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, blit.elementVBOName);
             GLES20.glDrawElements(GLES20.GL_TRIANGLES, indexCount, GLES20.GL_UNSIGNED_SHORT, 0);
             //            mGraphicsUtilities.checkError();
 
@@ -149,12 +137,9 @@ public class GLES20Renderer extends GLESBaseRenderer implements Renderer {
             mVBOIndexCount += indexCount;
         }
         else    {
-            GLES20.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, stride,
-                    blit.arrayBuffer.position(0));
-            GLES20.glVertexAttribPointer(1, 3, GLES20.GL_FLOAT, false, stride,
-                    blit.arrayBuffer.position(3));
-            GLES20.glVertexAttribPointer(2, 2, GLES20.GL_FLOAT, false, stride,
-                    blit.arrayBuffer.position(6));
+            mGraphicsUtilities.bindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+            mGraphicsUtilities.bindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+            mProgramHandler.setVertexAttribPointers(blit.getVertexFormat(), blit.arrayData);
             GLES20.glDrawElements(GLES20.GL_TRIANGLES, indexCount, GLES20.GL_UNSIGNED_SHORT,
                     blit.indices.position(0));
             //update profiling
@@ -170,41 +155,27 @@ public class GLES20Renderer extends GLESBaseRenderer implements Renderer {
             GLParticleArray particleArray) {
 
         int vcount = particleArray.getActiveParticles();
-        int stride = particleArray.mArrayByteStride;
+        int offset = -1;
         if (particleArray.arrayVBOName != -1) {
-
-            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, particleArray.arrayVBOName);
-            GLES20.glBufferData(ConstantValues.ARRAY_BUFFER,
-                    vcount * GLParticleArray.PARTICLE_FLOAT_COUNT * 4,
-                    particleArray.arrayBuffer.position(0), ConstantValues.DYNAMIC_DRAW);
-            GLES20.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false, stride,
-                    GLParticleArray.POSITION);
-            GLES20.glVertexAttribPointer(1, 4, GLES20.GL_FLOAT, false, stride,
-                    GLParticleArray.COLOR * 4);
-            GLES20.glVertexAttribPointer(2, 4, GLES20.GL_FLOAT, false, stride,
-                    GLParticleArray.VELOCITY * 4);
-            GLES20.glVertexAttribPointer(3, 4, GLES20.GL_FLOAT, false, stride,
-                    GLParticleArray.PACKED_DATA * 4);
-            GLES20.glVertexAttribPointer(4, 4, GLES20.GL_FLOAT, false, stride,
-                    GLParticleArray.COLOR_ADD * 4);
+            offset = streamParticleArray(particleArray);
+        }
+        if (offset != -1) {
+            mProgramHandler.setVertexAttribPointers(particleArray.getVertexFormat(), offset);
             GLES20.glDrawArrays(GLES20.GL_POINTS,0, vcount);
-            mGraphicsUtilities.checkError();
+            if (mCheckCallErrors) {
+                mGraphicsUtilities.checkError();
+            }
             //update profiling
             mVBOvertexCount += vcount;
         }
         else    {
-            GLES20.glVertexAttribPointer(0, 3, GLES20.GL_FLOAT, false,
-                            stride, particleArray.arrayBuffer.position(GLParticleArray.POSITION));
-            GLES20.glVertexAttribPointer(1, 4, GLES20.GL_FLOAT, false,
-                    stride, particleArray.arrayBuffer.position(GLParticleArray.COLOR));
-            GLES20.glVertexAttribPointer(2, 4, GLES20.GL_FLOAT, false,
-                    stride, particleArray.arrayBuffer.position(GLParticleArray.VELOCITY));
-            GLES20.glVertexAttribPointer(3, 4, GLES20.GL_FLOAT, false,
-                    stride, particleArray.arrayBuffer.position(GLParticleArray.PACKED_DATA));
-            GLES20.glVertexAttribPointer(4, 4, GLES20.GL_FLOAT, false,
-                    stride, particleArray.arrayBuffer.position(GLParticleArray.COLOR_ADD));
+            mGraphicsUtilities.bindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+            mProgramHandler.setVertexAttribPointers(particleArray.getVertexFormat(),
+                    particleArray.arrayData);
             GLES20.glDrawArrays(GLES20.GL_POINTS,0, vcount);
-            mGraphicsUtilities.checkError();
+            if (mCheckCallErrors) {
+                mGraphicsUtilities.checkError();
+            }
             //update profiling
             mVertexCount += vcount;
         }
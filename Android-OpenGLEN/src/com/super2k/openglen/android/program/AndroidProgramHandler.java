@@ -15,6 +15,7 @@ package com.super2k.openglen.android.program;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.Buffer;
 
 import android.opengl.GLES20;
 import android.util.Log;
@@ -134,11 +135,33 @@ public class AndroidProgramHandler extends ProgramHandler {
 
     }
     @Override
-    public void enableVertexAttribArray(int index) {
+    protected void internalEnableVertexAttribArray(int index) {
         GLES20.glEnableVertexAttribArray(index);
 
     }
 
+    @Override
+    protected void internalDisableVertexAttribArray(int index) {
+        GLES20.glDisableVertexAttribArray(index);
+    }
+
+    @Override
+    protected void internalVertexAttrib3(int index, float[] values, int offset) {
+        GLES20.glVertexAttrib3fv(index, values, offset);
+    }
+
+    @Override
+    protected void internalVertexAttribPointer(int index, int size, int type,
+            boolean normalized, int stride, int offset) {
+        GLES20.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    protected void internalVertexAttribPointer(int index, int size, int type,
+            boolean normalized, int stride, Buffer data) {
+        GLES20.glVertexAttribPointer(index, size, type, normalized, stride, data);
+    }
+
     @Override
     protected int internalCreateShader(int type) {
         return GLES20.glCreateShader(type);
@@ -159,6 +182,10 @@ public class AndroidProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalUseProgram(int program) {
+        if (!mCheckErrors) {
+            GLES20.glUseProgram(program);
+            return GLES20.GL_NO_ERROR;
+        }
         //Make sure no pending error.
         while (GLES20.glGetError() != GLES20.GL_NO_ERROR);
         GLES20.glUseProgram(program);
@@ -167,6 +194,10 @@ public class AndroidProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformMatrix(int uniform, int count, float[] matrix, int offset) {
+        if (!mCheckErrors) {
+            GLES20.glUniformMatrix4fv(uniform, count, false, matrix, offset);
+            return GLES20.GL_NO_ERROR;
+        }
         //Make sure no pending error.
         while (GLES20.glGetError() != GLES20.GL_NO_ERROR);
         GLES20.glUniformMatrix4fv(uniform, count, false, matrix, offset);
@@ -175,6 +206,10 @@ public class AndroidProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformInt(int uniform, int value) {
+        if (!mCheckErrors) {
+            GLES20.glUniform1i(uniform, value);
+            return GLES20.GL_NO_ERROR;
+        }
         //Make sure no pending error.
         while (GLES20.glGetError() != GLES20.GL_NO_ERROR);
         GLES20.glUniform1i(uniform, value);
@@ -183,6 +218,10 @@ public class AndroidProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformFloat(int uniform, float value) {
+        if (!mCheckErrors) {
+            GLES20.glUniform1f(uniform, value);
+            return GLES20.GL_NO_ERROR;
+        }
         //Make sure no pending error.
         while (GLES20.glGetError() != GLES20.GL_NO_ERROR);
         GLES20.glUniform1f(uniform, value);
@@ -191,6 +230,10 @@ public class AndroidProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformVector(int uniform, int count, float[] vector, int offset) {
+        if (!mCheckErrors) {
+            GLES20.glUniform4fv(uniform, count, vector, offset);
+            return GLES20.GL_NO_ERROR;
+        }
         //Make sure no pending error.
         while (GLES20.glGetError() != GLES20.GL_NO_ERROR);
         GLES20.glUniform4fv(uniform, count, vector, offset);
@@ -199,6 +242,10 @@ public class AndroidProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformVector3(int uniform, int count, float[] vector, int offset) {
+        if (!mCheckErrors) {
+            GLES20.glUniform3fv(uniform, count, vector, offset);
+            return GLES20.GL_NO_ERROR;
+        }
         //Make sure no pending error.
         while (GLES20.glGetError() != GLES20.GL_NO_ERROR);
         GLES20.glUniform3fv(uniform, count, vector, offset);
@@ -208,6 +255,10 @@ public class AndroidProgramHandler extends ProgramHandler {
     @Override
     protected int internalSetUniformVector2(int uniform, int count,
             float[] vector, int offset) {
+        if (!mCheckErrors) {
+            GLES20.glUniform2fv(uniform,  count, vector, offset);
+            return GLES20.GL_NO_ERROR;
+        }
         while (GLES20.glGetError() != GLES20.GL_NO_ERROR);
         GLES20.glUniform2fv(uniform,  count, vector, offset);
         return GLES20.glGetError();
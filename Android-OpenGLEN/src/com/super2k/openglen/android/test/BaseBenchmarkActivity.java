@@ -156,6 +156,13 @@ public class BaseBenchmarkActivity extends OpenGLENActivity implements ProfileLi
      */
     public final static String TICKS_TRESHOLD_KEY = "tickTreshold";
 
+    /**
+     * Max average number of bytes the render thread may allocate each frame during the
+     * performance run, if exceeded the run has failed.
+     * Note that allocated bytes can only be measured if the platform supports it.
+     */
+    public final static String ALLOCATION_BUDGET_KEY = "allocationBudget";
+
 
     protected int eglDepthBits = -1;
 
@@ -179,6 +186,11 @@ public class BaseBenchmarkActivity extends OpenGLENActivity implements ProfileLi
      */
     protected int mTicksThreshold = -1;
 
+    /**
+     * Allocation budget in bytes per frame, set to benchmark if defined in bundle.
+     */
+    protected int mAllocationBudget = -1;
+
     /**
      * This is the main startingpoint for the activity, must use empty constructor.
      */
@@ -292,6 +304,11 @@ public class BaseBenchmarkActivity extends OpenGLENActivity implements ProfileLi
                 mTicksThreshold = Integer.parseInt(thresholdStr);
             }
 
+            String budgetStr = extra.getString(ALLOCATION_BUDGET_KEY);
+            if (budgetStr != null) {
+                mAllocationBudget = Integer.parseInt(budgetStr);
+            }
+
         }
         //This will set the OpenGLEN view and setOpenGLENView will be called.
         //Do this last
@@ -316,6 +333,9 @@ public class BaseBenchmarkActivity extends OpenGLENActivity implements ProfileLi
             if (mTicksThreshold != -1) {
                 mBenchmark.setTickTreshold(mTicksThreshold);
             }
+            if (mAllocationBudget != -1) {
+                mBenchmark.setAllocationBudget(mAllocationBudget);
+            }
             mBenchmark.addProfileListener(this);
         } else {
             throw new IllegalArgumentException("Runner class must implement PerformanceBenchmark");
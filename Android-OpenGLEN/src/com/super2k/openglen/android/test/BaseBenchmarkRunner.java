@@ -133,6 +133,21 @@ public class BaseBenchmarkRunner<T extends Activity>
 
     }
 
+    /**
+     * Asserts that the last result did not exceed the allocation budget.
+     * Set the budget in the Bundle using BaseBenchmarkActivity.ALLOCATION_BUDGET_KEY
+     * @throws IllegalStateException If there is no result.
+     */
+    protected void assertAllocationBudget() {
+        if (mProfileInfo == null) {
+            throw new IllegalStateException("No result.");
+        }
+        assertFalse("Allocation budget exceeded, average bytes/frame: " +
+                mProfileInfo.getAverageFrameAllocation() + ", budget: " +
+                mProfileInfo.getAllocationBudget(),
+                mProfileInfo.isAllocationBudgetExceeded());
+    }
+
     /**
      * Start a test with benchmark parameters, internal method for conveniance.
      * EGL will be set to 16 bit depth, 888 rgb.
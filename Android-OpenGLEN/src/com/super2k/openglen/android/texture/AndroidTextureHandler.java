@@ -68,7 +68,7 @@ public class AndroidTextureHandler extends TextureHandler {
     @Override
     protected int internalBindTexture2D(int target, int texture) {
         GLES20.glBindTexture(target, texture);
-        return GLES20.glGetError();
+        return mCheckErrors ? GLES20.glGetError() : GLES20.GL_NO_ERROR;
     }
 
     @Override
@@ -84,7 +84,7 @@ public class AndroidTextureHandler extends TextureHandler {
     @Override
     protected int internalBindFrameBuffer(int frameBuffer) {
         GLES20.glBindFramebuffer(ConstantValues.FRAMEBUFFER, frameBuffer);
-        return GLES20.glGetError();
+        return mCheckErrors ? GLES20.glGetError() : GLES20.GL_NO_ERROR;
     }
 
     @Override
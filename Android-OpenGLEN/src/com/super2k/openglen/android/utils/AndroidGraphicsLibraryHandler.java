@@ -36,6 +36,7 @@ public class AndroidGraphicsLibraryHandler extends GraphicsLibraryHandler {
 
     @Override
     public void setupGL(RenderSetting setting) {
+        resetContext();
         setRenderSetting(setting);
         setting.clearDirty();
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
@@ -59,17 +60,17 @@ public class AndroidGraphicsLibraryHandler extends GraphicsLibraryHandler {
         if ((flags & RenderSetting.CHANGE_FLAG_CULLFACE) != 0) {
             // Set GL values.
             if (setting.getCullFace()!=ConstantValues.NONE) {
-                GLES20.glEnable(GL10.GL_CULL_FACE);
+                enable(GL10.GL_CULL_FACE);
                 GLES20.glCullFace(setting.getCullFace());
             } else
-                GLES20.glDisable(GL10.GL_CULL_FACE);
+                disable(GL10.GL_CULL_FACE);
         }
         if ((flags & RenderSetting.CHANGE_FLAG_DEPTH) != 0) {
             if (setting.getDepthFunc()!=ConstantValues.NONE) {
-                GLES20.glEnable(GL10.GL_DEPTH_TEST);
+                enable(GL10.GL_DEPTH_TEST);
                 GLES20.glDepthFunc(setting.getDepthFunc());
             } else
-                GLES20.glDisable(GL10.GL_DEPTH_TEST);
+                disable(GL10.GL_DEPTH_TEST);
             GLES20.glDepthRangef(setting.getDepthRangeNear(), setting.getDepthRangeFar());
         }
         if ((flags & RenderSetting.CHANGE_FLAG_MULTISAMPLE) != 0) {
@@ -187,9 +188,15 @@ public class AndroidGraphicsLibraryHandler extends GraphicsLibraryHandler {
     }
 
     @Override
-    public void bindBuffer(int target, int buffer) {
+    protected void internalBindBuffer(int target, int buffer) {
         GLES20.glBindBuffer(target, buffer);
     }
+
+    @Override
+    protected void internalViewport(int x, int y, int width, int height) {
+        GLES20.glViewport(x, y, width, height);
+    }
+
     @Override
     public int internalBufferData(int target, int size, Buffer data, int usage) {
 
@@ -200,7 +207,12 @@ public class AndroidGraphicsLibraryHandler extends GraphicsLibraryHandler {
     }
 
     @Override
-    public void deleteBuffers(int count, int[] names, int offset) {
+    protected void internalBufferSubData(int target, int offset, int size, Buffer data) {
+        GLES20.glBufferSubData(target, offset, size, data);
+    }
+
+    @Override
+    protected void internalDeleteBuffers(int count, int[] names, int offset) {
         clearError();
         GLES20.glDeleteBuffers(count, names, offset);
         int error;
@@ -226,18 +238,18 @@ public class AndroidGraphicsLibraryHandler extends GraphicsLibraryHandler {
     }
 
     @Override
-    public void enable(int cap) {
+    protected void internalEnable(int cap) {
         GLES20.glEnable(cap);
 
     }
 
     @Override
-    public void disable(int cap) {
+    protected void internalDisable(int cap) {
         GLES20.glDisable(cap);
     }
 
     @Override
-    public void blendFunc(int sourceFactor, int destFactor) {
+    protected void internalBlendFunc(int sourceFactor, int destFactor) {
         GLES20.glBlendFunc(sourceFactor, destFactor);
 
     }
@@ -21,6 +21,7 @@ import javax.media.opengl.GL2ES2;
 import javax.media.opengl.GLContext;
 import javax.media.opengl.GLDrawable;
 
+import com.jogamp.newt.MonitorDevice;
 import com.jogamp.newt.opengl.GLWindow;
 import com.super2k.openglen.ConstantValues;
 import com.super2k.openglen.EGLRenderer;
@@ -32,6 +33,7 @@ import com.super2k.openglen.j2se.utils.J2SEBitmapHandler;
 import com.super2k.openglen.j2se.utils.J2SEGraphicsLibraryHandler;
 import com.super2k.openglen.objects.GLBlitObject;
 import com.super2k.openglen.objects.GLParticleArray;
+import com.super2k.openglen.utils.FramePacer;
 
 
 /**
@@ -54,6 +56,11 @@ public class JOGLGLES20Renderer extends JOGLRenderer implements EGLRenderer{
      */
     protected int mMinFrameMikros = 13000;
 
+    /**
+     * Paces the frames in swapBuffers(), the period is read from mMinFrameMikros.
+     */
+    protected FramePacer mFramePacer = new FramePacer(mMinFrameMikros);
+
     GL2ES2    mGles2;
     GLDrawable mGlDrawable;
     GLContext mContext;
@@ -98,6 +105,7 @@ public class JOGLGLES20Renderer extends JOGLRenderer implements EGLRenderer{
 
     @Override
     public void destroy() {
+        super.destroy();
     }
 
     @Override
@@ -145,7 +153,7 @@ public class JOGLGLES20Renderer extends JOGLRenderer implements EGLRenderer{
     @Override
     public void setViewPort(int x, int y, int width, int height) {
         super.setViewPort(x, y, width, height);
-        mGles2.glViewport(x, y, width, height);
+        mGraphicsUtilities.viewport(x, y, width, height);
     }
 
     @Override
@@ -154,38 +162,29 @@ public class JOGLGLES20Renderer extends JOGLRenderer implements EGLRenderer{
 
     }
 
-    @Override
-    protected void enableVertexAttributes(int count, int[] attributeArrays, int offset) {
-        for (int i = offset; i < count; i++) {
-            mGles2.glEnableVertexAttribArray(attributeArrays[i]);
-        }
-
-    }
-
 
     @Override
     protected void renderGLBlitOBject(int program, int[] uniformLocations, GLBlitObject blit) {
 
         int vcount = blit.getVertexCount();
         int indexCount = blit.getIndexCount();
-        int stride = blit.mArrayByteStride;
         if (blit.arrayVBOName != -1) {
-            mGles2.glBindBuffer(GL.GL_ARRAY_BUFFER, blit.arrayVBOName);
-            mGles2.glVertexAttribPointer(0, 3, GL.GL_FLOAT, false, stride, 0);
-            mGles2.glVertexAttribPointer(1, 3, GL.GL_FLOAT, false, stride, 3 * 4);
-            mGles2.glVertexAttribPointer(2, 2, GL.GL_FLOAT, false, stride,6 * 4);
-            mGles2.glBindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, blit.elementVBOName);
+            mGraphicsUtilities.bindBuffer(GL.GL_ARRAY_BUFFER, blit.arrayVBOName);
+            mProgramHandler.setVertexAttribPointers(blit.getVertexFormat(), 0);
+            mGraphicsUtilities.bindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, blit.elementVBOName);
             mGles2.glDrawElements(GL.GL_TRIANGLES, indexCount, GL.GL_UNSIGNED_SHORT, 0);
-            mGraphicsUtilities.checkError();
+            if (mCheckCallErrors) {
+                mGraphicsUtilities.checkError();
+            }
 
             //update profiling
             mVBOvertexCount += vcount;
             mVBOIndexCount += indexCount;
         }
         else    {
-            mGles2.glVertexAttribPointer(0, 3, GL.GL_FLOAT, false, stride, blit.arrayBuffer.position(0));
-            mGles2.glVertexAttribPointer(1, 3, GL.GL_FLOAT, false, stride, blit.arrayBuffer.position(3));
-            mGles2.glVertexAttribPointer(2, 2, GL.GL_FLOAT, false, stride, blit.arrayBuffer.position(6));
+            mGraphicsUtilities.bindBuffer(GL.GL_ARRAY_BUFFER, 0);
+            mGraphicsUtilities.bindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+            mProgramHandler.setVertexAttribPointers(blit.getVertexFormat(), blit.arrayData);
             mGles2.glDrawElements(GL.GL_TRIANGLES, indexCount, GL.GL_UNSIGNED_SHORT,
                     blit.indices.position(0));
             //update profiling
@@ -201,34 +200,26 @@ public class JOGLGLES20Renderer extends JOGLRenderer implements EGLRenderer{
             GLParticleArray particleArray) {
 
         int vcount = particleArray.getActiveParticles();
-        int stride = particleArray.mArrayByteStride;
+        int offset = -1;
         if (particleArray.arrayVBOName != -1) {
-            mGles2.glBindBuffer(GL.GL_ARRAY_BUFFER, particleArray.arrayVBOName);
-            mGles2.glBufferData(ConstantValues.ARRAY_BUFFER,
-                    vcount * GLParticleArray.PARTICLE_FLOAT_COUNT * 4,
-                    particleArray.arrayBuffer.position(0), ConstantValues.DYNAMIC_DRAW);
-            mGles2.glVertexAttribPointer(0, 3, GL.GL_FLOAT, false, stride, GLParticleArray.POSITION);
-            mGles2.glVertexAttribPointer(1, 4, GL.GL_FLOAT, false, stride, GLParticleArray.COLOR * 4);
-            mGles2.glVertexAttribPointer(2, 4, GL.GL_FLOAT, false, stride, GLParticleArray.VELOCITY * 4);
-            mGles2.glVertexAttribPointer(3, 4, GL.GL_FLOAT, false, stride, GLParticleArray.PACKED_DATA * 4);
-            mGles2.glVertexAttribPointer(4, 4, GL.GL_FLOAT, false, stride, GLParticleArray.COLOR_ADD * 4);
-            mGraphicsUtilities.checkError();
+            offset = streamParticleArray(particleArray);
+        }
+        if (offset != -1) {
+            mProgramHandler.setVertexAttribPointers(particleArray.getVertexFormat(), offset);
+            if (mCheckCallErrors) {
+                mGraphicsUtilities.checkError();
+            }
             mGles2.glDrawArrays(GL.GL_POINTS, 0, vcount);
-            mGraphicsUtilities.checkError();
+            if (mCheckCallErrors) {
+                mGraphicsUtilities.checkError();
+            }
             //update profiling
             mVBOvertexCount += vcount;
         }
         else    {
-            mGles2.glVertexAttribPointer(0, 3,
-                    GL.GL_FLOAT, false, stride, particleArray.arrayBuffer.position(GLParticleArray.POSITION));
-            mGles2.glVertexAttribPointer(1, 4,
-                    GL.GL_FLOAT, false, stride, particleArray.arrayBuffer.position(GLParticleArray.COLOR));
-            mGles2.glVertexAttribPointer(2, 4,
-                    GL.GL_FLOAT, false, stride, particleArray.arrayBuffer.position(GLParticleArray.VELOCITY));
-            mGles2.glVertexAttribPointer(3, 4,
-                    GL.GL_FLOAT, false, stride, particleArray.arrayBuffer.position(GLParticleArray.PACKED_DATA));
-            mGles2.glVertexAttribPointer(4, 4,
-                    GL.GL_FLOAT, false, stride, particleArray.arrayBuffer.position(GLParticleArray.COLOR_ADD));
+            mGraphicsUtilities.bindBuffer(GL.GL_ARRAY_BUFFER, 0);
+            mProgramHandler.setVertexAttribPointers(particleArray.getVertexFormat(),
+                    particleArray.arrayData);
             mGles2.glDrawArrays(GL.GL_POINTS, 0, vcount);
             //update profiling
             mVertexCount += vcount;
@@ -246,6 +237,11 @@ public class JOGLGLES20Renderer extends JOGLRenderer implements EGLRenderer{
         if (display instanceof GLWindow) {
             GLDrawable glDrawable = ((GLWindow)display).getFactory().createGLDrawable(((GLWindow)display).getNativeSurface());
             mContext = glDrawable.createContext(null);
+            MonitorDevice monitor = ((GLWindow)display).getMainMonitor();
+            if (monitor != null) {
+                //Align frame deadlines to the display refresh.
+                mFramePacer.setRefreshRate(monitor.getCurrentMode().getRefreshRate());
+            }
         }
         else {
             throw new IllegalArgumentException("Invalid display object:" + display);
@@ -257,22 +253,10 @@ public class JOGLGLES20Renderer extends JOGLRenderer implements EGLRenderer{
     @Override
     public boolean swapBuffers() {
 
-        long prev = mProfileInfo.getPreviousTime();
-        long current;
-        if (prev != 0) {
-            while ((int)(((current = System.nanoTime()) - prev) / 1000) < mMinFrameMikros) {
-                try {
-                    int millis = (int)((current-prev)/1000000);
-                    int nanos = (int)((current-prev) - millis * 1000000);
-//                    Thread.sleep((int)((current-prev + 500000)/1000000));
-                    Thread.sleep(millis, nanos);
-                }
-                catch (InterruptedException e) {
-
-                }
-            }
+        if (mFramePacer.getMinPeriod() != mMinFrameMikros) {
+            mFramePacer.setPeriod(mMinFrameMikros);
         }
-
+        mFramePacer.pace();
         mGlDrawable.swapBuffers();
         //Check if clear color has alpha then first clear background with 0 alpha.
 
@@ -306,6 +290,11 @@ public class JOGLGLES20Renderer extends JOGLRenderer implements EGLRenderer{
         return null;
     }
 
+    @Override
+    public FramePacer getFramePacer() {
+        return mFramePacer;
+    }
+
 
     @Override
     protected void internalReadPixels(int x, int y, int width, int height,
@@ -15,11 +15,13 @@ package com.super2k.openglen.j2se.program;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GL4ES3;
 
 import com.super2k.openglen.ConstantValues;
 import com.super2k.openglen.program.ProgramHandler;
@@ -182,6 +184,58 @@ public class J2SEProgramHandler extends ProgramHandler {
     }
 
 
+    @Override
+    public boolean isProgramBinarySupported() {
+        if (!mGles2.isExtensionAvailable("GL_OES_get_program_binary") &&
+                !mGles2.isExtensionAvailable("GL_ARB_get_program_binary")) {
+            return false;
+        }
+        int[] formats = new int[1];
+        mGles2.glGetIntegerv(GL2ES2.GL_NUM_PROGRAM_BINARY_FORMATS, formats, 0);
+        return formats[0] > 0;
+    }
+
+    @Override
+    public byte[] getProgramBinary(int program, int[] format) {
+        int length = getProgramParam(program, GL2ES2.GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) {
+            return null;
+        }
+        //Make sure no pending error
+        while (mGles2.glGetError() != GL.GL_NO_ERROR);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        int[] written = new int[1];
+        mGles2.glGetProgramBinary(program, length, written, 0, format, 0, buffer);
+        if (mGles2.glGetError() != GL.GL_NO_ERROR) {
+            return null;
+        }
+        byte[] binary = new byte[written[0]];
+        buffer.get(binary);
+        return binary;
+    }
+
+    @Override
+    public void setBinaryRetrievableHint(int program) {
+        //The hint is only defined from GL 4.1 / GLES 3, GL_OES_get_program_binary does not
+        //need it.
+        if (mGles2.isGL4ES3()) {
+            mGles2.getGL4ES3().glProgramParameteri(program,
+                    GL4ES3.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL.GL_TRUE);
+        }
+    }
+
+    @Override
+    public boolean programBinary(int program, int format, byte[] binary) {
+        //Make sure no pending error
+        while (mGles2.glGetError() != GL.GL_NO_ERROR);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(binary.length);
+        buffer.put(binary);
+        buffer.position(0);
+        mGles2.glProgramBinary(program, format, buffer, binary.length);
+        return mGles2.glGetError() == GL.GL_NO_ERROR &&
+                getProgramParam(program, ConstantValues.LINK_STATUS) == ConstantValues.TRUE;
+    }
+
     @Override
     public void logProgramInfo(int programName) {
         logProgramInfo(mGles2, programName);
@@ -196,11 +250,33 @@ public class J2SEProgramHandler extends ProgramHandler {
 
 
     @Override
-    public void enableVertexAttribArray(int index) {
-        mGles2.glEnable(index);
+    protected void internalEnableVertexAttribArray(int index) {
+        mGles2.glEnableVertexAttribArray(index);
+
+    }
+
+    @Override
+    protected void internalDisableVertexAttribArray(int index) {
+        mGles2.glDisableVertexAttribArray(index);
+    }
+
+
+    @Override
+    protected void internalVertexAttrib3(int index, float[] values, int offset) {
+        mGles2.glVertexAttrib3fv(index, values, offset);
+    }
 
+    @Override
+    protected void internalVertexAttribPointer(int index, int size, int type,
+            boolean normalized, int stride, int offset) {
+        mGles2.glVertexAttribPointer(index, size, type, normalized, stride, offset);
     }
 
+    @Override
+    protected void internalVertexAttribPointer(int index, int size, int type,
+            boolean normalized, int stride, Buffer data) {
+        mGles2.glVertexAttribPointer(index, size, type, normalized, stride, data);
+    }
 
     @Override
     protected int internalCreateShader(int type) {
@@ -224,6 +300,10 @@ public class J2SEProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalUseProgram(int program) {
+        if (!mCheckErrors) {
+            mGles2.glUseProgram(program);
+            return ConstantValues.NO_ERROR;
+        }
         //Make sure no pending error
         while (mGles2.glGetError() != GL.GL_NO_ERROR);
         mGles2.glUseProgram(program);
@@ -232,6 +312,10 @@ public class J2SEProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformMatrix(int uniform, int count, float[] matrix, int offset) {
+        if (!mCheckErrors) {
+            mGles2.glUniformMatrix4fv(uniform, count, false, matrix, offset);
+            return ConstantValues.NO_ERROR;
+        }
         //Make sure no pending error.
         while (mGles2.glGetError() != GL.GL_NO_ERROR);
         mGles2.glUniformMatrix4fv(uniform, count, false, matrix, offset);
@@ -240,6 +324,10 @@ public class J2SEProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformInt(int uniform, int value) {
+        if (!mCheckErrors) {
+            mGles2.glUniform1i(uniform, value);
+            return ConstantValues.NO_ERROR;
+        }
         //Make sure no pending error.
         while (mGles2.glGetError() != GL.GL_NO_ERROR);
         mGles2.glUniform1i(uniform, value);
@@ -248,6 +336,10 @@ public class J2SEProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformFloat(int uniform, float value) {
+        if (!mCheckErrors) {
+            mGles2.glUniform1f(uniform, value);
+            return ConstantValues.NO_ERROR;
+        }
         //Make sure no pending error.
         while (mGles2.glGetError() != GL.GL_NO_ERROR);
         mGles2.glUniform1f(uniform, value);
@@ -256,6 +348,10 @@ public class J2SEProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformVector(int uniform, int count, float[] vector, int offset) {
+        if (!mCheckErrors) {
+            mGles2.glUniform4fv(uniform, count, vector, offset);
+            return ConstantValues.NO_ERROR;
+        }
         //Make sure no pending error.
         while (mGles2.glGetError() != GL.GL_NO_ERROR);
         mGles2.glUniform4fv(uniform, count, vector, offset);
@@ -264,6 +360,10 @@ public class J2SEProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformVector3(int uniform, int count, float[] vector, int offset) {
+        if (!mCheckErrors) {
+            mGles2.glUniform3fv(uniform, count, vector, offset);
+            return ConstantValues.NO_ERROR;
+        }
         //Make sure no pending error.
         while (mGles2.glGetError() != GL.GL_NO_ERROR);
         mGles2.glUniform3fv(uniform, count, vector, offset);
@@ -272,10 +372,14 @@ public class J2SEProgramHandler extends ProgramHandler {
 
     @Override
     protected int internalSetUniformVector2(int uniform, int count, float[] vector, int offset) {
-            //Make sure no pending error.
-            while (mGles2.glGetError() != GL.GL_NO_ERROR);
+        if (!mCheckErrors) {
             mGles2.glUniform2fv(uniform, count, vector, offset);
-            return mGles2.glGetError();
+            return ConstantValues.NO_ERROR;
+        }
+        //Make sure no pending error.
+        while (mGles2.glGetError() != GL.GL_NO_ERROR);
+        mGles2.glUniform2fv(uniform, count, vector, offset);
+        return mGles2.glGetError();
     }
 
 }
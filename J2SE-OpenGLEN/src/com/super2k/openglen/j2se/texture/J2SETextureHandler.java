@@ -99,7 +99,7 @@ public class J2SETextureHandler extends TextureHandler {
     @Override
     protected int internalBindTexture2D(int target, int texture) {
         mGles2.glBindTexture(target, texture);
-        return mGles2.glGetError();
+        return mCheckErrors ? mGles2.glGetError() : GL.GL_NO_ERROR;
     }
 
 
@@ -117,7 +117,7 @@ public class J2SETextureHandler extends TextureHandler {
     @Override
     protected int internalBindFrameBuffer(int frameBuffer) {
         mGles2.glBindFramebuffer(ConstantValues.FRAMEBUFFER, frameBuffer);
-        return mGles2.glGetError();
+        return mCheckErrors ? mGles2.glGetError() : GL.GL_NO_ERROR;
     }
 
 
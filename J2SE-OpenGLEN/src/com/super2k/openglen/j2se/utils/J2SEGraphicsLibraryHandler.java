@@ -47,6 +47,7 @@ public class J2SEGraphicsLibraryHandler extends GraphicsLibraryHandler {
 
     @Override
     public void setupGL(RenderSetting setting) {
+        resetContext();
         setRenderSetting(setting);
         setting.clearDirty();
         mGles2.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
@@ -63,10 +64,10 @@ public class J2SEGraphicsLibraryHandler extends GraphicsLibraryHandler {
         if ((flags & RenderSetting.CHANGE_FLAG_CULLFACE) != 0) {
             // Set GL values.
             if (setting.getCullFace()!=ConstantValues.NONE) {
-                mGles2.glEnable(GL.GL_CULL_FACE);
+                enable(GL.GL_CULL_FACE);
                 mGles2.glCullFace(setting.getCullFace());
             } else
-                mGles2.glDisable(GL.GL_CULL_FACE);
+                disable(GL.GL_CULL_FACE);
         }
         if ((flags & RenderSetting.CHANGE_FLAG_DEPTH) != 0) {
 
@@ -74,10 +75,10 @@ public class J2SEGraphicsLibraryHandler extends GraphicsLibraryHandler {
             mGles2.glDepthRangef(setting.getDepthRangeNear(), setting.getDepthRangeFar());
 
             if (setting.getDepthFunc() != ConstantValues.NONE) {
-                mGles2.glEnable(GL.GL_DEPTH_TEST);
+                enable(GL.GL_DEPTH_TEST);
                 mGles2.glDepthFunc(setting.getDepthFunc());
             } else {
-                mGles2.glDisable(GL.GL_DEPTH_TEST);
+                disable(GL.GL_DEPTH_TEST);
             }
             mGles2.glDepthRangef(setting.getDepthRangeNear(), setting.getDepthRangeFar());
         }
@@ -116,10 +117,57 @@ public class J2SEGraphicsLibraryHandler extends GraphicsLibraryHandler {
     }
 
     @Override
-    public void bindBuffer(int target, int buffer) {
+    protected void internalBindBuffer(int target, int buffer) {
         mGles2.glBindBuffer(target, buffer);
     }
 
+    @Override
+    protected void internalViewport(int x, int y, int width, int height) {
+        mGles2.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public boolean isVertexArraySupported() {
+        if (mGles2.isGLES2()) {
+            return mGles2.isExtensionAvailable("GL_OES_vertex_array_object");
+        }
+        return mGles2.isGL3() ||
+                (mGles2.isGL2() && mGles2.isExtensionAvailable("GL_ARB_vertex_array_object"));
+    }
+
+    @Override
+    protected void internalGenVertexArrays(int count, int[] names, int offset) {
+        if (mGles2.isGLES2()) {
+            mGles2.getGLES2().glGenVertexArraysOES(count, names, offset);
+        } else if (mGles2.isGL3()) {
+            mGles2.getGL3().glGenVertexArrays(count, names, offset);
+        } else {
+            mGles2.getGL2().glGenVertexArrays(count, names, offset);
+        }
+    }
+
+    @Override
+    protected void internalBindVertexArray(int array) {
+        if (mGles2.isGLES2()) {
+            mGles2.getGLES2().glBindVertexArrayOES(array);
+        } else if (mGles2.isGL3()) {
+            mGles2.getGL3().glBindVertexArray(array);
+        } else {
+            mGles2.getGL2().glBindVertexArray(array);
+        }
+    }
+
+    @Override
+    protected void internalDeleteVertexArrays(int count, int[] names, int offset) {
+        if (mGles2.isGLES2()) {
+            mGles2.getGLES2().glDeleteVertexArraysOES(count, names, offset);
+        } else if (mGles2.isGL3()) {
+            mGles2.getGL3().glDeleteVertexArrays(count, names, offset);
+        } else {
+            mGles2.getGL2().glDeleteVertexArrays(count, names, offset);
+        }
+    }
+
     @Override
     protected int internalBufferData(int target, int size, Buffer data, int usage) {
         //Call should be OK unless out of memory.
@@ -129,7 +177,12 @@ public class J2SEGraphicsLibraryHandler extends GraphicsLibraryHandler {
     }
 
     @Override
-    public void deleteBuffers(int count, int[] names, int offset) {
+    protected void internalBufferSubData(int target, int offset, int size, Buffer data) {
+        mGles2.glBufferSubData(target, offset, size, data);
+    }
+
+    @Override
+    protected void internalDeleteBuffers(int count, int[] names, int offset) {
         mGles2.glDeleteBuffers(count, names, offset);
     }
 
@@ -146,17 +199,17 @@ public class J2SEGraphicsLibraryHandler extends GraphicsLibraryHandler {
     }
 
     @Override
-    public void enable(int cap) {
+    protected void internalEnable(int cap) {
         mGles2.glEnable(cap);
     }
 
     @Override
-    public void disable(int cap) {
+    protected void internalDisable(int cap) {
         mGles2.glDisable(cap);
     }
 
     @Override
-    public void blendFunc(int sourceFactor, int destFactor) {
+    protected void internalBlendFunc(int sourceFactor, int destFactor) {
         mGles2.glBlendFunc(sourceFactor, destFactor);
     }
 
@@ -0,0 +1,99 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.j2se.utils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import com.super2k.openglen.utils.MemorySampler;
+
+/**
+ * J2SE implementation of the memory sampler, using the java.lang.management API.
+ * Allocated bytes are only available on VMs that implement com.sun.management.ThreadMXBean.
+ * @author Richard Sahlin
+ *
+ */
+public class J2SEMemorySampler extends MemorySampler {
+
+    /**
+     * Thread bean used to read allocated bytes, null if not supported.
+     */
+    protected com.sun.management.ThreadMXBean mThreadBean;
+
+    /**
+     * The garbage collector beans.
+     */
+    protected GarbageCollectorMXBean[] mGCBeans;
+
+    /**
+     * Creates a new sampler, if thread allocation is supported by the VM it will be enabled.
+     */
+    public J2SEMemorySampler() {
+        List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        mGCBeans = gcBeans.toArray(new GarbageCollectorMXBean[gcBeans.size()]);
+        try {
+            ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean instanceof com.sun.management.ThreadMXBean) {
+                mThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+                if (!mThreadBean.isThreadAllocatedMemorySupported()) {
+                    mThreadBean = null;
+                } else if (!mThreadBean.isThreadAllocatedMemoryEnabled()) {
+                    mThreadBean.setThreadAllocatedMemoryEnabled(true);
+                }
+            }
+        } catch (LinkageError le) {
+            //com.sun.management not present, allocated bytes not available.
+            mThreadBean = null;
+        } catch (UnsupportedOperationException uoe) {
+            mThreadBean = null;
+        }
+    }
+
+    @Override
+    public boolean isAllocationSupported() {
+        return mThreadBean != null;
+    }
+
+    @Override
+    protected long readAllocatedBytes() {
+        return mThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Override
+    protected long readGCCount() {
+        long count = 0;
+        long value;
+        for (int i = 0; i < mGCBeans.length; i++) {
+            //Value may be -1 if undefined for the collector.
+            if ((value = mGCBeans[i].getCollectionCount()) > 0) {
+                count += value;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    protected long readGCTime() {
+        long time = 0;
+        long value;
+        for (int i = 0; i < mGCBeans.length; i++) {
+            if ((value = mGCBeans[i].getCollectionTime()) > 0) {
+                time += value;
+            }
+        }
+        return time;
+    }
+
+}
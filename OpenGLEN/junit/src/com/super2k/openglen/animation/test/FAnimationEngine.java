@@ -0,0 +1,195 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.animation.test;
+
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.animation.Animation3D;
+import com.super2k.openglen.animation.AnimationEngine;
+import com.super2k.openglen.animation.LinearAnimation;
+import com.super2k.openglen.animation.SinusAnimation;
+import com.super2k.openglen.objects.GLBlitObject;
+
+/**
+ * Test the AnimationEngine class.
+ * @author Richard Sahlin
+ *
+ */
+public class FAnimationEngine extends TestCase {
+
+    private final static int OBJECT_COUNT = 1000;
+    private final static int FRAMES = 300;
+    private final static float TIME_DELTA = 0.0167f;
+
+    /**
+     * Test that the result of the engine, using several threads, is exactly the same as
+     * calling animate() on each animation.
+     */
+    public void testDeterministic() {
+        Vector<GLBlitObject> sequential = createObjects();
+        Vector<GLBlitObject> parallel = createObjects();
+        AnimationEngine engine = new AnimationEngine(4);
+        engine.setChunkSize(64);
+        engine.setObjects(parallel);
+        assertEquals(OBJECT_COUNT * 2, engine.getLinearCount());
+        assertEquals(OBJECT_COUNT / 2, engine.getGenericCount());
+        for (int frame = 0; frame < FRAMES; frame++) {
+            for (int i = 0; i < OBJECT_COUNT; i++) {
+                Animation3D[] anims = sequential.elementAt(i).anim;
+                for (int loop = 0; loop < anims.length; loop++) {
+                    if (anims[loop] != null) {
+                        anims[loop].animate(TIME_DELTA);
+                    }
+                }
+            }
+            engine.animate(TIME_DELTA);
+            for (int i = 0; i < OBJECT_COUNT; i++) {
+                GLBlitObject expected = sequential.elementAt(i);
+                GLBlitObject actual = parallel.elementAt(i);
+                for (int c = 0; c < 4; c++) {
+                    assertEquals(expected.position[c], actual.position[c], 0);
+                    assertEquals(expected.scale[c], actual.scale[c], 0);
+                    assertEquals(expected.rotation[c], actual.rotation[c], 0);
+                }
+            }
+        }
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            Animation3D[] anims = sequential.elementAt(i).anim;
+            Animation3D[] engineAnims = parallel.elementAt(i).anim;
+            for (int loop = 0; loop < 2; loop++) {
+                assertEquals(anims[loop].isFinished(), engineAnims[loop].isFinished());
+                assertEquals(anims[loop].getCurrentLoop(), engineAnims[loop].getCurrentLoop());
+            }
+            assertEquals(anims[0].isFinished() && anims[1].isFinished() &&
+                    (anims[2] == null || anims[2].isFinished()), engine.isFinished(i));
+        }
+        engine.destroy();
+    }
+
+    /**
+     * Test that the engine uses the state of the animations, an animation that is reset
+     * shall start from the beginning.
+     */
+    public void testResetAnimation() {
+        Vector<GLBlitObject> list = createObjects();
+        AnimationEngine engine = new AnimationEngine(2);
+        engine.setChunkSize(64);
+        engine.setObjects(list);
+        LinearAnimation anim = (LinearAnimation) list.elementAt(1).anim[0];
+        for (int frame = 0; frame < FRAMES; frame++) {
+            engine.animate(TIME_DELTA);
+        }
+        assertTrue(anim.isFinished());
+        anim.resetAnimation();
+        assertFalse(anim.isFinished());
+        engine.animate(TIME_DELTA);
+        assertFalse(anim.isFinished());
+        assertEquals(0.25f + 100 * TIME_DELTA / 1.3f, list.elementAt(1).position[0], 0.0001f);
+        engine.destroy();
+    }
+
+    /**
+     * Test that replaced objects and animations are detected.
+     */
+    public void testChanged() {
+        Vector<GLBlitObject> list = createObjects();
+        AnimationEngine engine = new AnimationEngine(1);
+        assertTrue(engine.isChanged(list));
+        engine.setObjects(list);
+        assertFalse(engine.isChanged(list));
+        //Swap two objects, same count.
+        GLBlitObject first = list.elementAt(0);
+        list.setElementAt(list.elementAt(1), 0);
+        list.setElementAt(first, 1);
+        assertTrue(engine.isChanged(list));
+        engine.setObjects(list);
+        assertFalse(engine.isChanged(list));
+        //Replace an animation
+        GLBlitObject blit = list.elementAt(5);
+        blit.anim[0] = new LinearAnimation(blit.position, new float[] {0, 0, 0},
+                new float[] {1, 1, 1}, 0, 1, Animation3D.LOOP_DISABLED);
+        assertTrue(engine.isChanged(list));
+        engine.setObjects(list);
+        //Replace the animation array with the same animations in other slots.
+        Animation3D[] anims = new Animation3D[blit.anim.length];
+        anims[1] = blit.anim[0];
+        anims[2] = blit.anim[1];
+        blit.anim = anims;
+        assertFalse(engine.isChanged(list));
+        //Add an animation
+        blit.anim[0] = new LinearAnimation(blit.scale, new float[] {0, 0, 0},
+                new float[] {1, 1, 1}, 0, 1, Animation3D.LOOP_DISABLED);
+        assertTrue(engine.isChanged(list));
+        engine.setObjects(list);
+        //Remove an animation
+        blit.anim[2] = null;
+        assertTrue(engine.isChanged(list));
+        engine.setObjects(list);
+        list.removeElementAt(0);
+        assertTrue(engine.isChanged(list));
+        try {
+            engine.isChanged(null);
+            fail("List is null, should throw exception.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+    /**
+     * Test that invalid parameters throw IllegalArgumentException
+     */
+    public void testInvalidParameters() {
+        try {
+            new AnimationEngine(0);
+            fail("Invalid thread count, should throw exception.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        AnimationEngine engine = new AnimationEngine(1);
+        try {
+            engine.setObjects(null);
+            fail("List is null, should throw exception.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+    /**
+     * Creates objects with two linear animations, every other object also has a sine animation.
+     * @return List of objects
+     */
+    private Vector<GLBlitObject> createObjects() {
+        Vector<GLBlitObject> list = new Vector<GLBlitObject>();
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            GLBlitObject blit = new GLBlitObject();
+            float offset = i * 0.25f;
+            int loop = (i % 3 == 0) ? Animation3D.LOOP_INFINITE : (i % 3);
+            blit.anim[0] = new LinearAnimation(blit.position, new float[] {offset, 0, 0},
+                    new float[] {offset + 100, 50, -offset}, 0, 1 + (i % 7) * 0.3f, loop);
+            LinearAnimation rotate = new LinearAnimation(blit.rotation, new float[] {0, 0, 0},
+                    new float[] {0, 0, 0.01f * i}, 0, 2.5f, Animation3D.LOOP_INFINITE);
+            rotate.setRelative(true);
+            blit.anim[1] = rotate;
+            if ((i & 1) == 0) {
+                blit.anim[2] = new SinusAnimation(blit.scale, new float[] {0, 0},
+                        new float[] {0.5f, 0.5f}, new float[] {1, 2}, new float[] {offset, 0});
+            }
+            list.add(blit);
+        }
+        return list;
+    }
+
+}
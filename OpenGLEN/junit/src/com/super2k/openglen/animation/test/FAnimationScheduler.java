@@ -0,0 +1,188 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.animation.test;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.animation.Animation3D;
+import com.super2k.openglen.animation.AnimationGroup;
+import com.super2k.openglen.animation.AnimationPool;
+import com.super2k.openglen.animation.AnimationScheduler;
+import com.super2k.openglen.animation.LinearAnimation;
+
+/**
+ * Test the AnimationScheduler, AnimationPool and AnimationGroup classes.
+ * @author Richard Sahlin
+ *
+ */
+public class FAnimationScheduler extends TestCase {
+
+    private final static int LINEAR_KEY = 0;
+    private final static int GROUP_KEY = 1;
+    private final static int COUNT = 100;
+    private final static float DELTA = 0.0001f;
+
+    private AnimationPool mPool;
+    private AnimationScheduler mScheduler;
+
+    @Override
+    protected void setUp() {
+        mPool = new AnimationPool();
+        mPool.createPool(LinearAnimation.class.getName(), LINEAR_KEY, COUNT);
+        mPool.createPool(AnimationGroup.class.getName(), GROUP_KEY, 2);
+        mScheduler = new AnimationScheduler(mPool, 8);
+    }
+
+    private LinearAnimation getLinear(float[] target, float start, float end, float time) {
+        LinearAnimation anim = (LinearAnimation) mPool.get(LINEAR_KEY);
+        anim.setup(target, new float[] {start}, new float[] {end}, 0, time,
+                Animation3D.LOOP_DISABLED);
+        return anim;
+    }
+
+    /**
+     * Test that fire and forget animations are released to the pool when finished,
+     * and that the pool is reused without misses.
+     */
+    public void testFireAndForget() {
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < COUNT; i++) {
+                float[] value = new float[1];
+                mScheduler.start(getLinear(value, 0, 1, 0.5f + i * 0.01f), i * 0.01f);
+            }
+            assertEquals(0, mPool.getAvailable(LINEAR_KEY));
+            assertEquals(COUNT, mScheduler.getActiveCount());
+            for (int frame = 0; frame < 200 && mScheduler.getActiveCount() > 0; frame++) {
+                mScheduler.animate(0.016f);
+            }
+            assertEquals(0, mScheduler.getActiveCount());
+            assertEquals(COUNT, mPool.getAvailable(LINEAR_KEY));
+        }
+        assertEquals(0, mPool.getMisses());
+    }
+
+    /**
+     * Test sequence and parallel groups.
+     */
+    public void testGroups() {
+        float[] first = new float[1];
+        float[] second = new float[1];
+        AnimationGroup sequence = (AnimationGroup) mPool.get(GROUP_KEY);
+        sequence.setMode(AnimationGroup.MODE_SEQUENCE);
+        sequence.add(getLinear(first, 0, 1, 1));
+        sequence.add(getLinear(second, 0, 1, 1));
+        mScheduler.start(sequence, 0);
+        mScheduler.animate(0.5f);
+        assertEquals(0.5f, first[0], DELTA);
+        assertEquals(0, second[0], DELTA);
+        mScheduler.animate(0.5f);
+        assertEquals(1, first[0], DELTA);
+        mScheduler.animate(0.5f);
+        assertEquals(0.5f, second[0], DELTA);
+        mScheduler.animate(0.5f);
+        assertEquals(1, second[0], DELTA);
+        assertEquals(0, mScheduler.getActiveCount());
+        assertEquals(2, mPool.getAvailable(GROUP_KEY));
+        assertEquals(COUNT, mPool.getAvailable(LINEAR_KEY));
+
+        AnimationGroup parallel = (AnimationGroup) mPool.get(GROUP_KEY);
+        parallel.setMode(AnimationGroup.MODE_PARALLEL);
+        parallel.add(getLinear(first, 0, 2, 1));
+        parallel.add(getLinear(second, 0, 2, 2));
+        mScheduler.start(parallel, 1);
+        mScheduler.animate(1.5f);
+        assertEquals(1, first[0], DELTA);
+        assertEquals(0.5f, second[0], DELTA);
+        mScheduler.animate(1);
+        assertEquals(1, mScheduler.getActiveCount());
+        mScheduler.animate(1);
+        assertEquals(2, second[0], DELTA);
+        assertEquals(0, mScheduler.getActiveCount());
+        assertEquals(0, mPool.getMisses());
+    }
+
+    /**
+     * Test that the time remaining when an animation in a sequence finishes is used by
+     * the next animation.
+     */
+    public void testSequenceRemainingTime() {
+        float[] first = new float[1];
+        float[] second = new float[1];
+        float[] third = new float[1];
+        AnimationGroup sequence = new AnimationGroup(AnimationGroup.MODE_SEQUENCE);
+        sequence.add(getLinear(first, 0, 1, 1));
+        sequence.add(getLinear(second, 0, 1, 0.25f));
+        sequence.add(getLinear(third, 0, 1, 1));
+        sequence.animate(0.75f);
+        assertEquals(0.75f, first[0], DELTA);
+        sequence.animate(0.75f);
+        assertEquals(1, first[0], DELTA);
+        assertEquals(1, second[0], DELTA);
+        assertEquals(0.25f, third[0], DELTA);
+        assertFalse(sequence.isFinished());
+        sequence.animate(1);
+        assertEquals(1, third[0], DELTA);
+        assertTrue(sequence.isFinished());
+        assertEquals(0.25f, sequence.getRemainingTime(), DELTA);
+    }
+
+    /**
+     * Test that a reused animation does not keep relative mode, and that setup and
+     * release of animations that are not pooled keep relative mode.
+     */
+    public void testReuse() {
+        LinearAnimation anim = getLinear(new float[1], 0, 1, 1);
+        anim.setRelative(true);
+        assertTrue(anim.isRelative());
+        mPool.release(anim);
+        assertFalse(anim.isRelative());
+        anim = getLinear(new float[1], 0, 1, 1);
+        anim.setRelative(true);
+        anim.setup(new float[1], new float[] {0}, new float[] {1}, 0, 1,
+                Animation3D.LOOP_DISABLED);
+        assertTrue(anim.isRelative());
+        mPool.release(anim);
+        for (int i = 0; i < COUNT; i++) {
+            assertFalse(mPool.get(LINEAR_KEY).isRelative());
+        }
+        float[] target = new float[1];
+        LinearAnimation notPooled = new LinearAnimation(target, new float[] {0},
+                new float[] {1}, 0, 1, Animation3D.LOOP_DISABLED);
+        notPooled.setRelative(true);
+        notPooled.animate(2);
+        assertTrue(notPooled.isFinished());
+        mPool.release(notPooled);
+        assertTrue(notPooled.isRelative());
+        assertTrue(notPooled.isFinished());
+        assertEquals(1, notPooled.getRemainingTime(), DELTA);
+    }
+
+    /**
+     * Test stop and clear.
+     */
+    public void testStop() {
+        float[] target = new float[1];
+        LinearAnimation anim = (LinearAnimation) mPool.get(LINEAR_KEY);
+        anim.setup(target, new float[] {0}, new float[] {1}, 0, 1, Animation3D.LOOP_INFINITE);
+        mScheduler.start(anim, 0);
+        mScheduler.start(getLinear(target, 0, 1, 1), 0);
+        assertTrue(mScheduler.stop(anim));
+        assertFalse(mScheduler.stop(anim));
+        assertEquals(1, mScheduler.getActiveCount());
+        mScheduler.clear();
+        assertEquals(0, mScheduler.getActiveCount());
+        assertEquals(COUNT, mPool.getAvailable(LINEAR_KEY));
+    }
+
+}
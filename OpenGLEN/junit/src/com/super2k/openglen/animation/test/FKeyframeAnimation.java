@@ -0,0 +1,155 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.animation.test;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.animation.Animation3D;
+import com.super2k.openglen.animation.KeyframeAnimation;
+
+/**
+ * Test the KeyframeAnimation class.
+ * @author Richard Sahlin
+ *
+ */
+public class FKeyframeAnimation extends TestCase {
+
+    private final static String FAIL_NO_EXCEPTION = "Invalid value, should throw exception.";
+    private final static float DELTA = 0.0001f;
+    private final static int KEYS = 100;
+
+    /**
+     * Creates keys at time 0, 1, 2... with the values 2 * time and -time
+     * @return
+     */
+    private KeyframeAnimation createLine(float[] target, int loop) {
+        float[] times = new float[KEYS];
+        float[] values = new float[KEYS * 2];
+        for (int i = 0; i < KEYS; i++) {
+            times[i] = i;
+            values[i * 2] = i * 2;
+            values[i * 2 + 1] = -i;
+        }
+        return new KeyframeAnimation(target, 2, times, values, loop);
+    }
+
+    /**
+     * Test linear interpolation when animating and with setTime.
+     */
+    public void testLinear() {
+        float[] target = new float[2];
+        KeyframeAnimation anim = createLine(target, Animation3D.LOOP_DISABLED);
+        float time = 0;
+        for (int i = 0; i < 500; i++) {
+            anim.animate(0.13f);
+            time += 0.13f;
+            assertEquals(time * 2, target[0], DELTA * 10);
+            assertEquals(-time, target[1], DELTA * 10);
+            assertEquals((int) time, anim.getKeyIndex());
+        }
+        anim.setTime(37.5f);
+        assertEquals(37, anim.getKeyIndex());
+        assertEquals(75f, target[0], DELTA);
+        anim.setTime(3.25f);
+        assertEquals(3, anim.getKeyIndex());
+        assertEquals(-3.25f, target[1], DELTA);
+    }
+
+    /**
+     * Test that hermite with catmull-rom tangents and bezier with control points on the line
+     * reproduces the line, and that curves pass through the keys.
+     */
+    public void testCurves() {
+        float[] target = new float[2];
+        KeyframeAnimation anim = createLine(target, Animation3D.LOOP_INFINITE);
+        anim.setHermite(null);
+        assertEquals(KeyframeAnimation.INTERPOLATION_HERMITE, anim.getInterpolation());
+        for (float time = 0; time < KEYS - 1; time += 0.37f) {
+            anim.setTime(time);
+            assertEquals(time * 2, target[0], DELTA * 10);
+            assertEquals(-time, target[1], DELTA * 10);
+        }
+        float[] controls = new float[(KEYS - 1) * 4];
+        for (int i = 0; i < KEYS - 1; i++) {
+            controls[i * 4] = (i + 1f / 3) * 2;
+            controls[i * 4 + 1] = -(i + 1f / 3);
+            controls[i * 4 + 2] = (i + 2f / 3) * 2;
+            controls[i * 4 + 3] = -(i + 2f / 3);
+        }
+        anim.setBezier(controls);
+        for (float time = 0; time < KEYS - 1; time += 0.37f) {
+            anim.setTime(time);
+            assertEquals(time * 2, target[0], DELTA * 10);
+            assertEquals(-time, target[1], DELTA * 10);
+        }
+        //Bend the curve, keys must still be hit.
+        controls[0] = 10;
+        anim.setTime(0);
+        assertEquals(0, target[0], DELTA);
+        anim.setTime(0.5f);
+        assertTrue(target[0] > 1);
+        anim.setTime(1);
+        assertEquals(2, target[0], DELTA);
+    }
+
+    /**
+     * Test looping and finish.
+     */
+    public void testLoop() {
+        float[] target = new float[2];
+        KeyframeAnimation anim = createLine(target, 2);
+        assertFalse(anim.animate(KEYS - 1.5f));
+        assertTrue(anim.animate(1));
+        assertEquals(1, anim.getCurrentLoop());
+        assertEquals(0.5f * 2, target[0], DELTA);
+        assertEquals(0, anim.getKeyIndex());
+        assertFalse(anim.isFinished());
+        anim.animate(KEYS);
+        assertTrue(anim.isFinished());
+        assertEquals((KEYS - 1) * 2, target[0], DELTA);
+    }
+
+    /**
+     * Test that invalid parameters throw IllegalArgumentException
+     */
+    public void testInvalidParameters() {
+        float[] target = new float[2];
+        try {
+            new KeyframeAnimation(target, 2, new float[] {0}, new float[2], 0);
+            fail(FAIL_NO_EXCEPTION);
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        try {
+            new KeyframeAnimation(target, 2, new float[] {1, 0}, new float[4], 0);
+            fail(FAIL_NO_EXCEPTION);
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        try {
+            new KeyframeAnimation(target, 2, new float[] {0, 1}, new float[3], 0);
+            fail(FAIL_NO_EXCEPTION);
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        KeyframeAnimation anim = createLine(target, 0);
+        try {
+            anim.setBezier(new float[4]);
+            fail(FAIL_NO_EXCEPTION);
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+}
@@ -13,6 +13,8 @@
 
 package com.super2k.openglen.core.test;
 
+import java.io.BufferedReader;
+import java.nio.Buffer;
 import java.nio.IntBuffer;
 
 import junit.framework.TestCase;
@@ -22,6 +24,10 @@ import com.super2k.openglen.RenderSetting;
 import com.super2k.openglen.core.GLESBaseRenderer;
 import com.super2k.openglen.objects.GLBlitObject;
 import com.super2k.openglen.objects.GLParticleArray;
+import com.super2k.openglen.program.ProgramHandler;
+import com.super2k.openglen.texture.TextureHandler;
+import com.super2k.openglen.utils.GraphicsLibraryHandler;
+import com.super2k.openglen.utils.StubGraphicsLibraryHandler;
 
 /**
  * Test that the base implementation of renderer works
@@ -37,6 +43,7 @@ public class FGLESBaseRenderer extends TestCase {
     private final static int TEST_CULL_FLAG = ConstantValues.CULL_FRONT_AND_BACK;
     private final static boolean TEST_ENABLE_DEPTHTEST = false;
     private final static boolean TEST_ENABLE_MULTISAMPLING = true;
+    private final static int TEST_OBJECT_COUNT = 10;
     /**
      * Make sure constructors work
      */
@@ -57,6 +64,63 @@ public class FGLESBaseRenderer extends TestCase {
 
     }
 
+    /**
+     * Test that glGetError is not called when binding for each object unless errors are
+     * checked after each call, and that it is called once at end of frame.
+     */
+    public void testErrorCheck() {
+        RenderSetting settings = new RenderSetting();
+        StubGraphicsLibraryHandler gl = new StubGraphicsLibraryHandler();
+        GLESBaseRenderImpl render = new GLESBaseRenderImpl(settings);
+        render.start(gl);
+
+        settings.setErrorCheck(RenderSetting.ERROR_CHECK_OFF);
+        render.beginFrame();
+        assertFalse(render.getTextureHandler().isCheckErrors());
+        assertFalse(render.getProgramHandler().isCheckErrors());
+        gl.resetErrorReads();
+        bindObjects(render);
+        assertEquals(0, gl.getErrorReads());
+        render.endFrame();
+        assertEquals(0, gl.getErrorReads());
+
+        settings.setErrorCheck(RenderSetting.ERROR_CHECK_FRAME);
+        render.beginFrame();
+        assertFalse(render.getTextureHandler().isCheckErrors());
+        gl.resetErrorReads();
+        bindObjects(render);
+        assertEquals(0, gl.getErrorReads());
+        gl.setError(ConstantValues.INVALID_OPERATION);
+        render.endFrame();
+        assertEquals(1, gl.getErrorReads());
+        assertEquals(1, render.getGLErrorCount());
+
+        settings.setErrorCheck(RenderSetting.ERROR_CHECK_CALL);
+        render.beginFrame();
+        assertTrue(render.getTextureHandler().isCheckErrors());
+        assertTrue(render.getProgramHandler().isCheckErrors());
+        assertEquals(0, render.getGLErrorCount());
+        gl.resetErrorReads();
+        bindObjects(render);
+        //Clear and check when setting the texture unit, clear when binding.
+        assertEquals(TEST_OBJECT_COUNT * 3, gl.getErrorReads());
+        render.endFrame();
+        assertEquals(TEST_OBJECT_COUNT * 3 + 1, gl.getErrorReads());
+    }
+
+    /**
+     * Sets texture unit and binds a new texture for a number of objects, as done when
+     * rendering.
+     * @param render
+     */
+    private void bindObjects(GLESBaseRenderer render) {
+        TextureHandler textures = render.getTextureHandler();
+        for (int i = 0; i < TEST_OBJECT_COUNT; i++) {
+            textures.activeTexture(ConstantValues.TEXTURE0 + (i & 1));
+            textures.bindTexture2D(ConstantValues.TEXTURE_2D, i + 1);
+        }
+    }
+
     /**
      * Empty implementation to test base implementation.
      * @author Richard Sahlin
@@ -69,6 +133,25 @@ public class FGLESBaseRenderer extends TestCase {
             // TODO Auto-generated constructor stub
         }
 
+        /**
+         * Sets stub handlers and sets the renderer in started state, without creating GL.
+         * @param gl
+         */
+        public void start(GraphicsLibraryHandler gl) {
+            mGraphicsUtilities = gl;
+            mTextureHandler = new StubTextureHandler(gl);
+            mProgramHandler = new StubProgramHandler(gl);
+            mState = STATE_STARTED;
+        }
+
+        /**
+         * Returns the number of GL errors found by the frame check.
+         * @return Number of errors in the last frame.
+         */
+        public int getGLErrorCount() {
+            return mGLErrorCount;
+        }
+
         @Override
         public void flush() {
             // TODO Auto-generated method stub
@@ -124,12 +207,6 @@ public class FGLESBaseRenderer extends TestCase {
 
         }
 
-        @Override
-        protected void enableVertexAttributes(int count, int[] attributeArrays, int offset) {
-            // TODO Auto-generated method stub
-
-        }
-
         @Override
         protected void renderGLParticleArray(int program, int[] uniformLocation,
                 GLParticleArray particleArray) {
@@ -146,4 +223,247 @@ public class FGLESBaseRenderer extends TestCase {
 
     }
 
+    /**
+     * TextureHandler without a graphics library, all calls succeed.
+     * @author Richard Sahlin
+     *
+     */
+    class StubTextureHandler extends TextureHandler {
+
+        public StubTextureHandler(GraphicsLibraryHandler graphicsLibrary) {
+            super(graphicsLibrary);
+        }
+
+        @Override
+        public int texParameter2D(int pname, int param) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalFrameBufferTexture2D(int attachment, int textarget,
+                int texture, int level) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalFrameBufferRenderbuffer(int attachement, int renderbuffer) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalGenerateMipMap(int target) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalBindFrameBuffer(int frameBuffer) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalBindRenderBuffer(int renderBuffer) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalRenderBufferStorage(int internalformat, int width, int height) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalTexImage2D(int level, int width, int height, int format,
+                int type, Object pixels) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected void internalDeleteTextures(int count, int[] names, int offset) {
+        }
+
+        @Override
+        protected int internalCompressedTexImage2D(int level, int internalformat,
+                int width, int height, int size, Buffer data) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalBindTexture2D(int target, int texture) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalPixelstore(int pname, int param) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected void internalActiveTexture(int texture) {
+        }
+
+        @Override
+        protected int internalCheckFrameBufferStatus() {
+            return ConstantValues.FRAMEBUFFER_COMPLETE;
+        }
+
+        @Override
+        protected void internalGenFrameBuffers(int count, int[] array, int offset) {
+        }
+
+        @Override
+        protected void internalGenRenderbuffers(int count, int[] array, int offset) {
+        }
+
+        @Override
+        protected void internalGenerateTextureNames(int count, int[] names, int offset) {
+        }
+
+    }
+
+    /**
+     * ProgramHandler without a graphics library, all calls succeed.
+     * @author Richard Sahlin
+     *
+     */
+    class StubProgramHandler extends ProgramHandler {
+
+        public StubProgramHandler(GraphicsLibraryHandler graphicsLibrary) {
+            super(graphicsLibrary);
+        }
+
+        @Override
+        protected int internalCreateShader(int type) {
+            return 1;
+        }
+
+        @Override
+        protected int internalCreateProgram() {
+            return 1;
+        }
+
+        @Override
+        protected int internalDeleteShader(int name) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalDeleteProgram(int program) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalUseProgram(int program) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformMatrix(int uniform, int count, float[] matrix,
+                int offset) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformInt(int uniform, int value) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformFloat(int uniform, float value) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformVector(int uniform, int count, float[] vector,
+                int offset) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformVector3(int uniform, int count, float[] vector,
+                int offset) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformVector2(int uniform, int count, float[] vector,
+                int offset) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetShaderSource(int shader, String source) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalAttachShader(int program, int shader) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalCompileShader(int shader) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalLinkProgram(int program) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalDetachShader(int program, int shader) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        public String getShaderSource(int shaderType, BufferedReader shaderSource,
+                boolean mainFile) {
+            return "";
+        }
+
+        @Override
+        public int getShaderParam(int shader, int param) {
+            return 0;
+        }
+
+        @Override
+        public int getProgramParam(int program, int param) {
+            return 0;
+        }
+
+        @Override
+        public void logShaderInfo(int shader) {
+        }
+
+        @Override
+        public void logProgramInfo(int program) {
+        }
+
+        @Override
+        public void bindAttributeLocation(int program, int index, String name) {
+        }
+
+        @Override
+        protected void internalVertexAttrib3(int index, float[] values, int offset) {
+        }
+
+        @Override
+        protected void internalVertexAttribPointer(int index, int size, int type,
+                boolean normalized, int stride, int offset) {
+        }
+
+        @Override
+        protected void internalVertexAttribPointer(int index, int size, int type,
+                boolean normalized, int stride, Buffer data) {
+        }
+
+        @Override
+        protected void internalEnableVertexAttribArray(int index) {
+        }
+
+        @Override
+        protected void internalDisableVertexAttribArray(int index) {
+        }
+
+    }
+
 }
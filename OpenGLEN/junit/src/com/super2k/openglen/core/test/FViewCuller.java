@@ -0,0 +1,71 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.core.test;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.core.ViewCuller;
+import com.super2k.openglen.geometry.Material;
+import com.super2k.openglen.objects.GLBlitObject;
+import com.super2k.openglen.utils.Matrix;
+
+/**
+ * Test the ViewCuller class.
+ * @author Richard Sahlin
+ *
+ */
+public class FViewCuller extends TestCase {
+
+    private final static int WIDTH = 800;
+    private final static int HEIGHT = 480;
+
+    /**
+     * Test culling of objects using an orthogonal projection.
+     */
+    public void testOrthogonal() {
+        float[] projection = new float[16];
+        Matrix.orthoM(projection, 0, 0, WIDTH, 0, HEIGHT, 0, 10);
+        ViewCuller culler = new ViewCuller();
+        GLBlitObject blit = new GLBlitObject(0, 0, -1, 100, 100, (Material) null,
+                GLBlitObject.ANCHOR_LEFT | GLBlitObject.ANCHOR_TOP, 1);
+        assertTrue(isVisible(culler, projection, blit, 10, 10));
+        //Straddles the left edge.
+        assertTrue(isVisible(culler, projection, blit, -50, 10));
+        assertFalse(isVisible(culler, projection, blit, -101, 10));
+        assertFalse(isVisible(culler, projection, blit, WIDTH + 1, 10));
+        assertFalse(isVisible(culler, projection, blit, 10, HEIGHT + 1));
+        assertFalse(isVisible(culler, projection, blit, 10, -101));
+        //Behind far plane.
+        blit.position[2] = -20;
+        assertFalse(isVisible(culler, projection, blit, 10, 10));
+        blit.position[2] = -1;
+        //Scaled into the view.
+        blit.scale[0] = 3;
+        assertTrue(isVisible(culler, projection, blit, -250, 10));
+        blit.scale[0] = 1;
+        //Rotated 180 degrees around z, the object is to the left and below the position.
+        blit.rotation[2] = (float) Math.PI;
+        assertTrue(isVisible(culler, projection, blit, WIDTH + 50, 10));
+        assertFalse(isVisible(culler, projection, blit, -5, 10));
+    }
+
+    private boolean isVisible(ViewCuller culler, float[] projection, GLBlitObject blit,
+            float x, float y) {
+        blit.position[0] = x;
+        blit.position[1] = y;
+        return culler.isVisible(projection, blit.getBounds(), blit.position, blit.scale,
+                blit.rotation, 0);
+    }
+
+}
@@ -0,0 +1,154 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.easy3d.test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.easy3d.SpatialHashGrid;
+import com.super2k.openglen.easy3d.TwoDeeMovementObject;
+import com.super2k.openglen.objects.GLBlitObject;
+
+/**
+ * Test the SpatialHashGrid class, results are compared to brute force checks.
+ * @author Richard Sahlin
+ *
+ */
+public class FSpatialHashGrid extends TestCase {
+
+    private final static int COUNT = 500;
+    private final static float CELL_SIZE = 16;
+    private final static float SIZE = 400;
+
+    private final Random mRandom = new Random(1);
+    private float[] mX = new float[COUNT];
+    private float[] mY = new float[COUNT];
+
+    private SpatialHashGrid createGrid() {
+        SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE, COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            //Include negative positions.
+            mX[i] = mRandom.nextFloat() * SIZE - SIZE / 2;
+            mY[i] = mRandom.nextFloat() * SIZE - SIZE / 2;
+            grid.insert(i, mX[i], mY[i]);
+        }
+        return grid;
+    }
+
+    /**
+     * Test rectangle and radius queries after objects have moved.
+     */
+    public void testQuery() {
+        SpatialHashGrid grid = createGrid();
+        for (int i = 0; i < COUNT; i += 2) {
+            mX[i] += mRandom.nextFloat() * 50;
+            mY[i] -= mRandom.nextFloat() * 50;
+            grid.update(i, mX[i], mY[i]);
+        }
+        grid.remove(1);
+        int[] result = new int[COUNT];
+        boolean[] found = new boolean[COUNT];
+        int count = grid.queryRect(-50, -30, 70, 40, result);
+        for (int i = 0; i < count; i++) {
+            found[result[i]] = true;
+        }
+        int expected = 0;
+        for (int i = 0; i < COUNT; i++) {
+            boolean inside = i != 1 && mX[i] >= -50 && mX[i] <= 70 && mY[i] >= -30 &&
+                    mY[i] <= 40;
+            assertEquals(inside, found[i]);
+            expected += inside ? 1 : 0;
+        }
+        assertEquals(expected, count);
+        count = grid.queryRadius(10, 20, 40, result);
+        expected = 0;
+        for (int i = 0; i < COUNT; i++) {
+            float dx = mX[i] - 10;
+            float dy = mY[i] - 20;
+            if (i != 1 && dx * dx + dy * dy <= 40 * 40) {
+                expected++;
+            }
+        }
+        assertEquals(expected, count);
+    }
+
+    /**
+     * Test that pairs are the same as found by checking all objects.
+     */
+    public void testPairs() {
+        SpatialHashGrid grid = createGrid();
+        final float distance = 12;
+        final boolean[] pairs = new boolean[COUNT * COUNT];
+        int count = grid.findPairs(distance, new SpatialHashGrid.PairListener() {
+            @Override
+            public void pair(int first, int second) {
+                assertTrue(first < second);
+                assertFalse(pairs[first * COUNT + second]);
+                pairs[first * COUNT + second] = true;
+            }
+        });
+        int expected = 0;
+        for (int i = 0; i < COUNT; i++) {
+            for (int j = i + 1; j < COUNT; j++) {
+                float dx = mX[i] - mX[j];
+                float dy = mY[i] - mY[j];
+                boolean close = dx * dx + dy * dy <= distance * distance;
+                assertEquals(close, pairs[i * COUNT + j]);
+                expected += close ? 1 : 0;
+            }
+        }
+        assertEquals(expected, count);
+        assertTrue(count > 0);
+    }
+
+    /**
+     * Test that the grid is updated by the movement object.
+     */
+    public void testMovementObject() {
+        SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE, 2);
+        GLBlitObject blit = new GLBlitObject();
+        TwoDeeMovementObject move = new TwoDeeMovementObject(blit, 1, 0, 0, 0, 0, 0, 1000,
+                1000);
+        move.setGrid(grid, 1);
+        int[] result = new int[2];
+        assertEquals(1, grid.queryRect(0, 0, 1, 1, result));
+        move.updateMovement(50);
+        assertEquals(0, grid.queryRect(0, 0, 1, 1, result));
+        assertEquals(1, grid.queryRect(49, 0, 51, 1, result));
+        assertEquals(1, result[0]);
+        //Setting the same grid and id again shall keep the object in the grid.
+        move.setGrid(grid, 1);
+        assertTrue(grid.contains(1));
+        //Failed insert shall keep the current grid.
+        SpatialHashGrid other = new SpatialHashGrid(CELL_SIZE, 2);
+        other.insert(0, 0, 0);
+        try {
+            move.setGrid(other, 0);
+            fail("Id is used, should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        assertEquals(1, move.getGridId());
+        assertTrue(grid.contains(1));
+        assertEquals(1, other.getCount());
+        move.setGrid(other, 1);
+        assertFalse(grid.contains(1));
+        assertTrue(other.contains(1));
+        move.setGrid(grid, 1);
+        move.destroy();
+        assertEquals(0, grid.getCount());
+    }
+
+}
@@ -0,0 +1,162 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.geometry.test;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.animation.Animation3D;
+import com.super2k.openglen.animation.QuaternionAnimation;
+import com.super2k.openglen.geometry.Quaternion;
+import com.super2k.openglen.utils.Matrix;
+
+/**
+ * Test the Quaternion and QuaternionAnimation classes.
+ * @author Richard Sahlin
+ *
+ */
+public class FQuaternion extends TestCase {
+
+    private final static float DELTA = 0.00001f;
+    private final static float TO_DEGREES = (float) (180 / Math.PI);
+
+    private void assertArrayEquals(float[] expected, float[] actual, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], actual[offset + i], DELTA);
+        }
+    }
+
+    /**
+     * Test that the matrix from an axis angle quaternion is the same as from Matrix.setRotateM
+     */
+    public void testToMatrix() {
+        float[] expected = new float[16];
+        float[] matrix = new float[16];
+        float[][] axes = new float[][] {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {1, 2, -3}};
+        for (int i = 0; i < axes.length; i++) {
+            float angle = 0.3f + i;
+            Quaternion q = new Quaternion(angle, axes[i][0], axes[i][1], axes[i][2]);
+            Matrix.setIdentityM(matrix, 0);
+            q.toMatrix(matrix, 0);
+            Matrix.setRotateM(expected, 0, angle * TO_DEGREES, axes[i][0], axes[i][1],
+                    axes[i][2]);
+            assertArrayEquals(expected, matrix, 0, 16);
+        }
+    }
+
+    /**
+     * Test that multiplying quaternions is the same as multiplying the matrices.
+     */
+    public void testMul() {
+        Quaternion a = new Quaternion(0.7f, 1, 0, 0);
+        Quaternion b = new Quaternion(-1.1f, 0, 1, 1);
+        float[] ma = new float[16];
+        float[] mb = new float[16];
+        float[] expected = new float[16];
+        float[] result = new float[16];
+        Matrix.setIdentityM(ma, 0);
+        Matrix.setIdentityM(mb, 0);
+        Matrix.setIdentityM(result, 0);
+        a.toMatrix(ma, 0);
+        b.toMatrix(mb, 0);
+        Matrix.mul4(ma, mb, expected);
+        a.mul(b).toMatrix(result, 0);
+        assertArrayEquals(expected, result, 0, 16);
+    }
+
+    /**
+     * Test slerp and nlerp between rotations around the same axis.
+     */
+    public void testInterpolate() {
+        float[] start = new Quaternion(0.2f, 0, 0, 1).values;
+        float[] end = new Quaternion(1.8f, 0, 0, 1).values;
+        float[] result = new float[4];
+        for (float t = 0; t <= 1; t += 0.125f) {
+            Quaternion.slerp(start, 0, end, 0, t, result, 0);
+            assertArrayEquals(new Quaternion(0.2f + t * 1.6f, 0, 0, 1).values, result, 0, 4);
+        }
+        Quaternion.nlerp(start, 0, end, 0, 0.5f, result, 0);
+        assertArrayEquals(new Quaternion(1, 0, 0, 1).values, result, 0, 4);
+        //Shortest path, negated end is the same rotation.
+        float[] negated = new float[4];
+        for (int i = 0; i < 4; i++) {
+            negated[i] = -end[i];
+        }
+        Quaternion.slerp(start, 0, negated, 0, 0.5f, result, 0);
+        assertArrayEquals(new Quaternion(1, 0, 0, 1).values, result, 0, 4);
+    }
+
+    /**
+     * Test that the batched matrix conversion is the same as converting one quaternion.
+     */
+    public void testBatchedToMatrix() {
+        int count = 10;
+        float[] q = new float[count * 4 + 1];
+        float[] matrices = new float[count * 16];
+        float[] expected = new float[16];
+        for (int i = 0; i < count; i++) {
+            Quaternion.setAxisAngle(q, 1 + i * 4, i * 0.5f, i, 1, -i);
+        }
+        Quaternion.toMatrix(q, 1, matrices, 0, count);
+        for (int i = 0; i < count; i++) {
+            Matrix.setIdentityM(expected, 0);
+            Quaternion.toMatrix(q, 1 + i * 4, expected, 0);
+            assertArrayEquals(expected, matrices, i * 16, 16);
+        }
+    }
+
+    /**
+     * Test the quaternion animation.
+     */
+    public void testAnimation() {
+        float[] target = new float[4];
+        QuaternionAnimation anim = new QuaternionAnimation(target,
+                new Quaternion(0, 0, 1, 0).values, new Quaternion(2, 0, 1, 0).values, 0, 2,
+                Animation3D.LOOP_DISABLED);
+        anim.animate(0.5f);
+        assertArrayEquals(new Quaternion(0.5f, 0, 1, 0).values, target, 0, 4);
+        anim.animate(2);
+        assertTrue(anim.isFinished());
+        assertArrayEquals(new Quaternion(2, 0, 1, 0).values, target, 0, 4);
+    }
+
+    /**
+     * Test that a relative animation rotates the target from start to end once for each loop.
+     */
+    public void testRelativeAnimation() {
+        float[] target = new Quaternion(0.5f, 1, 0, 0).values;
+        float[] expected = new float[4];
+        QuaternionAnimation anim = new QuaternionAnimation(target,
+                new Quaternion(0, 0, 0, 1).values, new Quaternion(1, 0, 0, 1).values, 0, 1,
+                Animation3D.LOOP_DISABLED);
+        anim.setRelative(true);
+        for (int i = 0; i < 4; i++) {
+            anim.animate(0.3f);
+        }
+        assertTrue(anim.isFinished());
+        Quaternion.mul(new Quaternion(1, 0, 0, 1).values, 0,
+                new Quaternion(0.5f, 1, 0, 0).values, 0, expected, 0);
+        assertArrayEquals(expected, target, 0, 4);
+
+        Quaternion.setIdentity(target, 0);
+        anim.setup(target, new Quaternion(0, 0, 0, 1).values, new Quaternion(1, 0, 0, 1).values,
+                0, 1, Animation3D.LOOP_INFINITE);
+        for (int i = 0; i < 9; i++) {
+            anim.animate(0.3f);
+        }
+        assertEquals(2, anim.getCurrentLoop());
+        Quaternion.setAxisAngle(expected, 0, 2.7f, 0, 0, 1);
+        assertArrayEquals(expected, target, 0, 4);
+    }
+
+}
@@ -0,0 +1,108 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.geometry.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.geometry.VertexFormat;
+import com.super2k.openglen.objects.GLParticleArray;
+
+/**
+ * Test the VertexFormat class.
+ * @author Richard Sahlin
+ *
+ */
+public class FVertexFormat extends TestCase {
+
+    /**
+     * Test that offsets and stride are calculated with 4 byte alignment.
+     */
+    public void testLayout() {
+        VertexFormat format = new VertexFormat(new int[] {0, 2, 3}, new int[] {3, 2, 4},
+                new int[] {ConstantValues.HALF_FLOAT_OES, ConstantValues.UNSIGNED_SHORT,
+                        ConstantValues.UNSIGNED_BYTE},
+                new boolean[] {false, true, true});
+        assertTrue(format.hasLayout());
+        assertEquals(0, format.getOffset(0));
+        assertEquals(8, format.getOffset(1));
+        assertEquals(12, format.getOffset(2));
+        assertEquals(16, format.getStride());
+        assertEquals(1, format.getAttribute(2));
+        assertEquals(-1, format.getAttribute(1));
+        assertEquals(0x0d, format.getEnableMask());
+
+        assertFalse(new VertexFormat(new int[] {0, 1}).hasLayout());
+        assertEquals(GLParticleArray.PARTICLE_FLOAT_COUNT * 4,
+                GLParticleArray.PARTICLE_FORMAT.getStride());
+        try {
+            new VertexFormat(new int[] {0}, new int[] {5}, new int[] {ConstantValues.FLOAT},
+                    new boolean[] {false});
+            fail("Should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        try {
+            new VertexFormat(new int[] {0}, new int[] {4}, new int[] {ConstantValues.FLOAT},
+                    new boolean[] {false}, new int[] {4}, 16);
+            fail("Should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+    /**
+     * Test that values are converted to the attribute type.
+     */
+    public void testPut() {
+        VertexFormat format = new VertexFormat(new int[] {0, 1, 2}, new int[] {2, 2, 4},
+                new int[] {ConstantValues.HALF_FLOAT_OES, ConstantValues.UNSIGNED_SHORT,
+                        ConstantValues.UNSIGNED_BYTE},
+                new boolean[] {false, true, true});
+        ByteBuffer buffer = ByteBuffer.allocate(format.getStride() * 2).order(
+                ByteOrder.nativeOrder());
+        format.put(buffer, 1, 0, new float[] {1, -2}, 0);
+        format.put(buffer, 1, 1, new float[] {0, 1, 0.5f}, 1);
+        format.put(buffer, 1, 2, new float[] {1, 0, 2, -1}, 0);
+        int base = format.getStride();
+        assertEquals(0, buffer.position());
+        assertEquals((short) 0x3c00, buffer.getShort(base));
+        assertEquals((short) 0xc000, buffer.getShort(base + 2));
+        assertEquals(0xffff, buffer.getShort(base + format.getOffset(1)) & 0xffff);
+        assertEquals(32768, buffer.getShort(base + format.getOffset(1) + 2) & 0xffff);
+        assertEquals(255, buffer.get(base + format.getOffset(2)) & 0xff);
+        assertEquals(0, buffer.get(base + format.getOffset(2) + 1));
+        assertEquals(255, buffer.get(base + format.getOffset(2) + 2) & 0xff);
+        assertEquals(0, buffer.get(base + format.getOffset(2) + 3));
+        assertEquals(0, buffer.getShort(0));
+    }
+
+    /**
+     * Test conversion to half float.
+     */
+    public void testHalfFloat() {
+        assertEquals((short) 0x0000, VertexFormat.toHalfFloat(0));
+        assertEquals((short) 0x3c00, VertexFormat.toHalfFloat(1));
+        assertEquals((short) 0x3800, VertexFormat.toHalfFloat(0.5f));
+        assertEquals((short) 0x7bff, VertexFormat.toHalfFloat(65504));
+        assertEquals((short) 0x7c00, VertexFormat.toHalfFloat(100000));
+        assertEquals((short) 0xfc00, VertexFormat.toHalfFloat(Float.NEGATIVE_INFINITY));
+        assertEquals((short) 0x0001, VertexFormat.toHalfFloat(5.9604645E-8f));
+        assertEquals((short) 0x4d00, VertexFormat.toHalfFloat(20));
+    }
+
+}
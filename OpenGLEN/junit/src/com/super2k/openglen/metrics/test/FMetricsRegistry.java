@@ -0,0 +1,135 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.metrics.test;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.metrics.MetricsHttpServer;
+import com.super2k.openglen.metrics.MetricsRegistry;
+import com.super2k.openglen.metrics.MetricsSource;
+
+/**
+ * Test the MetricsRegistry and MetricsHttpServer classes.
+ * @author Richard Sahlin
+ *
+ */
+public class FMetricsRegistry extends TestCase {
+
+    private final static String COUNTER_NAME = "test_counter_total";
+    private final static String GAUGE_NAME = "test_gauge";
+
+    private final static String FAIL_SHOULD_THROW_ILLEGAL = "Should throw IllegalArgumentException";
+
+    /**
+     * Test that registering returns the same id for the same name and that invalid
+     * names and types are rejected.
+     */
+    public void testRegister() {
+        MetricsRegistry registry = new MetricsRegistry(2);
+        int counter = registry.register(COUNTER_NAME, null, MetricsRegistry.TYPE_COUNTER);
+        int gauge = registry.register(GAUGE_NAME, null, MetricsRegistry.TYPE_GAUGE);
+        assertTrue(counter != gauge);
+        assertEquals(counter, registry.register(COUNTER_NAME, null,
+                MetricsRegistry.TYPE_COUNTER));
+        try {
+            registry.register("1invalid", null, MetricsRegistry.TYPE_GAUGE);
+            fail(FAIL_SHOULD_THROW_ILLEGAL);
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        try {
+            registry.register(COUNTER_NAME, null, MetricsRegistry.TYPE_GAUGE);
+            fail(FAIL_SHOULD_THROW_ILLEGAL);
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        try {
+            registry.register("full", null, MetricsRegistry.TYPE_GAUGE);
+            fail("Should throw IllegalStateException");
+        } catch (IllegalStateException e) {
+            //Expected
+        }
+    }
+
+    /**
+     * Test that values are only visible to the reader after update and that sources are
+     * called on update.
+     */
+    public void testUpdate() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.addSource(new MetricsSource() {
+            int mId;
+            @Override
+            public void registerMetrics(MetricsRegistry registry) {
+                mId = registry.register(COUNTER_NAME, "A counter", MetricsRegistry.TYPE_COUNTER);
+            }
+            @Override
+            public void updateMetrics(MetricsRegistry registry) {
+                registry.add(mId, 2);
+            }
+        });
+        int gauge = registry.register(GAUGE_NAME, null, MetricsRegistry.TYPE_GAUGE);
+        registry.set(gauge, 10);
+        assertEquals(0, registry.getSnapshotValue(GAUGE_NAME));
+        assertEquals(0, registry.getSnapshotSequence());
+        for (int i = 0; i < 5; i++) {
+            registry.update();
+        }
+        assertEquals(10, registry.getSnapshotValue(GAUGE_NAME));
+        assertEquals(10, registry.getSnapshotValue(COUNTER_NAME));
+        assertEquals(5, registry.getSnapshotSequence());
+        registry.set(gauge, 3);
+        registry.update();
+        assertEquals(3, registry.getSnapshotValue(GAUGE_NAME));
+
+        String text = registry.formatPrometheus();
+        assertTrue(text.contains("# HELP " + COUNTER_NAME + " A counter\n"));
+        assertTrue(text.contains("# TYPE " + COUNTER_NAME + " counter\n"));
+        assertTrue(text.contains(COUNTER_NAME + " 12\n"));
+        assertTrue(text.contains("# TYPE " + GAUGE_NAME + " gauge\n"));
+        assertTrue(text.contains(GAUGE_NAME + " 3\n"));
+    }
+
+    /**
+     * Test that the server listens on the loopback address unless an address is specified.
+     * @throws IOException
+     */
+    public void testServerAddress() throws IOException {
+        MetricsHttpServer server = new MetricsHttpServer(new MetricsRegistry());
+        assertNull(server.getAddress());
+        server.start(0);
+        try {
+            assertTrue(server.getAddress().isLoopbackAddress());
+            assertTrue(server.getPort() > 0);
+        } finally {
+            server.stop();
+        }
+        server = new MetricsHttpServer(new MetricsRegistry());
+        server.start("0.0.0.0", 0);
+        try {
+            assertTrue(server.getAddress().isAnyLocalAddress());
+        } finally {
+            server.stop();
+        }
+        try {
+            server.start(null, 0);
+            fail(FAIL_SHOULD_THROW_ILLEGAL);
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+}
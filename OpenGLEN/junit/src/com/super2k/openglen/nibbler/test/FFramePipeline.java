@@ -0,0 +1,75 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.nibbler.test;
+
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.nibbler.FramePipeline;
+import com.super2k.openglen.nibbler.FrameSimulation;
+import com.super2k.openglen.objects.FrameState;
+import com.super2k.openglen.objects.GLBlitObject;
+
+/**
+ * Test the FramePipeline class.
+ * @author Richard Sahlin
+ *
+ */
+public class FFramePipeline extends TestCase {
+
+    private final static int OBJECT_COUNT = 100;
+    private final static int FRAMES = 2000;
+
+    /**
+     * Test that acquired snapshots are consistent, all objects in a snapshot have the values
+     * from the same simulated frame, and that frames are not skipped when rendering ahead by one.
+     */
+    public void testAcquire() {
+        final Vector<GLBlitObject> list = new Vector<GLBlitObject>();
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            list.add(new GLBlitObject());
+        }
+        FramePipeline pipeline = new FramePipeline(list, new FrameSimulation() {
+            @Override
+            public void simulateFrame(long frame) {
+                for (int i = 0; i < OBJECT_COUNT; i++) {
+                    list.elementAt(i).position[0] = frame;
+                    list.elementAt(i).position[1] = i;
+                }
+            }
+        }, FramePipeline.DEFAULT_RENDER_AHEAD);
+
+        pipeline.start();
+        long previous = 0;
+        FrameState state;
+        int count = 0;
+        while (previous < FRAMES) {
+            state = pipeline.acquire();
+            assertEquals(OBJECT_COUNT, state.getCount());
+            assertTrue(state.getFrame() >= previous);
+            assertTrue(state.getFrame() <= previous + 1);
+            float[] position = state.getPosition();
+            for (int i = 0; i < OBJECT_COUNT; i++) {
+                assertEquals((float) state.getFrame(), position[i * FrameState.COMPONENTS]);
+                assertEquals((float) i, position[i * FrameState.COMPONENTS + 1]);
+            }
+            previous = state.getFrame();
+            count++;
+        }
+        pipeline.stop();
+        assertTrue(count >= FRAMES);
+    }
+
+}
@@ -0,0 +1,126 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.objects.test;
+
+import java.nio.ShortBuffer;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.geometry.VertexFormat;
+import com.super2k.openglen.objects.GLBlitObject;
+
+/**
+ * Test the GLBlitObject class.
+ * @author Richard Sahlin
+ *
+ */
+public class FGLBlitObject extends TestCase {
+
+    /**
+     * Test that the vertex format is selected from the texture coordinate range.
+     */
+    public void testVertexFormat() {
+        GLBlitObject blit = new GLBlitObject();
+        blit.create(2, 1, 1);
+        assertSame(GLBlitObject.COMPACT_FORMAT, blit.getVertexFormat());
+        assertEquals(16 * 16, blit.arrayData.capacity());
+        blit.create(1, 4, 1);
+        assertSame(GLBlitObject.FLOAT_TEXCOORD_FORMAT, blit.getVertexFormat());
+        assertEquals(4 * 20, blit.arrayData.capacity());
+        blit.create(1, 1, 1, GLBlitObject.FLOAT_FORMAT);
+        assertEquals(4 * 32, blit.arrayData.capacity());
+        assertEquals(1f, blit.arrayBuffer.get(5), 0f);
+        try {
+            blit.create(1, 1, 1, new VertexFormat(new int[] {GLBlitObject.VERTEX_ATTRIBUTE}));
+            fail("Should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //Pass
+        }
+    }
+
+    /**
+     * Test that the compact format stores texture coordinates as normalized unsigned shorts
+     * with the same values as the float format, and that normals are not stored.
+     */
+    public void testCompactTexCoords() {
+        VertexFormat compact = GLBlitObject.COMPACT_FORMAT;
+        VertexFormat floats = GLBlitObject.FLOAT_TEXCOORD_FORMAT;
+        assertTrue(compact.getAttribute(GLBlitObject.NORMAL_ATTRIBUTE) < 0);
+        assertTrue(floats.getAttribute(GLBlitObject.NORMAL_ATTRIBUTE) < 0);
+        int uv = compact.getAttribute(GLBlitObject.TEXCOORD_ATTRIBUTE);
+        assertEquals(ConstantValues.UNSIGNED_SHORT, compact.getType(uv));
+        assertTrue(compact.isNormalized(uv));
+        int floatUV = floats.getAttribute(GLBlitObject.TEXCOORD_ATTRIBUTE);
+
+        GLBlitObject compactBlit = new GLBlitObject();
+        compactBlit.create(2, 1, 1);
+        GLBlitObject floatBlit = new GLBlitObject();
+        floatBlit.create(2, 1, 1, floats);
+        for (int vertex = 0; vertex < compactBlit.getVertexCount(); vertex++) {
+            for (int i = 0; i < 2; i++) {
+                int value = compactBlit.arrayData.getShort(vertex * compact.getStride() +
+                        compact.getOffset(uv) + i * 2) & 0xffff;
+                float expected = floatBlit.arrayData.getFloat(vertex * floats.getStride() +
+                        floats.getOffset(floatUV) + i * 4);
+                assertEquals(expected, value / 65535f, 1f / 65535);
+            }
+        }
+    }
+
+    /**
+     * Test that blits with the same subdivision share the triangle indexes.
+     */
+    public void testSharedIndices() {
+        GLBlitObject blit1 = new GLBlitObject();
+        GLBlitObject blit2 = new GLBlitObject();
+        GLBlitObject blit3 = new GLBlitObject();
+        blit1.create(2, 1, 1);
+        blit2.create(2, 1, 1);
+        blit3.create(3, 1, 1);
+        ShortBuffer indices1 = blit1.getElementBuffer();
+        ShortBuffer indices2 = blit2.getElementBuffer();
+        assertNotSame(indices1, indices2);
+        indices1.position(3);
+        assertEquals(0, indices2.position());
+        assertEquals(blit1.getIndexCount(), indices1.capacity());
+        assertEquals(blit3.getIndexCount(), blit3.getElementBuffer().capacity());
+        short[] quad = new short[] {4, 7, 5, 4, 6, 7};
+        for (int i = 0; i < quad.length; i++) {
+            assertEquals(quad[i], indices2.get(6 + i));
+        }
+        assertEquals(2, blit1.getDivision());
+    }
+
+    /**
+     * Test that shared indices are released when no blit uses them.
+     */
+    public void testReleaseIndices() {
+        int count = GLBlitObject.getSharedIndicesCount();
+        GLBlitObject blit1 = new GLBlitObject();
+        GLBlitObject blit2 = new GLBlitObject();
+        blit1.create(7, 1, 1);
+        blit2.create(7, 1, 1);
+        assertEquals(count + 1, GLBlitObject.getSharedIndicesCount());
+        blit1.create(8, 1, 1);
+        assertEquals(count + 2, GLBlitObject.getSharedIndicesCount());
+        blit2.destroy();
+        assertEquals(count + 1, GLBlitObject.getSharedIndicesCount());
+        blit1.destroy();
+        assertEquals(count, GLBlitObject.getSharedIndicesCount());
+        blit1.destroy();
+        assertEquals(count, GLBlitObject.getSharedIndicesCount());
+    }
+
+}
@@ -0,0 +1,124 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.objects.test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.objects.ConcurrentObjectPool;
+import com.super2k.openglen.objects.GLBlitObject;
+import com.super2k.openglen.objects.ObjectPool;
+import com.super2k.openglen.objects.PooledObject;
+
+/**
+ * Test the ObjectPool and ConcurrentObjectPool classes.
+ * @author Richard Sahlin
+ *
+ */
+public class FObjectPool extends TestCase {
+
+    private final static int KEY = 3;
+    private final static int COUNT = 16;
+    private final static int THREADS = 4;
+    private final static int ITERATIONS = 100000;
+
+    /**
+     * Test get, release and the pool statistics.
+     */
+    public void testObjectPool() {
+        ObjectPool<GLBlitObject> pool = new ObjectPool<GLBlitObject>();
+        assertFalse(pool.hasKey(KEY));
+        for (int i = 0; i < COUNT; i++) {
+            pool.add(KEY, new GLBlitObject());
+        }
+        assertTrue(pool.hasKey(KEY));
+        assertEquals(COUNT, pool.getCapacity());
+        GLBlitObject[] objects = new GLBlitObject[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            objects[i] = pool.get(KEY);
+            assertEquals(KEY, objects[i].getKey());
+        }
+        assertNull(pool.get(KEY));
+        assertEquals(1, pool.getMisses());
+        assertEquals(COUNT, pool.getHighWater());
+        for (int i = 0; i < COUNT; i++) {
+            assertTrue(pool.release(objects[i]));
+        }
+        assertEquals(COUNT, pool.getAvailable(KEY));
+        assertEquals(COUNT, pool.getHighWater());
+        GLBlitObject notPooled = new GLBlitObject();
+        assertEquals(PooledObject.NOT_POOLED_OBJECT, notPooled.getKey());
+        assertFalse(pool.release(notPooled));
+        try {
+            pool.get(KEY + 1);
+            fail("No pool for key, should throw exception.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+    /**
+     * Test getting and releasing objects from several threads.
+     * @throws InterruptedException
+     */
+    public void testConcurrentObjectPool() throws InterruptedException {
+        final ConcurrentObjectPool<GLBlitObject> pool = new ConcurrentObjectPool<GLBlitObject>();
+        pool.createPool(KEY, COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            pool.add(KEY, new GLBlitObject());
+        }
+        final AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    GLBlitObject[] held = new GLBlitObject[COUNT / THREADS];
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        for (int h = 0; h < held.length; h++) {
+                            held[h] = pool.get(KEY);
+                            if (held[h] == null) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                        for (int h = 0; h < held.length; h++) {
+                            if (held[h] != null) {
+                                pool.release(held[h]);
+                            }
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < THREADS; t++) {
+            threads[t].join();
+        }
+        assertEquals(0, errors.get());
+        assertEquals(0, pool.getMisses());
+        assertEquals(COUNT, pool.getAvailable());
+        assertTrue(pool.getHighWater() <= COUNT);
+        //All objects are unique.
+        GLBlitObject[] objects = new GLBlitObject[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            objects[i] = pool.get(KEY);
+            for (int j = 0; j < i; j++) {
+                assertNotSame(objects[j], objects[i]);
+            }
+        }
+        assertNull(pool.get(KEY));
+    }
+
+}
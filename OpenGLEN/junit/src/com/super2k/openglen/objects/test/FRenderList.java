@@ -0,0 +1,74 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.objects.test;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.objects.GLBlitObject;
+import com.super2k.openglen.objects.RenderList;
+
+/**
+ * Test the RenderList class.
+ * @author Richard Sahlin
+ *
+ */
+public class FRenderList extends TestCase {
+
+    private final static int COUNT = 40;
+
+    /**
+     * Test that handles are stable when objects are removed and that the list stays dense.
+     */
+    public void testAddRemove() {
+        RenderList<GLBlitObject> list = new RenderList<GLBlitObject>(4);
+        GLBlitObject[] objects = new GLBlitObject[COUNT];
+        int[] handles = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            objects[i] = new GLBlitObject();
+            handles[i] = list.add(objects[i]);
+            assertSame(objects[i], list.elementAt(i));
+        }
+        assertEquals(COUNT, list.size());
+        //Remove every other object.
+        for (int i = 0; i < COUNT; i += 2) {
+            assertSame(objects[i], list.remove(handles[i]));
+        }
+        assertEquals(COUNT / 2, list.size());
+        for (int i = 1; i < COUNT; i += 2) {
+            assertSame(objects[i], list.get(handles[i]));
+            assertSame(objects[i], list.elementAt(list.getIndex(handles[i])));
+        }
+        Object[] array = list.getObjects();
+        for (int i = 0; i < list.size(); i++) {
+            assertNotNull(array[i]);
+        }
+        for (int i = list.size(); i < array.length; i++) {
+            assertNull(array[i]);
+        }
+        try {
+            list.get(handles[0]);
+            fail("Removed handle, should throw exception.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        //Handles are reused.
+        GLBlitObject added = new GLBlitObject();
+        int handle = list.add(added);
+        assertTrue(handle < COUNT);
+        assertSame(added, list.get(handle));
+        list.clear();
+        assertEquals(0, list.size());
+    }
+
+}
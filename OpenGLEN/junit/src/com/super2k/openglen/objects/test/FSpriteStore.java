@@ -0,0 +1,113 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.objects.test;
+
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.geometry.Material;
+import com.super2k.openglen.objects.FrameState;
+import com.super2k.openglen.objects.GLBlitObject;
+import com.super2k.openglen.objects.RenderList;
+import com.super2k.openglen.objects.SpriteStore;
+
+/**
+ * Test the SpriteStore class.
+ * @author Richard Sahlin
+ *
+ */
+public class FSpriteStore extends TestCase {
+
+    private final static int COUNT = 20;
+
+    /**
+     * Test that values follow the sprites when the store grows and sprites are removed.
+     */
+    public void testAddRemove() {
+        SpriteStore store = new SpriteStore(2);
+        GLBlitObject[] objects = new GLBlitObject[COUNT];
+        int[] handles = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            objects[i] = new GLBlitObject();
+            objects[i].set(i, 0, 0);
+            handles[i] = store.add(objects[i]);
+            store.setScale(handles[i], 1, i, 1);
+        }
+        assertEquals(COUNT, store.getCount());
+        for (int i = 0; i < COUNT; i += 3) {
+            assertSame(objects[i], store.remove(handles[i]));
+        }
+        store.translate(0, 1, 0);
+        float[] position = store.getPosition();
+        float[] scale = store.getScale();
+        for (int i = 0; i < COUNT; i++) {
+            if (i % 3 != 0) {
+                int offset = store.getOffset(handles[i]);
+                assertSame(objects[i], store.getObjects().elementAt(offset /
+                        FrameState.COMPONENTS));
+                assertEquals((float) i, position[offset]);
+                assertEquals(1f, position[offset + 1]);
+                assertEquals((float) i, scale[offset + 1]);
+                assertTrue(store.getRenderFlag(offset / FrameState.COMPONENTS));
+            }
+        }
+        assertEquals(store.getObjects().size(), store.getCount());
+    }
+
+    /**
+     * Test that capture copies from the objects of the store and that other lists are
+     * not captured, and that a sprite without material gets a cleared diffuse color.
+     */
+    public void testCapture() {
+        SpriteStore store = new SpriteStore(COUNT);
+        GLBlitObject first = new GLBlitObject();
+        first.material = new Material();
+        first.material.diffuse[0] = 1;
+        int handle = store.add(first);
+        store.remove(handle);
+        GLBlitObject second = new GLBlitObject();
+        second.material = null;
+        handle = store.add(second);
+        int offset = store.getOffset(handle);
+        for (int i = 0; i < FrameState.COMPONENTS; i++) {
+            assertEquals(0f, store.getDiffuse()[offset + i]);
+        }
+        second.set(5, 6, 7);
+        store.capture(3);
+        assertEquals(3, store.getFrame());
+        assertEquals(5f, store.getPosition()[offset]);
+        assertEquals(1, store.getCount());
+        store.capture(store.getObjects(), 4);
+        assertEquals(4, store.getFrame());
+        RenderList<GLBlitObject> list = new RenderList<GLBlitObject>(COUNT);
+        list.add(new GLBlitObject());
+        list.add(new GLBlitObject());
+        try {
+            store.capture(list, 5);
+            fail("Should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        try {
+            store.capture(new Vector<GLBlitObject>(), 5);
+            fail("Should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        assertEquals(1, store.getCount());
+        assertEquals(4, store.getFrame());
+    }
+
+}
@@ -0,0 +1,109 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.program.test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.RendererInfo;
+import com.super2k.openglen.program.ProgramBinaryCache;
+
+/**
+ * Test the ProgramBinaryCache class.
+ * @author Richard Sahlin
+ *
+ */
+public class FProgramBinaryCache extends TestCase {
+
+    private final static String VERTEX = "void main() { gl_Position = vec4(0); }";
+    private final static String FRAGMENT = "void main() { gl_FragColor = vec4(1); }";
+    private final static String[] ATTRIBS = new String[] {"position", "uv"};
+
+    /**
+     * Test that binaries are stored and loaded, and that the key depends on the driver.
+     */
+    public void testStoreLoad() {
+        File dir = new File(System.getProperty("java.io.tmpdir"),
+                "openglen-programcache-" + System.nanoTime());
+        ProgramBinaryCache cache = new ProgramBinaryCache(dir);
+        cache.setRendererInfo(new RendererInfo("vendor", "renderer", "1.0", ""));
+        String key = cache.getKey(VERTEX, FRAGMENT, ATTRIBS);
+        assertEquals(key, cache.getKey(VERTEX, FRAGMENT, ATTRIBS));
+        assertFalse(key.equals(cache.getKey(FRAGMENT, VERTEX, ATTRIBS)));
+        int[] format = new int[1];
+        assertNull(cache.load(key, format));
+        byte[] binary = new byte[] {1, 2, 3, 4, 5};
+        assertTrue(cache.store(key, 0x1234, binary));
+        byte[] loaded = cache.load(key, format);
+        assertEquals(0x1234, format[0]);
+        assertEquals(binary.length, loaded.length);
+        for (int i = 0; i < binary.length; i++) {
+            assertEquals(binary[i], loaded[i]);
+        }
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        cache.setRendererInfo(new RendererInfo("vendor", "renderer", "1.1", ""));
+        assertFalse(key.equals(cache.getKey(VERTEX, FRAGMENT, ATTRIBS)));
+        cache.remove(key);
+        assertNull(cache.load(key, format));
+        dir.delete();
+    }
+
+    /**
+     * Test that a file with an invalid length is treated as a miss and removed.
+     * @throws IOException
+     */
+    public void testCorruptFile() throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"),
+                "openglen-programcache-" + System.nanoTime());
+        ProgramBinaryCache cache = new ProgramBinaryCache(dir);
+        String key = cache.getKey(VERTEX, FRAGMENT, ATTRIBS);
+        int[] format = new int[1];
+        assertTrue(cache.store(key, 0x1234, new byte[] {1, 2, 3, 4}));
+        File[] files = dir.listFiles();
+        assertEquals(1, files.length);
+        File file = files[0];
+        writeHeader(file, Integer.MAX_VALUE);
+        assertNull(cache.load(key, format));
+        assertFalse(file.exists());
+        writeHeader(file, -1);
+        assertNull(cache.load(key, format));
+        assertFalse(file.exists());
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        dir.delete();
+    }
+
+    /**
+     * Writes a cache file header with no binary data.
+     * @param file
+     * @param length The binary length to write.
+     * @throws IOException
+     */
+    private void writeHeader(File file, int length) throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(1);
+            out.writeInt(0x1234);
+            out.writeInt(length);
+        } finally {
+            out.close();
+        }
+    }
+
+}
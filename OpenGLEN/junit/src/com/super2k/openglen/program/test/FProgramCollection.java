@@ -0,0 +1,328 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.program.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.nio.Buffer;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.program.ProgramBinaryCache;
+import com.super2k.openglen.program.ProgramCollection;
+import com.super2k.openglen.program.ProgramHandler;
+import com.super2k.openglen.utils.GraphicsLibraryHandler;
+import com.super2k.openglen.utils.StubGraphicsLibraryHandler;
+
+/**
+ * Test the loading of programs in ProgramCollection.
+ * @author Richard Sahlin
+ *
+ */
+public class FProgramCollection extends TestCase {
+
+    private final static String VERTEX = "vertex";
+    private final static String[][] VERTEX_NAMES = new String[][] {{"v0"}, {"v1"}};
+    private final static String[][] FRAGMENT_NAMES = new String[][] {{"f0"}, {"f1"}};
+
+    /**
+     * Test that the shaders are detached after link and deleted when all programs are loaded.
+     */
+    public void testDeleteShaders() {
+        RecordingProgramHandler handler =
+                new RecordingProgramHandler(new StubGraphicsLibraryHandler());
+        TestProgramCollection programs = createPrograms(handler);
+        programs.getProgram(0);
+        assertEquals(2, handler.mShaders.size());
+        assertEquals(2, handler.mDetached.size());
+        assertEquals(0, handler.mDeletedShaders.size());
+        programs.getProgram(1);
+        //Vertex shader is shared by the programs.
+        assertEquals(3, handler.mShaders.size());
+        assertEquals(4, handler.mDetached.size());
+        assertEquals(3, handler.mDeletedShaders.size());
+        for (int i = 0; i < handler.mShaders.size(); i++) {
+            assertTrue(handler.mDeletedShaders.contains(handler.mShaders.get(i)));
+        }
+        assertEquals(0, handler.mHints);
+    }
+
+    /**
+     * Test that the binary retrievable hint is set before linking when binaries are used.
+     */
+    public void testBinaryHint() {
+        RecordingProgramHandler handler =
+                new RecordingProgramHandler(new StubGraphicsLibraryHandler());
+        handler.mBinarySupported = true;
+        TestProgramCollection programs = createPrograms(handler);
+        File dir = new File(System.getProperty("java.io.tmpdir"),
+                "openglen-programcollection-" + System.nanoTime());
+        programs.setProgramBinaryCache(new ProgramBinaryCache(dir));
+        programs.getProgram(0);
+        assertEquals(1, handler.mHints);
+        assertEquals(1, handler.mHintBeforeLink);
+        dir.delete();
+    }
+
+    /**
+     * Test that a program that fails to link is deleted with its shaders and is not
+     * loaded again.
+     */
+    public void testFailedProgram() {
+        RecordingProgramHandler handler =
+                new RecordingProgramHandler(new StubGraphicsLibraryHandler());
+        TestProgramCollection programs = createPrograms(handler);
+        handler.mFailLink = true;
+        try {
+            programs.getProgram(1);
+            fail("Program shall fail to link");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        assertTrue(programs.isFailed(1));
+        assertFalse(programs.isLoaded(1));
+        assertEquals(1, handler.mPrograms);
+        assertEquals(1, handler.mDeletedPrograms.size());
+        assertEquals(2, handler.mDeletedShaders.size());
+        try {
+            programs.getProgram(1);
+            fail("Failed program shall not be loaded again");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+        assertEquals(1, handler.mPrograms);
+        handler.mFailLink = false;
+        programs.getProgram(0);
+        assertTrue(programs.isLoaded(0));
+        assertEquals(2, handler.mPrograms);
+        //All programs loaded or failed, shaders of program 0 are deleted.
+        assertEquals(4, handler.mDeletedShaders.size());
+    }
+
+    private TestProgramCollection createPrograms(ProgramHandler handler) {
+        TestProgramCollection programs = new TestProgramCollection(handler,
+                new StubGraphicsLibraryHandler());
+        programs.setup(VERTEX_NAMES, FRAGMENT_NAMES, 2, 1, new String[] {"position"},
+                new int[] {0});
+        programs.setLazyLoading(true, null);
+        return programs;
+    }
+
+    /**
+     * ProgramCollection with sources that are not read from files.
+     */
+    class TestProgramCollection extends ProgramCollection {
+
+        public TestProgramCollection(ProgramHandler programHandler,
+                GraphicsLibraryHandler graphicHandler) {
+            super(programHandler, graphicHandler);
+        }
+
+        @Override
+        protected String readVertexShaderSource(int index, String[][] vertexShaderNames) {
+            return VERTEX;
+        }
+
+        @Override
+        protected String readFragmentShaderSource(int index, String[][] fragmentShaderNames) {
+            return fragmentShaderNames[index][0];
+        }
+
+        @Override
+        public void setUniformLocations(int programIndex) {
+        }
+
+    }
+
+    /**
+     * ProgramHandler without a graphics library that records shader and program calls.
+     */
+    class RecordingProgramHandler extends ProgramHandler {
+
+        protected Vector<Integer> mShaders = new Vector<Integer>();
+        protected Vector<Integer> mDetached = new Vector<Integer>();
+        protected Vector<Integer> mDeletedShaders = new Vector<Integer>();
+        protected Vector<Integer> mDeletedPrograms = new Vector<Integer>();
+        protected int mNextName = 1;
+        protected int mHints;
+        protected int mHintBeforeLink;
+        protected int mPrograms;
+        protected boolean mBinarySupported;
+        protected boolean mLinked;
+        protected boolean mFailLink;
+
+        public RecordingProgramHandler(GraphicsLibraryHandler graphicsLibrary) {
+            super(graphicsLibrary);
+        }
+
+        @Override
+        public boolean isProgramBinarySupported() {
+            return mBinarySupported;
+        }
+
+        @Override
+        public void setBinaryRetrievableHint(int program) {
+            mHints++;
+            if (!mLinked) {
+                mHintBeforeLink++;
+            }
+        }
+
+        @Override
+        protected int internalCreateShader(int type) {
+            int name = mNextName++;
+            mShaders.add(Integer.valueOf(name));
+            return name;
+        }
+
+        @Override
+        protected int internalCreateProgram() {
+            mLinked = false;
+            mPrograms++;
+            return mNextName++;
+        }
+
+        @Override
+        protected int internalDeleteShader(int name) {
+            mDeletedShaders.add(Integer.valueOf(name));
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalDeleteProgram(int program) {
+            mDeletedPrograms.add(Integer.valueOf(program));
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalUseProgram(int program) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformMatrix(int uniform, int count, float[] matrix,
+                int offset) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformInt(int uniform, int value) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformFloat(int uniform, float value) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformVector(int uniform, int count, float[] vector,
+                int offset) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformVector3(int uniform, int count, float[] vector,
+                int offset) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetUniformVector2(int uniform, int count, float[] vector,
+                int offset) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalSetShaderSource(int shader, String source) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalAttachShader(int program, int shader) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalCompileShader(int shader) {
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalLinkProgram(int program) {
+            mLinked = true;
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        protected int internalDetachShader(int program, int shader) {
+            mDetached.add(Integer.valueOf(shader));
+            return ConstantValues.NO_ERROR;
+        }
+
+        @Override
+        public String getShaderSource(int shaderType, BufferedReader shaderSource,
+                boolean mainFile) {
+            return "";
+        }
+
+        @Override
+        public int getShaderParam(int shader, int param) {
+            return ConstantValues.TRUE;
+        }
+
+        @Override
+        public int getProgramParam(int program, int param) {
+            return mFailLink ? ConstantValues.FALSE : ConstantValues.TRUE;
+        }
+
+        @Override
+        public void logShaderInfo(int shader) {
+        }
+
+        @Override
+        public void logProgramInfo(int program) {
+        }
+
+        @Override
+        public void bindAttributeLocation(int program, int index, String name) {
+        }
+
+        @Override
+        protected void internalVertexAttrib3(int index, float[] values, int offset) {
+        }
+
+        @Override
+        protected void internalVertexAttribPointer(int index, int size, int type,
+                boolean normalized, int stride, int offset) {
+        }
+
+        @Override
+        protected void internalVertexAttribPointer(int index, int size, int type,
+                boolean normalized, int stride, Buffer data) {
+        }
+
+        @Override
+        protected void internalEnableVertexAttribArray(int index) {
+        }
+
+        @Override
+        protected void internalDisableVertexAttribArray(int index) {
+        }
+
+    }
+
+}
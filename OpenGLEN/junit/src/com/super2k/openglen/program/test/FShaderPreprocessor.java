@@ -0,0 +1,111 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.program.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Hashtable;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.nibbler.InputStreamResolver;
+import com.super2k.openglen.program.ShaderPreprocessor;
+
+/**
+ * Test the ShaderPreprocessor class.
+ * @author Richard Sahlin
+ *
+ */
+public class FShaderPreprocessor extends TestCase {
+
+    private final static String LIB = "lib.essl";
+    private final static String MAIN = "main.essl";
+    private final static String LIB_SOURCE = "float lib() { return 1.0; }\n";
+    private final static String MAIN_SOURCE = "#include \"" + LIB + "\"\n" +
+            "  #include \"" + LIB + "\"\n" +
+            "void main() { gl_FragColor = vec4(lib()); }\n";
+
+    /**
+     * Test that includes are resolved once and that defines are added first.
+     * @throws IOException
+     */
+    public void testGetSource() throws IOException {
+        ShaderPreprocessor preprocessor = new ShaderPreprocessor(null);
+        preprocessor.setInputStreamResolver(new Resolver());
+        String source = preprocessor.getSource(ConstantValues.FRAGMENT_SHADER,
+                new String[] {MAIN}, new String[] {"TEXTURE_COUNT 2"});
+        assertEquals(ShaderPreprocessor.DEFINE + ShaderPreprocessor.PRECISION + " " +
+                ShaderPreprocessor.DEFAULT_PRECISION + "\n" +
+                ShaderPreprocessor.DEFINE + "TEXTURE_COUNT 2\n" +
+                LIB_SOURCE + "void main() { gl_FragColor = vec4(lib()); }\n", source);
+    }
+
+    /**
+     * Test that files are read once and that sources are cached.
+     * @throws IOException
+     */
+    public void testCache() throws IOException {
+        ShaderPreprocessor preprocessor = new ShaderPreprocessor(null);
+        preprocessor.setInputStreamResolver(new Resolver());
+        String[] names = new String[] {MAIN};
+        String first = preprocessor.getSource(ConstantValues.FRAGMENT_SHADER, names,
+                new String[] {"SHADING_UNLIT"});
+        String second = preprocessor.getSource(ConstantValues.FRAGMENT_SHADER, names,
+                new String[] {"SHADING_LIT"});
+        assertFalse(first.equals(second));
+        assertSame(first, preprocessor.getSource(ConstantValues.FRAGMENT_SHADER, names,
+                new String[] {"SHADING_UNLIT"}));
+        assertEquals(2, preprocessor.getFileReads());
+        assertEquals(1, preprocessor.getCacheHits());
+        try {
+            preprocessor.getSource(ConstantValues.FRAGMENT_SHADER, new String[] {"none"},
+                    null);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+
+    /**
+     * Resolves sources from memory.
+     */
+    class Resolver implements InputStreamResolver {
+
+        private Hashtable<String, String> mSources = new Hashtable<String, String>();
+
+        Resolver() {
+            mSources.put("/" + LIB, LIB_SOURCE);
+            mSources.put("/" + MAIN, MAIN_SOURCE);
+        }
+
+        @Override
+        public InputStream openInputStream(String stream) throws IOException {
+            String source = mSources.get(stream);
+            if (source == null) {
+                throw new IOException("Not found: " + stream);
+            }
+            return new ByteArrayInputStream(source.getBytes("UTF-8"));
+        }
+
+        @Override
+        public FileDescriptor openFileDescriptor(String file) throws IOException {
+            throw new IOException("Not supported");
+        }
+
+    }
+
+}
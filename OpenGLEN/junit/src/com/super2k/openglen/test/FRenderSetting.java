@@ -192,4 +192,25 @@ public class FRenderSetting extends TestCase {
 
     }
 
+    /**
+     * Test setting and getting of error check mode.
+     */
+    public void testErrorCheck() {
+        RenderSetting rs = new RenderSetting();
+        assertEquals(RenderSetting.DEFAULT_ERROR_CHECK, rs.getErrorCheck());
+        rs.setErrorCheck(RenderSetting.ERROR_CHECK_CALL);
+        assertEquals(RenderSetting.ERROR_CHECK_CALL, rs.getErrorCheck());
+        rs.setErrorCheck(RenderSetting.ERROR_CHECK_OFF);
+        assertEquals(RenderSetting.ERROR_CHECK_OFF, rs.getErrorCheck());
+        try {
+            rs.setErrorCheck(TEST_INVALID_VALUE);
+            //Fail
+            assertTrue(FAILED_NO_EXCEPTION, false);
+        }
+        catch (IllegalArgumentException iae){
+            //Pass
+            assertTrue(true);
+        }
+    }
+
 }
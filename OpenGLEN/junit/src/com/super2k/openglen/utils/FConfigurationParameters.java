@@ -16,6 +16,7 @@ package com.super2k.openglen.utils;
 import junit.framework.TestCase;
 
 import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.RenderSetting;
 /**
  * Test the ConfigurationParameters util class.
  * @author Richard Sahlin
@@ -130,4 +131,39 @@ public class FConfigurationParameters extends TestCase {
         }
     }
 
+    /**
+     * Test that the error check property is read into the render setting.
+     */
+    public void testErrorCheckProperty() {
+        String[] values = ConfigurationParameters.ERROR_CHECK_STR_TABLE;
+        int[] expected = new int[] {RenderSetting.ERROR_CHECK_OFF,
+                                    RenderSetting.ERROR_CHECK_FRAME,
+                                    RenderSetting.ERROR_CHECK_CALL};
+        try {
+            RenderSetting setting = new RenderSetting();
+            ConfigurationParameters.getRenderConfiguration(setting);
+            assertEquals(RenderSetting.DEFAULT_ERROR_CHECK, setting.getErrorCheck());
+            for (int i = 0; i < values.length; i++) {
+                System.setProperty(ConfigurationParameters.PROPERTY_OPENGLEN_ERROR_CHECK,
+                        values[i]);
+                setting = new RenderSetting();
+                ConfigurationParameters.getRenderConfiguration(setting);
+                assertEquals(expected[i], setting.getErrorCheck());
+            }
+            try {
+                System.setProperty(ConfigurationParameters.PROPERTY_OPENGLEN_ERROR_CHECK,
+                        WINDOWFORMAT_INVALID_STR_VALUE);
+                ConfigurationParameters.getRenderConfiguration(new RenderSetting());
+                //Fail - should throw exception
+                fail(FAIL_SHOULD_THROW_ILLEGAL);
+            }
+            catch (IllegalArgumentException iae) {
+                //Pass
+                assertTrue(true);
+            }
+        } finally {
+            System.clearProperty(ConfigurationParameters.PROPERTY_OPENGLEN_ERROR_CHECK);
+        }
+    }
+
 }
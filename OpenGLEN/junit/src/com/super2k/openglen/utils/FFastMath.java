@@ -0,0 +1,78 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.utils;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the accuracy of the FastMath class.
+ * @author Richard Sahlin
+ *
+ */
+public class FFastMath extends TestCase {
+
+    private final static float RANGE = 100;
+    private final static int STEPS = 1000000;
+    private final static float TABLE_ERROR = 0.000001f;
+    private final static float POLYNOMIAL_ERROR = 0.0000015f;
+
+    @Override
+    protected void tearDown() {
+        FastMath.setMode(FastMath.MODE_EXACT);
+    }
+
+    /**
+     * Test that the table lookup is within the documented error.
+     */
+    public void testTable() {
+        for (int i = 0; i <= STEPS; i++) {
+            float angle = -RANGE + (2 * RANGE * i) / STEPS;
+            assertEquals(Math.sin(angle), FastMath.tableSin(angle), TABLE_ERROR);
+            assertEquals(Math.cos(angle), FastMath.tableCos(angle), TABLE_ERROR);
+        }
+    }
+
+    /**
+     * Test that the polynomial is within the documented error.
+     */
+    public void testPolynomial() {
+        for (int i = 0; i <= STEPS; i++) {
+            float angle = -RANGE + (2 * RANGE * i) / STEPS;
+            assertEquals(Math.sin(angle), FastMath.polySin(angle), POLYNOMIAL_ERROR);
+            assertEquals(Math.cos(angle), FastMath.polyCos(angle), POLYNOMIAL_ERROR);
+        }
+    }
+
+    /**
+     * Test that the mode selects the implementation.
+     */
+    public void testMode() {
+        float angle = 1.2345f;
+        assertEquals(FastMath.MODE_EXACT, FastMath.getMode());
+        assertEquals((float) Math.sin(angle), FastMath.sin(angle));
+        FastMath.setMode(FastMath.MODE_TABLE);
+        assertEquals(FastMath.tableSin(angle), FastMath.sin(angle));
+        assertEquals(FastMath.tableCos(angle), FastMath.cos(angle));
+        FastMath.setMode(FastMath.MODE_POLYNOMIAL);
+        assertEquals(FastMath.polySin(angle), FastMath.sin(angle));
+        assertEquals(FastMath.polyCos(angle), FastMath.cos(angle));
+        try {
+            FastMath.setMode(3);
+            fail("Invalid mode, should throw exception.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+}
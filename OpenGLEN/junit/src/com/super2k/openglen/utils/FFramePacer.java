@@ -0,0 +1,105 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.utils;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the FramePacer class, using a simulated clock.
+ * @author Richard Sahlin
+ *
+ */
+public class FFramePacer extends TestCase {
+
+    private final static int PERIOD = 10000;
+
+    /**
+     * FramePacer with a simulated clock, sleeps overshoot with a fixed amount.
+     */
+    class TestFramePacer extends FramePacer {
+
+        long mTime = 1000000000L;
+        long mOvershoot;
+
+        TestFramePacer(int periodMikros, long overshoot) {
+            super(periodMikros);
+            mOvershoot = overshoot;
+        }
+
+        @Override
+        protected long nanoTime() {
+            //Each read of the clock advances time, like a spin.
+            return mTime += 1000;
+        }
+
+        @Override
+        protected void sleep(long nanos) {
+            mTime += nanos + mOvershoot;
+        }
+    }
+
+    /**
+     * Test that frames are released on the deadline and that sleep overshoot is adapted to.
+     */
+    public void testPace() {
+        TestFramePacer pacer = new TestFramePacer(PERIOD, 3000000);
+        long first = pacer.pace();
+        long release = first;
+        for (int i = 1; i < 20; i++) {
+            release = pacer.pace();
+            long deadline = first + (long) i * PERIOD * 1000;
+            assertTrue(release >= deadline);
+        }
+        //Overshoot shall be adapted to and jitter low after the first frames.
+        assertEquals(3000, pacer.getSleepOvershoot(), 500);
+        pacer.resetStatistics();
+        for (int i = 0; i < 20; i++) {
+            pacer.pace();
+        }
+        assertTrue(pacer.getMaxJitter() <= 2);
+        assertEquals(0, pacer.getLateFrames());
+        assertEquals(PERIOD / 1000000f, pacer.getSmoothedDelta(), 0.0001f);
+    }
+
+    /**
+     * Test that deadlines stay on the grid when frames are late.
+     */
+    public void testLateFrame() {
+        TestFramePacer pacer = new TestFramePacer(PERIOD, 0);
+        long first = pacer.pace();
+        //Frame takes 2.5 periods
+        pacer.mTime += PERIOD * 2500L;
+        pacer.pace();
+        assertEquals(1, pacer.getLateFrames());
+        assertEquals(1, pacer.getSkippedDeadlines());
+        long release = pacer.pace();
+        assertTrue(release >= first + PERIOD * 3000L);
+        assertTrue(release < first + PERIOD * 3000L + 10000);
+    }
+
+    /**
+     * Test that period is rounded up to whole refresh intervals.
+     */
+    public void testRefreshRate() {
+        FramePacer pacer = new FramePacer(13000);
+        pacer.setRefreshRate(60);
+        assertEquals(16666, pacer.getPeriod());
+        pacer.setPeriod(20000);
+        assertEquals(33333, pacer.getPeriod());
+        assertEquals(20000, pacer.getMinPeriod());
+        pacer.setRefreshRate(0);
+        assertEquals(20000, pacer.getPeriod());
+    }
+
+}
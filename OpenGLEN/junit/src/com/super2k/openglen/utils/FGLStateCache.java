@@ -0,0 +1,115 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.utils;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.ConstantValues;
+
+/**
+ * Test the GLStateCache class.
+ * @author Richard Sahlin
+ *
+ */
+public class FGLStateCache extends TestCase {
+
+    /**
+     * Test that textures are tracked per texture unit and that deleted textures are unbound.
+     */
+    public void testTextures() {
+        GLStateCache cache = new GLStateCache();
+        assertTrue(cache.activeTexture(ConstantValues.TEXTURE0));
+        assertTrue(cache.bindTexture(ConstantValues.TEXTURE_2D, 5));
+        assertFalse(cache.bindTexture(ConstantValues.TEXTURE_2D, 5));
+        assertTrue(cache.bindTexture(ConstantValues.TEXTURE_CUBE_MAP, 5));
+        assertTrue(cache.activeTexture(ConstantValues.TEXTURE1));
+        assertFalse(cache.activeTexture(ConstantValues.TEXTURE1));
+        assertTrue(cache.bindTexture(ConstantValues.TEXTURE_2D, 5));
+        assertTrue(cache.activeTexture(ConstantValues.TEXTURE0));
+        assertFalse(cache.bindTexture(ConstantValues.TEXTURE_2D, 5));
+        cache.deleteTextures(1, new int[] {5}, 0);
+        assertTrue(cache.bindTexture(ConstantValues.TEXTURE_2D, 5));
+        assertFalse(cache.bindTexture(ConstantValues.TEXTURE_2D, 5));
+    }
+
+    /**
+     * Test buffers, caps, blend function and program.
+     */
+    public void testState() {
+        GLStateCache cache = new GLStateCache();
+        assertTrue(cache.bindBuffer(ConstantValues.ARRAY_BUFFER, 1));
+        assertTrue(cache.bindBuffer(ConstantValues.ELEMENT_ARRAY_BUFFER, 1));
+        assertFalse(cache.bindBuffer(ConstantValues.ARRAY_BUFFER, 1));
+        cache.deleteBuffers(1, new int[] {1}, 0);
+        assertFalse(cache.bindBuffer(ConstantValues.ARRAY_BUFFER, 0));
+        assertFalse(cache.bindBuffer(ConstantValues.ELEMENT_ARRAY_BUFFER, 0));
+
+        assertTrue(cache.setCapability(ConstantValues.BLEND, true));
+        assertFalse(cache.setCapability(ConstantValues.BLEND, true));
+        assertTrue(cache.setCapability(ConstantValues.BLEND, false));
+        assertTrue(cache.blendFunc(ConstantValues.SRC_ALPHA, ConstantValues.ONE));
+        assertFalse(cache.blendFunc(ConstantValues.SRC_ALPHA, ConstantValues.ONE));
+        assertTrue(cache.blendFunc(ConstantValues.ONE, ConstantValues.ONE));
+
+        assertTrue(cache.useProgram(3));
+        assertFalse(cache.useProgram(3));
+        cache.deleteProgram(3);
+        assertTrue(cache.useProgram(3));
+
+        assertTrue(cache.setVertexAttribArray(0, true));
+        assertFalse(cache.setVertexAttribArray(0, true));
+        assertTrue(cache.viewport(0, 0, 800, 480));
+        assertFalse(cache.viewport(0, 0, 800, 480));
+
+        cache.invalidate();
+        assertTrue(cache.useProgram(3));
+        assertTrue(cache.setCapability(ConstantValues.BLEND, false));
+    }
+
+    /**
+     * Test that element array buffer and vertex attrib arrays are unknown when another
+     * vertex array object is bound.
+     */
+    public void testVertexArray() {
+        GLStateCache cache = new GLStateCache();
+        assertTrue(cache.bindVertexArray(0));
+        assertTrue(cache.setVertexAttribArray(1, true));
+        assertTrue(cache.bindBuffer(ConstantValues.ELEMENT_ARRAY_BUFFER, 2));
+        assertTrue(cache.bindVertexArray(4));
+        assertFalse(cache.bindVertexArray(4));
+        assertTrue(cache.setVertexAttribArray(1, true));
+        assertTrue(cache.bindBuffer(ConstantValues.ELEMENT_ARRAY_BUFFER, 2));
+        assertFalse(cache.setVertexAttribArray(1, true));
+        cache.deleteVertexArrays(1, new int[] {4}, 0);
+        assertFalse(cache.bindVertexArray(0));
+        assertTrue(cache.setVertexAttribArray(1, true));
+    }
+
+    /**
+     * Test the call statistics.
+     */
+    public void testStatistics() {
+        GLStateCache cache = new GLStateCache();
+        cache.useProgram(1);
+        cache.useProgram(1);
+        cache.useProgram(1);
+        cache.setCapability(ConstantValues.DEPTH_TEST, true);
+        assertEquals(4, cache.getCalls());
+        assertEquals(2, cache.getRedundantCalls());
+        cache.resetStatistics();
+        assertEquals(0, cache.getCalls());
+        assertEquals(0, cache.getRedundantCalls());
+    }
+
+}
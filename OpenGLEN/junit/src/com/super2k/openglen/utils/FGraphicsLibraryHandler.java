@@ -0,0 +1,54 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.utils;
+
+import java.nio.ShortBuffer;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.OpenGLENException;
+import com.super2k.openglen.RenderSetting;
+
+/**
+ * Test the GraphicsLibraryHandler class.
+ * @author Richard Sahlin
+ *
+ */
+public class FGraphicsLibraryHandler extends TestCase {
+
+    /**
+     * Test that element buffers are shared and that they are forgotten when GL is setup
+     * for a new context.
+     * @throws OpenGLENException
+     */
+    public void testElementVBOs() throws OpenGLENException {
+        StubGraphicsLibraryHandler gl = new StubGraphicsLibraryHandler();
+        ShortBuffer indices = ShortBuffer.allocate(6);
+        int name = gl.acquireElementVBO(1, indices);
+        assertEquals(name, gl.acquireElementVBO(1, indices));
+        assertEquals(1, gl.getElementVBOCount());
+        assertEquals(12, gl.getVBOBytes());
+        assertTrue(gl.releaseElementVBO(name));
+        assertEquals(1, gl.getElementVBOCount());
+        gl.setupGL(new RenderSetting());
+        assertEquals(0, gl.getElementVBOCount());
+        assertEquals(0, gl.getVBOBytes());
+        assertFalse(gl.releaseElementVBO(name));
+        int newName = gl.acquireElementVBO(1, indices);
+        assertTrue(newName != name);
+        assertTrue(gl.releaseElementVBO(newName));
+        assertEquals(0, gl.getElementVBOCount());
+    }
+
+}
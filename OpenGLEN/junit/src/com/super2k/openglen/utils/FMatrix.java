@@ -0,0 +1,114 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.utils;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the batched methods in the Matrix class against the single matrix methods.
+ * @author Richard Sahlin
+ *
+ */
+public class FMatrix extends TestCase {
+
+    private final static int COUNT = 100;
+    private final static float DELTA = 0.00001f;
+
+    private final Random mRandom = new Random(1);
+
+    /**
+     * Test that batched mulVector3 gives the same result as mulVector3 for each vector.
+     */
+    public void testMulVector3() {
+        float[] matrix = createArray(16 + 3);
+        float[] vec = createArray(COUNT * 3 + 1);
+        float[] result = new float[COUNT * 3 + 2];
+        Matrix.mulVector3(result, 2, matrix, 3, vec, 1, COUNT);
+        float[] m = new float[16];
+        System.arraycopy(matrix, 3, m, 0, 16);
+        float[] v = new float[3];
+        float[] expected = new float[3];
+        for (int i = 0; i < COUNT; i++) {
+            System.arraycopy(vec, 1 + i * 3, v, 0, 3);
+            Matrix.mulVector3(expected, m, v);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(expected[c], result[2 + i * 3 + c], 0);
+            }
+        }
+    }
+
+    /**
+     * Test that batched mul4 gives the same result as mul4 for each pair.
+     */
+    public void testMul4() {
+        float[] m1 = createArray(COUNT * 16);
+        float[] m2 = createArray(COUNT * 16);
+        float[] result = new float[COUNT * 16];
+        Matrix.mul4(m1, 0, m2, 0, result, 0, COUNT);
+        float[] a = new float[16];
+        float[] b = new float[16];
+        float[] expected = new float[16];
+        for (int i = 0; i < COUNT; i++) {
+            System.arraycopy(m1, i * 16, a, 0, 16);
+            System.arraycopy(m2, i * 16, b, 0, 16);
+            Matrix.mul4(a, b, expected);
+            for (int c = 0; c < 16; c++) {
+                assertEquals(expected[c], result[i * 16 + c], 0);
+            }
+        }
+    }
+
+    /**
+     * Test that setTransformM gives translate * scale * rotate.
+     */
+    public void testSetTransformM() {
+        float[] position = createArray(COUNT * 4);
+        float[] scale = createArray(COUNT * 4);
+        float[] rotation = createArray(COUNT * 4);
+        float[] result = new float[COUNT * 16];
+        Matrix.setTransformM(result, 0, position, scale, rotation, 0, COUNT);
+        float[] ts = new float[16];
+        float[] rotate = new float[16];
+        float[] expected = new float[16];
+        float toDegrees = (float) (180 / Math.PI);
+        for (int i = 0; i < COUNT; i++) {
+            int index = i * 4;
+            Matrix.setIdentityM(ts, 0);
+            Matrix.translateM(ts, 0, position[index], position[index + 1], position[index + 2]);
+            Matrix.scaleM(ts, 0, scale[index], scale[index + 1], scale[index + 2]);
+            Matrix.setRotateEulerM(rotate, 0, rotation[index] * toDegrees,
+                    rotation[index + 1] * toDegrees, rotation[index + 2] * toDegrees);
+            Matrix.mul4(ts, rotate, expected);
+            for (int c = 0; c < 16; c++) {
+                assertEquals(expected[c], result[i * 16 + c], DELTA);
+            }
+        }
+    }
+
+    /**
+     * Creates an array with random values between -1 and 1
+     * @param size
+     * @return
+     */
+    private float[] createArray(int size) {
+        float[] array = new float[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = mRandom.nextFloat() * 2 - 1;
+        }
+        return array;
+    }
+
+}
@@ -0,0 +1,123 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.utils;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.ProfileInfo;
+
+/**
+ * Test the MemorySampler class and the memory values in ProfileInfo.
+ * @author Richard Sahlin
+ *
+ */
+public class FMemorySampler extends TestCase {
+
+    /**
+     * Number of bytes allocated by each read of allocated bytes in the stub sampler.
+     */
+    private final static int READ_OVERHEAD = 16;
+
+    /**
+     * Sampler returning values set by the test, each read of allocated bytes allocates
+     * READ_OVERHEAD bytes.
+     */
+    private static class StubSampler extends MemorySampler {
+
+        long mBytes;
+        long mCount;
+        long mTime;
+
+        @Override
+        public boolean isAllocationSupported() {
+            return true;
+        }
+
+        @Override
+        protected long readAllocatedBytes() {
+            long result = mBytes;
+            mBytes += READ_OVERHEAD;
+            return result;
+        }
+
+        @Override
+        protected long readGCCount() {
+            return mCount;
+        }
+
+        @Override
+        protected long readGCTime() {
+            return mTime;
+        }
+    }
+
+    /**
+     * Test that the bytes allocated by sampling are not counted.
+     */
+    public void testSample() {
+        StubSampler sampler = new StubSampler();
+        sampler.init();
+        long allocated = sampler.getAllocatedBytes();
+        sampler.sample();
+        assertEquals(allocated, sampler.getAllocatedBytes());
+        sampler.mBytes += 100;
+        sampler.mCount = 2;
+        sampler.mTime = 30;
+        sampler.sample();
+        assertEquals(allocated + 100, sampler.getAllocatedBytes());
+        assertEquals(2, sampler.getGCCount());
+        assertEquals(30, sampler.getGCTime());
+    }
+
+    /**
+     * Test that ProfileInfo attributes the sampled deltas to frames.
+     */
+    public void testProfileInfo() {
+        StubSampler sampler = new StubSampler();
+        sampler.init();
+        ProfileInfo info = new ProfileInfo();
+        info.reset();
+        info.setMemorySampler(sampler);
+        assertTrue(info.isMemoryProfiling());
+        //First update has no frame to attribute values to.
+        sampler.mBytes += 50;
+        info.update(0, 0, 0, 0, 0);
+        assertEquals(0, info.getAllocatedBytes());
+
+        sampler.mBytes += 100;
+        sampler.mCount = 1;
+        sampler.mTime = 5;
+        info.update(0, 0, 0, 0, 0);
+        assertEquals(100, info.getFrameAllocation());
+        assertEquals(5, info.getFrameGCTime());
+
+        sampler.mBytes += 300;
+        sampler.mCount = 3;
+        sampler.mTime = 12;
+        info.update(0, 0, 0, 0, 0);
+        assertEquals(300, info.getFrameAllocation());
+        assertEquals(400, info.getAllocatedBytes());
+        assertEquals(300, info.getMaxFrameAllocation());
+        assertEquals(200, info.getAverageFrameAllocation());
+        assertEquals(3, info.getGCCount());
+        assertEquals(12, info.getGCTime());
+        assertEquals(7, info.getFrameGCTime());
+
+        info.setAllocationBudget(150);
+        assertTrue(info.isAllocationBudgetExceeded());
+        info.setAllocationBudget(250);
+        assertFalse(info.isAllocationBudgetExceeded());
+    }
+
+}
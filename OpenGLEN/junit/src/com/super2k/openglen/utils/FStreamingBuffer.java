@@ -0,0 +1,143 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.utils;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import com.super2k.openglen.OpenGLENException;
+import com.super2k.openglen.RenderSetting;
+
+/**
+ * Test the StreamingBuffer class.
+ * @author Richard Sahlin
+ *
+ */
+public class FStreamingBuffer extends TestCase {
+
+    private final static int FRAME_SIZE = 100;
+    private final static int FRAMES = 3;
+
+    /**
+     * Records calls to bufferData and bufferSubData, bufferData is stored as
+     * {-1, size} and bufferSubData as {offset, size}
+     */
+    class RecordingHandler extends StubGraphicsLibraryHandler {
+
+        Vector<int[]> mCalls = new Vector<int[]>();
+
+        @Override
+        protected int internalBufferData(int target, int size, Buffer data, int usage) {
+            mCalls.add(new int[] {-1, size});
+            return super.internalBufferData(target, size, data, usage);
+        }
+
+        @Override
+        protected void internalBufferSubData(int target, int offset, int size, Buffer data) {
+            mCalls.add(new int[] {offset, size});
+        }
+
+        /**
+         * Checks the recorded calls and clears them.
+         * @param expected {offset, size} for each call, offset -1 for bufferData
+         */
+        void assertCalls(int[][] expected) {
+            assertEquals(expected.length, mCalls.size());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i][0], mCalls.get(i)[0]);
+                assertEquals(expected[i][1], mCalls.get(i)[1]);
+            }
+            mCalls.clear();
+        }
+    }
+
+    /**
+     * Test that uploads are appended and the buffer is orphaned when the data does not fit.
+     * @throws OpenGLENException
+     */
+    public void testWrapAndOrphan() throws OpenGLENException {
+        RecordingHandler gl = new RecordingHandler();
+        StreamingBuffer stream = new StreamingBuffer(gl, FRAME_SIZE, FRAMES);
+        ByteBuffer data = ByteBuffer.allocateDirect(1000);
+        assertEquals(FRAME_SIZE * FRAMES, stream.getSize());
+
+        assertEquals(0, stream.upload(data, 100));
+        gl.assertCalls(new int[][] {{-1, 300}, {0, 100}});
+        assertTrue(stream.getName() != 0);
+        //Offsets are aligned to 4 bytes.
+        assertEquals(100, stream.upload(data, 98));
+        assertEquals(200, stream.upload(data, 100));
+        gl.assertCalls(new int[][] {{100, 98}, {200, 100}});
+        assertEquals(0, stream.getOrphanCount());
+
+        //Does not fit in the remaining space, orphaned and stored at the beginning.
+        assertEquals(0, stream.upload(data, 4));
+        gl.assertCalls(new int[][] {{-1, 300}, {0, 4}});
+        assertEquals(1, stream.getOrphanCount());
+        assertEquals(302, stream.getUploadedBytes());
+        assertEquals(300, gl.getVBOBytes());
+        stream.resetStatistics();
+        assertEquals(0, stream.getOrphanCount());
+        assertEquals(0, stream.getUploadedBytes());
+    }
+
+    /**
+     * Test that the buffer grows when the data is larger than the buffer.
+     * @throws OpenGLENException
+     */
+    public void testGrow() throws OpenGLENException {
+        RecordingHandler gl = new RecordingHandler();
+        StreamingBuffer stream = new StreamingBuffer(gl, FRAME_SIZE, FRAMES);
+        ByteBuffer data = ByteBuffer.allocateDirect(1000);
+        stream.upload(data, 40);
+        gl.assertCalls(new int[][] {{-1, 300}, {0, 40}});
+
+        //Size is doubled if that is larger than the data.
+        assertEquals(0, stream.upload(data, 400));
+        gl.assertCalls(new int[][] {{-1, 600}, {0, 400}});
+        assertEquals(600, stream.getSize());
+        assertEquals(1, stream.getOrphanCount());
+        assertEquals(400, stream.upload(data, 200));
+        gl.assertCalls(new int[][] {{400, 200}});
+
+        //Otherwise the aligned size of the data is used.
+        assertEquals(0, stream.upload(data, 999));
+        gl.assertCalls(new int[][] {{-1, 1200}, {0, 999}});
+        assertEquals(1200, stream.getSize());
+        assertEquals(1200, gl.getVBOBytes());
+    }
+
+    /**
+     * Test that the buffer object is created again after GL is setup for a new context.
+     * @throws OpenGLENException
+     */
+    public void testReset() throws OpenGLENException {
+        RecordingHandler gl = new RecordingHandler();
+        StreamingBuffer stream = gl.getStreamingBuffer();
+        ByteBuffer data = ByteBuffer.allocateDirect(100);
+        stream.upload(data, 100);
+        int name = stream.getName();
+        gl.setupGL(new RenderSetting());
+        assertEquals(0, stream.getName());
+        assertEquals(0, gl.getVBOBytes());
+        gl.mCalls.clear();
+        assertEquals(0, stream.upload(data, 100));
+        gl.assertCalls(new int[][] {{-1, stream.getSize()}, {0, 100}});
+        assertTrue(stream.getName() != name);
+    }
+
+}
@@ -0,0 +1,175 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.utils;
+
+import java.nio.Buffer;
+
+import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.RenderSetting;
+
+/**
+ * GraphicsLibraryHandler without a graphics library, used by tests.
+ * Calls to read the GL error are counted, buffer names are generated from a counter.
+ * @author Richard Sahlin
+ *
+ */
+public class StubGraphicsLibraryHandler extends GraphicsLibraryHandler {
+
+    /**
+     * Number of calls to checkError() and clearError()
+     */
+    protected int mErrorReads;
+    /**
+     * Error returned by the next call to checkError()
+     */
+    protected int mError = ConstantValues.NO_ERROR;
+    protected int mNextBufferName = 1;
+
+    /**
+     * Returns the number of times the GL error has been read, by checkError() or clearError()
+     * @return Number of error reads.
+     */
+    public int getErrorReads() {
+        return mErrorReads;
+    }
+
+    /**
+     * Resets the number of error reads.
+     */
+    public void resetErrorReads() {
+        mErrorReads = 0;
+    }
+
+    /**
+     * Sets the error that is returned by the next call to checkError(), the error is
+     * cleared when read.
+     * @param error
+     */
+    public void setError(int error) {
+        mError = error;
+    }
+
+    @Override
+    public void setupGL(RenderSetting setting) {
+        resetContext();
+    }
+
+    @Override
+    public void setRenderSetting(RenderSetting setting) {
+    }
+
+    @Override
+    public int checkError() {
+        mErrorReads++;
+        int error = mError;
+        mError = ConstantValues.NO_ERROR;
+        return error;
+    }
+
+    @Override
+    protected String internalGetString(int name) {
+        return "";
+    }
+
+    @Override
+    protected void internalGetInteger(int pname, int[] value, int offset) {
+    }
+
+    @Override
+    protected void internalGetFloat(int pname, float[] value, int offset) {
+    }
+
+    @Override
+    protected void internalGetBoolean(int pname, boolean[] value, int offset) {
+    }
+
+    @Override
+    protected int internalBufferData(int target, int size, Buffer data, int usage) {
+        return ConstantValues.NO_ERROR;
+    }
+
+    @Override
+    protected void internalBufferSubData(int target, int offset, int size, Buffer data) {
+    }
+
+    @Override
+    protected void internalClearBuffer(int flags) {
+    }
+
+    @Override
+    protected void internalClearDepth(float depth) {
+    }
+
+    @Override
+    protected void internalClearColor(float[] colors, int offset) {
+    }
+
+    @Override
+    protected void internalClearStencil(int stencil) {
+    }
+
+    @Override
+    public void clearError() {
+        mErrorReads++;
+        mError = ConstantValues.NO_ERROR;
+    }
+
+    @Override
+    public int getUniformLocation(int program, String name) {
+        return -1;
+    }
+
+    @Override
+    public void genBuffers(int count, int[] names, int offset) {
+        for (int i = 0; i < count; i++) {
+            names[offset + i] = mNextBufferName++;
+        }
+    }
+
+    @Override
+    protected void internalBindBuffer(int target, int buffer) {
+    }
+
+    @Override
+    protected void internalViewport(int x, int y, int width, int height) {
+    }
+
+    @Override
+    protected void internalDeleteBuffers(int count, int[] names, int offset) {
+    }
+
+    @Override
+    protected void internalEnable(int cap) {
+    }
+
+    @Override
+    protected void internalDisable(int cap) {
+    }
+
+    @Override
+    protected void internalBlendFunc(int sourceFactor, int destFactor) {
+    }
+
+    @Override
+    public int getEGLConfigAttrib(Object egl, Object eglDisplay, Object config,
+            int attribute) {
+        return 0;
+    }
+
+    @Override
+    public void logConfig(Object eglObject, Object eglDisplayObject, Object configObject,
+            int loglevel) {
+    }
+
+}
@@ -245,6 +245,7 @@ public interface ConstantValues {
     public final static int FLOAT = 5126;               //From FLOAT
     public final static int BYTE =  5120;               //From BYTE
     public final static int SHORT = 5122;               //From SHORT
+    public final static int UNSIGNED_SHORT = 5123;      //From UNSIGNED_SHORT
     public final static int HALF_FLOAT_OES = 0x8D61;
 
 
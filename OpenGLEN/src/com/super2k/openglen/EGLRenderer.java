@@ -13,6 +13,8 @@
 
 package com.super2k.openglen;
 
+import com.super2k.openglen.utils.FramePacer;
+
 /**
  * Interface for classes that handle the screen rendering, this is usually done
  * via a graphics library such as OpenGL or Direct3D (but is implementation specific)
@@ -64,4 +66,11 @@ public interface EGLRenderer extends Renderer {
      */
     Object getEGLConfig();
 
+    /**
+     * Returns the frame pacer used by swapBuffers(), use this to set the min period between
+     * frames and to fetch the smoothed frame delta and jitter statistics.
+     * @return The frame pacer.
+     */
+    FramePacer getFramePacer();
+
 }
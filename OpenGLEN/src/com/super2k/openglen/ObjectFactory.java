@@ -258,14 +258,16 @@ public interface ObjectFactory {
      * createObjectPool
      * The object must be released back to the pool with a call to releaseObject.
      * @param type The type of object to return.
-     * @return
+     * @return The object, or null if all objects of the type are in use.
+     * @throws IllegalArgumentException If no pool has been created for the type.
      */
     public GLBlitObject getObject(int type);
 
     /**
      * Returns a particle array created with the specified key.
      * @param key Key used when particle was created.
-     * @return
+     * @return The particle array, or null if all particle arrays for the key are in use.
+     * @throws IllegalArgumentException If no pool has been created for the key.
      */
     public GLParticleArray getParticle(int key);
 
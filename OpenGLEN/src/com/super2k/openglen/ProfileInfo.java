@@ -16,6 +16,8 @@ package com.super2k.openglen;
 
 import android.util.Log;
 
+import com.super2k.openglen.utils.MemorySampler;
+
 
 /**
  * Class containing profileinformation for benchmarking.
@@ -28,10 +30,13 @@ public class ProfileInfo {
     protected final static String LOG_VERTEXRATE_STR = "(non VBO/VBO) Vertexcount/s: ";
     protected final static String LOG_INDICERATE_STR = "(non VBO/VBO) Indices/s: ";
     protected final static String LOG_DRAWCALLS_STR = "Drawcalls: ";
+    protected final static String LOG_CULLED_STR = "Culled: ";
     protected final static String LOG_COMPLEXITY_STR = "Complexity: ";
     protected final static String LOG_FRAMECOUNT_STR = "Frames: ";
     protected final static String LOG_AVERAGE_TICKS_STR = "Average ticks: ";
     protected final static String LOG_AVERAGE_FPS_STR = "FPS: ";
+    protected final static String LOG_ALLOCATION_STR = "Allocated bytes/frame average/max: ";
+    protected final static String LOG_GC_STR = "GC count/time(ms): ";
 
     protected int mMaxTicks;
     protected int mMinTicks;
@@ -42,6 +47,11 @@ public class ProfileInfo {
     protected int mVBOVertexCount;
     protected int mVBOIndexCount;
     protected int mDrawCalls;
+    /**
+     * Number of objects culled since reset, and in the last frame.
+     */
+    protected int mCulledObjects;
+    protected int mFrameCulledObjects;
     protected int mLogFrequency = 5000000; //Log info every 5 seconds by default.
     protected int mFrameTicks;
 
@@ -76,6 +86,46 @@ public class ProfileInfo {
      */
     protected int mComplexity;
 
+    /**
+     * Samples allocated bytes and garbage collections, null if memory profiling is not enabled.
+     */
+    protected MemorySampler mMemorySampler;
+    /**
+     * Bytes allocated by the render thread since reset, and max for one frame.
+     */
+    protected long mAllocatedBytes;
+    protected long mMaxFrameAllocation;
+    /**
+     * Bytes allocated by the render thread in the last frame.
+     */
+    protected long mFrameAllocation;
+    /**
+     * Number of garbage collections and millis spent collecting since reset.
+     */
+    protected int mGCCount;
+    protected int mGCTime;
+    /**
+     * Millis spent in garbage collection during the last frame.
+     */
+    protected int mFrameGCTime;
+
+    /**
+     * Array to store the allocated bytes for each frame, only used if memory profiling
+     * is enabled.
+     */
+    protected long[] mFrameAllocationBuffer;
+
+    /**
+     * Array to store the garbage collection time (millis) for each frame, only used if memory
+     * profiling is enabled.
+     */
+    protected int[] mFrameGCTimeBuffer;
+
+    /**
+     * Max average number of bytes the render thread may allocate each frame, -1 for no budget.
+     */
+    protected int mAllocationBudget = -1;
+
     /**
      * Resets values used for profiling - note that complexity is not reset since this
      * is considered to be set once.
@@ -91,8 +141,16 @@ public class ProfileInfo {
         mVBOVertexCount = 0;
         mVBOIndexCount = 0;
         mDrawCalls = 0;
+        mCulledObjects = 0;
+        mFrameCulledObjects = 0;
         mFrameTicks = 0;
         mCurrentTime = 0;
+        mAllocatedBytes = 0;
+        mMaxFrameAllocation = 0;
+        mFrameAllocation = 0;
+        mGCCount = 0;
+        mGCTime = 0;
+        mFrameGCTime = 0;
     }
 
     /**
@@ -104,6 +162,77 @@ public class ProfileInfo {
         mEnablePerFrameProfiling = flag;
     }
 
+    /**
+     * Enables sampling of the number of bytes allocated by the render thread and time spent in
+     * garbage collection, values are attributed to the frame they are sampled in.
+     * Allocated bytes are only available on VMs that support it through
+     * com.sun.management.ThreadMXBean, garbage collection needs java.lang.management.
+     * Sampling is done in update() and must be called from the render thread.
+     * @param flag True to enable memory profiling, false to disable.
+     * @return True if memory profiling is enabled, false if disabled or not supported by the
+     * platform.
+     */
+    public boolean setMemoryProfiling(boolean flag) {
+        if (!flag) {
+            mMemorySampler = null;
+            return false;
+        }
+        if (mMemorySampler == null) {
+            mMemorySampler = MemorySampler.createSampler();
+        }
+        return mMemorySampler != null;
+    }
+
+    /**
+     * Enables memory profiling using the specified sampler, use this to provide a sampler
+     * on platforms where MemorySampler.createSampler() is not supported.
+     * The sampler must be initialized on the render thread.
+     * @param sampler The memory sampler, or null to disable memory profiling.
+     */
+    public void setMemorySampler(MemorySampler sampler) {
+        mMemorySampler = sampler;
+    }
+
+    /**
+     * Returns true if memory profiling is enabled.
+     * @return True if allocated bytes and garbage collections are sampled each frame.
+     */
+    public boolean isMemoryProfiling() {
+        return mMemorySampler != null;
+    }
+
+    /**
+     * Sets the max average number of bytes that the render thread may allocate each frame.
+     * Use isAllocationBudgetExceeded() to check the budget, memory profiling must be enabled.
+     * @param bytes Max average allocated bytes per frame, -1 to disable.
+     * @throws IllegalArgumentException If bytes is < -1
+     */
+    public void setAllocationBudget(int bytes) {
+        if (bytes < -1) {
+            throw new IllegalArgumentException("Invalid allocation budget: " + bytes);
+        }
+        mAllocationBudget = bytes;
+    }
+
+    /**
+     * Returns the allocation budget, as set by setAllocationBudget()
+     * @return Max average allocated bytes per frame, or -1 if not set.
+     */
+    public int getAllocationBudget() {
+        return mAllocationBudget;
+    }
+
+    /**
+     * Checks if the average number of bytes allocated per frame, since reset, is above the
+     * allocation budget.
+     * @return True if an allocation budget is set and the average allocation per frame is
+     * larger than the budget.
+     */
+    public boolean isAllocationBudgetExceeded() {
+        return mAllocationBudget != -1 && mFrameCount > 0 &&
+                getAverageFrameAllocation() > mAllocationBudget;
+    }
+
     /**
      * Increases the complexity count, this variable is application specific.
      * Can be used to keep track of number of objects/layers etc.
@@ -145,6 +274,8 @@ public class ProfileInfo {
         }
         mFrameTicksBuffer = new int[frames];
         mFrameTimeStampBuffer = new long[frames];
+        mFrameAllocationBuffer = new long[frames];
+        mFrameGCTimeBuffer = new int[frames];
     }
 
     /**
@@ -177,6 +308,28 @@ public class ProfileInfo {
         return mFrameTimeStampBuffer;
     }
 
+    /**
+     * Returns buffer holding the bytes allocated by the render thread for each frame OR
+     * null if per frame profiling is not enabled.
+     * Values are only recorded if memory profiling is enabled.
+     * @return Array holding allocated bytes per frame or null.
+     * @see #setMemoryProfiling(boolean)
+     */
+    public long[] getFrameAllocationBuffer() {
+        return mFrameAllocationBuffer;
+    }
+
+    /**
+     * Returns buffer holding the millis spent in garbage collection for each frame OR
+     * null if per frame profiling is not enabled.
+     * Values are only recorded if memory profiling is enabled.
+     * @return Array holding garbage collection time per frame or null.
+     * @see #setMemoryProfiling(boolean)
+     */
+    public int[] getFrameGCTimeBuffer() {
+        return mFrameGCTimeBuffer;
+    }
+
     /**
      * Sets the estimated size of one frame in number of pixels.
      * If set this value is used to calculate fillrate over time.
@@ -204,10 +357,29 @@ public class ProfileInfo {
      * @param drawCalls The number of drawcalls
      */
     public void update(int vertices, int indices, int VBOvertices, int VBOIndices, int drawCalls) {
+        update(vertices, indices, VBOvertices, VBOIndices, drawCalls, 0);
+    }
+
+    /**
+     * Update the profile info, update timers and framecount.
+     * This is normally called by the renderer.
+     * @param vertices The number of vertices processed this frame
+     * @param indices The number of indices processed this frame.
+     * @param VBOvertices The number of VBO vertices processed this frame.
+     * @param VBOIndices The number of VBO indices processed this frame.
+     * @param drawCalls The number of drawcalls
+     * @param culled The number of objects that were not rendered because they are outside
+     * the view.
+     */
+    public void update(int vertices, int indices, int VBOvertices, int VBOIndices,
+            int drawCalls, int culled) {
 
         //Update performance counting.
         mPrevTime = mCurrentTime;
         mCurrentTime = System.nanoTime();
+        if (mMemorySampler != null) {
+            updateMemory();
+        }
         //We must skip first frame since we cannot get a delta time.
         if (mPrevTime != 0) {
             if (mCurrentTime < mPrevTime) {
@@ -225,6 +397,8 @@ public class ProfileInfo {
             mVBOVertexCount+= VBOvertices;
             mVBOIndexCount+= VBOIndices;
             mDrawCalls += drawCalls;
+            mCulledObjects += culled;
+            mFrameCulledObjects = culled;
 
             if (mFrameTicks > mMaxTicks)
                 mMaxTicks = mFrameTicks;
@@ -235,12 +409,40 @@ public class ProfileInfo {
                     mFrameTicksBuffer != null &&
                     mBufferIndex < mFrameTicksBuffer.length) {
                 mFrameTicksBuffer[mBufferIndex] = mFrameTicks;
+                mFrameAllocationBuffer[mBufferIndex] = mFrameAllocation;
+                mFrameGCTimeBuffer[mBufferIndex] = mFrameGCTime;
                 mFrameTimeStampBuffer[mBufferIndex++] = mCurrentTime;
             }
         }
 
     }
 
+    /**
+     * Samples allocated bytes and garbage collection, the delta since last sample is
+     * attributed to the frame.
+     * Internal method, called from update() when memory profiling is enabled.
+     */
+    protected void updateMemory() {
+        long allocated = mMemorySampler.getAllocatedBytes();
+        long gcCount = mMemorySampler.getGCCount();
+        long gcTime = mMemorySampler.getGCTime();
+        mMemorySampler.sample();
+        if (mPrevTime == 0) {
+            //No frame to attribute values to.
+            return;
+        }
+        if (allocated != -1) {
+            mFrameAllocation = mMemorySampler.getAllocatedBytes() - allocated;
+            mAllocatedBytes += mFrameAllocation;
+            if (mFrameAllocation > mMaxFrameAllocation) {
+                mMaxFrameAllocation = mFrameAllocation;
+            }
+        }
+        mFrameGCTime = (int) (mMemorySampler.getGCTime() - gcTime);
+        mGCTime += mFrameGCTime;
+        mGCCount += (int) (mMemorySampler.getGCCount() - gcCount);
+    }
+
     /**
      * Return the total number of ticks since profiling started.
      * @return
@@ -346,6 +548,83 @@ public class ProfileInfo {
         return mDrawCalls;
     }
 
+    /**
+     * Returns the number of objects culled since reset, culled objects are outside the view
+     * and not sent to GL.
+     * @return Number of culled objects.
+     */
+    public int getCulledObjects() {
+        return mCulledObjects;
+    }
+
+    /**
+     * Returns the number of objects culled in the last frame.
+     * @return Number of culled objects last frame.
+     */
+    public int getFrameCulledObjects() {
+        return mFrameCulledObjects;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the render thread since reset.
+     * Only valid if memory profiling is enabled and allocation is supported by the platform.
+     * @return Allocated bytes.
+     */
+    public long getAllocatedBytes() {
+        return mAllocatedBytes;
+    }
+
+    /**
+     * Returns the max number of bytes allocated by the render thread in one frame.
+     * @return Max allocated bytes for a frame.
+     */
+    public long getMaxFrameAllocation() {
+        return mMaxFrameAllocation;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the render thread in the last frame.
+     * @return Allocated bytes for the last frame.
+     */
+    public long getFrameAllocation() {
+        return mFrameAllocation;
+    }
+
+    /**
+     * Returns the average number of bytes allocated by the render thread per frame.
+     * @return Average allocated bytes per frame.
+     */
+    public long getAverageFrameAllocation() {
+        if (mFrameCount == 0) {
+            return 0;
+        }
+        return mAllocatedBytes / mFrameCount;
+    }
+
+    /**
+     * Returns the number of garbage collections since reset.
+     * @return Number of garbage collections.
+     */
+    public int getGCCount() {
+        return mGCCount;
+    }
+
+    /**
+     * Returns the time, in milliseconds, spent in garbage collection since reset.
+     * @return Millis spent in garbage collection.
+     */
+    public int getGCTime() {
+        return mGCTime;
+    }
+
+    /**
+     * Returns the time, in milliseconds, spent in garbage collection during the last frame.
+     * @return Millis spent in garbage collection last frame.
+     */
+    public int getFrameGCTime() {
+        return mFrameGCTime;
+    }
+
     /**
      * Return the average ticks for each frame.
      * @return Average ticks per frame.
@@ -361,10 +640,11 @@ public class ProfileInfo {
      */
     public final String[] getProfileInforStr()       {
 
-        String[] result = new String[3];
+        String[] result = new String[mMemorySampler != null ? 4 : 3];
         float average = (getTotalTicks() / getFramecount());
         result[0] = LOG_AVERAGE_FPS_STR + 1000000 / getAverageTicks();
-        result[1] = LOG_DRAWCALLS_STR + getDrawCalls() + ", " + LOG_COMPLEXITY_STR +
+        result[1] = LOG_DRAWCALLS_STR + getDrawCalls() + ", " + LOG_CULLED_STR +
+                getCulledObjects() + ", " + LOG_COMPLEXITY_STR +
                 getComplexity() + ", " + LOG_FRAMECOUNT_STR + getFramecount() +
                 ", " + LOG_AVERAGE_TICKS_STR + average + " (" + getMaxTicks() + " / "
                 + getMinTicks() + ")";
@@ -375,6 +655,11 @@ public class ProfileInfo {
         float sec = (float) 1000000 / getTotalTicks();
         result[2] = LOG_VERTEXRATE_STR + (int) (vCount * sec) + "/" + (int) (VBOvCount * sec) +
                 "," + LOG_INDICERATE_STR +  (int) (iCount * sec) + "/" + (int) (VBOiCount * sec);
+        if (mMemorySampler != null) {
+            result[3] = LOG_ALLOCATION_STR + getAverageFrameAllocation() + "/" +
+                    getMaxFrameAllocation() + ", " + LOG_GC_STR + getGCCount() + "/" +
+                    getGCTime();
+        }
         return result;
     }
 
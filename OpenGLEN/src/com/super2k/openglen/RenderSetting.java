@@ -25,6 +25,21 @@ public class RenderSetting {
     protected final static String INVALID_CLEARFLAG_STR = "Invalid clearFlag:";
     protected final static String INVALID_DEPTHFUNC_STR = "Invalid depthFunc:";
     protected final static String INVALID_CLEARCOLOR_STR = "Invalid clear color array.";
+    protected final static String INVALID_ERRORCHECK_STR = "Invalid error check:";
+
+    /**
+     * GL errors are not checked while rendering.
+     */
+    public final static int ERROR_CHECK_OFF = 0;
+    /**
+     * GL errors are checked once at the end of each frame, errors are logged and counted.
+     */
+    public final static int ERROR_CHECK_FRAME = 1;
+    /**
+     * GL errors are checked after each call, use when debugging since this may force the
+     * driver to synchronize for each call.
+     */
+    public final static int ERROR_CHECK_CALL = 2;
 
     public final static int DEFAULT_DEPTHFUNC = ConstantValues.LEQUAL;
     public final static float DEFAULT_DEPTHRANGE_NEAR = 0.000001f;
@@ -34,6 +49,7 @@ public class RenderSetting {
     public final static int DEFAULT_CLEARFLAG = ConstantValues.COLOR_BUFFER_BIT |
             ConstantValues.DEPTH_BUFFER_BIT;
     public final static boolean DEFAULT_MULTISAMPLING = false;
+    public final static int DEFAULT_ERROR_CHECK = ERROR_CHECK_FRAME;
 
     public final static int CHANGE_FLAG_ALL = -1; //Flag that all values should be updated
     public final static int CHANGE_FLAG_NONE = 0; //NO values should be updated.
@@ -94,6 +110,11 @@ public class RenderSetting {
      */
     protected int mClearFlags = DEFAULT_CLEARFLAG;
 
+    /**
+     * How GL errors are checked while rendering, read by the renderer in beginFrame()
+     */
+    protected int mErrorCheck = DEFAULT_ERROR_CHECK;
+
     /**
      * Constructs a new RenderSetting with default values.
      * Depth function is LEQUAL.
@@ -355,4 +376,25 @@ public class RenderSetting {
 
     }
 
+    /**
+     * Sets how GL errors are checked while rendering, this is read in beginFrame.
+     * @param errorCheck ERROR_CHECK_OFF, ERROR_CHECK_FRAME or ERROR_CHECK_CALL
+     * @throws IllegalArgumentException If errorCheck is invalid.
+     */
+    public void setErrorCheck(int errorCheck) {
+        if (errorCheck != ERROR_CHECK_OFF && errorCheck != ERROR_CHECK_FRAME &&
+                errorCheck != ERROR_CHECK_CALL) {
+            throw new IllegalArgumentException(INVALID_ERRORCHECK_STR + errorCheck);
+        }
+        mErrorCheck = errorCheck;
+    }
+
+    /**
+     * Returns how GL errors are checked while rendering.
+     * @return ERROR_CHECK_OFF, ERROR_CHECK_FRAME or ERROR_CHECK_CALL
+     */
+    public int getErrorCheck() {
+        return mErrorCheck;
+    }
+
 }
@@ -16,9 +16,13 @@ package com.super2k.openglen;
 import java.util.Vector;
 
 import com.super2k.openglen.lighting.Light;
+import com.super2k.openglen.metrics.MetricsRegistry;
 import com.super2k.openglen.nibbler.BitmapHandler;
+import com.super2k.openglen.objects.FrameState;
 import com.super2k.openglen.objects.GLBlitObject;
 import com.super2k.openglen.objects.GLParticleArray;
+import com.super2k.openglen.objects.RenderList;
+import com.super2k.openglen.program.ProgramBinaryCache;
 import com.super2k.openglen.program.ProgramHandler;
 import com.super2k.openglen.texture.TextureHandler;
 import com.super2k.openglen.utils.GraphicsLibraryHandler;
@@ -153,6 +157,18 @@ public interface Renderer {
      */
     public void renderGLBlitObjects(Vector<GLBlitObject> objectList);
 
+    /**
+     * Renders a list of GLBlitObjects using position, scale, rotation, diffuse color
+     * and renderflag from a snapshot instead of the values in the objects.
+     * This is used when the objects are updated by another thread while rendering,
+     * the snapshot must be captured from the same list.
+     * Objects in the list that are not in the snapshot are not rendered.
+     * @param objectList The list of objects, same as when the snapshot was captured.
+     * @param state Snapshot of the render state of the objects.
+     * @see com.super2k.openglen.nibbler.FramePipeline
+     */
+    public void renderGLBlitObjects(Vector<GLBlitObject> objectList, FrameState state);
+
     /**
      * Renders a list containing (sorted) GLParticleArray object. The renderer
      * will traverse the list from beginning to end and send each of the
@@ -162,6 +178,31 @@ public interface Renderer {
      */
     public void renderGLParticleArray(Vector<GLParticleArray> objectList);
 
+    /**
+     * Renders the GLBlitObjects in a RenderList, objects are rendered from index 0 to
+     * size() - 1. This is the same as rendering a Vector but the objects are read
+     * directly from the array of the list.
+     *
+     * @param objectList
+     */
+    public void renderGLBlitObjects(RenderList<GLBlitObject> objectList);
+
+    /**
+     * Renders the GLBlitObjects in a RenderList using the render state from a snapshot.
+     * @param objectList The list of objects, same as when the snapshot was captured.
+     * @param state Snapshot of the render state of the objects.
+     * @see #renderGLBlitObjects(Vector, FrameState)
+     */
+    public void renderGLBlitObjects(RenderList<GLBlitObject> objectList, FrameState state);
+
+    /**
+     * Renders the GLParticleArray objects in a RenderList, objects are rendered from
+     * index 0 to size() - 1.
+     *
+     * @param objectList
+     */
+    public void renderGLParticleArray(RenderList<GLParticleArray> objectList);
+
     /**
      * Sets the perspective matrix - this matrix will be concatenated with
      * object matrixes before an object is displayed. The source matrix is
@@ -282,4 +323,56 @@ public interface Renderer {
      */
     public ProfileInfo getProfileInfo();
 
+    /**
+     * Enables or disables culling of GLBlitObjects, when enabled objects that are fully outside
+     * the view of the current perspective matrix are not rendered.
+     * Bounds are calculated from the vertices, position, scale and rotation of the objects.
+     * Objects using a custom shader program are never culled. Culling is enabled by default.
+     * The number of culled objects is reported in the ProfileInfo.
+     * @param enable True to enable culling, false to render all objects with renderflag set.
+     */
+    public void setCulling(boolean enable);
+
+    /**
+     * Returns true if culling of GLBlitObjects is enabled.
+     * @return True if culling is enabled.
+     */
+    public boolean isCulling();
+
+    /**
+     * Sets the registry that renderer metrics are exported to, the renderer adds itself as
+     * a source and updates the registry, publishing a new snapshot, at the end of each frame.
+     * @param registry The metrics registry, or null to stop updating metrics.
+     */
+    public void setMetricsRegistry(MetricsRegistry registry);
+
+    /**
+     * Sets the cache used to store linked program binaries, programs are loaded from the
+     * cache when the renderer is started instead of compiled from source, if program binaries
+     * are supported by the platform.
+     * Shall be called before startRenderer()
+     * @param cache The program binary cache, or null to always compile programs from source.
+     */
+    public void setProgramBinaryCache(ProgramBinaryCache cache);
+
+    /**
+     * Enables or disables lazy loading of programs, when enabled programs are compiled and
+     * linked the first time they are used by a render method instead of when the renderer
+     * is started. Programs in the warmup lists are loaded when the renderer is started.
+     * Shall be called before startRenderer()
+     * @param lazy True to load programs on first use, false to load all programs when
+     * the renderer is started.
+     * @param blitWarmup Indexes of blit programs to load at start, or null.
+     * @param particleWarmup Indexes of particle programs to load at start, or null.
+     */
+    public void setLazyProgramLoading(boolean lazy, int[] blitWarmup, int[] particleWarmup);
+
+    /**
+     * Hint that programs not yet loaded will be used, the shader sources are read in a
+     * background thread so that loading on first use only needs to compile and link.
+     * Shall be called after initRenderer()
+     * @throws IllegalStateException If the renderer is not initialized.
+     */
+    public void prefetchPrograms();
+
 }
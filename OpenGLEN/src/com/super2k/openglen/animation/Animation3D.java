@@ -95,6 +95,10 @@ public abstract class Animation3D implements PooledObject {
     protected int mInputIndex = 0;
     protected boolean mFinished = false;
     protected int mCurrentLoop = 0;
+    /**
+     * Part of the last time delta that was not used because the animation finished.
+     */
+    protected float mRemainingTime = 0;
 
     protected boolean mTempLoop;
     protected float mTempMaxtime;
@@ -127,6 +131,16 @@ public abstract class Animation3D implements PooledObject {
         return mFinished;
     }
 
+    /**
+     * Returns the part of the time delta, in the last call to animate(), that was not used
+     * because the animation finished. This is used to start the next animation in a sequence
+     * at the correct time.
+     * @return Remaining time in seconds, 0 if the animation is not finished.
+     */
+    public float getRemainingTime() {
+        return mRemainingTime;
+    }
+
     /**
      * Checks wether the animation has looped or not, returns number of times the animation
      * has looped.
@@ -147,6 +161,7 @@ public abstract class Animation3D implements PooledObject {
         mInputIndex = 0;
         mFinished = false;
         mCurrentLoop = 0;
+        mRemainingTime = 0;
     }
 
     /**
@@ -232,6 +247,7 @@ public abstract class Animation3D implements PooledObject {
             //Reached end of animation
             if (mLoopCount == LOOP_DISABLED) {
                 mFinished = true;
+                mRemainingTime = mCurrentTime - mTempMaxtime;
                 mInputIndex = mInput.length-2;
                 mCurrentTime = mTempMaxtime;
                 return false;
@@ -242,6 +258,7 @@ public abstract class Animation3D implements PooledObject {
                     if (mCurrentLoop >= mLoopCount) {
                         //End of animation.
                         mFinished = true;
+                        mRemainingTime = mCurrentTime - mTempMaxtime;
                         mInputIndex = mInput.length-2;
                         mCurrentTime = mTempMaxtime;
                     }
@@ -251,11 +268,8 @@ public abstract class Animation3D implements PooledObject {
             while (mCurrentTime > mTempMaxtime )
                 mCurrentTime -= mTempMaxtime;
 
-            mInputIndex = 0;
-
             //Find current index.
-            while (mCurrentTime > mInput[mInputIndex + 1])
-                mInputIndex++;
+            mInputIndex = searchInputIndex(mCurrentTime);
             mTempLoop = true;
         }
 
@@ -267,6 +281,27 @@ public abstract class Animation3D implements PooledObject {
         return mTempLoop;
     }
 
+    /**
+     * Finds the input index for the time using binary search, this is the lowest index where
+     * time is less than or equal to the next input key.
+     * @param time The time to find the input index for.
+     * @return Input index, 0 to mInput.length - 2
+     */
+    protected int searchInputIndex(float time) {
+        int low = 0;
+        int high = mInput.length - 2;
+        int mid;
+        while (low < high) {
+            mid = (low + high) >>> 1;
+            if (time > mInput[mid + 1]) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     /**
      * Restore target values. This is normally done at end of animation if reset flag is set.
      */
@@ -284,10 +319,17 @@ public abstract class Animation3D implements PooledObject {
         System.arraycopy(mTarget,  0, mResetArray, 0, mTarget.length);
     }
 
+    /**
+     * Resets the animation state, including loop counter, so that the animation can be set
+     * up again. This is called when animations are set up and when pooled animations are
+     * released. Relative mode is not changed, it is cleared when released to AnimationPool.
+     */
     public void reset() {
         mCurrentTime = 0;
         mInputIndex = 0;
         mFinished = false;
+        mCurrentLoop = 0;
+        mRemainingTime = 0;
         mOutputIndex = 0;
         mOutputStride = 0;
         mOutputStartIndex = 0;
@@ -0,0 +1,454 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.animation;
+
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.super2k.openglen.objects.GLBlitObject;
+
+/**
+ * Updates the animations of a large number of GLBlitObjects, in parallel if more than one
+ * thread is used.
+ * The keys and target of LinearAnimations are copied to flat arrays when objects are set,
+ * other animation types are called as normal.
+ * The current time, loop and finished state is read from and written to the animation objects,
+ * so isFinished() and resetAnimation() on the animations work as normal.
+ * Objects are split in chunks that are updated by the worker threads and the calling thread,
+ * the animations of one object are always updated in order, by the same thread.
+ * This means that the result is the same as calling animate() on each animation in order,
+ * as long as objects do not share target arrays.
+ * BaseCompatibilityRunner.animateObjects() uses this class to update the objects.
+ * If a LinearAnimation added to the engine is set up again setObjects() must be called,
+ * use isChanged() to check if objects or animations have been replaced.
+ * @author Richard Sahlin
+ *
+ */
+public class AnimationEngine {
+
+    private final String TAG = getClass().getSimpleName();
+
+    /**
+     * Number of objects in each chunk.
+     */
+    public final static int DEFAULT_CHUNK_SIZE = 256;
+
+    /**
+     * Max number of values for a LinearAnimation to be stored in flat arrays.
+     */
+    public final static int MAX_STRIDE = 4;
+
+    protected final static int TYPE_LINEAR = 0;
+    protected final static int TYPE_GENERIC = 1;
+
+    /**
+     * The objects, and per slot the animation, as they were when setObjects() was called.
+     */
+    protected GLBlitObject[] mObjects;
+    protected Animation3D[] mSlotAnimation;
+
+    /**
+     * Per object, index of the first slot and number of slots.
+     */
+    protected int[] mFirstSlot;
+    protected int[] mSlotCount;
+    protected int mObjectCount;
+
+    /**
+     * Per slot, type and index into the linear or generic storage.
+     */
+    protected int[] mSlotType;
+    protected int[] mSlotIndex;
+
+    /**
+     * Linear animation storage, one entry for each linear animation.
+     * Start and end values are stored at index * MAX_STRIDE.
+     */
+    protected LinearAnimation[] mLinear;
+    protected float[][] mTarget;
+    protected float[] mStartValue;
+    protected float[] mEndValue;
+    protected float[] mStartTime;
+    protected float[] mEndTime;
+    protected int[] mStride;
+    protected int mLinearCount;
+
+    /**
+     * Animations that are not stored in flat arrays.
+     */
+    protected Animation3D[] mGeneric;
+    protected int mGenericCount;
+
+    protected int mChunkSize = DEFAULT_CHUNK_SIZE;
+    protected int mChunkCount;
+
+    protected ExecutorService mExecutor;
+    protected Runnable[] mTasks;
+    protected final AtomicInteger mNextChunk = new AtomicInteger();
+    /**
+     * Counted down by the worker threads when there are no more chunks, created for each
+     * call to animate()
+     */
+    protected CountDownLatch mDone;
+    protected float mTimeDelta;
+
+    /**
+     * Creates a new animation engine.
+     * @param threads Number of threads to update animations with, including the calling thread.
+     * 1 to update on the calling thread only.
+     * @throws IllegalArgumentException If threads < 1
+     */
+    public AnimationEngine(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid thread count: " + threads);
+        }
+        if (threads > 1) {
+            mExecutor = Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mTasks = new Runnable[threads - 1];
+            for (int i = 0; i < mTasks.length; i++) {
+                mTasks[i] = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            animateChunks();
+                        } finally {
+                            mDone.countDown();
+                        }
+                    }
+                };
+            }
+        }
+    }
+
+    /**
+     * Sets the number of objects in each chunk, must be called before setObjects()
+     * @param size Number of objects in a chunk.
+     * @throws IllegalArgumentException If size < 1
+     */
+    public void setChunkSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + size);
+        }
+        mChunkSize = size;
+    }
+
+    /**
+     * Sets the objects to animate, the animations in GLBlitObject.anim are fetched and
+     * LinearAnimations are copied to flat arrays. Call this again if animations are changed.
+     * @param list The objects to animate.
+     * @throws IllegalArgumentException If list is null
+     */
+    public void setObjects(Vector<GLBlitObject> list) {
+        if (list == null) {
+            throw new IllegalArgumentException("List is null");
+        }
+        int count = list.size();
+        int slots = 0;
+        int linear = 0;
+        Animation3D anim;
+        for (int i = 0; i < count; i++) {
+            Animation3D[] anims = list.elementAt(i).anim;
+            for (int loop = 0; loop < anims.length; loop++) {
+                if ((anim = anims[loop]) != null) {
+                    slots++;
+                    if (isLinear(anim)) {
+                        linear++;
+                    }
+                }
+            }
+        }
+        createStorage(count, slots, linear, slots - linear);
+        int slot = 0;
+        for (int i = 0; i < count; i++) {
+            mObjects[i] = list.elementAt(i);
+            Animation3D[] anims = mObjects[i].anim;
+            mFirstSlot[i] = slot;
+            for (int loop = 0; loop < anims.length; loop++) {
+                if ((anim = anims[loop]) != null) {
+                    mSlotAnimation[slot] = anim;
+                    if (isLinear(anim)) {
+                        mSlotType[slot] = TYPE_LINEAR;
+                        mSlotIndex[slot] = mLinearCount;
+                        addLinear((LinearAnimation) anim);
+                    } else {
+                        mSlotType[slot] = TYPE_GENERIC;
+                        mSlotIndex[slot] = mGenericCount;
+                        mGeneric[mGenericCount++] = anim;
+                    }
+                    slot++;
+                }
+            }
+            mSlotCount[i] = slot - mFirstSlot[i];
+        }
+        mObjectCount = count;
+        mChunkCount = (count + mChunkSize - 1) / mChunkSize;
+    }
+
+    /**
+     * Checks if the objects, or the animations of the objects, are not the same as when
+     * setObjects() was called. Objects are compared one by one, so objects that are replaced,
+     * moved in the list or that have animations added, removed or replaced are detected.
+     * @param list The objects to animate.
+     * @return True if setObjects() must be called with the list.
+     * @throws IllegalArgumentException If list is null
+     */
+    public boolean isChanged(Vector<GLBlitObject> list) {
+        if (list == null) {
+            throw new IllegalArgumentException("List is null");
+        }
+        int count = list.size();
+        if (mObjects == null || count != mObjectCount) {
+            return true;
+        }
+        Animation3D anim;
+        for (int i = 0; i < count; i++) {
+            GLBlitObject blit = list.elementAt(i);
+            if (blit != mObjects[i]) {
+                return true;
+            }
+            Animation3D[] anims = blit.anim;
+            int slot = mFirstSlot[i];
+            int last = slot + mSlotCount[i];
+            for (int loop = 0; loop < anims.length; loop++) {
+                if ((anim = anims[loop]) != null) {
+                    if (slot == last || anim != mSlotAnimation[slot]) {
+                        return true;
+                    }
+                    slot++;
+                }
+            }
+            if (slot != last) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the animation can be stored in the flat arrays.
+     * @param anim
+     * @return True if anim is a LinearAnimation with 2 keys and at most MAX_STRIDE values.
+     */
+    protected boolean isLinear(Animation3D anim) {
+        return anim.getClass() == LinearAnimation.class && anim.mInput.length == 2 &&
+                anim.mOutputStride <= MAX_STRIDE && anim.mOutputStartIndex == 0;
+    }
+
+    /**
+     * Allocates storage.
+     * @param objects Number of objects
+     * @param slots Number of animations
+     * @param linear Number of linear animations
+     * @param generic Number of other animations
+     */
+    protected void createStorage(int objects, int slots, int linear, int generic) {
+        mObjects = new GLBlitObject[objects];
+        mSlotAnimation = new Animation3D[slots];
+        mFirstSlot = new int[objects];
+        mSlotCount = new int[objects];
+        mSlotType = new int[slots];
+        mSlotIndex = new int[slots];
+        mLinear = new LinearAnimation[linear];
+        mTarget = new float[linear][];
+        mStartValue = new float[linear * MAX_STRIDE];
+        mEndValue = new float[linear * MAX_STRIDE];
+        mStartTime = new float[linear];
+        mEndTime = new float[linear];
+        mStride = new int[linear];
+        mGeneric = new Animation3D[generic];
+        mLinearCount = 0;
+        mGenericCount = 0;
+    }
+
+    /**
+     * Copies the keys and target of the animation to the flat arrays.
+     * @param anim
+     */
+    protected void addLinear(LinearAnimation anim) {
+        int index = mLinearCount++;
+        int stride = anim.mOutputStride;
+        mLinear[index] = anim;
+        mTarget[index] = anim.mTarget;
+        System.arraycopy(anim.mOutput, 0, mStartValue, index * MAX_STRIDE, stride);
+        System.arraycopy(anim.mOutput, stride, mEndValue, index * MAX_STRIDE, stride);
+        mStartTime[index] = anim.mInput[0];
+        mEndTime[index] = anim.mInput[1];
+        mStride[index] = stride;
+    }
+
+    /**
+     * Animates all objects with the time delta, when this method returns all objects
+     * are updated.
+     * @param timeDelta Time delta in seconds.
+     */
+    public void animate(float timeDelta) {
+        mTimeDelta = timeDelta;
+        mNextChunk.set(0);
+        if (mExecutor != null && mChunkCount > 1) {
+            int tasks = Math.min(mTasks.length, mChunkCount - 1);
+            CountDownLatch done = new CountDownLatch(tasks);
+            mDone = done;
+            for (int i = 0; i < tasks; i++) {
+                mExecutor.execute(mTasks[i]);
+            }
+            animateChunks();
+            //Workers may still update objects, wait even if interrupted.
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            animateChunks();
+        }
+    }
+
+    /**
+     * Animates chunks until there are no more chunks, called by worker threads and the
+     * thread calling animate()
+     */
+    protected void animateChunks() {
+        int chunk;
+        float timeDelta = mTimeDelta;
+        while ((chunk = mNextChunk.getAndIncrement()) < mChunkCount) {
+            int start = chunk * mChunkSize;
+            int end = Math.min(start + mChunkSize, mObjectCount);
+            for (int object = start; object < end; object++) {
+                int slot = mFirstSlot[object];
+                int last = slot + mSlotCount[object];
+                for (; slot < last; slot++) {
+                    if (mSlotType[slot] == TYPE_LINEAR) {
+                        animateLinear(mSlotIndex[slot], timeDelta);
+                    } else {
+                        mGeneric[mSlotIndex[slot]].animate(timeDelta);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates a linear animation, this is the same as LinearAnimation.animate()
+     * @param index Index of the linear animation
+     * @param timeDelta Time delta in seconds.
+     */
+    protected void animateLinear(int index, float timeDelta) {
+        if (timeDelta == 0) {
+            return;
+        }
+        LinearAnimation anim = mLinear[index];
+        float maxTime = mEndTime[index];
+        float currentTime = anim.mCurrentTime + timeDelta;
+        if (currentTime >= maxTime) {
+            //Reached end of animation
+            int loopCount = anim.mLoopCount;
+            if (loopCount == Animation3D.LOOP_DISABLED) {
+                anim.mFinished = true;
+                anim.mRemainingTime = currentTime - maxTime;
+                currentTime = maxTime;
+            } else {
+                //Looping is enabled increase loopcount
+                anim.mCurrentLoop++;
+                if (loopCount != Animation3D.LOOP_INFINITE && anim.mCurrentLoop >= loopCount) {
+                    //End of animation.
+                    anim.mFinished = true;
+                    anim.mRemainingTime = currentTime - maxTime;
+                    currentTime = maxTime;
+                }
+                while (currentTime > maxTime) {
+                    currentTime -= maxTime;
+                }
+            }
+        }
+        anim.mCurrentTime = currentTime;
+        float startTime = mStartTime[index];
+        float factor = (currentTime - startTime) / (maxTime - startTime);
+        float[] target = mTarget[index];
+        int valueIndex = index * MAX_STRIDE;
+        int stride = mStride[index];
+        if (!anim.mRelative) {
+            for (int i = 0; i < stride; i++) {
+                target[i] = mStartValue[valueIndex] +
+                        (factor * (mEndValue[valueIndex] - mStartValue[valueIndex]));
+                valueIndex++;
+            }
+        } else {
+            for (int i = 0; i < stride; i++) {
+                target[i] += mStartValue[valueIndex] +
+                        (factor * (mEndValue[valueIndex] - mStartValue[valueIndex]));
+                valueIndex++;
+            }
+        }
+    }
+
+    /**
+     * Returns true if all animations of the object are finished.
+     * @param object Index of the object, as in the list passed to setObjects()
+     * @return True if all animations of the object are finished.
+     */
+    public boolean isFinished(int object) {
+        int slot = mFirstSlot[object];
+        int last = slot + mSlotCount[object];
+        for (; slot < last; slot++) {
+            if (!mSlotAnimation[slot].isFinished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of animations stored in flat arrays.
+     * @return Number of linear animations.
+     */
+    public int getLinearCount() {
+        return mLinearCount;
+    }
+
+    /**
+     * Returns the number of animations that are updated by calling animate()
+     * @return Number of animations not stored in flat arrays.
+     */
+    public int getGenericCount() {
+        return mGenericCount;
+    }
+
+    /**
+     * Stops the worker threads, the engine can still be used on the calling thread.
+     */
+    public void destroy() {
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+            mExecutor = null;
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.animation;
+
+/**
+ * A group of animations that are animated in sequence, one after the other, or in parallel.
+ * Groups can be added to other groups, eg a sequence of parallel groups.
+ * A sequence is finished when the last animation is finished, a parallel group is finished
+ * when all animations are finished. Animations that loop forever never finish.
+ * In a sequence the time that remains when an animation finishes is used to animate the next
+ * animation, so that the sequence keeps the same timing regardless of the time delta.
+ * @author Richard Sahlin
+ *
+ */
+public class AnimationGroup extends Animation3D {
+
+    /**
+     * Animations are animated one after the other.
+     */
+    public final static int MODE_SEQUENCE = 0;
+    /**
+     * Animations are animated at the same time.
+     */
+    public final static int MODE_PARALLEL = 1;
+
+    protected final static int DEFAULT_CAPACITY = 4;
+
+    protected int mMode = MODE_SEQUENCE;
+    protected Animation3D[] mAnimations = new Animation3D[DEFAULT_CAPACITY];
+    protected int mCount;
+
+    /**
+     * Index of the current animation in a sequence.
+     */
+    protected int mCurrent;
+
+    /**
+     * Creates an empty sequence.
+     */
+    public AnimationGroup() {
+    }
+
+    /**
+     * Creates an empty group with the mode.
+     * @param mode MODE_SEQUENCE or MODE_PARALLEL
+     * @throws IllegalArgumentException If mode is not valid.
+     */
+    public AnimationGroup(int mode) {
+        setMode(mode);
+    }
+
+    /**
+     * Sets the mode of the group.
+     * @param mode MODE_SEQUENCE or MODE_PARALLEL
+     * @throws IllegalArgumentException If mode is not valid.
+     */
+    public void setMode(int mode) {
+        if (mode != MODE_SEQUENCE && mode != MODE_PARALLEL) {
+            throw new IllegalArgumentException("Invalid mode: " + mode);
+        }
+        mMode = mode;
+    }
+
+    /**
+     * Returns the mode of the group.
+     * @return MODE_SEQUENCE or MODE_PARALLEL
+     */
+    public int getMode() {
+        return mMode;
+    }
+
+    /**
+     * Adds an animation to the group.
+     * @param anim
+     * @throws IllegalArgumentException If anim is null
+     */
+    public void add(Animation3D anim) {
+        if (anim == null) {
+            throw new IllegalArgumentException("Animation is null");
+        }
+        if (mCount == mAnimations.length) {
+            Animation3D[] grow = new Animation3D[mCount * 2];
+            System.arraycopy(mAnimations, 0, grow, 0, mCount);
+            mAnimations = grow;
+        }
+        mAnimations[mCount++] = anim;
+        mFinished = false;
+    }
+
+    /**
+     * Returns the number of animations in the group.
+     * @return Number of animations.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns an animation in the group.
+     * @param index Index of the animation, 0 to getCount() - 1
+     * @return The animation.
+     */
+    public Animation3D getAnimation(int index) {
+        return mAnimations[index];
+    }
+
+    /**
+     * Removes all animations from the group, animations are not released.
+     */
+    public void clear() {
+        for (int i = 0; i < mCount; i++) {
+            mAnimations[i] = null;
+        }
+        mCount = 0;
+        mCurrent = 0;
+        mFinished = false;
+    }
+
+    @Override
+    public boolean animate(float timeDelta) {
+        if (mFinished) {
+            return false;
+        }
+        float remaining = timeDelta;
+        if (mMode == MODE_SEQUENCE) {
+            Animation3D anim;
+            while (mCurrent < mCount && remaining > 0) {
+                anim = mAnimations[mCurrent];
+                anim.animate(remaining);
+                if (!anim.isFinished()) {
+                    break;
+                }
+                remaining = anim.getRemainingTime();
+                mCurrent++;
+            }
+            mFinished = mCurrent >= mCount;
+        } else {
+            boolean finished = true;
+            Animation3D anim;
+            for (int i = 0; i < mCount; i++) {
+                anim = mAnimations[i];
+                if (!anim.isFinished()) {
+                    anim.animate(timeDelta);
+                    if (anim.isFinished()) {
+                        remaining = Math.min(remaining, anim.getRemainingTime());
+                    } else {
+                        finished = false;
+                    }
+                }
+            }
+            mFinished = finished;
+        }
+        if (mFinished) {
+            mRemainingTime = remaining;
+        }
+        return false;
+    }
+
+    @Override
+    public void resetAnimation() {
+        super.resetAnimation();
+        mCurrent = 0;
+        for (int i = 0; i < mCount; i++) {
+            mAnimations[i].resetAnimation();
+        }
+    }
+
+    @Override
+    public boolean rotateZ(float angle) {
+        boolean result = false;
+        for (int i = 0; i < mCount; i++) {
+            result |= mAnimations[i].rotateZ(angle);
+        }
+        return result;
+    }
+
+}
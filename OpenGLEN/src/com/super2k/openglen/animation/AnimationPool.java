@@ -0,0 +1,149 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.animation;
+
+import com.super2k.openglen.objects.ObjectPool;
+import com.super2k.openglen.objects.PooledObject;
+
+/**
+ * Pool of Animation3D objects, animations are stored in an ObjectPool with one key
+ * for each animation class. Keys are small positive numbers.
+ * The key of a pooled animation is set with setKey() so that it can be released to the
+ * correct stack, animations with key NOT_POOLED_OBJECT are not released to the pool.
+ * If a pool is empty a new animation is created, this should only happen during warm-up.
+ * This class is not thread safe.
+ * @author Richard Sahlin
+ *
+ */
+public class AnimationPool {
+
+    protected final static String INVALID_KEY_STR = "Invalid key: ";
+
+    protected Class<?>[] mClasses = new Class<?>[0];
+    protected ObjectPool<Animation3D> mPool = new ObjectPool<Animation3D>();
+
+    /**
+     * Creates a pool for the animation class with the key, and creates count animations.
+     * @param className Name of the animation class, must have a public default constructor.
+     * @param key The key for the pool, 0 or larger.
+     * @param count Number of animations to create.
+     * @throws IllegalArgumentException If className is null or not an animation, key is negative,
+     * count is negative or there already is a pool with the key.
+     */
+    public void createPool(String className, int key, int count) {
+        if (className == null || key < 0 || count < 0) {
+            throw new IllegalArgumentException("Illegal parameter: " + className + ", " +
+                    key + ", " + count);
+        }
+        if (key < mClasses.length && mClasses[key] != null) {
+            throw new IllegalArgumentException("Already created pool with key: " + key);
+        }
+        Class<?> animClass;
+        try {
+            animClass = Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException(e);
+        }
+        if (!Animation3D.class.isAssignableFrom(animClass)) {
+            throw new IllegalArgumentException("Not an animation: " + className);
+        }
+        if (key >= mClasses.length) {
+            Class<?>[] classes = new Class<?>[key + 1];
+            System.arraycopy(mClasses, 0, classes, 0, mClasses.length);
+            mClasses = classes;
+        }
+        mClasses[key] = animClass;
+        for (int i = 0; i < count; i++) {
+            mPool.add(key, create(key));
+        }
+    }
+
+    /**
+     * Returns an animation from the pool, if the pool is empty a new animation is created.
+     * The animation must be setup before used.
+     * @param key The key of the pool.
+     * @return Animation from the pool.
+     * @throws IllegalArgumentException If there is no pool with the key.
+     */
+    public Animation3D get(int key) {
+        if (key < 0 || key >= mClasses.length || mClasses[key] == null) {
+            throw new IllegalArgumentException(INVALID_KEY_STR + key);
+        }
+        Animation3D anim = mPool.hasKey(key) ? mPool.get(key) : null;
+        if (anim == null) {
+            //Pool is empty, the miss is counted by mPool.
+            mPool.add(key, create(key));
+            anim = mPool.get(key);
+        }
+        return anim;
+    }
+
+    /**
+     * Releases the animation to the pool, if the animation is a group the children are
+     * released as well. Animations that are not pooled are ignored and keep their state.
+     * The animation is reset, relative mode is cleared and releaseObject() is called.
+     * @param anim The animation to release.
+     */
+    public void release(Animation3D anim) {
+        if (anim.getKey() == PooledObject.NOT_POOLED_OBJECT) {
+            return;
+        }
+        if (anim instanceof AnimationGroup) {
+            AnimationGroup group = (AnimationGroup) anim;
+            int count = group.getCount();
+            for (int i = 0; i < count; i++) {
+                release(group.getAnimation(i));
+            }
+            group.clear();
+        }
+        anim.resetAnimation();
+        anim.reset();
+        anim.setRelative(false);
+        mPool.release(anim);
+    }
+
+    /**
+     * Returns the number of animations available in the pool.
+     * @param key The key of the pool.
+     * @return Number of animations in the pool.
+     */
+    public int getAvailable(int key) {
+        return mPool.getAvailable(key);
+    }
+
+    /**
+     * Returns the number of animations created because a pool was empty.
+     * @return Number of animations created after the pool was created.
+     */
+    public int getMisses() {
+        return mPool.getMisses();
+    }
+
+    /**
+     * Creates a new animation for the key.
+     * @param key
+     * @return The created animation, with the key set.
+     */
+    protected Animation3D create(int key) {
+        try {
+            Animation3D anim = (Animation3D) mClasses[key].newInstance();
+            anim.setKey(key);
+            return anim;
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.animation;
+
+/**
+ * Owns and animates active animations, finished animations are removed and released to
+ * the AnimationPool so that fire and forget animations can be started without allocating
+ * memory after warm-up.
+ * Use AnimationGroup to sequence animations or to run them in parallel.
+ * Active animations are stored in arrays, all animations are advanced in one loop by
+ * calling animate(). When an animation is removed the last animation is moved to its
+ * place, so the order that animations are updated in may change.
+ * This class is not thread safe.
+ * @author Richard Sahlin
+ *
+ */
+public class AnimationScheduler {
+
+    public final static int DEFAULT_CAPACITY = 64;
+
+    protected AnimationPool mPool;
+    protected Animation3D[] mActive;
+    /**
+     * Time left before the animation starts, in seconds.
+     */
+    protected float[] mDelay;
+    protected int mCount;
+
+    /**
+     * Creates a new scheduler that releases finished animations to the pool.
+     * @param pool Pool to release finished animations to, or null to not release animations.
+     * @param capacity Initial number of active animations, storage is increased if needed.
+     * @throws IllegalArgumentException If capacity < 1
+     */
+    public AnimationScheduler(AnimationPool pool, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        mPool = pool;
+        mActive = new Animation3D[capacity];
+        mDelay = new float[capacity];
+    }
+
+    /**
+     * Starts the animation after the delay, the animation will be animated each time
+     * animate() is called until it is finished or stopped.
+     * @param anim The animation to start.
+     * @param delay Delay in seconds before the animation starts, 0 to start at next animate()
+     * @throws IllegalArgumentException If anim is null
+     */
+    public void start(Animation3D anim, float delay) {
+        if (anim == null) {
+            throw new IllegalArgumentException("Animation is null");
+        }
+        if (mCount == mActive.length) {
+            Animation3D[] active = new Animation3D[mCount * 2];
+            System.arraycopy(mActive, 0, active, 0, mCount);
+            mActive = active;
+            float[] delays = new float[mCount * 2];
+            System.arraycopy(mDelay, 0, delays, 0, mCount);
+            mDelay = delays;
+        }
+        mActive[mCount] = anim;
+        mDelay[mCount++] = delay;
+    }
+
+    /**
+     * Animates all active animations with the time delta, finished animations are removed
+     * and released to the pool.
+     * When the delay of an animation runs out the animation is animated with the remaining
+     * part of the time delta.
+     * @param timeDelta Time delta in seconds.
+     */
+    public void animate(float timeDelta) {
+        Animation3D anim;
+        float delta;
+        int i = 0;
+        while (i < mCount) {
+            anim = mActive[i];
+            delta = timeDelta;
+            if (mDelay[i] > 0) {
+                mDelay[i] -= timeDelta;
+                if (mDelay[i] > 0) {
+                    i++;
+                    continue;
+                }
+                delta = -mDelay[i];
+                mDelay[i] = 0;
+            }
+            anim.animate(delta);
+            if (anim.isFinished()) {
+                remove(i);
+                if (mPool != null) {
+                    mPool.release(anim);
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Stops the animation and releases it to the pool.
+     * @param anim The animation to stop.
+     * @return True if the animation was active, false otherwise.
+     */
+    public boolean stop(Animation3D anim) {
+        for (int i = 0; i < mCount; i++) {
+            if (mActive[i] == anim) {
+                remove(i);
+                if (mPool != null) {
+                    mPool.release(anim);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops all animations and releases them to the pool.
+     */
+    public void clear() {
+        while (mCount > 0) {
+            Animation3D anim = mActive[mCount - 1];
+            remove(mCount - 1);
+            if (mPool != null) {
+                mPool.release(anim);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of active animations, including animations that have not started.
+     * @return Number of active animations.
+     */
+    public int getActiveCount() {
+        return mCount;
+    }
+
+    /**
+     * Removes the active animation at index, the last animation is moved to index.
+     * @param index
+     */
+    protected void remove(int index) {
+        int last = --mCount;
+        mActive[index] = mActive[last];
+        mDelay[index] = mDelay[last];
+        mActive[last] = null;
+    }
+
+}
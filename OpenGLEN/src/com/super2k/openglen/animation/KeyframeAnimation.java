@@ -0,0 +1,300 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.animation;
+
+/**
+ * Keyframe animation track with any number of keys, values are interpolated linear,
+ * with cubic hermite or with cubic bezier curves.
+ * Key times are stored in mInput and key values in mOutput, with stride values for each key.
+ * The current key is kept between calls, when time moves forward or backward to a
+ * neighbouring key it is found without searching, for larger steps, looping and setTime()
+ * the key is found using binary search.
+ * Sampling does not allocate any memory.
+ * @author Richard Sahlin
+ *
+ */
+public class KeyframeAnimation extends Animation3D {
+
+    protected final static String INVALID_PARAMETER_STR = "Invalid parameter.";
+
+    /**
+     * Values are interpolated linear between keys.
+     */
+    public final static int INTERPOLATION_LINEAR = 0;
+    /**
+     * Values are interpolated using cubic hermite splines, with one tangent for each key.
+     */
+    public final static int INTERPOLATION_HERMITE = 1;
+    /**
+     * Values are interpolated using cubic bezier curves, with two control points for each
+     * segment.
+     */
+    public final static int INTERPOLATION_BEZIER = 2;
+
+    protected int mInterpolation = INTERPOLATION_LINEAR;
+
+    /**
+     * Hermite tangents, stride values for each key, in value units per second.
+     */
+    protected float[] mTangents;
+
+    /**
+     * Bezier control points, 2 * stride values for each segment.
+     */
+    protected float[] mControls;
+
+    /**
+     * Creates a keyframe animation with linear interpolation.
+     * @param target The target for the animation, must have at least stride values.
+     * @param stride Number of values for each key.
+     * @param times Key times in seconds, in increasing order, at least 2 keys.
+     * @param values Key values, stride values for each key.
+     * @param loop LOOP_INFINITE to loop forever, LOOP_DISABLED to disable looping,
+     * or number of times animation shall loop.
+     * @throws IllegalArgumentException If any array is null, times has less than 2 keys
+     * or is not in increasing order, or values or target does not have enough values.
+     */
+    public KeyframeAnimation(float[] target, int stride, float[] times, float[] values,
+            int loop) {
+        if (target == null || times == null || values == null || stride < 1 ||
+                times.length < 2 || target.length < stride ||
+                values.length < times.length * stride) {
+            throw new IllegalArgumentException(INVALID_PARAMETER_STR);
+        }
+        for (int i = 1; i < times.length; i++) {
+            if (times[i] < times[i - 1]) {
+                throw new IllegalArgumentException(INVALID_PARAMETER_STR);
+            }
+        }
+        mTarget = target;
+        mOutputStride = stride;
+        mInput = times;
+        mOutput = values;
+        mLoopCount = loop;
+        mCurrentTime = times[0];
+    }
+
+    /**
+     * Sets linear interpolation.
+     */
+    public void setLinear() {
+        mInterpolation = INTERPOLATION_LINEAR;
+    }
+
+    /**
+     * Sets cubic hermite interpolation, the curve passes through each key with the tangent
+     * for the key.
+     * @param tangents Tangents, stride values for each key in value units per second.
+     * If null then Catmull-Rom tangents are calculated from the keys.
+     * @throws IllegalArgumentException If tangents does not have stride values for each key.
+     */
+    public void setHermite(float[] tangents) {
+        int keys = mInput.length;
+        if (tangents == null) {
+            tangents = new float[keys * mOutputStride];
+            int previous, next;
+            for (int key = 0; key < keys; key++) {
+                previous = key > 0 ? key - 1 : key;
+                next = key < keys - 1 ? key + 1 : key;
+                float time = mInput[next] - mInput[previous];
+                for (int i = 0; i < mOutputStride; i++) {
+                    tangents[key * mOutputStride + i] = time > 0 ?
+                            (mOutput[next * mOutputStride + i] -
+                             mOutput[previous * mOutputStride + i]) / time : 0;
+                }
+            }
+        } else if (tangents.length < keys * mOutputStride) {
+            throw new IllegalArgumentException(INVALID_PARAMETER_STR);
+        }
+        mTangents = tangents;
+        mInterpolation = INTERPOLATION_HERMITE;
+    }
+
+    /**
+     * Sets cubic bezier interpolation, each segment between two keys has two control points.
+     * The curve is evaluated with the segment time as curve parameter.
+     * @param controls Control points, 2 * stride values for each segment, the first control point
+     * belongs to the start key and the second to the end key of the segment.
+     * @throws IllegalArgumentException If controls is null or does not have enough values.
+     */
+    public void setBezier(float[] controls) {
+        if (controls == null || controls.length < (mInput.length - 1) * 2 * mOutputStride) {
+            throw new IllegalArgumentException(INVALID_PARAMETER_STR);
+        }
+        mControls = controls;
+        mInterpolation = INTERPOLATION_BEZIER;
+    }
+
+    /**
+     * Returns the interpolation.
+     * @return INTERPOLATION_LINEAR, INTERPOLATION_HERMITE or INTERPOLATION_BEZIER
+     */
+    public int getInterpolation() {
+        return mInterpolation;
+    }
+
+    /**
+     * Returns the index of the current key, this is the start key of the current segment.
+     * @return Index of current key.
+     */
+    public int getKeyIndex() {
+        return mInputIndex;
+    }
+
+    @Override
+    public void resetAnimation() {
+        super.resetAnimation();
+        mCurrentTime = mInput[0];
+    }
+
+    /**
+     * Sets the time of the animation and updates the target, the loop count is not changed.
+     * Time is clamped to the start and end of the animation.
+     * @param time The animation time in seconds.
+     */
+    @Override
+    public void setTime(float time) {
+        float end = mInput[mInput.length - 1];
+        mCurrentTime = time < mInput[0] ? mInput[0] : (time > end ? end : time);
+        mFinished = false;
+        mInputIndex = searchInputIndex(mCurrentTime);
+        sample();
+    }
+
+    @Override
+    public boolean animate(float timeDelta) {
+        if (timeDelta == 0) {
+            return false;
+        }
+        boolean looped = false;
+        float start = mInput[0];
+        float end = mInput[mInput.length - 1];
+        mCurrentTime += timeDelta;
+        if (mCurrentTime >= end) {
+            if (mLoopCount == LOOP_DISABLED) {
+                mFinished = true;
+                mRemainingTime = mCurrentTime - end;
+                mCurrentTime = end;
+            } else {
+                mCurrentLoop++;
+                if (mLoopCount != LOOP_INFINITE && mCurrentLoop >= mLoopCount) {
+                    mFinished = true;
+                    mRemainingTime = mCurrentTime - end;
+                    mCurrentTime = end;
+                } else {
+                    float duration = end - start;
+                    mCurrentTime = duration > 0 ? start + (mCurrentTime - end) % duration : start;
+                    looped = true;
+                }
+            }
+        }
+        seek(mCurrentTime);
+        sample();
+        return looped;
+    }
+
+    /**
+     * Moves the current key to the segment containing time, the current and neighbouring
+     * segments are checked first, binary search is used if time is outside of these.
+     * @param time
+     */
+    protected void seek(float time) {
+        int index = mInputIndex;
+        if (time >= mInput[index]) {
+            if (time <= mInput[index + 1]) {
+                return;
+            }
+            if (index + 2 < mInput.length && time <= mInput[index + 2]) {
+                mInputIndex = index + 1;
+                return;
+            }
+        } else if (index > 0 && time >= mInput[index - 1]) {
+            mInputIndex = index - 1;
+            return;
+        }
+        mInputIndex = searchInputIndex(time);
+    }
+
+    /**
+     * Samples the current segment at current time and stores in target.
+     */
+    protected void sample() {
+        int key = mInputIndex;
+        int stride = mOutputStride;
+        float segmentTime = mInput[key + 1] - mInput[key];
+        float t = segmentTime > 0 ? (mCurrentTime - mInput[key]) / segmentTime : 1;
+        if (t < 0) {
+            t = 0;
+        } else if (t > 1) {
+            t = 1;
+        }
+        int index = key * stride;
+        float value;
+        switch (mInterpolation) {
+        case INTERPOLATION_HERMITE:
+            float t2 = t * t;
+            float t3 = t2 * t;
+            float h00 = 2 * t3 - 3 * t2 + 1;
+            float h10 = (t3 - 2 * t2 + t) * segmentTime;
+            float h01 = -2 * t3 + 3 * t2;
+            float h11 = (t3 - t2) * segmentTime;
+            for (int i = 0; i < stride; i++) {
+                value = h00 * mOutput[index] + h10 * mTangents[index] +
+                        h01 * mOutput[index + stride] + h11 * mTangents[index + stride];
+                store(i, value);
+                index++;
+            }
+            break;
+        case INTERPOLATION_BEZIER:
+            float u = 1 - t;
+            float b0 = u * u * u;
+            float b1 = 3 * u * u * t;
+            float b2 = 3 * u * t * t;
+            float b3 = t * t * t;
+            int control = key * 2 * stride;
+            for (int i = 0; i < stride; i++) {
+                value = b0 * mOutput[index] + b1 * mControls[control] +
+                        b2 * mControls[control + stride] + b3 * mOutput[index + stride];
+                store(i, value);
+                index++;
+                control++;
+            }
+            break;
+        default:
+            for (int i = 0; i < stride; i++) {
+                value = mOutput[index] + t * (mOutput[index + stride] - mOutput[index]);
+                store(i, value);
+                index++;
+            }
+        }
+    }
+
+    /**
+     * Stores a value in the target, value is added if animation is relative.
+     * @param index
+     * @param value
+     */
+    private void store(int index, float value) {
+        if (mRelative) {
+            mTarget[index] += value;
+        } else {
+            mTarget[index] = value;
+        }
+    }
+
+    @Override
+    public boolean rotateZ(float angle) {
+        return false;
+    }
+
+}
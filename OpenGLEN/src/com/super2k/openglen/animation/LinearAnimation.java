@@ -74,10 +74,15 @@ public class LinearAnimation extends Animation3D {
 
         mLoopCount = loop;
         mOutputStride = start.length;
-        mTempArray = new float[mOutputStride];
         mTarget = target;
-        mInput = new float[2];
-        mOutput = new float[2 * mOutputStride];
+        //Reuse arrays if possible, pooled animations are setup again when used.
+        if (mTempArray == null || mTempArray.length != mOutputStride) {
+            mTempArray = new float[mOutputStride];
+            mOutput = new float[2 * mOutputStride];
+        }
+        if (mInput == null) {
+            mInput = new float[2];
+        }
         mInput[0] = startTime;
         mInput[1] = endTime;
 
@@ -193,17 +193,6 @@ public class LinearTransformAnimation extends Animation3D {
     }
 
 
-    private float[] cubic(float factor, float value)
-    {
-        float[] result = new float[4];
-        for (int outer = 3; outer > 0; outer--)
-            for (int inner = 0; inner < outer; inner++)
-            {
-                //         result[inner] = (1-factor)*result[inner] + factor*result[inner+1];
-            }
-        return result;
-    }
-
     @Override
     public boolean rotateZ(float angle) {
         // TODO Auto-generated method stub
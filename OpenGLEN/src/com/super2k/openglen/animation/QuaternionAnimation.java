@@ -0,0 +1,141 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.animation;
+
+import com.super2k.openglen.geometry.Quaternion;
+
+/**
+ * Animation that interpolates a rotation between two quaternions, using slerp.
+ * The target is a quaternion, 4 values. If relative the change of the interpolated rotation
+ * since the last call to animate() is multiplied with the target, ie applied after the
+ * current rotation, so that the target is rotated from start to end once for each loop.
+ * @author Richard Sahlin
+ *
+ */
+public class QuaternionAnimation extends Animation3D {
+
+    protected final static String INVALID_PARAMETER_STR = "Invalid parameter.";
+
+    protected float[] mTempQuaternion = new float[Quaternion.SIZE];
+    /**
+     * The interpolated rotation at the last call to animate(), used in relative mode.
+     */
+    protected float[] mPrevious = new float[Quaternion.SIZE];
+
+    /**
+     * Default empty animation, used by AnimationPool.
+     */
+    public QuaternionAnimation() {
+    }
+
+    /**
+     * Creates a quaternion animation.
+     * @param target Target quaternion, 4 values.
+     * @param start Start rotation, normalized quaternion.
+     * @param end End rotation, normalized quaternion.
+     * @param startTime
+     * @param endTime
+     * @param loop LOOP_INFINITE to loop forever, LOOP_DISABLED to disable looping,
+     * or number of times animation shall loop.
+     * @throws IllegalArgumentException If target, start or end is null or has less than 4 values.
+     */
+    public QuaternionAnimation(float[] target, float[] start, float[] end, float startTime,
+            float endTime, int loop) {
+        setup(target, start, end, startTime, endTime, loop);
+    }
+
+    /**
+     * Initializes the animation, arrays are reused if possible.
+     * @param target Target quaternion, 4 values.
+     * @param start Start rotation, normalized quaternion.
+     * @param end End rotation, normalized quaternion.
+     * @param startTime
+     * @param endTime
+     * @param loop LOOP_INFINITE to loop forever, LOOP_DISABLED to disable looping,
+     * or number of times animation shall loop.
+     * @throws IllegalArgumentException If target, start or end is null or has less than 4 values.
+     */
+    public void setup(float[] target, float[] start, float[] end, float startTime,
+            float endTime, int loop) {
+        if (target == null || start == null || end == null ||
+                target.length < Quaternion.SIZE || start.length < Quaternion.SIZE ||
+                end.length < Quaternion.SIZE) {
+            throw new IllegalArgumentException(INVALID_PARAMETER_STR);
+        }
+        reset();
+        mLoopCount = loop;
+        mOutputStride = Quaternion.SIZE;
+        mTarget = target;
+        if (mInput == null) {
+            mInput = new float[2];
+            mOutput = new float[2 * Quaternion.SIZE];
+        }
+        mInput[0] = startTime;
+        mInput[1] = endTime;
+        System.arraycopy(start, 0, mOutput, 0, Quaternion.SIZE);
+        System.arraycopy(end, 0, mOutput, Quaternion.SIZE, Quaternion.SIZE);
+        System.arraycopy(start, 0, mPrevious, 0, Quaternion.SIZE);
+    }
+
+    @Override
+    public void resetAnimation() {
+        super.resetAnimation();
+        if (mOutput != null) {
+            System.arraycopy(mOutput, 0, mPrevious, 0, Quaternion.SIZE);
+        }
+    }
+
+    @Override
+    public boolean animate(float timeDelta) {
+        if (timeDelta == 0) {
+            return false;
+        }
+        boolean looped = calcCurrentIndex(timeDelta);
+        float factor = (mCurrentTime - mInput[0]) / (mInput[1] - mInput[0]);
+        if (factor < 0) {
+            factor = 0;
+        }
+        if (!mRelative) {
+            Quaternion.slerp(mOutput, 0, mOutput, Quaternion.SIZE, factor, mTarget, 0);
+        } else {
+            if (looped && !mFinished && mCurrentTime < mInput[1]) {
+                //Rotate to the end of the previous loop and continue from start.
+                rotateTarget(mOutput, Quaternion.SIZE);
+                System.arraycopy(mOutput, 0, mPrevious, 0, Quaternion.SIZE);
+            }
+            Quaternion.slerp(mOutput, 0, mOutput, Quaternion.SIZE, factor, mTempQuaternion, 0);
+            rotateTarget(mTempQuaternion, 0);
+        }
+        return looped;
+    }
+
+    /**
+     * Applies the rotation from the previous interpolated rotation to the rotation q on the
+     * target, q is stored as the previous rotation.
+     * @param q The new interpolated rotation.
+     * @param offset Offset into q
+     */
+    protected void rotateTarget(float[] q, int offset) {
+        Quaternion.conjugate(mPrevious, 0, mPrevious, 0);
+        Quaternion.mul(q, offset, mPrevious, 0, mPrevious, 0);
+        Quaternion.mul(mPrevious, 0, mTarget, 0, mTarget, 0);
+        Quaternion.normalize(mTarget, 0);
+        System.arraycopy(q, offset, mPrevious, 0, Quaternion.SIZE);
+    }
+
+    @Override
+    public boolean rotateZ(float angle) {
+        return false;
+    }
+
+}
@@ -13,6 +13,8 @@
 
 package com.super2k.openglen.animation;
 
+import com.super2k.openglen.utils.FastMath;
+
 /**
  * Creates a Sinus based animation for the specified target.
  * @author Richard Sahlin
@@ -54,7 +56,7 @@ public class SinusAnimation extends Animation3D {
                     offset = mSineAdd[i];
                 }
                 float value = mTime[i] - mStartTime[i];
-                float sin = (float) Math.sin(value);
+                float sin = FastMath.sin(value);
                 mTarget[i] = (sin + offset) * mAmplitude[i];
             }
         }
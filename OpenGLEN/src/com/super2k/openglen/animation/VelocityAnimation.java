@@ -48,7 +48,7 @@ public class VelocityAnimation extends Animation3D {
      * @param radians
      */
     public void rotate(float radians) {
-
+        Vector3.rotateZAxis(mVelocity, radians);
     }
 
     /**
@@ -56,6 +56,15 @@ public abstract class BaseBenchmarkProgram extends BaseCompatibilityRunner
     public final static String PROPERTY_BENCHMARK_TEXTURE_FORMAT =
                             "com.super2k.openglen.benchmark";
 
+    /**
+     * Property for setting the allocation budget used in a benchmark, this is the max average
+     * number of bytes the render thread may allocate each frame during the performance run.
+     * If the budget is exceeded the run fails.
+     * Allocated bytes can only be measured on platforms that support it.
+     */
+    public final static String PROPERTY_BENCHMARK_ALLOCATION_BUDGET =
+                            "com.super2k.openglen.benchmark.allocationbudget";
+
     public final static String TEXTURE_FORMAT_LUMINACE = "LUMINANCE";
     public final static String TEXTURE_FORMAT_LUMINACE_ALPHA = "LUMINANCE_ALPHA";
     public final static String TEXTURE_FORMAT_RGB = "RGB";
@@ -212,6 +221,11 @@ public abstract class BaseBenchmarkProgram extends BaseCompatibilityRunner
 
     protected int mMinDelta = 0; //Set this to force lower fps.
 
+    /**
+     * Max average bytes allocated per frame during performance run, -1 for no budget.
+     */
+    protected int mAllocationBudget = -1;
+
     private final Vector<PerformanceBenchmark.ProfileListener> mProfileListener
                   = new Vector<PerformanceBenchmark.ProfileListener>();
 
@@ -314,6 +328,10 @@ public abstract class BaseBenchmarkProgram extends BaseCompatibilityRunner
                 mTextureFormat = getTextureFormat(textureFormatStr);
             }
         }
+        String budgetStr = System.getProperty(PROPERTY_BENCHMARK_ALLOCATION_BUDGET);
+        if (budgetStr != null) {
+            setAllocationBudget(Integer.parseInt(budgetStr));
+        }
     }
 
 
@@ -391,6 +409,11 @@ public abstract class BaseBenchmarkProgram extends BaseCompatibilityRunner
      * will propage the result back to listeners.
      */
     public void endTestRun() {
+        if (mProfileInfo.isAllocationBudgetExceeded()) {
+            Log.e(TAG, "Allocation budget exceeded, average/budget: " +
+                    mProfileInfo.getAverageFrameAllocation() + "/" +
+                    mProfileInfo.getAllocationBudget());
+        }
         finishTest(mProfileInfo);
     }
 
@@ -498,6 +521,12 @@ public abstract class BaseBenchmarkProgram extends BaseCompatibilityRunner
         //Enable per frame profiling of framerate.
         mProfileInfo.setDrawSize(mBlitSize);
         mProfileInfo.setPerFrameProfiling(true);
+        if (mAllocationBudget != -1) {
+            if (!mProfileInfo.setMemoryProfiling(true)) {
+                Log.w(TAG, "Memory profiling not supported, allocation budget not checked.");
+            }
+            mProfileInfo.setAllocationBudget(mAllocationBudget);
+        }
     }
 
     /**
@@ -538,6 +567,15 @@ public abstract class BaseBenchmarkProgram extends BaseCompatibilityRunner
         Log.d(TAG, "Set performance run: " + frames);
     }
 
+    @Override
+    public void setAllocationBudget(int bytes) {
+        if (bytes < -1) {
+            throw new IllegalArgumentException("Invalid allocation budget: " + bytes);
+        }
+        mAllocationBudget = bytes;
+        Log.d(TAG, "Set allocation budget: " + bytes);
+    }
+
     @Override
     public void setTickTreshold(int mikros) {
         if (mikros < 0) {
@@ -24,20 +24,28 @@ import com.super2k.openglen.RenderSetting;
 import com.super2k.openglen.Renderer;
 import com.super2k.openglen.RendererInfo;
 import com.super2k.openglen.geometry.Material;
+import com.super2k.openglen.geometry.VertexFormat;
 import com.super2k.openglen.lighting.DirectionalLight;
 import com.super2k.openglen.lighting.Light;
+import com.super2k.openglen.metrics.MetricsRegistry;
+import com.super2k.openglen.metrics.MetricsSource;
 import com.super2k.openglen.nibbler.BitmapHandler;
+import com.super2k.openglen.objects.FrameState;
 import com.super2k.openglen.objects.GLBlitObject;
 import com.super2k.openglen.objects.GLParticleArray;
+import com.super2k.openglen.objects.RenderList;
 import com.super2k.openglen.program.BlitProgramCollection;
 import com.super2k.openglen.program.ParticleProgramCollection;
+import com.super2k.openglen.program.ProgramBinaryCache;
 import com.super2k.openglen.program.ProgramCollection;
 import com.super2k.openglen.program.ProgramHandler;
 import com.super2k.openglen.texture.Texture2D;
 import com.super2k.openglen.texture.TextureHandler;
+import com.super2k.openglen.utils.GLStateCache;
 import com.super2k.openglen.utils.GraphicsLibraryHandler;
 import com.super2k.openglen.utils.Log;
 import com.super2k.openglen.utils.Matrix;
+import com.super2k.openglen.utils.StreamingBuffer;
 
 /**
  * Base implementation of the GLES renderer, this class is platform independent
@@ -47,7 +55,7 @@ import com.super2k.openglen.utils.Matrix;
  * @author Richard Sahlin
  *
  */
-public abstract class GLESBaseRenderer implements Renderer {
+public abstract class GLESBaseRenderer implements Renderer, MetricsSource {
 
     private final String TAG = this.getClass().getSimpleName();
 
@@ -83,12 +91,91 @@ public abstract class GLESBaseRenderer implements Renderer {
 
     protected int mGLDrawCalls = 0;
 
+    protected int mParticleCount = 0; // Number of active particles rendered
+
+    protected int mCulledCount = 0; // Number of objects culled
+    protected int mGLErrorCount = 0; // Number of GL errors found in the frame check
+
+    /**
+     * The error check mode in use, read from the render setting in beginFrame()
+     */
+    protected int mErrorCheck = -1;
+
+    /**
+     * True if GL errors shall be checked after each call, implementations shall only
+     * call checkError() in render methods if this is set.
+     */
+    protected boolean mCheckCallErrors = false;
+
+    /**
+     * True if vertex array objects are used to switch between vertex formats,
+     * set when the renderer is started.
+     */
+    protected boolean mVertexArrays = false;
+
+    /**
+     * True if the current vertex format is set for client side arrays, the default vertex
+     * array is then bound. Client arrays shall not be used with a vertex array object.
+     */
+    protected boolean mClientArrays = false;
+
+    /**
+     * Used to cull GLBlitObjects outside the view, culling is done if mCulling is true.
+     */
+    protected ViewCuller mViewCuller = new ViewCuller();
+    protected boolean mCulling = true;
+
+    /**
+     * Registry to export metrics to, or null.
+     */
+    protected MetricsRegistry mMetricsRegistry;
+
+    /**
+     * Ids of the metrics registered by the renderer.
+     */
+    protected int mFramesMetric;
+    protected int mDrawCallsMetric;
+    protected int mVerticesMetric;
+    protected int mIndicesMetric;
+    protected int mVBOVerticesMetric;
+    protected int mVBOIndicesMetric;
+    protected int mParticlesMetric;
+    protected int mCulledMetric;
+    protected int mGLErrorsMetric;
+    protected int mStateCallsMetric;
+    protected int mRedundantStateCallsMetric;
+    protected int mFrameTicksMetric;
+    protected int mVBOBytesMetric;
+    protected int mTextureBytesMetric;
+    protected int mAllocatedBytesMetric;
+    protected int mGCTimeMetric;
+    protected int mStreamedBytesMetric;
+    protected int mOrphanedBuffersMetric;
+
+    /**
+     * Array used when rendering objects in a Vector, the Vector is copied to the array with one
+     * lock instead of one lock for each element.
+     */
+    protected Object[] mRenderArray = new Object[16];
+
     protected ProgramCollection mBlitPrograms;
 
     protected int mProgramCount = 6;
 
     protected ProgramCollection mParticlePrograms;
 
+    /**
+     * Cache of program binaries, or null.
+     */
+    protected ProgramBinaryCache mProgramBinaryCache;
+
+    /**
+     * If true programs are loaded on first use, see setLazyProgramLoading()
+     */
+    protected boolean mLazyProgramLoading = false;
+    protected int[] mBlitWarmup;
+    protected int[] mParticleWarmup;
+
     protected float[] mPerspectiveMatrix = new float[16];
 
     protected float[] mTempMatrix = new float[16];
@@ -117,12 +204,6 @@ public abstract class GLESBaseRenderer implements Renderer {
      */
     public final static int MAX_TEXTURE_UNITS = 2; // Max number of textures per object.
 
-    protected int mSrcBlend = -1;
-
-    protected int mDstBlend = -1;
-
-    protected boolean mBlendingEnabled = false;
-
     /**
      * The currently selected program for an OpenGLES implementation with
      * programmable shaders.
@@ -186,20 +267,32 @@ public abstract class GLESBaseRenderer implements Renderer {
         if (mState != STATE_INITIALIZED) {
             throw new IllegalStateException("Illegal render state: " + mState);
         }
+        mRenderInfo = new RendererInfo(mGraphicsUtilities);
+        if (mProgramBinaryCache != null) {
+            mProgramBinaryCache.setRendererInfo(mRenderInfo);
+            mBlitPrograms.setProgramBinaryCache(mProgramBinaryCache);
+            mParticlePrograms.setProgramBinaryCache(mProgramBinaryCache);
+        }
+        mBlitPrograms.setLazyLoading(mLazyProgramLoading, mBlitWarmup);
+        mParticlePrograms.setLazyLoading(mLazyProgramLoading, mParticleWarmup);
         try {
+            //Uniform locations are set when programs are loaded.
+            long start = System.currentTimeMillis();
             mBlitPrograms.loadPrograms();
-            mBlitPrograms.setUniformLocations();
-
             mParticlePrograms.loadPrograms();
-            mParticlePrograms.setUniformLocations();
+            Log.d(TAG, "Loaded programs in " + (System.currentTimeMillis() - start) + " ms");
 
         } catch (IOException ioe) {
             // Unable to load shaders.
             throw new IllegalArgumentException(ioe);
         }
         mGraphicsUtilities.setupGL(mRenderSetting);
-        mRenderInfo = new RendererInfo(mGraphicsUtilities);
         mGraphicsUtilities.checkError();
+        //Vertex array names from a previous context are not valid.
+        mBlitPrograms.resetVertexArrays();
+        mParticlePrograms.resetVertexArrays();
+        mVertexArrays = mGraphicsUtilities.isVertexArraySupported();
+        Log.d(TAG, "Vertex array objects supported: " + mVertexArrays);
 
         /**
          * Renderer started, log info.
@@ -244,12 +337,19 @@ public abstract class GLESBaseRenderer implements Renderer {
 
         mBlitPrograms = new BlitProgramCollection(mProgramHandler, mGraphicsUtilities);
         mParticlePrograms = new ParticleProgramCollection(mProgramHandler, mGraphicsUtilities);
+        //Share the preprocessor so that common sources are only read once.
+        mParticlePrograms.setShaderPreprocessor(mBlitPrograms.getShaderPreprocessor());
         mState = STATE_INITIALIZED;
 
     }
 
     @Override
     public void destroy() {
+        if (mState == STATE_STARTED && mVertexArrays) {
+            mGraphicsUtilities.bindVertexArray(0);
+            mBlitPrograms.deleteVertexArrays();
+            mParticlePrograms.deleteVertexArrays();
+        }
         mState = STATE_CREATED;
     }
 
@@ -279,15 +379,37 @@ public abstract class GLESBaseRenderer implements Renderer {
     protected abstract void createBitmapHandler();
 
     /**
-     * Enables the vertex attrib arrays, internal method.
+     * Sets the vertex attrib arrays used by the vertex format, internal method.
+     * If vertex array objects are supported the vertex array for the format is bound,
+     * it is created the first time the format is used. Otherwise, or if client side arrays
+     * are used, the attrib arrays of the format are enabled and other arrays disabled.
      *
-     * @param count Number of attribute arrays to enable
-     * @param attributeArrays array holding the attribute arrays to enable.
-     * @param offset Index into attributeArray
-     * @throws NullPointerException If attributeArrays is null.
+     * @param format The vertex format to use.
+     * @param clientArrays True if the vertex data is in client side arrays and not in
+     * buffer objects, the default vertex array is then bound.
      */
-    protected abstract void enableVertexAttributes(
-            int count, int[] attributeArrays, int offset);
+    protected void setVertexFormat(VertexFormat format, boolean clientArrays) {
+        mClientArrays = clientArrays;
+        if (!mVertexArrays || clientArrays) {
+            if (mVertexArrays) {
+                mGraphicsUtilities.bindVertexArray(0);
+            }
+            mProgramHandler.setVertexAttribArrays(format);
+            return;
+        }
+        int array = format.getVertexArray();
+        if (array == 0) {
+            int[] names = new int[1];
+            mGraphicsUtilities.genVertexArrays(1, names, 0);
+            array = names[0];
+            format.setVertexArray(array);
+            mGraphicsUtilities.bindVertexArray(array);
+            //Enabled arrays are stored in the vertex array object.
+            mProgramHandler.setVertexAttribArrays(format);
+        } else {
+            mGraphicsUtilities.bindVertexArray(array);
+        }
+    }
 
     /**
      * Render the specified GLBlitObject to GL using the specified program.
@@ -299,6 +421,27 @@ public abstract class GLESBaseRenderer implements Renderer {
     protected abstract void renderGLBlitOBject(
             int program, int[] uniformLocation, GLBlitObject blit);
 
+    /**
+     * Uploads the active particles to the streaming buffer of the graphics library handler,
+     * the streaming buffer is left bound to ConstantValues.ARRAY_BUFFER.
+     * @param particleArray The particle array to upload.
+     * @return Byte offset of the particle data in the streaming buffer, or -1 if the
+     * streaming buffer could not be created.
+     */
+    protected int streamParticleArray(GLParticleArray particleArray) {
+        int size = particleArray.getActiveParticles() *
+                particleArray.getVertexFormat().getStride();
+        try {
+            return mGraphicsUtilities.getStreamingBuffer().upload(
+                    particleArray.arrayData.position(0), size);
+        } catch (OpenGLENException e) {
+            Log.e(TAG, e.toString());
+            //Client arrays will be used.
+            setVertexFormat(mParticlePrograms.getVertexFormat(), true);
+            return -1;
+        }
+    }
+
     /**
      * Render the specified GLParticleArrays to GL using the specified program.
      *
@@ -320,6 +463,12 @@ public abstract class GLESBaseRenderer implements Renderer {
         mVBOvertexCount = 0;
         mVBOIndexCount = 0;
         mGLDrawCalls = 0;
+        mParticleCount = 0;
+        mCulledCount = 0;
+        mGLErrorCount = 0;
+        mGraphicsUtilities.getStateCache().resetStatistics();
+        mGraphicsUtilities.getStreamingBuffer().resetStatistics();
+        setErrorCheck(mRenderSetting.getErrorCheck());
 
         if (mRenderSetting.isDirty()) {
             mGraphicsUtilities.setRenderSetting(mRenderSetting);
@@ -331,13 +480,146 @@ public abstract class GLESBaseRenderer implements Renderer {
 
     @Override
     public void endFrame() {
+        if (mErrorCheck != RenderSetting.ERROR_CHECK_OFF) {
+            //One check for the whole frame, the error flag is sticky until read.
+            int error = mGraphicsUtilities.checkError();
+            if (error != ConstantValues.NO_ERROR) {
+                mGLErrorCount++;
+                Log.e(TAG, "GL error in frame: " + error);
+            }
+        }
         // Send GL counters to profiling
         mProfileInfo.update(mVertexCount,
                             mIndexCount,
                             mVBOvertexCount,
                             mVBOIndexCount,
-                            mGLDrawCalls);
+                            mGLDrawCalls,
+                            mCulledCount);
+        if (mMetricsRegistry != null) {
+            mMetricsRegistry.update();
+        }
+
+    }
 
+    /**
+     * Sets how GL errors are checked, the program and texture handlers are updated if the
+     * mode has changed, internal method.
+     * @param errorCheck RenderSetting.ERROR_CHECK_OFF, ERROR_CHECK_FRAME or ERROR_CHECK_CALL
+     */
+    protected void setErrorCheck(int errorCheck) {
+        if (errorCheck == mErrorCheck) {
+            return;
+        }
+        mErrorCheck = errorCheck;
+        mCheckCallErrors = errorCheck == RenderSetting.ERROR_CHECK_CALL;
+        mProgramHandler.setCheckErrors(mCheckCallErrors);
+        mTextureHandler.setCheckErrors(mCheckCallErrors);
+    }
+
+    @Override
+    public void setProgramBinaryCache(ProgramBinaryCache cache) {
+        mProgramBinaryCache = cache;
+    }
+
+    @Override
+    public void setLazyProgramLoading(boolean lazy, int[] blitWarmup, int[] particleWarmup) {
+        mLazyProgramLoading = lazy;
+        mBlitWarmup = blitWarmup;
+        mParticleWarmup = particleWarmup;
+    }
+
+    @Override
+    public void prefetchPrograms() {
+        if (mBlitPrograms == null || mParticlePrograms == null) {
+            throw new IllegalStateException("Illegal renderer state:" + mState);
+        }
+        mBlitPrograms.prefetchSources();
+        mParticlePrograms.prefetchSources();
+    }
+
+    @Override
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        if (registry != null) {
+            registry.addSource(this);
+        }
+        mMetricsRegistry = registry;
+    }
+
+    @Override
+    public void registerMetrics(MetricsRegistry registry) {
+        mFramesMetric = registry.register("openglen_frames_total",
+                "Number of rendered frames", MetricsRegistry.TYPE_COUNTER);
+        mDrawCallsMetric = registry.register("openglen_draw_calls_total",
+                "Number of GL draw calls", MetricsRegistry.TYPE_COUNTER);
+        mVerticesMetric = registry.register("openglen_vertices_total",
+                "Number of (non VBO) vertices sent to GL", MetricsRegistry.TYPE_COUNTER);
+        mIndicesMetric = registry.register("openglen_indices_total",
+                "Number of (non VBO) indices sent to GL", MetricsRegistry.TYPE_COUNTER);
+        mVBOVerticesMetric = registry.register("openglen_vbo_vertices_total",
+                "Number of VBO vertices sent to GL", MetricsRegistry.TYPE_COUNTER);
+        mVBOIndicesMetric = registry.register("openglen_vbo_indices_total",
+                "Number of VBO indices sent to GL", MetricsRegistry.TYPE_COUNTER);
+        mParticlesMetric = registry.register("openglen_particles",
+                "Number of active particles rendered last frame", MetricsRegistry.TYPE_GAUGE);
+        mCulledMetric = registry.register("openglen_culled_objects_total",
+                "Number of objects outside the view that were not rendered",
+                MetricsRegistry.TYPE_COUNTER);
+        mGLErrorsMetric = registry.register("openglen_gl_errors_total",
+                "Number of frames where the GL error check found an error",
+                MetricsRegistry.TYPE_COUNTER);
+        mStateCallsMetric = registry.register("openglen_state_calls_total",
+                "Number of GL state calls, including redundant calls",
+                MetricsRegistry.TYPE_COUNTER);
+        mRedundantStateCallsMetric = registry.register("openglen_redundant_state_calls_total",
+                "Number of GL state calls dropped by the state cache",
+                MetricsRegistry.TYPE_COUNTER);
+        mFrameTicksMetric = registry.register("openglen_frame_micros",
+                "Time of the last frame in microseconds", MetricsRegistry.TYPE_GAUGE);
+        mVBOBytesMetric = registry.register("openglen_vbo_bytes",
+                "Bytes allocated in vertex buffer objects", MetricsRegistry.TYPE_GAUGE);
+        mTextureBytesMetric = registry.register("openglen_texture_bytes",
+                "Bytes used by textures", MetricsRegistry.TYPE_GAUGE);
+        mAllocatedBytesMetric = registry.register("openglen_allocated_bytes_total",
+                "Bytes allocated by the render thread, when memory profiling is enabled",
+                MetricsRegistry.TYPE_COUNTER);
+        mGCTimeMetric = registry.register("openglen_gc_millis_total",
+                "Millis spent in garbage collection, when memory profiling is enabled",
+                MetricsRegistry.TYPE_COUNTER);
+        mStreamedBytesMetric = registry.register("openglen_streamed_bytes_total",
+                "Bytes uploaded to the streaming buffer", MetricsRegistry.TYPE_COUNTER);
+        mOrphanedBuffersMetric = registry.register("openglen_orphaned_buffers_total",
+                "Number of times the streaming buffer data store was orphaned",
+                MetricsRegistry.TYPE_COUNTER);
+    }
+
+    @Override
+    public void updateMetrics(MetricsRegistry registry) {
+        registry.add(mFramesMetric, 1);
+        registry.add(mDrawCallsMetric, mGLDrawCalls);
+        registry.add(mVerticesMetric, mVertexCount);
+        registry.add(mIndicesMetric, mIndexCount);
+        registry.add(mVBOVerticesMetric, mVBOvertexCount);
+        registry.add(mVBOIndicesMetric, mVBOIndexCount);
+        registry.set(mParticlesMetric, mParticleCount);
+        registry.add(mCulledMetric, mCulledCount);
+        registry.add(mGLErrorsMetric, mGLErrorCount);
+        registry.set(mFrameTicksMetric, mProfileInfo.getFrameTicks());
+        if (mGraphicsUtilities != null) {
+            registry.set(mVBOBytesMetric, mGraphicsUtilities.getVBOBytes());
+            GLStateCache cache = mGraphicsUtilities.getStateCache();
+            registry.add(mStateCallsMetric, cache.getCalls());
+            registry.add(mRedundantStateCallsMetric, cache.getRedundantCalls());
+            StreamingBuffer stream = mGraphicsUtilities.getStreamingBuffer();
+            registry.add(mStreamedBytesMetric, stream.getUploadedBytes());
+            registry.add(mOrphanedBuffersMetric, stream.getOrphanCount());
+        }
+        if (mTextureHandler != null) {
+            registry.set(mTextureBytesMetric, mTextureHandler.getTextureBytes());
+        }
+        if (mProfileInfo.isMemoryProfiling()) {
+            registry.add(mAllocatedBytesMetric, mProfileInfo.getFrameAllocation());
+            registry.add(mGCTimeMetric, mProfileInfo.getFrameGCTime());
+        }
     }
 
     @Override
@@ -401,25 +683,94 @@ public abstract class GLESBaseRenderer implements Renderer {
         return mProfileInfo;
     }
 
+    @Override
+    public void setCulling(boolean enable) {
+        mCulling = enable;
+    }
+
+    @Override
+    public boolean isCulling() {
+        return mCulling;
+    }
+
     @Override
     public void renderGLBlitObjects(Vector<GLBlitObject> objectList) {
+        renderGLBlitObjects(objectList, null);
+    }
+
+    @Override
+    public void renderGLBlitObjects(Vector<GLBlitObject> objectList, FrameState state) {
+        int count = copyToRenderArray(objectList);
+        renderGLBlitObjects(mRenderArray, count, state);
+        clearRenderArray(count);
+    }
+
+    @Override
+    public void renderGLBlitObjects(RenderList<GLBlitObject> objectList) {
+        renderGLBlitObjects(objectList.getObjects(), objectList.size(), null);
+    }
+
+    @Override
+    public void renderGLBlitObjects(RenderList<GLBlitObject> objectList, FrameState state) {
+        renderGLBlitObjects(objectList.getObjects(), objectList.size(), state);
+    }
+
+    /**
+     * Copies the objects in the Vector to mRenderArray, the array is grown if needed.
+     * @param objectList
+     * @return Number of objects copied.
+     */
+    protected int copyToRenderArray(Vector<?> objectList) {
+        synchronized (objectList) {
+            int count = objectList.size();
+            if (count > mRenderArray.length) {
+                mRenderArray = new Object[count];
+            }
+            objectList.copyInto(mRenderArray);
+            return count;
+        }
+    }
+
+    /**
+     * Clears the references in mRenderArray so that rendered objects can be garbage collected.
+     * @param count Number of objects copied to the array.
+     */
+    protected void clearRenderArray(int count) {
+        for (int i = 0; i < count; i++) {
+            mRenderArray[i] = null;
+        }
+    }
+
+    /**
+     * Renders the GLBlitObjects in the array, optionally using the render state from a snapshot.
+     * @param objects Array with GLBlitObjects.
+     * @param count Number of objects to render, from index 0.
+     * @param state Snapshot of the render state, or null to use the values in the objects.
+     */
+    protected void renderGLBlitObjects(Object[] objects, int count, FrameState state) {
 
         Material material;
 
-        // Always use the same attributes for GLBlitObjects.
-        int[] array = mBlitPrograms.getEnableAttribArrays();
-        enableVertexAttributes(array.length, array, 0);
+        // Attribute arrays are only changed when the enable mask of the vertex format changes.
+        int enableMask = -1;
 
         GLBlitObject blit;
 
-        int blitcount = objectList.size();
+        int blitcount = count;
+        if (state != null && state.getCount() < blitcount) {
+            blitcount = state.getCount();
+        }
         for (int i = 0; i<blitcount; i++) {
 
-            blit = objectList.elementAt(i);
+            blit = (GLBlitObject) objects[i];
             // Check renderflag.
-            if (blit.renderFlag) {
+            if (state != null ? state.getRenderFlag(i) : blit.renderFlag) {
 
                 material = blit.material;
+                if (mCulling && isCulled(blit, state, i)) {
+                    mCulledCount++;
+                    continue;
+                }
                 int programIndex = 0;
                 switch (material.materialShading) {
 
@@ -459,17 +810,34 @@ public abstract class GLESBaseRenderer implements Renderer {
                     programIndex += (textureCount-1) *
                     (mBlitPrograms.mProgramCount/MAX_TEXTURE_UNITS);
                 }
+                //Loads the program if not loaded, uniform locations are set when loaded.
+                int program = mBlitPrograms.getProgram(programIndex);
                 //TODO: Should not just take any uniform locations
                 //need mechanism to delegate to shaderprogram
                 int[] uniformLocations = mBlitPrograms.getUniformLocations(programIndex);
-                int program;
                 if (material.materialShading == Material.SHADING_CUSTOM) {
                     program = material.shaderProgram.getProgram();
+                }
+                if (state != null) {
+                    setBlitProgram(program, textureCount, uniformLocations, material,
+                            state.getPosition(), state.getScale(), state.getRotation(),
+                            state.getDiffuse(), i * FrameState.COMPONENTS);
                 } else {
-                    program = mBlitPrograms.getProgramNameByIndex(programIndex);
+                    setBlitProgram(program, textureCount, uniformLocations, material,
+                            blit.position, blit.scale, blit.rotation, material.diffuse, 0);
                 }
-                setBlitProgram(program, textureCount, uniformLocations, blit, material);
                 setBlitMaterial(program, material, textureCount);
+                VertexFormat format = blit.getVertexFormat();
+                boolean clientArrays = blit.arrayVBOName == -1;
+                if (format.getEnableMask() != enableMask || clientArrays != mClientArrays) {
+                    enableMask = format.getEnableMask();
+                    setVertexFormat(mBlitPrograms.getVertexFormat(enableMask), clientArrays);
+                    if (format.getAttribute(GLBlitObject.NORMAL_ATTRIBUTE) < 0) {
+                        //Normals not stored, all blits are front facing.
+                        mProgramHandler.setVertexAttrib3(GLBlitObject.NORMAL_ATTRIBUTE,
+                                GLBlitObject.FRONT_FACING_NORMALS, 0);
+                    }
+                }
                 renderGLBlitOBject(program, uniformLocations, blit);
                 mGLDrawCalls++;
                 // mGraphicsUtilities.checkError();
@@ -478,6 +846,27 @@ public abstract class GLESBaseRenderer implements Renderer {
 
     }
 
+    /**
+     * Checks if a GLBlitObject is outside the view of the current perspective matrix.
+     * Objects using a custom shader program are never culled.
+     * @param blit The object to check.
+     * @param state Snapshot with the render state, or null to use the values in the object.
+     * @param index Index of the object in the snapshot.
+     * @return True if the object is outside the view and shall not be rendered.
+     */
+    protected boolean isCulled(GLBlitObject blit, FrameState state, int index) {
+        if (blit.material.materialShading == Material.SHADING_CUSTOM) {
+            return false;
+        }
+        if (state != null) {
+            return !mViewCuller.isVisible(mPerspectiveMatrix, blit.getBounds(),
+                    state.getPosition(), state.getScale(), state.getRotation(),
+                    index * FrameState.COMPONENTS);
+        }
+        return !mViewCuller.isVisible(mPerspectiveMatrix, blit.getBounds(), blit.position,
+                blit.scale, blit.rotation, 0);
+    }
+
     /**
      * Setup the material properties for a GLBlitObject. This is the texture and
      * blending. Bind the textures needed for the specified program and
@@ -492,21 +881,7 @@ public abstract class GLESBaseRenderer implements Renderer {
         /**
          * Texture and material setup
          */
-        if (mBlendingEnabled && material.sourceBlend == ConstantValues.NONE) {
-            mGraphicsUtilities.disable(ConstantValues.BLEND);
-            mBlendingEnabled = false;
-        } else if (!mBlendingEnabled && material.sourceBlend != ConstantValues.NONE) {
-            mBlendingEnabled = true;
-            mGraphicsUtilities.enable(ConstantValues.BLEND);
-            mGraphicsUtilities.blendFunc(material.sourceBlend, material.destBlend);
-            mSrcBlend = material.sourceBlend;
-            mDstBlend = material.destBlend;
-        } else if (mBlendingEnabled && (mSrcBlend != material.sourceBlend ||
-                mDstBlend!=material.destBlend)) {
-            mGraphicsUtilities.blendFunc(material.sourceBlend, material.destBlend);
-            mSrcBlend = material.sourceBlend;
-            mDstBlend = material.destBlend;
-        }
+        setBlending(material);
 
         Texture2D tex = null;
         for (int tloop = 0; tloop < textureCount; tloop++) {
@@ -550,6 +925,20 @@ public abstract class GLESBaseRenderer implements Renderer {
 
     }
 
+    /**
+     * Enables or disables blending and sets the blend function as specified by the material,
+     * redundant calls are dropped by the GL state cache.
+     * @param material The material.
+     */
+    protected void setBlending(Material material) {
+        if (material.sourceBlend == ConstantValues.NONE) {
+            mGraphicsUtilities.disable(ConstantValues.BLEND);
+        } else {
+            mGraphicsUtilities.enable(ConstantValues.BLEND);
+            mGraphicsUtilities.blendFunc(material.sourceBlend, material.destBlend);
+        }
+    }
+
     /**
      * Sets the program for a GLBLitObject Called from the renderer when the
      * program to use has been identified. This method should make the program
@@ -567,6 +956,30 @@ public abstract class GLESBaseRenderer implements Renderer {
                                   int[] uniformLocations,
                                   GLBlitObject blit,
             Material material) {
+        setBlitProgram(program, textureCount, uniformLocations, material,
+                blit.position, blit.scale, blit.rotation, material.diffuse, 0);
+    }
+
+    /**
+     * Sets the program for a GLBlitObject using position, scale, rotation and diffuse color
+     * from the specified arrays, all values are read from the same offset.
+     *
+     * @param program The program to use.
+     * @param textureCount Number of textures in material
+     * @param uniformLocations Pointer to uniform locations.
+     * @param material The material to use for the object.
+     * @param position Array with position, 4 values
+     * @param scale Array with scale, 4 values
+     * @param rotation Array with rotation, 4 values
+     * @param diffuse Array with diffuse material color, 4 values
+     * @param offset Offset into the arrays.
+     */
+    protected void setBlitProgram(int program,
+                                  int textureCount,
+                                  int[] uniformLocations,
+                                  Material material,
+                                  float[] position, float[] scale, float[] rotation,
+                                  float[] diffuse, int offset) {
 
         if (mCurrentProgram != program) {
             mCurrentProgram = program;
@@ -602,18 +1015,18 @@ public abstract class GLESBaseRenderer implements Renderer {
                     uniformLocations[BlitProgramCollection.TEXTURE2_UNIFORM], 1);
         }
         mProgramHandler.setUniformVector(
-                uniformLocations[BlitProgramCollection.TRANSLATE_UNIFORM], 1, blit.position, 0);
+                uniformLocations[BlitProgramCollection.TRANSLATE_UNIFORM], 1, position, offset);
         mProgramHandler.setUniformVector(
-                uniformLocations[BlitProgramCollection.SCALE_UNIFORM], 1, blit.scale, 0);
+                uniformLocations[BlitProgramCollection.SCALE_UNIFORM], 1, scale, offset);
         mProgramHandler.setUniformVector(
-                uniformLocations[BlitProgramCollection.ROTATE_UNIFORM], 1, blit.rotation, 0);
+                uniformLocations[BlitProgramCollection.ROTATE_UNIFORM], 1, rotation, offset);
 
         mProgramHandler.setUniformVector(
                 uniformLocations[BlitProgramCollection.LIGHTCOLOR_UNIFORM],
                 1, mLightColor, 0);
         mProgramHandler.setUniformVector(
                 uniformLocations[BlitProgramCollection.DIFFUSEMATERIAL_UNIFORM],
-                1, material.diffuse, 0);
+                1, diffuse, offset);
 
         int shading = material.materialShading;
         // Setup material color.
@@ -623,7 +1036,7 @@ public abstract class GLESBaseRenderer implements Renderer {
                     material.ambient, 0);
             mProgramHandler.setUniformVector(
                     uniformLocations[BlitProgramCollection.DIFFUSEMATERIAL_UNIFORM], 1,
-                    material.diffuse, 0);
+                    diffuse, offset);
             mProgramHandler.setUniformVector(
                     uniformLocations[BlitProgramCollection.SPECULARMATERIAL_UNIFORM], 1,
                     material.specular, 0);
@@ -650,12 +1063,12 @@ public abstract class GLESBaseRenderer implements Renderer {
                     mLightColor, 0);
             mProgramHandler.setUniformVector(
                     uniformLocations[BlitProgramCollection.DIFFUSEMATERIAL_UNIFORM], 1,
-                    material.diffuse, 0);
+                    diffuse, offset);
 
         } else if (shading==Material.SHADING_COLORED) {
             mProgramHandler.setUniformVector(
                     uniformLocations[BlitProgramCollection.DIFFUSEMATERIAL_UNIFORM], 1,
-                    material.diffuse, 0);
+                    diffuse, offset);
 
         } else if (shading==Material.SHADING_BLUR5_TEXTURE ||
                 shading==Material.SHADING_BLUR9_TEXTURE) {
@@ -672,46 +1085,51 @@ public abstract class GLESBaseRenderer implements Renderer {
 
     @Override
     public void renderGLParticleArray(Vector<GLParticleArray> objectList) {
+        int count = copyToRenderArray(objectList);
+        renderGLParticleArray(mRenderArray, count);
+        clearRenderArray(count);
+    }
 
-        // Always use the same attributes for GLBlitObjects.
-        int[] array = mParticlePrograms.getEnableAttribArrays();
-        enableVertexAttributes(array.length, array, 0);
+    @Override
+    public void renderGLParticleArray(RenderList<GLParticleArray> objectList) {
+        renderGLParticleArray(objectList.getObjects(), objectList.size());
+    }
+
+    /**
+     * Renders the GLParticleArray objects in the array.
+     * @param objects Array with GLParticleArray objects.
+     * @param count Number of objects to render, from index 0.
+     */
+    protected void renderGLParticleArray(Object[] objects, int count) {
+
+        // Always use the same attributes for GLParticleArrays.
+        boolean formatSet = false;
 
         Material material;
         GLParticleArray pArray;
-        int count = objectList.size();
         for (int i = 0; i < count; i++) {
-            pArray = objectList.elementAt(i);
+            pArray = (GLParticleArray) objects[i];
 
             // Check renderflag.
             if (pArray.renderFlag) {
+                boolean clientArrays = pArray.arrayVBOName == -1;
+                if (!formatSet || clientArrays != mClientArrays) {
+                    setVertexFormat(mParticlePrograms.getVertexFormat(), clientArrays);
+                    formatSet = true;
+                }
 
                 material = pArray.material;
                 int type = pArray.getParticleType();
                 int programIndex = type;
 
-                int program = mParticlePrograms.getProgramNameByIndex(programIndex);
+                int program = mParticlePrograms.getProgram(programIndex);
                 int[] location = mParticlePrograms.getUniformLocations(programIndex);
                 if (mCurrentProgram != program) {
                     mCurrentProgram = program;
                     mProgramHandler.useProgram(program);
                 }
 
-                if (mBlendingEnabled && material.sourceBlend == ConstantValues.NONE) {
-                    mGraphicsUtilities.disable(ConstantValues.BLEND);
-                    mBlendingEnabled = false;
-                } else if (!mBlendingEnabled && material.sourceBlend != ConstantValues.NONE) {
-                    mBlendingEnabled = true;
-                    mGraphicsUtilities.enable(ConstantValues.BLEND);
-                    mGraphicsUtilities.blendFunc(material.sourceBlend, material.destBlend);
-                    mSrcBlend = material.sourceBlend;
-                    mDstBlend = material.destBlend;
-                } else if (mBlendingEnabled && (mSrcBlend!=material.sourceBlend ||
-                        mDstBlend != material.destBlend)) {
-                    mGraphicsUtilities.blendFunc(material.sourceBlend, material.destBlend);
-                    mSrcBlend = material.sourceBlend;
-                    mDstBlend = material.destBlend;
-                }
+                setBlending(material);
                 //Set matrix for particle array, this matrix is pre-modelView.
                 //this means that it is applied before movement of particles, emitted
                 //particles can have position offset and a rotation. Particles movement
@@ -755,7 +1173,10 @@ public abstract class GLESBaseRenderer implements Renderer {
                         mParticlePrograms.getProgramNameByIndex(programIndex),
                         mParticlePrograms.getUniformLocations(programIndex), pArray);
                 mGLDrawCalls++;
-                mGraphicsUtilities.checkError();
+                mParticleCount += pArray.getActiveParticles();
+                if (mCheckCallErrors) {
+                    mGraphicsUtilities.checkError();
+                }
             }
         }
 
@@ -0,0 +1,147 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.core;
+
+import com.super2k.openglen.utils.FastMath;
+
+/**
+ * Culls GLBlitObjects that are outside the view, this is done by transforming the corners
+ * of the object rectangle the same way as the blit vertex shader and testing them against
+ * the clip volume.
+ * An object is culled if all corners are outside the same clip plane, this is
+ * conservative and works for both orthogonal and perspective projection.
+ * @author Richard Sahlin
+ *
+ */
+public class ViewCuller {
+
+    /**
+     * Outcodes for the clip planes.
+     */
+    protected final static int OUTSIDE_LEFT = 1;
+    protected final static int OUTSIDE_RIGHT = 2;
+    protected final static int OUTSIDE_BOTTOM = 4;
+    protected final static int OUTSIDE_TOP = 8;
+    protected final static int OUTSIDE_NEAR = 16;
+    protected final static int OUTSIDE_FAR = 32;
+
+    /**
+     * Column 0 and 1 of the rotation matrix, used for the corners (z is 0)
+     */
+    protected float[] mAxis = new float[6];
+
+    /**
+     * Checks if an object is visible, the object is transformed using translate, scale and
+     * euler rotation in the same way as the blit vertex shader.
+     * @param projection The projection matrix.
+     * @param bounds Local bounds of the object, min x, min y, max x and max y.
+     * @param position Position of the object, 4 values.
+     * @param scale Scale of the object, 4 values.
+     * @param rotation Euler rotation of the object in radians, 4 values.
+     * @param offset Offset into position, scale and rotation arrays.
+     * @return False if the object is fully outside the view, true if the object may be
+     * visible.
+     */
+    public boolean isVisible(float[] projection, float[] bounds, float[] position,
+            float[] scale, float[] rotation, int offset) {
+        float rx = rotation[offset];
+        float ry = rotation[offset + 1];
+        float rz = rotation[offset + 2];
+        float[] axis = mAxis;
+        if (rx == 0 && ry == 0 && rz == 0) {
+            axis[0] = 1;
+            axis[1] = 0;
+            axis[2] = 0;
+            axis[3] = 0;
+            axis[4] = 1;
+            axis[5] = 0;
+        } else {
+            float cx = FastMath.cos(rx);
+            float sx = FastMath.sin(rx);
+            float cy = FastMath.cos(ry);
+            float sy = FastMath.sin(ry);
+            float cz = FastMath.cos(rz);
+            float sz = FastMath.sin(rz);
+            axis[0] = cy * cz;
+            axis[1] = -cy * sz;
+            axis[2] = sy;
+            axis[3] = (cx * sy) * cz + cx * sz;
+            axis[4] = -(cx * sy) * sz + cx * cz;
+            axis[5] = -sx * cy;
+        }
+        int outside = 0x3f;
+        outside &= getOutcode(projection, bounds[0], bounds[1], position, scale, offset);
+        if (outside == 0) {
+            return true;
+        }
+        outside &= getOutcode(projection, bounds[2], bounds[1], position, scale, offset);
+        if (outside == 0) {
+            return true;
+        }
+        outside &= getOutcode(projection, bounds[0], bounds[3], position, scale, offset);
+        if (outside == 0) {
+            return true;
+        }
+        outside &= getOutcode(projection, bounds[2], bounds[3], position, scale, offset);
+        return outside == 0;
+    }
+
+    /**
+     * Transforms a corner to clip space and returns the outcode.
+     * mAxis must be set to the rotation of the object.
+     * @param projection
+     * @param x Local x of the corner.
+     * @param y Local y of the corner.
+     * @param position
+     * @param scale
+     * @param offset
+     * @return Outcode with a bit set for each clip plane the corner is outside.
+     */
+    protected int getOutcode(float[] projection, float x, float y, float[] position,
+            float[] scale, int offset) {
+        float[] axis = mAxis;
+        float px = (axis[0] * x + axis[3] * y) * scale[offset] + position[offset];
+        float py = (axis[1] * x + axis[4] * y) * scale[offset + 1] + position[offset + 1];
+        float pz = (axis[2] * x + axis[5] * y) * scale[offset + 2] + position[offset + 2];
+        float pw = position[offset + 3];
+        float cx = projection[0] * px + projection[4] * py + projection[8] * pz +
+                projection[12] * pw;
+        float cy = projection[1] * px + projection[5] * py + projection[9] * pz +
+                projection[13] * pw;
+        float cz = projection[2] * px + projection[6] * py + projection[10] * pz +
+                projection[14] * pw;
+        float cw = projection[3] * px + projection[7] * py + projection[11] * pz +
+                projection[15] * pw;
+        int code = 0;
+        if (cx < -cw) {
+            code |= OUTSIDE_LEFT;
+        }
+        if (cx > cw) {
+            code |= OUTSIDE_RIGHT;
+        }
+        if (cy < -cw) {
+            code |= OUTSIDE_BOTTOM;
+        }
+        if (cy > cw) {
+            code |= OUTSIDE_TOP;
+        }
+        if (cz < -cw) {
+            code |= OUTSIDE_NEAR;
+        }
+        if (cz > cw) {
+            code |= OUTSIDE_FAR;
+        }
+        return code;
+    }
+
+}
@@ -31,6 +31,12 @@ public abstract class MovementObject {
 
     public float[] bounds;
 
+    /**
+     * Spatial hash the position is updated in, or null.
+     */
+    protected SpatialHashGrid mGrid;
+    protected int mGridId;
+
     /**
      * Returned by update movement if x movement is reversed
      */
@@ -54,10 +60,52 @@ public abstract class MovementObject {
      */
     public abstract int updateMovement(int ticks);
 
+    /**
+     * Sets the spatial hash that the position of this object is updated in, the object is
+     * inserted in the grid at the current position and then updated by updateMovement()
+     * If the object cannot be inserted the current grid and id are kept.
+     * @param grid The grid, or null to remove the object from the current grid.
+     * @param id Id of the object in the grid.
+     * @throws IllegalArgumentException If the id is not valid or used by another object.
+     */
+    public void setGrid(SpatialHashGrid grid, int id) {
+        if (grid != null) {
+            if (grid == mGrid && id == mGridId && grid.contains(id)) {
+                grid.update(id, blit.position[0], blit.position[1]);
+                return;
+            }
+            grid.insert(id, blit.position[0], blit.position[1]);
+        }
+        if (mGrid != null && mGrid.contains(mGridId)) {
+            mGrid.remove(mGridId);
+        }
+        mGrid = grid;
+        mGridId = id;
+    }
+
+    /**
+     * Returns the id of this object in the spatial hash.
+     * @return Id in the grid, only valid if a grid is set.
+     */
+    public int getGridId() {
+        return mGridId;
+    }
+
+    /**
+     * Updates the position of this object in the spatial hash, if a grid is set.
+     * Called by updateMovement() after the position is changed.
+     */
+    protected void updateGrid() {
+        if (mGrid != null) {
+            mGrid.update(mGridId, blit.position[0], blit.position[1]);
+        }
+    }
+
     /**
      * Releases any resources this object has.
      */
     public void destroy() {
+        setGrid(null, 0);
         blit = null;
         delta = null;
         moveDelta = null;
@@ -0,0 +1,459 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.easy3d;
+
+/**
+ * Spatial hash of 2D positions, objects are stored in square cells and cells are stored in an
+ * open addressed hash table so that the grid has no fixed size.
+ * Objects are identified by an id from 0 to capacity - 1, the objects in a cell are linked
+ * using arrays indexed by id. Moving an object within a cell only stores the position.
+ * Rectangle and radius queries only visit the cells that overlap the query, finding all
+ * pairs of objects closer than a distance visits the neighbour cells of each object, this
+ * scales linearly with the number of objects if the density is kept.
+ * The cell size should be about the size of the interaction distance.
+ * This class is not thread safe and does not allocate memory after it is created,
+ * unless the number of used cells grows.
+ * @author Richard Sahlin
+ *
+ */
+public class SpatialHashGrid {
+
+    /**
+     * Callback for pairs found by findPairs()
+     */
+    public interface PairListener {
+        /**
+         * Called for each pair of objects, first is always less than second.
+         * @param first Id of the first object.
+         * @param second Id of the second object.
+         */
+        public void pair(int first, int second);
+    }
+
+    protected final static String INVALID_ID_STR = "Invalid id: ";
+
+    /**
+     * Value for no object in the linked lists.
+     */
+    protected final static int NONE = -1;
+    /**
+     * Value for the head of unused slots in the cell table.
+     */
+    protected final static int UNUSED = -2;
+
+    protected final static int DEFAULT_TABLE_SIZE = 64;
+
+    protected final float mCellSize;
+    protected final float mOneByCellSize;
+
+    /**
+     * Cell table, the key of the cell and the first object in the cell for each slot.
+     * Slots are never removed, a slot with head NONE is an empty cell.
+     */
+    protected long[] mCellKeys;
+    protected int[] mCellHeads;
+    protected int mUsedSlots;
+
+    /**
+     * Object data, indexed by id.
+     */
+    protected final float[] mX;
+    protected final float[] mY;
+    protected final long[] mObjectCell;
+    protected final int[] mNext;
+    protected final int[] mPrevious;
+    protected final boolean[] mInserted;
+    protected int mCount;
+
+    /**
+     * Creates a new grid with the specified cell size and room for capacity objects.
+     * @param cellSize Size of each cell, in x and y.
+     * @param capacity Number of objects, ids are 0 to capacity - 1.
+     * @throws IllegalArgumentException If cellSize <= 0 or capacity < 1
+     */
+    public SpatialHashGrid(float cellSize, int capacity) {
+        if (cellSize <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Illegal parameter: " + cellSize + ", " +
+                    capacity);
+        }
+        mCellSize = cellSize;
+        mOneByCellSize = 1 / cellSize;
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mObjectCell = new long[capacity];
+        mNext = new int[capacity];
+        mPrevious = new int[capacity];
+        mInserted = new boolean[capacity];
+        createTable(DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * Returns the cell size.
+     * @return Size of the cells.
+     */
+    public float getCellSize() {
+        return mCellSize;
+    }
+
+    /**
+     * Returns the number of objects in the grid.
+     * @return Number of inserted objects.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Checks if an object is in the grid.
+     * @param id Id of the object.
+     * @return True if the object is inserted.
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < mInserted.length && mInserted[id];
+    }
+
+    /**
+     * Inserts an object at a position.
+     * @param id Id of the object, 0 to capacity - 1
+     * @param x
+     * @param y
+     * @throws IllegalArgumentException If id is not valid or the object is already inserted.
+     */
+    public void insert(int id, float x, float y) {
+        if (id < 0 || id >= mInserted.length || mInserted[id]) {
+            throw new IllegalArgumentException(INVALID_ID_STR + id);
+        }
+        mInserted[id] = true;
+        mX[id] = x;
+        mY[id] = y;
+        link(id, getKey(getCell(x), getCell(y)));
+        mCount++;
+    }
+
+    /**
+     * Updates the position of an object, if the object is not inserted it is inserted.
+     * The object is only moved to another cell if the cell has changed.
+     * @param id Id of the object, 0 to capacity - 1
+     * @param x
+     * @param y
+     * @throws IllegalArgumentException If id is not valid.
+     */
+    public void update(int id, float x, float y) {
+        if (!contains(id)) {
+            insert(id, x, y);
+            return;
+        }
+        mX[id] = x;
+        mY[id] = y;
+        long key = getKey(getCell(x), getCell(y));
+        if (key != mObjectCell[id]) {
+            unlink(id);
+            link(id, key);
+        }
+    }
+
+    /**
+     * Removes an object from the grid.
+     * @param id Id of the object.
+     * @throws IllegalArgumentException If the object is not inserted.
+     */
+    public void remove(int id) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException(INVALID_ID_STR + id);
+        }
+        unlink(id);
+        mInserted[id] = false;
+        mCount--;
+    }
+
+    /**
+     * Removes all objects, used cells are kept.
+     */
+    public void clear() {
+        for (int i = 0; i < mCellHeads.length; i++) {
+            if (mCellHeads[i] != UNUSED) {
+                mCellHeads[i] = NONE;
+            }
+        }
+        for (int i = 0; i < mInserted.length; i++) {
+            mInserted[i] = false;
+        }
+        mCount = 0;
+    }
+
+    /**
+     * Finds the objects with position inside a rectangle, limits are inclusive.
+     * @param minX
+     * @param minY
+     * @param maxX
+     * @param maxY
+     * @param result Ids of the found objects are stored here.
+     * @return Number of found objects, max result.length
+     */
+    public int queryRect(float minX, float minY, float maxX, float maxY, int[] result) {
+        int count = 0;
+        int endX = getCell(maxX);
+        int endY = getCell(maxY);
+        for (int cy = getCell(minY); cy <= endY; cy++) {
+            for (int cx = getCell(minX); cx <= endX; cx++) {
+                int slot = findSlot(getKey(cx, cy));
+                if (slot == NONE) {
+                    continue;
+                }
+                for (int id = mCellHeads[slot]; id != NONE; id = mNext[id]) {
+                    float x = mX[id];
+                    float y = mY[id];
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                        if (count == result.length) {
+                            return count;
+                        }
+                        result[count++] = id;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the objects with position within radius of a point.
+     * @param x
+     * @param y
+     * @param radius
+     * @param result Ids of the found objects are stored here.
+     * @return Number of found objects, max result.length
+     */
+    public int queryRadius(float x, float y, float radius, int[] result) {
+        int count = 0;
+        float radius2 = radius * radius;
+        int endX = getCell(x + radius);
+        int endY = getCell(y + radius);
+        for (int cy = getCell(y - radius); cy <= endY; cy++) {
+            for (int cx = getCell(x - radius); cx <= endX; cx++) {
+                int slot = findSlot(getKey(cx, cy));
+                if (slot == NONE) {
+                    continue;
+                }
+                for (int id = mCellHeads[slot]; id != NONE; id = mNext[id]) {
+                    float dx = mX[id] - x;
+                    float dy = mY[id] - y;
+                    if (dx * dx + dy * dy <= radius2) {
+                        if (count == result.length) {
+                            return count;
+                        }
+                        result[count++] = id;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds all pairs of objects that are within distance of each other, each pair is
+     * reported once to the listener.
+     * @param distance Max distance between objects, must not be larger than the cell size.
+     * @param listener Called for each pair, or null to only count pairs.
+     * @return Number of pairs found.
+     * @throws IllegalArgumentException If distance is larger than the cell size.
+     */
+    public int findPairs(float distance, PairListener listener) {
+        if (distance > mCellSize) {
+            throw new IllegalArgumentException("Distance larger than cell size: " + distance);
+        }
+        int pairs = 0;
+        float distance2 = distance * distance;
+        for (int first = 0; first < mInserted.length; first++) {
+            if (!mInserted[first]) {
+                continue;
+            }
+            float x = mX[first];
+            float y = mY[first];
+            int cellX = getCell(x);
+            int cellY = getCell(y);
+            for (int cy = cellY - 1; cy <= cellY + 1; cy++) {
+                for (int cx = cellX - 1; cx <= cellX + 1; cx++) {
+                    int slot = findSlot(getKey(cx, cy));
+                    if (slot == NONE) {
+                        continue;
+                    }
+                    for (int id = mCellHeads[slot]; id != NONE; id = mNext[id]) {
+                        if (id <= first) {
+                            continue;
+                        }
+                        float dx = mX[id] - x;
+                        float dy = mY[id] - y;
+                        if (dx * dx + dy * dy <= distance2) {
+                            pairs++;
+                            if (listener != null) {
+                                listener.pair(first, id);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns the cell coordinate for a position.
+     * @param value x or y position.
+     * @return The cell coordinate.
+     */
+    protected int getCell(float value) {
+        return (int) Math.floor(value * mOneByCellSize);
+    }
+
+    /**
+     * Returns the key for a cell.
+     * @param cellX
+     * @param cellY
+     * @return Key of the cell.
+     */
+    protected long getKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+
+    /**
+     * Returns the start slot for a key.
+     * @param key
+     * @param mask Table size - 1
+     * @return Slot to start probing from.
+     */
+    protected int hash(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    /**
+     * Finds the slot of a cell.
+     * @param key Key of the cell.
+     * @return The slot, or NONE if the cell has not been used.
+     */
+    protected int findSlot(long key) {
+        int mask = mCellKeys.length - 1;
+        int slot = hash(key, mask);
+        while (mCellHeads[slot] != UNUSED) {
+            if (mCellKeys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Finds the slot of a cell, a slot is added if the cell has not been used.
+     * @param key Key of the cell.
+     * @return The slot.
+     */
+    protected int getSlot(long key) {
+        int mask = mCellKeys.length - 1;
+        int slot = hash(key, mask);
+        while (mCellHeads[slot] != UNUSED) {
+            if (mCellKeys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((mUsedSlots + 1) * 2 > mCellKeys.length) {
+            rehash();
+            return getSlot(key);
+        }
+        mCellKeys[slot] = key;
+        mCellHeads[slot] = NONE;
+        mUsedSlots++;
+        return slot;
+    }
+
+    /**
+     * Links the object first in the cell.
+     * @param id
+     * @param key Key of the cell.
+     */
+    protected void link(int id, long key) {
+        int slot = getSlot(key);
+        int head = mCellHeads[slot];
+        mNext[id] = head;
+        mPrevious[id] = NONE;
+        if (head != NONE) {
+            mPrevious[head] = id;
+        }
+        mCellHeads[slot] = id;
+        mObjectCell[id] = key;
+    }
+
+    /**
+     * Unlinks the object from its cell.
+     * @param id
+     */
+    protected void unlink(int id) {
+        int next = mNext[id];
+        int previous = mPrevious[id];
+        if (previous != NONE) {
+            mNext[previous] = next;
+        } else {
+            mCellHeads[findSlot(mObjectCell[id])] = next;
+        }
+        if (next != NONE) {
+            mPrevious[next] = previous;
+        }
+    }
+
+    /**
+     * Creates an empty cell table.
+     * @param size Number of slots, must be a power of 2.
+     */
+    protected void createTable(int size) {
+        mCellKeys = new long[size];
+        mCellHeads = new int[size];
+        for (int i = 0; i < size; i++) {
+            mCellHeads[i] = UNUSED;
+        }
+        mUsedSlots = 0;
+    }
+
+    /**
+     * Rebuilds the cell table, empty cells are removed and the table is grown if more than
+     * half of the slots are used by cells with objects.
+     */
+    protected void rehash() {
+        long[] keys = mCellKeys;
+        int[] heads = mCellHeads;
+        int used = 0;
+        for (int i = 0; i < heads.length; i++) {
+            if (heads[i] >= 0) {
+                used++;
+            }
+        }
+        int size = keys.length;
+        while ((used + 1) * 4 > size) {
+            size *= 2;
+        }
+        createTable(size);
+        int mask = size - 1;
+        for (int i = 0; i < heads.length; i++) {
+            if (heads[i] >= 0) {
+                int slot = hash(keys[i], mask);
+                while (mCellHeads[slot] != UNUSED) {
+                    slot = (slot + 1) & mask;
+                }
+                mCellKeys[slot] = keys[i];
+                mCellHeads[slot] = heads[i];
+                mUsedSlots++;
+            }
+        }
+    }
+
+}
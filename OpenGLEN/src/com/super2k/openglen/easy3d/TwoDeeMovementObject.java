@@ -81,6 +81,7 @@ public class TwoDeeMovementObject extends MovementObject {
                 delta[1] += moveDelta[1] * ticks;
         }
         delta[0] += moveDelta[0] * ticks;
+        updateGrid();
         return result;
     }
 
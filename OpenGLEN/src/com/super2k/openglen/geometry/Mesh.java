@@ -27,6 +27,8 @@ import com.super2k.openglen.ConstantValues;
  */
 public class Mesh  {
 
+    protected final static String INVALID_FORMAT_STR = "Invalid vertex format";
+
     /**
      * All vertices for this mesh.
      */
@@ -54,6 +56,17 @@ public class Mesh  {
 
     public int texCoordType = -1;
 
+    /**
+     * Vertices, normals and texture coordinates interleaved as described by vertexFormat,
+     * null if not created.
+     */
+    public ByteBuffer interleavedArray;
+
+    /**
+     * Layout of the interleaved array.
+     */
+    public VertexFormat vertexFormat;
+
     /**
      * Runtime variables - not exported.
      */
@@ -214,6 +227,71 @@ public class Mesh  {
 
     }
 
+    /**
+     * Creates the interleaved array from the vertex, normal and texturecoordinate arrays,
+     * values are converted to the types in the vertex format. Use this to store the mesh
+     * in a compact format, eg half float vertices, normalized short texture coordinates
+     * or without normals for unlit meshes.
+     * The number of vertices is taken from the vertex array.
+     * @param format The vertex format, must have a layout.
+     * @param vertexAttribute Attribute index for vertices.
+     * @param normalAttribute Attribute index for normals, or -1 to not store normals.
+     * @param texCoordAttribute Attribute index for texture coordinates, or -1 to not store
+     * texture coordinates.
+     * @throws IllegalArgumentException If format has no layout, an attribute index is not
+     * in the format or a stored array is not of type ConstantValues.FLOAT
+     */
+    public void createInterleavedArray(VertexFormat format, int vertexAttribute,
+            int normalAttribute, int texCoordAttribute) {
+        if (!format.hasLayout() || format.getAttribute(vertexAttribute) < 0 ||
+                vertexType != ConstantValues.FLOAT) {
+            throw new IllegalArgumentException(INVALID_FORMAT_STR);
+        }
+        int count = vertices.capacity() / format.getSize(format.getAttribute(vertexAttribute));
+        ByteBuffer array = ByteBuffer.allocateDirect(count * format.getStride()).order(
+                ByteOrder.nativeOrder());
+        putAttribute(array, format, vertexAttribute, (FloatBuffer) vertices, count);
+        if (normalAttribute >= 0) {
+            if (normalType != ConstantValues.FLOAT) {
+                throw new IllegalArgumentException(INVALID_FORMAT_STR);
+            }
+            putAttribute(array, format, normalAttribute, (FloatBuffer) normals, count);
+        }
+        if (texCoordAttribute >= 0) {
+            if (texCoordType != ConstantValues.FLOAT) {
+                throw new IllegalArgumentException(INVALID_FORMAT_STR);
+            }
+            putAttribute(array, format, texCoordAttribute, (FloatBuffer) textureCoordinates,
+                    count);
+        }
+        interleavedArray = array;
+        vertexFormat = format;
+    }
+
+    /**
+     * Stores the values from source for one attribute of all vertices, internal method.
+     * @param array The interleaved array.
+     * @param format Format of the interleaved array.
+     * @param index The attribute index.
+     * @param source The values, stored packed.
+     * @param count Number of vertices.
+     * @throws IllegalArgumentException If the attribute index is not in the format.
+     */
+    private void putAttribute(ByteBuffer array, VertexFormat format, int index,
+            FloatBuffer source, int count) {
+        int attribute = format.getAttribute(index);
+        if (attribute < 0) {
+            throw new IllegalArgumentException(INVALID_FORMAT_STR);
+        }
+        int size = format.getSize(attribute);
+        float[] values = new float[size];
+        source.position(0);
+        for (int i = 0; i < count; i++) {
+            source.get(values);
+            format.put(array, i, attribute, values, 0);
+        }
+    }
+
     /**
      * Set the buffer ids for arrays and elements, if indices are not used
      * elementBufferID should be -1 -1 means buffer not used, renderer will use
@@ -0,0 +1,294 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.geometry;
+
+import com.super2k.openglen.utils.FastMath;
+
+/**
+ * A rotation quaternion with x, y, z and w stored in an array, w is at index 3.
+ * The static methods operate on quaternions stored in float arrays at an offset,
+ * in the same way as the Matrix methods, and do not allocate any memory.
+ * Result quaternions may be the same as the source quaternions.
+ * Matrices are 4 x 4 column-major, as used by Matrix.
+ * @author Richard Sahlin
+ *
+ */
+public class Quaternion {
+
+    /**
+     * Number of values for a quaternion.
+     */
+    public final static int SIZE = 4;
+
+    /**
+     * When the dot product of two quaternions is above this, slerp uses nlerp.
+     */
+    private final static float SLERP_THRESHOLD = 0.9995f;
+
+    /**
+     * The quaternion values, x, y, z, w
+     */
+    public float[] values = new float[] {0, 0, 0, 1};
+
+    /**
+     * Creates an identity quaternion.
+     */
+    public Quaternion() {
+    }
+
+    /**
+     * Creates a quaternion for rotation around an axis.
+     * @param angle Angle in radians.
+     * @param x Axis x
+     * @param y Axis y
+     * @param z Axis z
+     */
+    public Quaternion(float angle, float x, float y, float z) {
+        setAxisAngle(values, 0, angle, x, y, z);
+    }
+
+    /**
+     * Multiplies this quaternion with other, the result is stored in this.
+     * The resulting rotation is the other rotation followed by this rotation.
+     * @param other
+     * @return This quaternion.
+     */
+    public Quaternion mul(Quaternion other) {
+        mul(values, 0, other.values, 0, values, 0);
+        return this;
+    }
+
+    /**
+     * Sets the rotation part of the matrix from this quaternion.
+     * @param matrix 4 x 4 matrix
+     * @param offset Offset into matrix
+     */
+    public void toMatrix(float[] matrix, int offset) {
+        toMatrix(values, 0, matrix, offset);
+    }
+
+    /**
+     * Sets the quaternion to identity.
+     * @param q
+     * @param offset
+     */
+    public static void setIdentity(float[] q, int offset) {
+        q[offset] = 0;
+        q[offset + 1] = 0;
+        q[offset + 2] = 0;
+        q[offset + 3] = 1;
+    }
+
+    /**
+     * Sets the quaternion to rotation around an axis, the axis is normalized.
+     * @param q Destination quaternion.
+     * @param offset Offset into q
+     * @param angle Angle in radians.
+     * @param x Axis x
+     * @param y Axis y
+     * @param z Axis z
+     */
+    public static void setAxisAngle(float[] q, int offset, float angle, float x, float y,
+            float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) {
+            setIdentity(q, offset);
+            return;
+        }
+        float s = FastMath.sin(angle * 0.5f) / length;
+        q[offset] = x * s;
+        q[offset + 1] = y * s;
+        q[offset + 2] = z * s;
+        q[offset + 3] = FastMath.cos(angle * 0.5f);
+    }
+
+    /**
+     * Multiplies quaternion a with b and stores in destination, a * b means that the rotation
+     * of b is applied first.
+     * @param a
+     * @param aOffset
+     * @param b
+     * @param bOffset
+     * @param destination
+     * @param destOffset
+     */
+    public static void mul(float[] a, int aOffset, float[] b, int bOffset, float[] destination,
+            int destOffset) {
+        float ax = a[aOffset];
+        float ay = a[aOffset + 1];
+        float az = a[aOffset + 2];
+        float aw = a[aOffset + 3];
+        float bx = b[bOffset];
+        float by = b[bOffset + 1];
+        float bz = b[bOffset + 2];
+        float bw = b[bOffset + 3];
+        destination[destOffset] = aw * bx + ax * bw + ay * bz - az * by;
+        destination[destOffset + 1] = aw * by - ax * bz + ay * bw + az * bx;
+        destination[destOffset + 2] = aw * bz + ax * by - ay * bx + az * bw;
+        destination[destOffset + 3] = aw * bw - ax * bx - ay * by - az * bz;
+    }
+
+    /**
+     * Stores the conjugate of quaternion q in destination, for a normalized quaternion this
+     * is the inverse rotation.
+     * @param q
+     * @param offset
+     * @param destination
+     * @param destOffset
+     */
+    public static void conjugate(float[] q, int offset, float[] destination, int destOffset) {
+        destination[destOffset] = -q[offset];
+        destination[destOffset + 1] = -q[offset + 1];
+        destination[destOffset + 2] = -q[offset + 2];
+        destination[destOffset + 3] = q[offset + 3];
+    }
+
+    /**
+     * Normalizes the quaternion.
+     * @param q
+     * @param offset
+     */
+    public static void normalize(float[] q, int offset) {
+        float x = q[offset];
+        float y = q[offset + 1];
+        float z = q[offset + 2];
+        float w = q[offset + 3];
+        float length = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+        if (length == 0) {
+            setIdentity(q, offset);
+            return;
+        }
+        float inv = 1 / length;
+        q[offset] = x * inv;
+        q[offset + 1] = y * inv;
+        q[offset + 2] = z * inv;
+        q[offset + 3] = w * inv;
+    }
+
+    /**
+     * Normalized linear interpolation from a to b, along the shortest path.
+     * This is cheaper than slerp but the angular speed is not constant.
+     * @param a Start quaternion
+     * @param aOffset
+     * @param b End quaternion
+     * @param bOffset
+     * @param t Interpolation factor, 0 to 1
+     * @param destination
+     * @param destOffset
+     */
+    public static void nlerp(float[] a, int aOffset, float[] b, int bOffset, float t,
+            float[] destination, int destOffset) {
+        float dot = a[aOffset] * b[bOffset] + a[aOffset + 1] * b[bOffset + 1] +
+                a[aOffset + 2] * b[bOffset + 2] + a[aOffset + 3] * b[bOffset + 3];
+        float ta = 1 - t;
+        float tb = dot < 0 ? -t : t;
+        for (int i = 0; i < SIZE; i++) {
+            destination[destOffset + i] = ta * a[aOffset + i] + tb * b[bOffset + i];
+        }
+        normalize(destination, destOffset);
+    }
+
+    /**
+     * Spherical linear interpolation from a to b, along the shortest path with constant
+     * angular speed. Uses nlerp if the quaternions are very close.
+     * @param a Start quaternion
+     * @param aOffset
+     * @param b End quaternion
+     * @param bOffset
+     * @param t Interpolation factor, 0 to 1
+     * @param destination
+     * @param destOffset
+     */
+    public static void slerp(float[] a, int aOffset, float[] b, int bOffset, float t,
+            float[] destination, int destOffset) {
+        float dot = a[aOffset] * b[bOffset] + a[aOffset + 1] * b[bOffset + 1] +
+                a[aOffset + 2] * b[bOffset + 2] + a[aOffset + 3] * b[bOffset + 3];
+        float sign = 1;
+        if (dot < 0) {
+            dot = -dot;
+            sign = -1;
+        }
+        if (dot > SLERP_THRESHOLD) {
+            nlerp(a, aOffset, b, bOffset, t, destination, destOffset);
+            return;
+        }
+        float theta = (float) Math.acos(dot);
+        float invSin = 1 / FastMath.sin(theta);
+        float ta = FastMath.sin((1 - t) * theta) * invSin;
+        float tb = FastMath.sin(t * theta) * invSin * sign;
+        for (int i = 0; i < SIZE; i++) {
+            destination[destOffset + i] = ta * a[aOffset + i] + tb * b[bOffset + i];
+        }
+    }
+
+    /**
+     * Sets the rotation part, upper 3 x 3, of the matrix from the quaternion.
+     * The quaternion must be normalized, other values in the matrix are not changed.
+     * @param q
+     * @param qOffset
+     * @param matrix 4 x 4 matrix
+     * @param mOffset
+     */
+    public static void toMatrix(float[] q, int qOffset, float[] matrix, int mOffset) {
+        float x = q[qOffset];
+        float y = q[qOffset + 1];
+        float z = q[qOffset + 2];
+        float w = q[qOffset + 3];
+        float x2 = x + x;
+        float y2 = y + y;
+        float z2 = z + z;
+        float xx = x * x2;
+        float yy = y * y2;
+        float zz = z * z2;
+        float xy = x * y2;
+        float xz = x * z2;
+        float yz = y * z2;
+        float wx = w * x2;
+        float wy = w * y2;
+        float wz = w * z2;
+        matrix[mOffset] = 1 - (yy + zz);
+        matrix[mOffset + 1] = xy + wz;
+        matrix[mOffset + 2] = xz - wy;
+        matrix[mOffset + 4] = xy - wz;
+        matrix[mOffset + 5] = 1 - (xx + zz);
+        matrix[mOffset + 6] = yz + wx;
+        matrix[mOffset + 8] = xz + wy;
+        matrix[mOffset + 9] = yz - wx;
+        matrix[mOffset + 10] = 1 - (xx + yy);
+    }
+
+    /**
+     * Creates rotation matrices for a number of quaternions, quaternions are stored
+     * after each other with 4 values each and matrices with 16 values each.
+     * The rotation part of the matrices is set and the rest is set to identity.
+     * @param q Source quaternions, must be normalized.
+     * @param qOffset Offset into q
+     * @param matrix Destination matrices.
+     * @param mOffset Offset into matrix.
+     * @param count Number of quaternions to convert.
+     */
+    public static void toMatrix(float[] q, int qOffset, float[] matrix, int mOffset, int count) {
+        int end = qOffset + count * SIZE;
+        for (int i = qOffset, m = mOffset; i < end; i += SIZE, m += 16) {
+            toMatrix(q, i, matrix, m);
+            matrix[m + 3] = 0;
+            matrix[m + 7] = 0;
+            matrix[m + 11] = 0;
+            matrix[m + 12] = 0;
+            matrix[m + 13] = 0;
+            matrix[m + 14] = 0;
+            matrix[m + 15] = 1;
+        }
+    }
+
+}
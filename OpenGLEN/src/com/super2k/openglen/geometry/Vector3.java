@@ -14,6 +14,7 @@
 package com.super2k.openglen.geometry;
 
 import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.utils.FastMath;
 
 /**
  * A float Vector with x y z stored in an array.
@@ -371,8 +372,8 @@ public class Vector3 {
      * @param destination The destination vector
      */
     public void rotateXAxis(float angle, float[] destination) {
-        float sin = (float)Math.sin(angle);
-        float cos = (float)Math.cos(angle);
+        float sin = FastMath.sin(angle);
+        float cos = FastMath.cos(angle);
         float tempY = (values[1] * cos) - (values[2] * sin);
         destination[2] = (values[1] * sin) + (values[2] * cos);
         destination[1] = tempY;
@@ -384,8 +385,8 @@ public class Vector3 {
      * @param destination The destination vector
      */
     public void rotateYAxis(float angle, float[] destination) {
-        float sin = (float)Math.sin(angle);
-        float cos = (float)Math.cos(angle);
+        float sin = FastMath.sin(angle);
+        float cos = FastMath.cos(angle);
         float tempZ = (values[2] * cos) - (values[0] * sin);
         destination[0] = (values[2] * sin) + (values[0] * cos);
         destination[2] = tempZ;
@@ -397,8 +398,8 @@ public class Vector3 {
      * @param vector
      */
     public static void rotateZAxis(float[] vector, float angle) {
-        float sin = (float)Math.sin(angle);
-        float cos = (float)Math.cos(angle);
+        float sin = FastMath.sin(angle);
+        float cos = FastMath.cos(angle);
         float tempX = (vector[0] * cos) - (vector[1] * sin);
         vector[1] = (vector[0] * sin) + (vector[1] * cos);
         vector[0] = tempX;
@@ -412,8 +413,8 @@ public class Vector3 {
      * @param destination The destination vector
      */
     public void rotateZAxis(float angle, float[] destination) {
-        float sin = (float)Math.sin(angle);
-        float cos = (float)Math.cos(angle);
+        float sin = FastMath.sin(angle);
+        float cos = FastMath.cos(angle);
         float tempX = (values[0] * cos) - (values[1] * sin);
         destination[1] = (values[0] * sin) + (values[1] * cos);
         destination[0] = tempX;
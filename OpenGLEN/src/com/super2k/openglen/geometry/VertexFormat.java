@@ -0,0 +1,425 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.super2k.openglen.geometry;
+
+import java.nio.ByteBuffer;
+
+import com.super2k.openglen.ConstantValues;
+
+/**
+ * Describes the vertex attributes used by a layout, for instance the attributes used by
+ * all blit programs. The enable mask is calculated once so that switching between layouts
+ * only enables or disables the attribute arrays that differ.
+ * A format may also describe how the attributes are stored in one interleaved array,
+ * the number of components, type, normalized flag and byte offset of each attribute and the
+ * byte stride between vertices. This is used to set the attribute pointers and to store
+ * vertex data, compact types such as half float, short or unsigned byte can be used to
+ * reduce the size of the vertex data.
+ * If vertex array objects are supported the renderer may store a vertex array object
+ * for the layout, the name is only valid in the context where it was created.
+ * @author Richard Sahlin
+ *
+ */
+public class VertexFormat {
+
+    protected final static String INVALID_ATTRIBUTE_STR = "Invalid attribute index:";
+    protected final static String INVALID_LAYOUT_STR = "Invalid layout for attribute:";
+    protected final static String INVALID_TYPE_STR = "Invalid type:";
+    protected final static String NO_LAYOUT_STR = "Format has no layout";
+
+    /**
+     * Max attribute index + 1, this is the minimum number of attributes required by GLES 2.
+     */
+    public final static int MAX_ATTRIBUTES = 8;
+
+    protected final int[] mAttributes;
+    protected final int mEnableMask;
+
+    /**
+     * Number of components, type, normalized flag and byte offset for each attribute,
+     * in the same order as mAttributes. Null if the format has no layout.
+     */
+    protected final int[] mSizes;
+    protected final int[] mTypes;
+    protected final boolean[] mNormalized;
+    protected final int[] mOffsets;
+    /**
+     * Number of bytes between each vertex, 0 if the format has no layout.
+     */
+    protected final int mStride;
+
+    /**
+     * Name of the vertex array object for this format, 0 if not created.
+     */
+    protected int mVertexArray;
+
+    /**
+     * Creates a new vertex format using the specified attribute indexes, the format
+     * has no layout and can only be used to enable attribute arrays.
+     * @param attributes The attribute indexes used, the array is copied.
+     * @throws IllegalArgumentException If attributes is null or an index is negative
+     * or >= MAX_ATTRIBUTES
+     */
+    public VertexFormat(int[] attributes) {
+        mAttributes = copyAttributes(attributes);
+        mEnableMask = getMask(mAttributes);
+        mSizes = null;
+        mTypes = null;
+        mNormalized = null;
+        mOffsets = null;
+        mStride = 0;
+    }
+
+    /**
+     * Creates a new interleaved vertex format, attributes are stored in the order they
+     * are specified. Each attribute starts at a 4 byte boundary and the stride is a multiple
+     * of 4 bytes.
+     * @param attributes The attribute indexes used, the array is copied.
+     * @param sizes Number of components for each attribute, 1 - 4.
+     * @param types Type of each attribute, ConstantValues.FLOAT, HALF_FLOAT_OES, FIXED, SHORT,
+     * UNSIGNED_SHORT, BYTE or UNSIGNED_BYTE
+     * @param normalized True for attributes where integer values are normalized to
+     * 0 - 1 or -1 - 1.
+     * @throws IllegalArgumentException If an array is null or does not have the same length
+     * as attributes, or a value is invalid.
+     */
+    public VertexFormat(int[] attributes, int[] sizes, int[] types, boolean[] normalized) {
+        this(attributes, sizes, types, normalized, getPackedOffsets(sizes, types),
+                getPackedStride(sizes, types));
+    }
+
+    /**
+     * Creates a new interleaved vertex format with the specified offsets and stride,
+     * use this to describe existing arrays.
+     * @param attributes The attribute indexes used, the array is copied.
+     * @param sizes Number of components for each attribute, 1 - 4.
+     * @param types Type of each attribute, ConstantValues.FLOAT, HALF_FLOAT_OES, FIXED, SHORT,
+     * UNSIGNED_SHORT, BYTE or UNSIGNED_BYTE
+     * @param normalized True for attributes where integer values are normalized to
+     * 0 - 1 or -1 - 1.
+     * @param offsets Byte offset of each attribute within a vertex.
+     * @param stride Number of bytes between each vertex.
+     * @throws IllegalArgumentException If an array is null or does not have the same length
+     * as attributes, or a value is invalid.
+     */
+    public VertexFormat(int[] attributes, int[] sizes, int[] types, boolean[] normalized,
+            int[] offsets, int stride) {
+        mAttributes = copyAttributes(attributes);
+        mEnableMask = getMask(mAttributes);
+        int count = mAttributes.length;
+        if (sizes == null || types == null || normalized == null || offsets == null ||
+                sizes.length != count || types.length != count || normalized.length != count ||
+                offsets.length != count) {
+            throw new IllegalArgumentException(INVALID_LAYOUT_STR + null);
+        }
+        for (int i = 0; i < count; i++) {
+            if (sizes[i] < 1 || sizes[i] > 4 || offsets[i] < 0 ||
+                    offsets[i] + sizes[i] * getTypeSize(types[i]) > stride) {
+                throw new IllegalArgumentException(INVALID_LAYOUT_STR + mAttributes[i]);
+            }
+        }
+        mSizes = new int[count];
+        mTypes = new int[count];
+        mNormalized = new boolean[count];
+        mOffsets = new int[count];
+        System.arraycopy(sizes, 0, mSizes, 0, count);
+        System.arraycopy(types, 0, mTypes, 0, count);
+        System.arraycopy(normalized, 0, mNormalized, 0, count);
+        System.arraycopy(offsets, 0, mOffsets, 0, count);
+        mStride = stride;
+    }
+
+    /**
+     * Validates and copies the attribute indexes, internal method.
+     * @param attributes
+     * @return Copy of attributes.
+     * @throws IllegalArgumentException If attributes is null or an index is invalid.
+     */
+    private static int[] copyAttributes(int[] attributes) {
+        if (attributes == null) {
+            throw new IllegalArgumentException(INVALID_ATTRIBUTE_STR + null);
+        }
+        for (int i = 0; i < attributes.length; i++) {
+            if (attributes[i] < 0 || attributes[i] >= MAX_ATTRIBUTES) {
+                throw new IllegalArgumentException(INVALID_ATTRIBUTE_STR + attributes[i]);
+            }
+        }
+        int[] result = new int[attributes.length];
+        System.arraycopy(attributes, 0, result, 0, attributes.length);
+        return result;
+    }
+
+    /**
+     * Returns the enable mask for the attribute indexes, internal method.
+     * @param attributes
+     * @return
+     */
+    private static int getMask(int[] attributes) {
+        int mask = 0;
+        for (int i = 0; i < attributes.length; i++) {
+            mask |= 1 << attributes[i];
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the offsets of attributes stored in order, starting at 4 byte boundaries.
+     * @param sizes
+     * @param types
+     * @return
+     * @throws IllegalArgumentException If sizes or types is null or a type is invalid.
+     */
+    private static int[] getPackedOffsets(int[] sizes, int[] types) {
+        if (sizes == null || types == null || sizes.length != types.length) {
+            throw new IllegalArgumentException(INVALID_LAYOUT_STR + null);
+        }
+        int[] offsets = new int[sizes.length];
+        int offset = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            offsets[i] = offset;
+            offset += align(sizes[i] * getTypeSize(types[i]));
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns the stride of attributes stored in order, starting at 4 byte boundaries.
+     * @param sizes
+     * @param types
+     * @return
+     */
+    private static int getPackedStride(int[] sizes, int[] types) {
+        int stride = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            stride += align(sizes[i] * getTypeSize(types[i]));
+        }
+        return stride;
+    }
+
+    /**
+     * Rounds up to a multiple of 4.
+     * @param bytes
+     * @return
+     */
+    private static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    /**
+     * Returns the size in bytes of one component of the type.
+     * @param type ConstantValues.FLOAT, HALF_FLOAT_OES, FIXED, SHORT, UNSIGNED_SHORT, BYTE
+     * or UNSIGNED_BYTE
+     * @return Size in bytes.
+     * @throws IllegalArgumentException If type is not one of the above.
+     */
+    public static int getTypeSize(int type) {
+        switch (type) {
+            case ConstantValues.FLOAT:
+            case ConstantValues.FIXED:
+                return 4;
+            case ConstantValues.HALF_FLOAT_OES:
+            case ConstantValues.SHORT:
+            case ConstantValues.UNSIGNED_SHORT:
+                return 2;
+            case ConstantValues.BYTE:
+            case ConstantValues.UNSIGNED_BYTE:
+                return 1;
+            default:
+                throw new IllegalArgumentException(INVALID_TYPE_STR + type);
+        }
+    }
+
+    /**
+     * Returns the attribute indexes used by this format.
+     * @return Array with attribute indexes, do not modify.
+     */
+    public int[] getAttributes() {
+        return mAttributes;
+    }
+
+    /**
+     * Returns the attribute arrays to enable as a bitmask, bit n is set if attribute
+     * index n is used.
+     * @return Mask of attribute arrays to enable.
+     */
+    public int getEnableMask() {
+        return mEnableMask;
+    }
+
+    /**
+     * Returns true if this format has a layout, ie size, type and offset of attributes.
+     * @return True if the format has a layout.
+     */
+    public boolean hasLayout() {
+        return mStride > 0;
+    }
+
+    /**
+     * Returns the number of bytes between each vertex.
+     * @return The stride in bytes, 0 if the format has no layout.
+     */
+    public int getStride() {
+        return mStride;
+    }
+
+    /**
+     * Returns the position of an attribute index in this format, this is the value to use
+     * for the attribute parameter of the other methods.
+     * @param index The attribute index.
+     * @return Position of the attribute index in the format, or -1 if not used.
+     */
+    public int getAttribute(int index) {
+        for (int i = 0; i < mAttributes.length; i++) {
+            if (mAttributes[i] == index) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of components for an attribute.
+     * @param attribute Position of the attribute in this format.
+     * @return Number of components, 1 - 4.
+     */
+    public int getSize(int attribute) {
+        return mSizes[attribute];
+    }
+
+    /**
+     * Returns the type of an attribute.
+     * @param attribute Position of the attribute in this format.
+     * @return The type, eg ConstantValues.FLOAT
+     */
+    public int getType(int attribute) {
+        return mTypes[attribute];
+    }
+
+    /**
+     * Returns true if integer values of the attribute are normalized.
+     * @param attribute Position of the attribute in this format.
+     * @return True if normalized.
+     */
+    public boolean isNormalized(int attribute) {
+        return mNormalized[attribute];
+    }
+
+    /**
+     * Returns the byte offset of an attribute within a vertex.
+     * @param attribute Position of the attribute in this format.
+     * @return Offset in bytes.
+     */
+    public int getOffset(int attribute) {
+        return mOffsets[attribute];
+    }
+
+    /**
+     * Stores values for one attribute of a vertex, the values are converted to the type of
+     * the attribute. Normalized values are clamped to the range of the type.
+     * The position of the buffer is not changed.
+     * @param buffer The vertex data, using native byte order.
+     * @param vertex The vertex number.
+     * @param attribute Position of the attribute in this format.
+     * @param values The values to store, getSize(attribute) values are read.
+     * @param offset Offset into values.
+     * @throws IllegalStateException If this format has no layout.
+     */
+    public void put(ByteBuffer buffer, int vertex, int attribute, float[] values, int offset) {
+        if (mStride == 0) {
+            throw new IllegalStateException(NO_LAYOUT_STR);
+        }
+        int type = mTypes[attribute];
+        int typeSize = getTypeSize(type);
+        boolean normalized = mNormalized[attribute];
+        int pos = vertex * mStride + mOffsets[attribute];
+        for (int i = 0; i < mSizes[attribute]; i++) {
+            float value = values[offset++];
+            switch (type) {
+                case ConstantValues.FLOAT:
+                    buffer.putFloat(pos, value);
+                    break;
+                case ConstantValues.FIXED:
+                    buffer.putInt(pos, (int) (value * 65536));
+                    break;
+                case ConstantValues.HALF_FLOAT_OES:
+                    buffer.putShort(pos, toHalfFloat(value));
+                    break;
+                case ConstantValues.SHORT:
+                    buffer.putShort(pos, (short) (normalized ?
+                            Math.round(Math.max(-1, Math.min(1, value)) * 32767) : value));
+                    break;
+                case ConstantValues.UNSIGNED_SHORT:
+                    buffer.putShort(pos, (short) (normalized ?
+                            Math.round(Math.max(0, Math.min(1, value)) * 65535) : (int) value));
+                    break;
+                case ConstantValues.BYTE:
+                    buffer.put(pos, (byte) (normalized ?
+                            Math.round(Math.max(-1, Math.min(1, value)) * 127) : value));
+                    break;
+                case ConstantValues.UNSIGNED_BYTE:
+                    buffer.put(pos, (byte) (normalized ?
+                            Math.round(Math.max(0, Math.min(1, value)) * 255) : (int) value));
+                    break;
+            }
+            pos += typeSize;
+        }
+    }
+
+    /**
+     * Converts a float to 16 bit half float, values are rounded to nearest and values
+     * too large for half float are stored as infinity.
+     * @param value
+     * @return The half float value.
+     */
+    public static short toHalfFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xff) - 127 + 15;
+        int mantissa = bits & 0x7fffff;
+        if (((bits >>> 23) & 0xff) == 0xff) {
+            //Infinity or NaN
+            return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0));
+        }
+        if (exponent >= 0x1f) {
+            return (short) (sign | 0x7c00);
+        }
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            //Denormalized half float
+            mantissa = (mantissa | 0x800000) >> (1 - exponent);
+            return (short) (sign | ((mantissa + 0x1000) >> 13));
+        }
+        return (short) ((sign | (exponent << 10) | (mantissa >> 13)) +
+                ((mantissa >> 12) & 1));
+    }
+
+    /**
+     * Returns the name of the vertex array object for this format.
+     * @return The vertex array object name, or 0 if not created.
+     */
+    public int getVertexArray() {
+        return mVertexArray;
+    }
+
+    /**
+     * Sets the name of the vertex array object for this format.
+     * @param vertexArray The vertex array object name, or 0 to clear.
+     */
+    public void setVertexArray(int vertexArray) {
+        mVertexArray = vertexArray;
+    }
+
+}
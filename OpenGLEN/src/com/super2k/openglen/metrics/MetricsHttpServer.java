@@ -0,0 +1,229 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import com.super2k.openglen.utils.Log;
+
+/**
+ * Minimal HTTP server that exports the metrics in a MetricsRegistry in Prometheus text format.
+ * GET /metrics (or /) returns the latest published snapshot, other paths return 404.
+ * Requests are served one at a time on a daemon thread, the render thread is never blocked.
+ * By default the server only listens on the loopback address, use start(String, int) to
+ * allow remote scraping.
+ * Only uses java.net so that it works on both J2SE and Android, on Android the application
+ * needs the INTERNET permission.
+ * @author Richard Sahlin
+ *
+ */
+public class MetricsHttpServer implements Runnable {
+
+    private final String TAG = getClass().getSimpleName();
+
+    public final static String METRICS_PATH = "/metrics";
+    public final static String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Read timeout for requests, in millis.
+     */
+    protected final static int SO_TIMEOUT = 2000;
+
+    /**
+     * Max number of queued connections.
+     */
+    protected final static int BACKLOG = 4;
+
+    /**
+     * Address that the server listens on if no address is specified.
+     */
+    public final static String LOOPBACK_ADDRESS = "127.0.0.1";
+
+    protected MetricsRegistry mRegistry;
+    protected ServerSocket mServerSocket;
+    protected Thread mThread;
+    protected volatile boolean mRunning = false;
+
+    /**
+     * Creates a new server for the registry, call start() to accept connections.
+     * @param registry The registry to export.
+     * @throws IllegalArgumentException If registry is null
+     */
+    public MetricsHttpServer(MetricsRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry is null");
+        }
+        mRegistry = registry;
+    }
+
+    /**
+     * Starts listening on the specified port of the loopback address, the server runs on
+     * a daemon thread.
+     * @param port The port to listen to, 0 to use any free port.
+     * @throws IOException If the socket could not be opened.
+     * @throws IllegalStateException If already started.
+     */
+    public void start(int port) throws IOException {
+        start(LOOPBACK_ADDRESS, port);
+    }
+
+    /**
+     * Starts listening on the specified address and port, the server runs on a daemon thread.
+     * @param address The address to listen to, eg "0.0.0.0" to listen on all interfaces.
+     * @param port The port to listen to, 0 to use any free port.
+     * @throws IOException If the socket could not be opened or the address is not known.
+     * @throws IllegalArgumentException If address is null
+     * @throws IllegalStateException If already started.
+     */
+    public synchronized void start(String address, int port) throws IOException {
+        if (address == null) {
+            throw new IllegalArgumentException("Address is null");
+        }
+        if (mRunning) {
+            throw new IllegalStateException("Already started");
+        }
+        mServerSocket = new ServerSocket(port, BACKLOG, InetAddress.getByName(address));
+        mRunning = true;
+        mThread = new Thread(this, TAG);
+        mThread.setDaemon(true);
+        mThread.start();
+        Log.d(TAG, "Serving metrics on " + mServerSocket.getInetAddress().getHostAddress() +
+                ":" + mServerSocket.getLocalPort());
+    }
+
+    /**
+     * Returns the port that the server is listening to.
+     * @return The port or -1 if not started.
+     */
+    public synchronized int getPort() {
+        if (mServerSocket == null) {
+            return -1;
+        }
+        return mServerSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the address that the server is listening to.
+     * @return The address or null if not started.
+     */
+    public synchronized InetAddress getAddress() {
+        if (mServerSocket == null) {
+            return null;
+        }
+        return mServerSocket.getInetAddress();
+    }
+
+    /**
+     * Stops the server, the server socket is closed.
+     */
+    public synchronized void stop() {
+        mRunning = false;
+        if (mServerSocket != null) {
+            try {
+                mServerSocket.close();
+            } catch (IOException e) {
+                //Nothing to do.
+            }
+            mServerSocket = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        ServerSocket serverSocket = mServerSocket;
+        while (mRunning) {
+            Socket socket = null;
+            try {
+                socket = serverSocket.accept();
+                socket.setSoTimeout(SO_TIMEOUT);
+                handleRequest(socket);
+            } catch (IOException e) {
+                if (mRunning) {
+                    Log.d(TAG, e.toString());
+                }
+            } finally {
+                if (socket != null) {
+                    try {
+                        socket.close();
+                    } catch (IOException e) {
+                        //Nothing to do.
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the request line and headers and writes the response.
+     * @param socket The connected socket.
+     * @throws IOException If there is an error reading or writing.
+     */
+    protected void handleRequest(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+        String request = reader.readLine();
+        if (request == null) {
+            return;
+        }
+        //Skip headers.
+        String line;
+        while ((line = reader.readLine()) != null && line.length() > 0) {
+        }
+        String[] parts = request.split(" ");
+        if (parts.length < 2 || !(parts[0].equals("GET") || parts[0].equals("HEAD"))) {
+            writeResponse(socket.getOutputStream(), "405 Method Not Allowed", "", true);
+            return;
+        }
+        String path = parts[1];
+        int query = path.indexOf('?');
+        if (query != -1) {
+            path = path.substring(0, query);
+        }
+        if (path.equals(METRICS_PATH) || path.equals("/")) {
+            writeResponse(socket.getOutputStream(), "200 OK", mRegistry.formatPrometheus(),
+                    !parts[0].equals("HEAD"));
+        } else {
+            writeResponse(socket.getOutputStream(), "404 Not Found", "", true);
+        }
+    }
+
+    /**
+     * Writes a response with the body.
+     * @param out
+     * @param status HTTP status code and reason.
+     * @param body The body.
+     * @param writeBody False to only write the headers.
+     * @throws IOException
+     */
+    protected void writeResponse(OutputStream out, String status, String body,
+            boolean writeBody) throws IOException {
+        byte[] content = body.getBytes("UTF-8");
+        StringBuffer header = new StringBuffer();
+        header.append("HTTP/1.0 ").append(status).append("\r\n");
+        header.append("Content-Type: ").append(CONTENT_TYPE).append("\r\n");
+        header.append("Content-Length: ").append(content.length).append("\r\n");
+        header.append("Connection: close\r\n\r\n");
+        out.write(header.toString().getBytes("US-ASCII"));
+        if (writeBody) {
+            out.write(content);
+        }
+        out.flush();
+    }
+
+}
@@ -0,0 +1,284 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.metrics;
+
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A registry of named metrics (counters and gauges) that are updated by the render thread and
+ * read by an exporter, for instance the MetricsHttpServer.
+ * Values are written to a working array by the render thread, when update() is called the
+ * values are copied to a snapshot that is published using an atomic swap.
+ * Three snapshot arrays are used, one owned by the writer, one by the reader and one shared,
+ * this means that the render thread never blocks or allocates when publishing and the reader
+ * always gets a consistent set of values.
+ * Snapshots hold the sequence number at index 0 and the values from index 1.
+ * @author Richard Sahlin
+ *
+ */
+public class MetricsRegistry {
+
+    /**
+     * Metric type for a value that only increases.
+     */
+    public final static int TYPE_COUNTER = 0;
+    /**
+     * Metric type for a value that can go up and down.
+     */
+    public final static int TYPE_GAUGE = 1;
+
+    /**
+     * Type names as used in Prometheus text format, indexed by TYPE_XX.
+     */
+    protected final static String[] TYPE_STR = new String[] {"counter", "gauge"};
+
+    public final static int DEFAULT_CAPACITY = 64;
+
+    protected final static String INVALID_NAME_STR = "Invalid metric name:";
+    protected final static String INVALID_TYPE_STR = "Invalid metric type:";
+    protected final static String TYPE_MISMATCH_STR = "Metric registered with other type:";
+    protected final static String REGISTRY_FULL_STR = "Registry full, capacity:";
+
+    protected final String[] mNames;
+    protected final String[] mHelp;
+    protected final int[] mTypes;
+    /**
+     * Number of registered metrics.
+     */
+    protected int mCount;
+
+    /**
+     * Working values, written by the render thread.
+     */
+    protected final long[] mValues;
+
+    /**
+     * Snapshot owned by the writer, values are copied here before publishing.
+     */
+    protected long[] mPublishSnapshot;
+
+    /**
+     * Snapshot owned by the reader.
+     */
+    protected long[] mReadSnapshot;
+
+    /**
+     * The latest published snapshot.
+     */
+    protected final AtomicReference<long[]> mShared;
+
+    protected long mSequence;
+
+    protected Vector<MetricsSource> mSources = new Vector<MetricsSource>();
+
+    /**
+     * Creates a new registry with DEFAULT_CAPACITY
+     */
+    public MetricsRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new registry that can hold the specified number of metrics.
+     * @param capacity Max number of metrics.
+     * @throws IllegalArgumentException If capacity <= 0
+     */
+    public MetricsRegistry(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        mNames = new String[capacity];
+        mHelp = new String[capacity];
+        mTypes = new int[capacity];
+        mValues = new long[capacity];
+        mPublishSnapshot = new long[capacity + 1];
+        mReadSnapshot = new long[capacity + 1];
+        mShared = new AtomicReference<long[]>(new long[capacity + 1]);
+    }
+
+    /**
+     * Registers a metric, if a metric with the same name and type is already registered the
+     * id of that metric is returned.
+     * @param name Name of the metric, must match [a-zA-Z_:][a-zA-Z0-9_:]*
+     * @param help Description of the metric, may be null.
+     * @param type TYPE_COUNTER or TYPE_GAUGE
+     * @return Id of the metric, use when setting the value.
+     * @throws IllegalArgumentException If name or type is invalid, or if the name is already
+     * registered with another type.
+     * @throws IllegalStateException If the registry is full.
+     */
+    public synchronized int register(String name, String help, int type) {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException(INVALID_NAME_STR + name);
+        }
+        if (type != TYPE_COUNTER && type != TYPE_GAUGE) {
+            throw new IllegalArgumentException(INVALID_TYPE_STR + type);
+        }
+        for (int i = 0; i < mCount; i++) {
+            if (mNames[i].equals(name)) {
+                if (mTypes[i] != type) {
+                    throw new IllegalArgumentException(TYPE_MISMATCH_STR + name);
+                }
+                return i;
+            }
+        }
+        if (mCount == mNames.length) {
+            throw new IllegalStateException(REGISTRY_FULL_STR + mNames.length);
+        }
+        mNames[mCount] = name;
+        mHelp[mCount] = help;
+        mTypes[mCount] = type;
+        return mCount++;
+    }
+
+    /**
+     * Checks if the name is a valid metric name.
+     * @param name
+     * @return True if name is valid.
+     */
+    protected static boolean isValidName(String name) {
+        if (name == null || name.length() == 0) {
+            return false;
+        }
+        char c;
+        for (int i = 0; i < name.length(); i++) {
+            c = name.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' ||
+                    (i > 0 && c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a source of metrics, the source will register metrics and then be
+     * called each time update() is called.
+     * @param source
+     * @throws IllegalArgumentException If source is null
+     */
+    public void addSource(MetricsSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source is null");
+        }
+        source.registerMetrics(this);
+        mSources.add(source);
+    }
+
+    /**
+     * Sets the value of a metric, shall only be called by the thread calling update().
+     * @param id Id of the metric as returned by register()
+     * @param value The value.
+     */
+    public void set(int id, long value) {
+        mValues[id] = value;
+    }
+
+    /**
+     * Adds to the value of a metric, shall only be called by the thread calling update().
+     * @param id Id of the metric as returned by register()
+     * @param value Value to add.
+     */
+    public void add(int id, long value) {
+        mValues[id] += value;
+    }
+
+    /**
+     * Returns the working value of a metric, this is the value as seen by the writer.
+     * @param id Id of the metric.
+     * @return The current value.
+     */
+    public long get(int id) {
+        return mValues[id];
+    }
+
+    /**
+     * Updates the metrics from all sources and publishes a new snapshot.
+     * Normally called by the renderer at the end of each frame.
+     * This method does not block and does not allocate.
+     */
+    public void update() {
+        int count = mSources.size();
+        for (int i = 0; i < count; i++) {
+            mSources.elementAt(i).updateMetrics(this);
+        }
+        publish();
+    }
+
+    /**
+     * Copies the working values to the writer snapshot and swaps it with the shared snapshot.
+     */
+    protected void publish() {
+        mPublishSnapshot[0] = ++mSequence;
+        System.arraycopy(mValues, 0, mPublishSnapshot, 1, mValues.length);
+        mPublishSnapshot = mShared.getAndSet(mPublishSnapshot);
+    }
+
+    /**
+     * Fetches the latest published snapshot, internal method called by the reader.
+     * The shared snapshot is only taken if it is newer than the one already held by the reader.
+     * @return The reader snapshot, sequence at index 0 and values from index 1.
+     */
+    protected long[] readSnapshot() {
+        if (mShared.get()[0] > mReadSnapshot[0]) {
+            //Writer may only replace shared with a newer snapshot.
+            mReadSnapshot = mShared.getAndSet(mReadSnapshot);
+        }
+        return mReadSnapshot;
+    }
+
+    /**
+     * Returns the number of times a snapshot has been published.
+     * @return Sequence number of the latest snapshot available to the reader.
+     */
+    public synchronized long getSnapshotSequence() {
+        return readSnapshot()[0];
+    }
+
+    /**
+     * Returns the value of the named metric from the latest published snapshot.
+     * @param name Name of the metric.
+     * @return The published value.
+     * @throws IllegalArgumentException If no metric with name is registered.
+     */
+    public synchronized long getSnapshotValue(String name) {
+        long[] snapshot = readSnapshot();
+        for (int i = 0; i < mCount; i++) {
+            if (mNames[i].equals(name)) {
+                return snapshot[i + 1];
+            }
+        }
+        throw new IllegalArgumentException(INVALID_NAME_STR + name);
+    }
+
+    /**
+     * Formats the latest published snapshot in Prometheus text exposition format (0.0.4)
+     * Called by the exporter, not by the render thread.
+     * @return The metrics as text.
+     */
+    public synchronized String formatPrometheus() {
+        long[] snapshot = readSnapshot();
+        StringBuffer sb = new StringBuffer(mCount * 64);
+        for (int i = 0; i < mCount; i++) {
+            if (mHelp[i] != null) {
+                sb.append("# HELP ").append(mNames[i]).append(' ').append(mHelp[i]).append('\n');
+            }
+            sb.append("# TYPE ").append(mNames[i]).append(' ').append(TYPE_STR[mTypes[i]]);
+            sb.append('\n');
+            sb.append(mNames[i]).append(' ').append(snapshot[i + 1]).append('\n');
+        }
+        return sb.toString();
+    }
+
+}
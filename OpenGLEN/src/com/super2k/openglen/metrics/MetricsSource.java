@@ -0,0 +1,40 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.metrics;
+
+/**
+ * Interface for classes that provide metrics to a MetricsRegistry.
+ * A source registers the metrics it provides once, the values are then updated each
+ * time the registry is updated, normally once per frame on the render thread.
+ * @author Richard Sahlin
+ *
+ */
+public interface MetricsSource {
+
+    /**
+     * Register the metrics provided by this source, store the returned ids and use them
+     * when updating the values.
+     * Called once when the source is added to the registry.
+     * @param registry The registry to register metrics in.
+     */
+    public void registerMetrics(MetricsRegistry registry);
+
+    /**
+     * Update the values of the metrics registered by this source.
+     * Called from MetricsRegistry.update(), this is normally done by the render thread once
+     * every frame. Implementations must not block or allocate objects.
+     * @param registry The registry to update values in.
+     */
+    public void updateMetrics(MetricsRegistry registry);
+
+}
@@ -13,6 +13,7 @@
 
 package com.super2k.openglen.nibbler;
 
+import java.io.IOException;
 import java.util.Vector;
 
 import com.super2k.openglen.EGLRenderer;
@@ -20,7 +21,10 @@ import com.super2k.openglen.ObjectFactory;
 import com.super2k.openglen.ObjectFactoryManager;
 import com.super2k.openglen.ProfileInfo;
 import com.super2k.openglen.Renderer;
-import com.super2k.openglen.animation.Animation3D;
+import com.super2k.openglen.animation.AnimationEngine;
+import com.super2k.openglen.metrics.MetricsHttpServer;
+import com.super2k.openglen.metrics.MetricsRegistry;
+import com.super2k.openglen.metrics.MetricsSource;
 import com.super2k.openglen.objects.GLBlitObject;
 import com.super2k.openglen.utils.ConfigurationParameters;
 import com.super2k.openglen.utils.GraphicsLibraryHandler;
@@ -82,6 +86,25 @@ public abstract class BaseCompatibilityRunner implements CompatibilityRunner {
      */
     protected ObjectFactory mFactory;
 
+    /**
+     * Metrics registry and server, only created if the metrics port property is set.
+     */
+    protected MetricsRegistry mMetricsRegistry;
+    protected MetricsHttpServer mMetricsServer;
+
+    /**
+     * Pipeline running simulation of mList ahead of rendering, null if not used.
+     */
+    protected FramePipeline mPipeline;
+
+    /**
+     * Updates the animations in animateObjects(), created when first used.
+     * The animations are fetched from the objects when objects or animations are replaced,
+     * call resetAnimatedObjects() if animations are set up again.
+     */
+    protected AnimationEngine mAnimationEngine;
+    protected boolean mAnimationsReset;
+
 
     @Override
     public void setup(Renderer renderer, InputStreamResolver resolver, int width, int height) {
@@ -105,7 +128,53 @@ public abstract class BaseCompatibilityRunner implements CompatibilityRunner {
         mResolver = resolver;
         mFactory = ObjectFactoryManager.createObjectFactory(null, renderer);
         mRenderer.setViewPort(0,0, mWidth, mHeight);
+        int port = ConfigurationParameters.getMetricsPort();
+        if (port != -1) {
+            startMetrics(ConfigurationParameters.getMetricsAddress(), port);
+        }
+
+    }
+
+    /**
+     * Creates a metrics registry for the renderer and object factory and starts serving
+     * the metrics on the specified address and port.
+     * If the server cannot be started an error is logged and metrics are not exported.
+     * @param address The address to serve metrics on, eg "127.0.0.1" for local access only.
+     * @param port The port to serve metrics on.
+     */
+    protected void startMetrics(String address, int port) {
+        mMetricsRegistry = new MetricsRegistry();
+        if (mFactory instanceof MetricsSource) {
+            mMetricsRegistry.addSource((MetricsSource) mFactory);
+        }
+        mRenderer.setMetricsRegistry(mMetricsRegistry);
+        mMetricsServer = new MetricsHttpServer(mMetricsRegistry);
+        try {
+            mMetricsServer.start(address, port);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not start metrics server on " + address + ":" + port + ", " +
+                    e.toString());
+            mRenderer.setMetricsRegistry(null);
+            mMetricsServer = null;
+            mMetricsRegistry = null;
+        }
+    }
 
+    /**
+     * Starts simulating the objects in mList on a separate thread, ahead of rendering.
+     * The simulation shall animate and move the objects, render the frames by calling
+     * mRenderer.renderGLBlitObjects(mList, mPipeline.acquire())
+     * The pipeline is stopped in destroy()
+     * @param simulation The simulation to run for each frame.
+     * @param renderAhead Max number of frames to simulate ahead of rendering.
+     * @throws IllegalArgumentException If simulation is null or renderAhead < 1
+     */
+    protected void startFramePipeline(FrameSimulation simulation, int renderAhead) {
+        if (mPipeline != null) {
+            mPipeline.stop();
+        }
+        mPipeline = new FramePipeline(mList, simulation, renderAhead);
+        mPipeline.start();
     }
 
     /**
@@ -125,23 +194,30 @@ public abstract class BaseCompatibilityRunner implements CompatibilityRunner {
 
     /**
      * Animate all objects in the list, time is in seconds.
+     * Animations are updated by an AnimationEngine, using one thread per processor when
+     * there are enough objects. The animations are fetched from the objects again if an
+     * object, or an animation of an object, has been replaced since the last call.
      * @param list
      * @param time
      */
     public void animateObjects(Vector<GLBlitObject> list, float time) {
-        int size = list.size();
-        GLBlitObject blit;
-        for (int i = 0; i < size; i++) {
-            blit = list.elementAt(i);
-            Animation3D anim;
-            for (int loop = 0; loop < blit.anim.length; loop++) {
-                anim = blit.anim[loop];
-                if (anim!=null) {
-                    anim.animate(time);
-                }
-            }
+        if (mAnimationEngine == null) {
+            mAnimationEngine = new AnimationEngine(Runtime.getRuntime().availableProcessors());
+            mAnimationsReset = true;
         }
+        if (mAnimationsReset || mAnimationEngine.isChanged(list)) {
+            mAnimationEngine.setObjects(list);
+            mAnimationsReset = false;
+        }
+        mAnimationEngine.animate(time);
+    }
 
+    /**
+     * Fetches the animations from the objects the next time animateObjects() is called,
+     * call this when animations of the objects are set up again.
+     */
+    public void resetAnimatedObjects() {
+        mAnimationsReset = true;
     }
 
     @Override
@@ -150,9 +226,21 @@ public abstract class BaseCompatibilityRunner implements CompatibilityRunner {
          * Called when the thread has exited
          * - release all common GL objects in the list.
          */
+        if (mPipeline != null) {
+            mPipeline.stop();
+            mPipeline = null;
+        }
+        if (mAnimationEngine != null) {
+            mAnimationEngine.destroy();
+            mAnimationEngine = null;
+        }
         if (mList != null) {
             GraphicsLibraryHandler.releaseGLBuffers(mList, mRenderer);
         }
+        if (mMetricsServer != null) {
+            mMetricsServer.stop();
+            mMetricsServer = null;
+        }
     }
 
     /**
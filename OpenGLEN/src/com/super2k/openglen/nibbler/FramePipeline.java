@@ -0,0 +1,181 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.nibbler;
+
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import com.super2k.openglen.objects.FrameState;
+import com.super2k.openglen.objects.GLBlitObject;
+
+/**
+ * Runs the simulation of a list of GLBlitObjects on a separate thread, ahead of the
+ * render thread.
+ * While the render thread submits frame N from a FrameState snapshot, the next frame is
+ * simulated on the simulation thread.
+ * Three FrameStates are used, one written by the simulation, one read by the render thread
+ * and one shared, snapshots are handed over by atomically swapping the shared state.
+ * Neither thread takes a lock, the simulation thread is parked when it is the max number
+ * of frames ahead of the render thread.
+ * The list must not be structurally changed (objects added or removed) while the
+ * pipeline is running. Particle emission writes to buffers that are read by GL and shall
+ * be done on the render thread.
+ * Usage, on the render thread:
+ * FrameState state = pipeline.acquire();
+ * renderer.renderGLBlitObjects(list, state);
+ * @author Richard Sahlin
+ *
+ */
+public class FramePipeline implements Runnable {
+
+    private final String TAG = getClass().getSimpleName();
+
+    /**
+     * Default number of frames the simulation may be ahead of the render thread.
+     */
+    public final static int DEFAULT_RENDER_AHEAD = 1;
+
+    protected final Vector<GLBlitObject> mList;
+    protected final FrameSimulation mSimulation;
+    protected final int mRenderAhead;
+
+    /**
+     * State written by the simulation thread.
+     */
+    protected FrameState mWriteState;
+    /**
+     * State read by the render thread.
+     */
+    protected FrameState mReadState;
+    /**
+     * The latest published state.
+     */
+    protected final AtomicReference<FrameState> mShared;
+
+    /**
+     * Last frame acquired by the render thread.
+     */
+    protected final AtomicLong mConsumed = new AtomicLong();
+
+    /**
+     * Last frame simulated, only accessed by the simulation thread after start.
+     */
+    protected long mProduced;
+
+    protected volatile boolean mRunning = false;
+    protected volatile Thread mThread;
+
+    /**
+     * Creates a new pipeline for the list and simulation.
+     * @param list The objects to capture state for, this is the list that is rendered.
+     * @param simulation The simulation that updates the objects.
+     * @param renderAhead Max number of frames the simulation may be ahead of rendering.
+     * @throws IllegalArgumentException If list or simulation is null or renderAhead < 1
+     */
+    public FramePipeline(Vector<GLBlitObject> list, FrameSimulation simulation,
+            int renderAhead) {
+        if (list == null || simulation == null || renderAhead < 1) {
+            throw new IllegalArgumentException("Invalid parameter: " + list + ", " +
+                    simulation + ", " + renderAhead);
+        }
+        mList = list;
+        mSimulation = simulation;
+        mRenderAhead = renderAhead;
+        int size = list.size();
+        mWriteState = new FrameState(size);
+        mReadState = new FrameState(size);
+        mShared = new AtomicReference<FrameState>(new FrameState(size));
+    }
+
+    /**
+     * Simulates the first frame on the calling thread, then starts the simulation thread.
+     * After this method returns there is always a frame to acquire.
+     * @throws IllegalStateException If already started.
+     */
+    public synchronized void start() {
+        if (mRunning) {
+            throw new IllegalStateException("Already started");
+        }
+        simulate();
+        mRunning = true;
+        mThread = new Thread(this, TAG);
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops the simulation thread and waits for it to exit.
+     */
+    public synchronized void stop() {
+        mRunning = false;
+        if (mThread != null) {
+            LockSupport.unpark(mThread);
+            try {
+                mThread.join();
+            } catch (InterruptedException e) {
+                //Nothing to do.
+            }
+            mThread = null;
+        }
+    }
+
+    /**
+     * Returns the latest simulated frame, shall only be called by the render thread.
+     * The returned state is owned by the render thread until the next call to acquire().
+     * The simulation thread is signalled to simulate the next frame.
+     * @return The state of the latest simulated frame.
+     */
+    public FrameState acquire() {
+        if (mShared.get().getFrame() > mReadState.getFrame()) {
+            //Simulation may only replace shared with a newer frame.
+            mReadState = mShared.getAndSet(mReadState);
+        }
+        mConsumed.set(mReadState.getFrame());
+        Thread thread = mThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return mReadState;
+    }
+
+    @Override
+    public void run() {
+        while (mRunning) {
+            if (mProduced - mConsumed.get() >= mRenderAhead) {
+                LockSupport.park(this);
+                continue;
+            }
+            simulate();
+        }
+    }
+
+    /**
+     * Simulates the next frame, captures the state and publishes it.
+     */
+    protected void simulate() {
+        mSimulation.simulateFrame(++mProduced);
+        mWriteState.capture(mList, mProduced);
+        mWriteState = mShared.getAndSet(mWriteState);
+    }
+
+    /**
+     * Returns the last frame acquired by the render thread.
+     * @return The frame number of the last acquired frame.
+     */
+    public long getConsumedFrame() {
+        return mConsumed.get();
+    }
+
+}
@@ -0,0 +1,31 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.nibbler;
+
+/**
+ * Interface for the simulation part of a frame, used by the FramePipeline.
+ * The simulation updates the objects, eg animation and movement, it shall not make any GL
+ * calls and shall not add or remove objects from the list that is rendered.
+ * @author Richard Sahlin
+ *
+ */
+public interface FrameSimulation {
+
+    /**
+     * Simulate one frame, called on the simulation thread. When this method returns the state
+     * of the objects is captured and handed to the render thread.
+     * @param frame The frame number that is simulated, starting at 1.
+     */
+    public void simulateFrame(long frame);
+
+}
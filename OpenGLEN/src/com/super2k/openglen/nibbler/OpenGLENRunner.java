@@ -13,9 +13,11 @@
 
 package com.super2k.openglen.nibbler;
 
+import com.super2k.openglen.EGLRenderer;
 import com.super2k.openglen.OpenGLENException;
 import com.super2k.openglen.RenderSetting;
 import com.super2k.openglen.Renderer;
+import com.super2k.openglen.utils.FramePacer;
 
 /**
  * GLThread class that can run GL context.
@@ -46,6 +48,12 @@ public class OpenGLENRunner implements Runnable {
     InputStreamResolver mResolver;
     int mMinMikros = 10000; //If fps is above 100 it is capped.
 
+    /**
+     * Paces frames when the renderer is not an EGLRenderer, EGLRenderers pace frames
+     * in swapBuffers()
+     */
+    FramePacer mFramePacer;
+
     /**
      * Constructs a new OpenGLENRunner using the specified renderer
      * and starting the specified CompatibilityRunner
@@ -112,7 +120,9 @@ public class OpenGLENRunner implements Runnable {
             mRunning = true;
             mRunner.setup(mRenderer, mResolver, mWidth, mHeight);
 
-            int ticks;
+            if (!(mRenderer instanceof EGLRenderer)) {
+                mFramePacer = new FramePacer(mMinMikros);
+            }
             while (mRunning) {
 
                 if (mRunner.processFrame(null) == -1) {
@@ -120,17 +130,9 @@ public class OpenGLENRunner implements Runnable {
                     return;
                 }
 
-                ticks = mRenderer.getProfileInfo().getFrameTicks();
-                if (ticks < mMinMikros) {
-                    try {
-                        Thread.sleep((mMinMikros - ticks) / 1000);
-                    } catch (InterruptedException ie) {
-
-                    }
+                if (mFramePacer != null) {
+                    mFramePacer.pace();
                 } else {
-                    try {
-                        Thread.sleep(1);
-                    } catch (InterruptedException ie) {}
                     Thread.yield();
                 }
             }
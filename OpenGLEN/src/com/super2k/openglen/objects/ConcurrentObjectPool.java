@@ -0,0 +1,243 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.objects;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pool of PooledObjects without locks that can be used from several threads, eg objects fetched
+ * on the render thread and released on a simulation thread.
+ * Each key has a bounded multi producer, multi consumer array queue, get() and release()
+ * only use compare and set and do not allocate memory.
+ * The pool for a key must be created with createPool() before objects are added, this
+ * shall be done before the pool is used from several threads.
+ * @author Richard Sahlin
+ *
+ * @param <T> The pooled object type.
+ */
+public class ConcurrentObjectPool<T extends PooledObject> {
+
+    protected final static String INVALID_KEY_STR = "Invalid key: ";
+
+    /**
+     * Bounded array queue, each slot has a sequence number that tells if the slot
+     * is ready to be written or read for a position.
+     * If a slot is claimed by another thread that has not yet written or read it the
+     * queue is neither full nor empty, and the calling thread retries until the slot is ready.
+     */
+    protected static class Queue {
+        protected final AtomicReferenceArray<Object> mBuffer;
+        protected final AtomicLongArray mSequence;
+        protected final AtomicLong mWritePosition = new AtomicLong();
+        protected final AtomicLong mReadPosition = new AtomicLong();
+        protected final int mMask;
+
+        protected Queue(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+            mBuffer = new AtomicReferenceArray<Object>(size);
+            mSequence = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                mSequence.set(i, i);
+            }
+            mMask = size - 1;
+        }
+
+        protected boolean offer(Object object) {
+            long position;
+            int index;
+            long difference;
+            while (true) {
+                position = mWritePosition.get();
+                index = (int) position & mMask;
+                difference = mSequence.get(index) - position;
+                if (difference == 0) {
+                    if (mWritePosition.compareAndSet(position, position + 1)) {
+                        mBuffer.lazySet(index, object);
+                        mSequence.set(index, position + 1);
+                        return true;
+                    }
+                } else if (difference < 0 && position - mReadPosition.get() > mMask) {
+                    //Full, if not full a get is in progress on the slot.
+                    return false;
+                }
+            }
+        }
+
+        protected Object poll() {
+            long position;
+            int index;
+            long difference;
+            while (true) {
+                position = mReadPosition.get();
+                index = (int) position & mMask;
+                difference = mSequence.get(index) - (position + 1);
+                if (difference == 0) {
+                    if (mReadPosition.compareAndSet(position, position + 1)) {
+                        Object object = mBuffer.get(index);
+                        mBuffer.lazySet(index, null);
+                        mSequence.set(index, position + mMask + 1);
+                        return object;
+                    }
+                } else if (difference < 0 && mWritePosition.get() == position) {
+                    //Empty, if not empty a release is in progress on the slot.
+                    return null;
+                }
+            }
+        }
+    }
+
+    protected volatile Queue[] mQueues = new Queue[0];
+
+    protected final AtomicInteger mCapacity = new AtomicInteger();
+    protected final AtomicInteger mAvailable = new AtomicInteger();
+    protected final AtomicInteger mHighWater = new AtomicInteger();
+    protected final AtomicInteger mMisses = new AtomicInteger();
+
+    /**
+     * Creates the pool for a key, with room for capacity objects.
+     * @param key The key, 0 or larger.
+     * @param capacity Max number of objects for the key.
+     * @throws IllegalArgumentException If key is negative, capacity < 1 or there already is
+     * a pool for the key.
+     */
+    public synchronized void createPool(int key, int capacity) {
+        if (key < 0 || capacity < 1 || hasKey(key)) {
+            throw new IllegalArgumentException("Illegal parameter: " + key + ", " + capacity);
+        }
+        Queue[] queues = mQueues;
+        if (key >= queues.length) {
+            Queue[] grow = new Queue[key + 1];
+            System.arraycopy(queues, 0, grow, 0, queues.length);
+            queues = grow;
+        }
+        queues[key] = new Queue(capacity);
+        mQueues = queues;
+    }
+
+    /**
+     * Checks if a pool has been created for the key.
+     * @param key
+     * @return True if there is a pool for the key.
+     */
+    public boolean hasKey(int key) {
+        Queue[] queues = mQueues;
+        return key >= 0 && key < queues.length && queues[key] != null;
+    }
+
+    /**
+     * Adds an object to the pool, the key of the object is set.
+     * @param key The key to add the object to.
+     * @param object
+     * @throws IllegalArgumentException If there is no pool for the key or object is null.
+     * @throws IllegalStateException If the pool for the key is full.
+     */
+    public void add(int key, T object) {
+        if (object == null || !hasKey(key)) {
+            throw new IllegalArgumentException("Illegal parameter: " + key + ", " + object);
+        }
+        object.setKey(key);
+        if (!mQueues[key].offer(object)) {
+            throw new IllegalStateException("Pool is full for key: " + key);
+        }
+        mCapacity.incrementAndGet();
+        mAvailable.incrementAndGet();
+    }
+
+    /**
+     * Returns an object from the pool, the object must be released with release() when
+     * not used anymore.
+     * @param key The key of the object.
+     * @return An object, or null if there are no objects available for the key.
+     * @throws IllegalArgumentException If there is no pool for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int key) {
+        if (!hasKey(key)) {
+            throw new IllegalArgumentException(INVALID_KEY_STR + key);
+        }
+        T object = (T) mQueues[key].poll();
+        if (object == null) {
+            mMisses.incrementAndGet();
+            return null;
+        }
+        int inUse = mCapacity.get() - mAvailable.decrementAndGet();
+        int highWater;
+        while (inUse > (highWater = mHighWater.get())) {
+            if (mHighWater.compareAndSet(highWater, inUse)) {
+                break;
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Releases an object back to the pool, releaseObject() is called on the object.
+     * Objects with key NOT_POOLED_OBJECT are ignored.
+     * @param object The object to release.
+     * @return True if the object was released to the pool, false if not pooled.
+     * @throws IllegalArgumentException If there is no pool for the key of the object.
+     * @throws IllegalStateException If the pool for the key is full, the object has been
+     * released more than once.
+     */
+    public boolean release(T object) {
+        int key = object.getKey();
+        if (key == PooledObject.NOT_POOLED_OBJECT) {
+            return false;
+        }
+        if (!hasKey(key)) {
+            throw new IllegalArgumentException(INVALID_KEY_STR + key);
+        }
+        object.releaseObject();
+        if (!mQueues[key].offer(object)) {
+            throw new IllegalStateException("Pool is full for key: " + key);
+        }
+        mAvailable.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Returns the number of objects available for all keys.
+     * @return Number of available objects.
+     */
+    public int getAvailable() {
+        return mAvailable.get();
+    }
+
+    /**
+     * Returns the number of objects added to the pool, for all keys.
+     * @return Number of objects in the pool.
+     */
+    public int getCapacity() {
+        return mCapacity.get();
+    }
+
+    /**
+     * Returns the max number of objects that have been in use at the same time.
+     * @return High-water mark of objects in use.
+     */
+    public int getHighWater() {
+        return mHighWater.get();
+    }
+
+    /**
+     * Returns the number of times get() was called when no object was available.
+     * @return Number of misses.
+     */
+    public int getMisses() {
+        return mMisses.get();
+    }
+
+}
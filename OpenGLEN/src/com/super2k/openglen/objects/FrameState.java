@@ -0,0 +1,200 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.objects;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * Snapshot of the state needed to render a list of GLBlitObjects, this is position, scale,
+ * rotation, material diffuse color and renderflag.
+ * Values are stored in flat arrays with 4 floats per object, the values for object n are
+ * at index n * COMPONENTS in each array.
+ * A snapshot is captured from the list after simulation and then rendered with
+ * Renderer.renderGLBlitObjects(list, state) so that the simulation can update the objects
+ * of the next frame while the snapshot is rendered.
+ * @author Richard Sahlin
+ *
+ */
+public class FrameState {
+
+    /**
+     * Number of floats for each value, per object.
+     */
+    public final static int COMPONENTS = 4;
+
+    protected float[] mPosition;
+    protected float[] mScale;
+    protected float[] mRotation;
+    protected float[] mDiffuse;
+    protected boolean[] mRenderFlag;
+
+    /**
+     * Number of objects in the snapshot.
+     */
+    protected int mCount;
+
+    /**
+     * The frame number of the snapshot, 0 if nothing is captured.
+     */
+    protected long mFrame;
+
+    /**
+     * Creates a new framestate with storage for the specified number of objects.
+     * Storage is increased when capturing a list larger than capacity.
+     * @param capacity Initial number of objects.
+     * @throws IllegalArgumentException If capacity is negative.
+     */
+    public FrameState(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        createStorage(capacity);
+    }
+
+    /**
+     * Allocates storage for the specified number of objects.
+     * @param capacity
+     */
+    protected void createStorage(int capacity) {
+        mPosition = new float[capacity * COMPONENTS];
+        mScale = new float[capacity * COMPONENTS];
+        mRotation = new float[capacity * COMPONENTS];
+        mDiffuse = new float[capacity * COMPONENTS];
+        mRenderFlag = new boolean[capacity];
+    }
+
+    /**
+     * Copies the render state of the objects in the list to this snapshot.
+     * Storage is only allocated if the list holds more objects than the capacity.
+     * @param list The objects to capture state from.
+     * @param frame The frame number of the snapshot.
+     * @throws IllegalArgumentException If list is null.
+     */
+    public void capture(Vector<GLBlitObject> list, long frame) {
+        if (list == null) {
+            throw new IllegalArgumentException("List is null");
+        }
+        synchronized (list) {
+            int count = list.size();
+            if (count > mRenderFlag.length) {
+                createStorage(count);
+            }
+            for (int i = 0; i < count; i++) {
+                capture(list.elementAt(i), i);
+            }
+            mCount = count;
+        }
+        mFrame = frame;
+    }
+
+    /**
+     * Copies the render state of the objects in the render list to this snapshot.
+     * Storage is only allocated if the list holds more objects than the capacity.
+     * @param list The objects to capture state from.
+     * @param frame The frame number of the snapshot.
+     * @throws IllegalArgumentException If list is null.
+     */
+    public void capture(RenderList<GLBlitObject> list, long frame) {
+        if (list == null) {
+            throw new IllegalArgumentException("List is null");
+        }
+        Object[] objects = list.getObjects();
+        int count = list.size();
+        if (count > mRenderFlag.length) {
+            createStorage(count);
+        }
+        for (int i = 0; i < count; i++) {
+            capture((GLBlitObject) objects[i], i);
+        }
+        mCount = count;
+        mFrame = frame;
+    }
+
+    /**
+     * Copies the render state of one object to the snapshot, if the object has no material
+     * the diffuse color is cleared.
+     * @param blit The object to capture state from.
+     * @param i Index of the object, storage must be allocated.
+     */
+    protected void capture(GLBlitObject blit, int i) {
+        int index = i * COMPONENTS;
+        System.arraycopy(blit.position, 0, mPosition, index, COMPONENTS);
+        System.arraycopy(blit.scale, 0, mScale, index, COMPONENTS);
+        System.arraycopy(blit.rotation, 0, mRotation, index, COMPONENTS);
+        if (blit.material != null) {
+            System.arraycopy(blit.material.diffuse, 0, mDiffuse, index, COMPONENTS);
+        } else {
+            Arrays.fill(mDiffuse, index, index + COMPONENTS, 0);
+        }
+        mRenderFlag[i] = blit.renderFlag;
+    }
+
+    /**
+     * Returns the number of objects in the snapshot.
+     * @return Number of objects captured.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the frame number of the snapshot.
+     * @return The frame number, or 0 if nothing has been captured.
+     */
+    public long getFrame() {
+        return mFrame;
+    }
+
+    /**
+     * Returns the positions, 4 values for each object.
+     * @return Array with positions.
+     */
+    public float[] getPosition() {
+        return mPosition;
+    }
+
+    /**
+     * Returns the scale, 4 values for each object.
+     * @return Array with scale values.
+     */
+    public float[] getScale() {
+        return mScale;
+    }
+
+    /**
+     * Returns the rotation, 4 values for each object.
+     * @return Array with rotation values.
+     */
+    public float[] getRotation() {
+        return mRotation;
+    }
+
+    /**
+     * Returns the material diffuse color, 4 values for each object.
+     * @return Array with diffuse colors.
+     */
+    public float[] getDiffuse() {
+        return mDiffuse;
+    }
+
+    /**
+     * Returns the renderflag for an object.
+     * @param index Index of the object.
+     * @return True if the object shall be rendered.
+     */
+    public boolean getRenderFlag(int index) {
+        return mRenderFlag[index];
+    }
+
+}
@@ -17,9 +17,12 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
+import java.util.Hashtable;
 
+import com.super2k.openglen.ConstantValues;
 import com.super2k.openglen.animation.Animation3D;
 import com.super2k.openglen.geometry.Material;
+import com.super2k.openglen.geometry.VertexFormat;
 import com.super2k.openglen.texture.Texture2D;
 
 /**
@@ -31,9 +34,66 @@ public class GLBlitObject extends GLObject {
 
     private final static String ILLEGAL_ANCHOR_VALUE = "Illegal anchor value:";
     private final static String ILLEGAL_VALUE = "Illegal value:";
+    private final static String ILLEGAL_FORMAT = "Illegal vertex format";
 
     public final static float[] FRONT_FACING_NORMALS = new float[] {0f, 0f, 1f};
 
+    /**
+     * Triangle indexes shared by all blits, using subdivision as key.
+     * The value is the indexes and the number of blits using them.
+     */
+    private final static Hashtable<Integer, SharedIndices> SHARED_INDICES =
+            new Hashtable<Integer, SharedIndices>();
+
+    /**
+     * Triangle indexes for one subdivision and the number of references.
+     */
+    private static class SharedIndices {
+        private final ShortBuffer mIndices;
+        private int mReferences;
+
+        private SharedIndices(ShortBuffer indices) {
+            mIndices = indices;
+        }
+    }
+
+    /**
+     * Attribute indexes used by the blit programs.
+     */
+    public final static int VERTEX_ATTRIBUTE = 0;
+    public final static int NORMAL_ATTRIBUTE = 1;
+    public final static int TEXCOORD_ATTRIBUTE = 2;
+
+    /**
+     * Interleaved float vertex, normal and texture coordinates, 32 bytes per vertex.
+     */
+    public final static VertexFormat FLOAT_FORMAT = new VertexFormat(
+            new int[] {VERTEX_ATTRIBUTE, NORMAL_ATTRIBUTE, TEXCOORD_ATTRIBUTE},
+            new int[] {3, 3, 2},
+            new int[] {ConstantValues.FLOAT, ConstantValues.FLOAT, ConstantValues.FLOAT},
+            new boolean[] {false, false, false});
+
+    /**
+     * Float vertex and normalized unsigned short texture coordinates, 16 bytes per vertex.
+     * Normals are not stored, the normal attribute is set to FRONT_FACING_NORMALS when
+     * rendering. Used when texture coordinates are within 0 - 1.
+     */
+    public final static VertexFormat COMPACT_FORMAT = new VertexFormat(
+            new int[] {VERTEX_ATTRIBUTE, TEXCOORD_ATTRIBUTE},
+            new int[] {3, 2},
+            new int[] {ConstantValues.FLOAT, ConstantValues.UNSIGNED_SHORT},
+            new boolean[] {false, true});
+
+    /**
+     * Float vertex and texture coordinates, 20 bytes per vertex. Normals are not stored.
+     * Used when the texture repeats, ie texture coordinates are larger than 1.
+     */
+    public final static VertexFormat FLOAT_TEXCOORD_FORMAT = new VertexFormat(
+            new int[] {VERTEX_ATTRIBUTE, TEXCOORD_ATTRIBUTE},
+            new int[] {3, 2},
+            new int[] {ConstantValues.FLOAT, ConstantValues.FLOAT},
+            new boolean[] {false, false});
+
     /**
      * X anchor will be at left side
      */
@@ -88,10 +148,23 @@ public class GLBlitObject extends GLObject {
 
     public ShortBuffer indices;
 
+    /**
+     * Local bounds of the vertices, min x, min y, max x and max y.
+     * Set when vertices are set, used for culling.
+     */
+    protected final float[] mBounds = new float[4];
+
     protected int mVertexCount; //Number of vertices
     protected int mIndiceCount; //Number of indices for triangle list.
     private float[] mTemp2Float = new float[2];
-    private short[] mTempIndices = new short[6];
+    /**
+     * Number of times the quad is subdivided in x and y.
+     */
+    protected int mDivision;
+    /**
+     * Subdivision of the shared indices used by this blit, 0 if no shared indices are used.
+     */
+    protected int mSharedDivision;
     /**
      * Byte stride for vertices, this is used to align array
      * data in memory.
@@ -350,88 +423,187 @@ public class GLBlitObject extends GLObject {
 */
     /**
      * Creates material, arraybuffers and index buffer storage,
-     * setups indices, normals and texture coordinates
+     * setups indices and texture coordinates. The smallest vertex format that can store
+     * the texture coordinates is used, normals are not stored.
      * @param division
      * @param xRepeat Number of times texture will repeat in x (this is the u max value)
      * @param yRepeat Number of times texture will repeat in y (this is the v max value)
      */
     public void create(int division, float xRepeat, float yRepeat) {
+        create(division, xRepeat, yRepeat, selectVertexFormat(xRepeat, yRepeat));
+    }
 
+    /**
+     * Creates material, arraybuffers and index buffer storage using the specified
+     * vertex format, setups indices, normals (if in the format) and texture coordinates.
+     * @param division
+     * @param xRepeat Number of times texture will repeat in x (this is the u max value)
+     * @param yRepeat Number of times texture will repeat in y (this is the v max value)
+     * @param format The vertex format, must have 3 component float vertices and
+     * texture coordinates. Normals are optional.
+     * @throws IllegalArgumentException If the format does not have float vertices
+     * or texture coordinates.
+     */
+    public void create(int division, float xRepeat, float yRepeat, VertexFormat format) {
+        int vertex = format.hasLayout() ? format.getAttribute(VERTEX_ATTRIBUTE) : -1;
+        if (vertex < 0 || format.getAttribute(TEXCOORD_ATTRIBUTE) < 0 ||
+                format.getType(vertex) != ConstantValues.FLOAT || format.getSize(vertex) != 3) {
+            throw new IllegalArgumentException(ILLEGAL_FORMAT);
+        }
         material = new Material();
         mVertexCount = division * division * 4; //Total vertexcount for one quad.
         mIndiceCount = (mVertexCount>>>1) * 3; //Each quad is 4 vertices,
                                                //gives number of triangles * 3
-        arrayBuffer = ByteBuffer.allocateDirect((mVertexCount * 3 * 4) +
-                (mVertexCount * 3 * 4)+
-                (mVertexCount * 2 * 4)).order(ByteOrder.nativeOrder()).asFloatBuffer();
-        indices = ByteBuffer.allocateDirect(mIndiceCount * 2).order(ByteOrder.nativeOrder()).
-                asShortBuffer();
+        mVertexFormat = format;
+        int stride = mVertexFormat.getStride();
+        arrayData = ByteBuffer.allocateDirect(mVertexCount * stride).
+                order(ByteOrder.nativeOrder());
+        arrayBuffer = arrayData.asFloatBuffer();
+        mArrayByteStride = stride;
+        mDivision = division;
+        ShortBuffer shared = acquireIndices(division);
+        releaseIndices();
+        indices = shared;
+        mSharedDivision = division;
+        if (format.getAttribute(NORMAL_ATTRIBUTE) >= 0) {
+            setupNormals(division);
+        }
+        setupTexCoords(division, xRepeat, yRepeat);
+    }
+
+    /**
+     * Returns the vertex format to use for texture coordinates in the range 0 - uMax and
+     * 0 - vMax.
+     * @param uMax
+     * @param vMax
+     * @return COMPACT_FORMAT if texture coordinates are within 0 - 1, otherwise
+     * FLOAT_TEXCOORD_FORMAT
+     */
+    protected VertexFormat selectVertexFormat(float uMax, float vMax) {
+        if (uMax >= 0 && uMax <= 1 && vMax >= 0 && vMax <= 1) {
+            return COMPACT_FORMAT;
+        }
+        return FLOAT_TEXCOORD_FORMAT;
+    }
+
+    /**
+     * Returns the offset, in floats, of an attribute in the vertex format.
+     * @param index The attribute index.
+     * @return Offset into arrayBuffer of the attribute for the first vertex.
+     */
+    protected int getFloatOffset(int index) {
+        return mVertexFormat.getOffset(mVertexFormat.getAttribute(index)) >>> 2;
+    }
+
+    /**
+     * Returns the triangle indexes for a quad with the subdivision, the indexes only depend
+     * on the subdivision and are shared by all blits with the same subdivision.
+     * The returned buffer has its own position, the contents shall not be modified.
+     * Each call shall be matched by a call to releaseIndices(division)
+     * @param division Number of times the quad is subdivided in x and y
+     * @return Buffer with the triangle indexes.
+     */
+    protected static ShortBuffer acquireIndices(int division) {
+        Integer key = Integer.valueOf(division);
+        synchronized (SHARED_INDICES) {
+            SharedIndices shared = SHARED_INDICES.get(key);
+            if (shared == null) {
+                shared = new SharedIndices(createIndices(division));
+                SHARED_INDICES.put(key, shared);
+            }
+            shared.mReferences++;
+            return shared.mIndices.duplicate();
+        }
+    }
 
-        setupIndices(division);
-        setupNormals(division, arrayBuffer, 3, 8);
-        setupTexCoords(division, xRepeat, yRepeat, arrayBuffer, 6, 8);
+    /**
+     * Releases triangle indexes returned by acquireIndices(), the indexes are removed
+     * when no blit uses them.
+     * @param division Number of times the quad is subdivided in x and y
+     */
+    protected static void releaseIndices(int division) {
+        Integer key = Integer.valueOf(division);
+        synchronized (SHARED_INDICES) {
+            SharedIndices shared = SHARED_INDICES.get(key);
+            if (shared != null && --shared.mReferences == 0) {
+                SHARED_INDICES.remove(key);
+            }
+        }
     }
 
     /**
-     * Setup triangle indexes for a Quad.
-     * @param subdivision Number of times the quad should be subdivided in x and y
+     * Releases the shared triangle indexes used by this blit, if any.
      */
-    protected void setupIndices(int subdivision) {
+    protected void releaseIndices() {
+        if (mSharedDivision != 0) {
+            releaseIndices(mSharedDivision);
+            mSharedDivision = 0;
+        }
+    }
 
+    /**
+     * Returns the number of subdivisions that have shared triangle indexes.
+     * @return Number of shared index buffers in use.
+     */
+    public static int getSharedIndicesCount() {
+        return SHARED_INDICES.size();
+    }
+
+    /**
+     * Creates triangle indexes for a Quad.
+     * @param division Number of times the quad should be subdivided in x and y
+     * @return Buffer with the triangle indexes.
+     */
+    protected static ShortBuffer createIndices(int division) {
+
+        ShortBuffer indices = ByteBuffer.allocateDirect(division * division * 6 * 2).
+                order(ByteOrder.nativeOrder()).asShortBuffer();
+        short[] quad = new short[6];
         short index = 0; //Count up after each quad.
+        for (int y = 0; y < division; y++) {
 
-        indices.rewind();
-        for (int y = 0; y < subdivision; y++) {
-
-            for (int x = 0; x < subdivision; x++) {
-                mTempIndices[0] = index;
-                mTempIndices[1] = (short)(index+3);
-                mTempIndices[2] = (short)(index+1);
-                mTempIndices[3] = (short)(index+0);
-                mTempIndices[4] = (short)(index+2);
-                mTempIndices[5] = (short)(index+3);
-                indices.put(mTempIndices);
+            for (int x = 0; x < division; x++) {
+                quad[0] = index;
+                quad[1] = (short)(index+3);
+                quad[2] = (short)(index+1);
+                quad[3] = (short)(index+0);
+                quad[4] = (short)(index+2);
+                quad[5] = (short)(index+3);
+                indices.put(quad);
                 index += 4;
             }
         }
+        indices.rewind();
+        return indices;
 
     }
 
     /**
      * Setup normals for frontfacing ortho blit, only needed for
-     * objects that will be lit
-     * The stride value will be set in this object to be used when rendering.
-     * @subdivision Number of times the quad is split (in x and y)
-     * @param normals Normals are put here.
-     * @param Offset into normal array.
-     * @param stride Number of items between each set of normal coordinates,
-     * 0 for packed array. 3 for an array with 3 float positions inbetween each set of normals.
+     * objects that will be lit and use a vertex format with normals.
+     * @param subdivision Number of times the quad is split (in x and y)
      */
-    protected void setupNormals(int subdivision, FloatBuffer normals, int offset, int stride) {
+    protected void setupNormals(int subdivision) {
 
+        int attribute = mVertexFormat.getAttribute(NORMAL_ATTRIBUTE);
         int size = 4 * subdivision * subdivision;
         for (int i = 0; i < size; i++) {
-            normals.position(offset);
-            normals.put(FRONT_FACING_NORMALS);
-            offset += stride;
+            mVertexFormat.put(arrayData, i, attribute, FRONT_FACING_NORMALS, 0);
         }
 
     }
 
     /**
      * Setup texture coordinates for a normal frontfacing ortho blit.
-     * The stride value will be set in this object to be used when rendering.
-     * @param texCoordinates The FloatBuffer where coordinates are stored.
+     * Coordinates are converted to the type used by the vertex format.
      * @param division Number of times each quad is split (in x and y)
      * @param uMax max X value for coordinates, the range is 0 - uMax
      * @param vMax max Y value for coordinates, the range is 0 - vMax
-     * @param offset Offset into texCoordinate array
-     * @param stride Number of items between each set of normal coordinates,
-     * 0 for packed array. 3 for an array with 3 float positions inbetween each set of normals.
      */
-    protected void setupTexCoords(int division, float uMax, float vMax,
-            FloatBuffer texCoordinates, int offset, int stride) {
+    protected void setupTexCoords(int division, float uMax, float vMax) {
 
+        int attribute = mVertexFormat.getAttribute(TEXCOORD_ATTRIBUTE);
+        int vertex = 0;
         float xpos = 0;
         float ypos = vMax;
         float ysub = vMax / division;
@@ -442,27 +614,19 @@ public class GLBlitObject extends GLObject {
             for (int x = 0; x < division; x++) {
                 mTemp2Float[0] = xpos;
                 mTemp2Float[1] = ypos;
-                texCoordinates.position(offset);
-                texCoordinates.put(mTemp2Float);
-                offset += stride;
+                mVertexFormat.put(arrayData, vertex++, attribute, mTemp2Float, 0);
 
                 mTemp2Float[0] = xpos;
                 mTemp2Float[1] = ypos - ysub;
-                texCoordinates.position(offset);
-                texCoordinates.put(mTemp2Float);
-                offset += stride;
+                mVertexFormat.put(arrayData, vertex++, attribute, mTemp2Float, 0);
 
                 mTemp2Float[0] = xpos + xadd;
                 mTemp2Float[1] = ypos;
-                texCoordinates.position(offset);
-                texCoordinates.put(mTemp2Float);
-                offset += stride;
+                mVertexFormat.put(arrayData, vertex++, attribute, mTemp2Float, 0);
 
                 mTemp2Float[0] = xpos + xadd;
                 mTemp2Float[1] = ypos - ysub;
-                texCoordinates.position(offset);
-                texCoordinates.put(mTemp2Float);
-                offset += stride;
+                mVertexFormat.put(arrayData, vertex++, attribute, mTemp2Float, 0);
 
                 xpos += xadd;
             }
@@ -502,8 +666,8 @@ public class GLBlitObject extends GLObject {
         this.width = width;
         this.height = Math.abs(height);
 
-        setVertices(width, height, anchor, (int) Math.sqrt(mVertexCount>>>2), arrayBuffer, 0, 8);
-        mArrayByteStride = 8 * 4; //Byte stride for array.
+        setVertices(width, height, anchor, mDivision, arrayBuffer,
+                getFloatOffset(VERTEX_ATTRIBUTE), mArrayByteStride >>> 2);
         if (mat != null) {
             setMaterial(mat);
         }
@@ -585,6 +749,10 @@ public class GLBlitObject extends GLObject {
         float xAdd = width/division;
         float ySub = height/division;
         float xCopy = xpos;
+        mBounds[0] = Math.min(xpos, xpos + width);
+        mBounds[1] = Math.min(ypos, ypos - height);
+        mBounds[2] = Math.max(xpos, xpos + width);
+        mBounds[3] = Math.max(ypos, ypos - height);
         for (int y = 0; y < division; y++) {
             for (int x = 0; x < division; x++) {
                 vertices.position(offset);
@@ -619,6 +787,15 @@ public class GLBlitObject extends GLObject {
 
     }
 
+    /**
+     * Returns the local bounds of the vertices, this is min x, min y, max x and max y
+     * before the object is transformed.
+     * @return Array with the bounds, shall not be modified.
+     */
+    public float[] getBounds() {
+        return mBounds;
+    }
+
     /**
      * Return the number of vertices.
      * @return
@@ -627,6 +804,14 @@ public class GLBlitObject extends GLObject {
         return mVertexCount;
     }
 
+    /**
+     * Returns the number of times the quad is subdivided in x and y.
+     * @return The subdivision.
+     */
+    public int getDivision() {
+        return mDivision;
+    }
+
     /**
      * Return the number of triangle indexes, used when outputting to GL as trianglelist.
      * @return
@@ -637,6 +822,8 @@ public class GLBlitObject extends GLObject {
 
     /**
      * Return buffer containing element indices (triangle list).
+     * The indexes are shared with other blits using the same subdivision and shall not
+     * be modified.
      * @return Buffer containing triangle indexes.
      */
     public ShortBuffer getElementBuffer() {
@@ -662,6 +849,8 @@ public class GLBlitObject extends GLObject {
         rotation = null;
         position = null;
         arrayBuffer = null;
+        arrayData = null;
+        releaseIndices();
         indices = null;
         anim = null;
     }
@@ -13,8 +13,6 @@
 
 package com.super2k.openglen.objects;
 
-import java.util.Hashtable;
-import java.util.LinkedList;
 import java.util.Vector;
 
 import com.super2k.openglen.ConstantValues;
@@ -23,6 +21,8 @@ import com.super2k.openglen.ObjectFactoryManager;
 import com.super2k.openglen.OpenGLENException;
 import com.super2k.openglen.Renderer;
 import com.super2k.openglen.geometry.Material;
+import com.super2k.openglen.metrics.MetricsRegistry;
+import com.super2k.openglen.metrics.MetricsSource;
 import com.super2k.openglen.nibbler.BitmapHandler;
 import com.super2k.openglen.texture.Texture2D;
 import com.super2k.openglen.texture.TextureHandler;
@@ -37,7 +37,7 @@ import com.super2k.openglen.utils.GraphicsLibraryHandler;
  * @author Richard Sahlin
  *
  */
-public class GLENObjectFactory implements ObjectFactory {
+public class GLENObjectFactory implements ObjectFactory, MetricsSource {
 
     /**
      * The texturehandler used by the factory.
@@ -61,19 +61,21 @@ public class GLENObjectFactory implements ObjectFactory {
      */
     protected Vector<Texture2D> mTextures = new Vector<Texture2D>();
 
-    protected Hashtable<Integer, LinkedList<GLBlitObject>> mPool =
-            new Hashtable<Integer, LinkedList<GLBlitObject>>();
+    protected ObjectPool<GLBlitObject> mPool = new ObjectPool<GLBlitObject>();
 
-    protected Hashtable<Integer, LinkedList<GLParticleArray>> mParticlePool =
-            new Hashtable<Integer, LinkedList<GLParticleArray>>();
+    protected ObjectPool<GLParticleArray> mParticlePool = new ObjectPool<GLParticleArray>();
 
     /**
-     * Temp storage
+     * Metric ids, set when registered with a MetricsRegistry.
      */
-    protected LinkedList<GLBlitObject> mTempList;
-    protected LinkedList<GLParticleArray> mTempParticleList;
-    protected GLBlitObject mTempBlit;
-    protected GLParticleArray mTempParticle;
+    protected int mBlitCapacityMetric;
+    protected int mBlitAvailableMetric;
+    protected int mBlitHighWaterMetric;
+    protected int mBlitMissesMetric;
+    protected int mParticleCapacityMetric;
+    protected int mParticleAvailableMetric;
+    protected int mParticleHighWaterMetric;
+    protected int mParticleMissesMetric;
 
     /**
      * Creates an objectfactory.
@@ -209,19 +211,14 @@ public class GLENObjectFactory implements ObjectFactory {
                     ", " + count);
         }
         //Check if objects already exist
-        Integer integer = Integer.valueOf(type);
-        LinkedList<GLBlitObject> blitPool = mPool.get(integer);
-        if (blitPool != null) {
-            throw new OpenGLENException("Already created pool with key: " + integer.intValue());
+        if (mPool.hasKey(type)) {
+            throw new OpenGLENException("Already created pool with key: " + type);
         }
-        blitPool = new LinkedList<GLBlitObject>();
         for (int i = 0; i < count; i++) {
             GLBlitObject blit = createBlitObject(className);
             blit.create(divisor, xRepeat, yRepeat);
-            blit.key = type;
-            blitPool.add(blit);
+            mPool.add(type, blit);
         }
-        mPool.put(integer, blitPool);
     }
 
     @Override
@@ -233,39 +230,27 @@ public class GLENObjectFactory implements ObjectFactory {
                     ", " + count);
         }
         //Check if objects already exist
-        Integer integer = Integer.valueOf(key);
-        LinkedList<GLParticleArray> particlePool = mParticlePool.get(integer);
-        if (particlePool != null) {
-            throw new OpenGLENException("Already created particle pool with key: " +
-                    integer.intValue());
+        if (mParticlePool.hasKey(key)) {
+            throw new OpenGLENException("Already created particle pool with key: " + key);
         }
-        particlePool = new LinkedList<GLParticleArray>();
         for (int i = 0; i < count; i++) {
             GLParticleArray particle = createParticleArray(particleCount, particleType,
                     srcBlend, dstBlend, useVBO);
             particle.type = key;
-            particle.key = key;
-            particlePool.add(particle);
+            mParticlePool.add(key, particle);
         }
-        mParticlePool.put(key, particlePool);
     }
 
 
     @Override
     public GLBlitObject getObject(int type) {
-        mTempList = mPool.get(Integer.valueOf(type));
-        return mTempList.removeLast();
+        return mPool.get(type);
     }
 
     @Override
     public void releaseObject(GLBlitObject object) {
-        if (object.key == -1) {
-            //Object is not pooled.
-            return;
-        }
-        mTempList = mPool.get(Integer.valueOf(object.key));
-        mTempList.add(object);
-        object.releaseObject();
+        //Objects that are not pooled are ignored.
+        mPool.release(object);
     }
 
     @Override
@@ -282,20 +267,47 @@ public class GLENObjectFactory implements ObjectFactory {
 
     @Override
     public GLParticleArray getParticle(int key) {
-        mTempParticleList = mParticlePool.get(key);
-        return mTempParticleList.removeLast();
-
+        return mParticlePool.get(key);
     }
 
     @Override
     public void releaseParticle(GLParticleArray object) {
-        if (object.key == -1) {
-            //Object is not pooled.
-            return;
-        }
-        mTempParticleList = mParticlePool.get(object.key);
-        mTempParticleList.add(object);
-        object.releaseObject();
+        //Objects that are not pooled are ignored.
+        mParticlePool.release(object);
+    }
+
+    @Override
+    public void registerMetrics(MetricsRegistry registry) {
+        mBlitCapacityMetric = registry.register("openglen_blit_pool_objects",
+                "Number of blit objects created in pools", MetricsRegistry.TYPE_GAUGE);
+        mBlitAvailableMetric = registry.register("openglen_blit_pool_available",
+                "Number of blit objects available in pools", MetricsRegistry.TYPE_GAUGE);
+        mBlitHighWaterMetric = registry.register("openglen_blit_pool_high_water",
+                "Max number of pooled blit objects in use", MetricsRegistry.TYPE_GAUGE);
+        mBlitMissesMetric = registry.register("openglen_blit_pool_misses_total",
+                "Number of blit object requests from an empty pool",
+                MetricsRegistry.TYPE_COUNTER);
+        mParticleCapacityMetric = registry.register("openglen_particle_pool_objects",
+                "Number of particle arrays created in pools", MetricsRegistry.TYPE_GAUGE);
+        mParticleAvailableMetric = registry.register("openglen_particle_pool_available",
+                "Number of particle arrays available in pools", MetricsRegistry.TYPE_GAUGE);
+        mParticleHighWaterMetric = registry.register("openglen_particle_pool_high_water",
+                "Max number of pooled particle arrays in use", MetricsRegistry.TYPE_GAUGE);
+        mParticleMissesMetric = registry.register("openglen_particle_pool_misses_total",
+                "Number of particle array requests from an empty pool",
+                MetricsRegistry.TYPE_COUNTER);
+    }
+
+    @Override
+    public void updateMetrics(MetricsRegistry registry) {
+        registry.set(mBlitCapacityMetric, mPool.getCapacity());
+        registry.set(mBlitAvailableMetric, mPool.getAvailable());
+        registry.set(mBlitHighWaterMetric, mPool.getHighWater());
+        registry.set(mBlitMissesMetric, mPool.getMisses());
+        registry.set(mParticleCapacityMetric, mParticlePool.getCapacity());
+        registry.set(mParticleAvailableMetric, mParticlePool.getAvailable());
+        registry.set(mParticleHighWaterMetric, mParticlePool.getHighWater());
+        registry.set(mParticleMissesMetric, mParticlePool.getMisses());
     }
 
 }
@@ -13,9 +13,11 @@
 
 package com.super2k.openglen.objects;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 
 import com.super2k.openglen.geometry.Material;
+import com.super2k.openglen.geometry.VertexFormat;
 
 /**
  * Base GL Object that can be rendered using OpenGL
@@ -47,6 +49,17 @@ public abstract class GLObject implements PooledObject {
      */
     public FloatBuffer arrayBuffer;
 
+    /**
+     * The bytes of the array data, arrayBuffer is a float view of this buffer.
+     * The data is stored as described by the vertex format.
+     */
+    public ByteBuffer arrayData;
+
+    /**
+     * Layout of the array data, used to set attribute pointers when rendering.
+     */
+    protected VertexFormat mVertexFormat;
+
     /**
      * Set if object should use VBO for arrays.
      */
@@ -96,6 +109,14 @@ public abstract class GLObject implements PooledObject {
         return arrayBuffer;
     }
 
+    /**
+     * Returns the vertex format of the array data.
+     * @return The vertex format, describing the layout of arrayData.
+     */
+    public VertexFormat getVertexFormat() {
+        return mVertexFormat;
+    }
+
     /**
      * Set VBO name for arraybuffer, this buffer contains vertices, normals and texcoords.
      * VBO buffer shall contain same data as arraybuffer (in this class)
@@ -114,6 +135,7 @@ public abstract class GLObject implements PooledObject {
     public void destroy() {
         material = null;
         arrayBuffer = null;
+        arrayData = null;
     }
 
     @Override
@@ -15,7 +15,10 @@ package com.super2k.openglen.objects;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+import com.super2k.openglen.ConstantValues;
 import com.super2k.openglen.geometry.Material;
+import com.super2k.openglen.geometry.Quaternion;
+import com.super2k.openglen.geometry.VertexFormat;
 import com.super2k.openglen.texture.Texture2D;
 import com.super2k.openglen.utils.JavaUtils;
 import com.super2k.openglen.utils.Log;
@@ -129,6 +132,19 @@ public class GLParticleArray extends GLObject {
      */
     public final static int PARTICLE_FLOAT_COUNT = COLOR_ADD + 4;
 
+    /**
+     * Layout of the particle data, attribute 0 is position, 1 color, 2 velocity,
+     * 3 packed data and 4 color add. Packed data is read as 4 values.
+     */
+    public final static VertexFormat PARTICLE_FORMAT = new VertexFormat(
+            new int[] {0, 1, 2, 3, 4},
+            new int[] {3, 4, 4, 4, 4},
+            new int[] {ConstantValues.FLOAT, ConstantValues.FLOAT, ConstantValues.FLOAT,
+                    ConstantValues.FLOAT, ConstantValues.FLOAT},
+            new boolean[] {false, false, false, false, false},
+            new int[] {POSITION * 4, COLOR * 4, VELOCITY * 4, PACKED_DATA * 4, COLOR_ADD * 4},
+            PARTICLE_FLOAT_COUNT * 4);
+
     /*
      * ***************************************************
      * END PARTICLE OFFSETS
@@ -224,10 +240,11 @@ public class GLParticleArray extends GLObject {
         int tries = 0;
         while (arrayBuffer == null) {
             try {
-                arrayBuffer = ByteBuffer.allocateDirect(
-                        particleCount * 4 * PARTICLE_FLOAT_COUNT).order(ByteOrder.nativeOrder()).
-                                                                        asFloatBuffer();
-                mArrayByteStride = PARTICLE_FLOAT_COUNT * 4;    //Byte stride for array.
+                arrayData = ByteBuffer.allocateDirect(
+                        particleCount * PARTICLE_FORMAT.getStride()).order(ByteOrder.nativeOrder());
+                arrayBuffer = arrayData.asFloatBuffer();
+                mVertexFormat = PARTICLE_FORMAT;
+                mArrayByteStride = PARTICLE_FORMAT.getStride();    //Byte stride for array.
             }
             catch (OutOfMemoryError e) {
                 tries++;
@@ -359,6 +376,16 @@ public class GLParticleArray extends GLObject {
         System.arraycopy(gravity, index, data_uniform, GRAVITY_UNIFORM_INDEX, GRAVITY_VALUE_COUNT);
     }
 
+    /**
+     * Sets the rotation of the modelview matrix from a quaternion, the translation
+     * of the matrix is not changed.
+     * @param quaternion Normalized rotation quaternion.
+     * @param index Index into array where the quaternion is read.
+     */
+    public void setRotation(float[] quaternion, int index) {
+        Quaternion.toMatrix(quaternion, index, modelViewMatrix, 0);
+    }
+
     @Override
     public void releaseObject() {
         mActiveParticles = 0;
@@ -0,0 +1,178 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.objects;
+
+/**
+ * Pool of PooledObjects, objects are stored in one array backed stack for each key.
+ * Keys are used as index, so they shall be small positive numbers.
+ * Getting and releasing objects does not allocate memory or box the key.
+ * The number of objects in the pool, the high-water mark of objects in use and the number of
+ * misses (get when the pool for a key is empty) are counted.
+ * This class is not thread safe, use ConcurrentObjectPool if objects are released on
+ * another thread.
+ * @author Richard Sahlin
+ *
+ * @param <T> The pooled object type.
+ */
+public class ObjectPool<T extends PooledObject> {
+
+    protected final static String INVALID_KEY_STR = "Invalid key: ";
+    protected final static int DEFAULT_STACK_SIZE = 8;
+
+    protected Object[][] mStacks = new Object[0][];
+    protected int[] mAvailable = new int[0];
+
+    protected int mCapacity;
+    protected int mTotalAvailable;
+    protected int mHighWater;
+    protected int mMisses;
+
+    /**
+     * Checks if objects have been added with the key.
+     * @param key
+     * @return True if there is a pool for the key.
+     */
+    public boolean hasKey(int key) {
+        return key >= 0 && key < mStacks.length && mStacks[key] != null;
+    }
+
+    /**
+     * Adds an object to the pool, the key of the object is set.
+     * @param key The key to add the object to, 0 or larger.
+     * @param object The object to add.
+     * @throws IllegalArgumentException If key is negative or object is null.
+     */
+    public void add(int key, T object) {
+        if (key < 0 || object == null) {
+            throw new IllegalArgumentException("Illegal parameter: " + key + ", " + object);
+        }
+        if (key >= mStacks.length) {
+            Object[][] stacks = new Object[key + 1][];
+            System.arraycopy(mStacks, 0, stacks, 0, mStacks.length);
+            mStacks = stacks;
+            int[] available = new int[key + 1];
+            System.arraycopy(mAvailable, 0, available, 0, mAvailable.length);
+            mAvailable = available;
+        }
+        if (mStacks[key] == null) {
+            mStacks[key] = new Object[DEFAULT_STACK_SIZE];
+        }
+        object.setKey(key);
+        mCapacity++;
+        push(key, object);
+    }
+
+    /**
+     * Returns an object from the pool, the object must be released with release() when
+     * not used anymore.
+     * @param key The key of the object.
+     * @return An object, or null if there are no objects available for the key.
+     * @throws IllegalArgumentException If no objects have been added with the key.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int key) {
+        if (!hasKey(key)) {
+            throw new IllegalArgumentException(INVALID_KEY_STR + key);
+        }
+        if (mAvailable[key] == 0) {
+            mMisses++;
+            return null;
+        }
+        Object[] stack = mStacks[key];
+        T object = (T) stack[--mAvailable[key]];
+        stack[mAvailable[key]] = null;
+        mTotalAvailable--;
+        if (mCapacity - mTotalAvailable > mHighWater) {
+            mHighWater = mCapacity - mTotalAvailable;
+        }
+        return object;
+    }
+
+    /**
+     * Releases an object back to the pool, releaseObject() is called on the object.
+     * Objects with key NOT_POOLED_OBJECT are ignored.
+     * @param object The object to release.
+     * @return True if the object was released to the pool.
+     * @throws IllegalArgumentException If there is no pool for the key of the object.
+     */
+    public boolean release(T object) {
+        int key = object.getKey();
+        if (key == PooledObject.NOT_POOLED_OBJECT) {
+            return false;
+        }
+        if (!hasKey(key)) {
+            throw new IllegalArgumentException(INVALID_KEY_STR + key);
+        }
+        object.releaseObject();
+        push(key, object);
+        return true;
+    }
+
+    /**
+     * Pushes the object on the stack for the key.
+     * @param key
+     * @param object
+     */
+    protected void push(int key, T object) {
+        Object[] stack = mStacks[key];
+        if (mAvailable[key] == stack.length) {
+            Object[] grow = new Object[stack.length * 2];
+            System.arraycopy(stack, 0, grow, 0, stack.length);
+            mStacks[key] = stack = grow;
+        }
+        stack[mAvailable[key]++] = object;
+        mTotalAvailable++;
+    }
+
+    /**
+     * Returns the number of objects available for the key.
+     * @param key
+     * @return Number of available objects.
+     */
+    public int getAvailable(int key) {
+        return hasKey(key) ? mAvailable[key] : 0;
+    }
+
+    /**
+     * Returns the number of objects available for all keys.
+     * @return Number of available objects.
+     */
+    public int getAvailable() {
+        return mTotalAvailable;
+    }
+
+    /**
+     * Returns the number of objects added to the pool, for all keys.
+     * @return Number of objects in the pool.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns the max number of objects that have been in use at the same time.
+     * @return High-water mark of objects in use.
+     */
+    public int getHighWater() {
+        return mHighWater;
+    }
+
+    /**
+     * Returns the number of times get() was called when no object was available.
+     * @return Number of misses.
+     */
+    public int getMisses() {
+        return mMisses;
+    }
+
+}
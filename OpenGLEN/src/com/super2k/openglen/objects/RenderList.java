@@ -0,0 +1,219 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.objects;
+
+/**
+ * List of objects to render, objects are stored in a dense array so that the renderer can
+ * iterate the objects without method calls or locks.
+ * When an object is added a handle is returned, the handle stays the same for as long as the
+ * object is in the list, even if other objects are removed.
+ * Removing an object moves the last object in the list into the removed position, this means
+ * that the order of objects is not kept when objects are removed.
+ * Handles of removed objects are reused by later calls to add().
+ * This class is not thread safe, use a FrameState if objects are updated by another thread.
+ * @author Richard Sahlin
+ *
+ * @param <T> The type of objects in the list.
+ */
+public class RenderList<T> {
+
+    protected final static String INVALID_HANDLE_STR = "Invalid handle: ";
+    protected final static int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Value in the handle table for unused handles.
+     */
+    protected final static int NO_INDEX = -1;
+
+    /**
+     * The objects, from index 0 to mCount - 1.
+     */
+    protected Object[] mObjects;
+    /**
+     * Handle of the object at each index.
+     */
+    protected int[] mHandles;
+    /**
+     * Index of the object for each handle, NO_INDEX if the handle is not used.
+     */
+    protected int[] mIndexes;
+    /**
+     * Stack of free handles.
+     */
+    protected int[] mFreeHandles;
+    protected int mFreeCount;
+    protected int mCount;
+
+    /**
+     * Creates a new list with default capacity.
+     */
+    public RenderList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new list with the specified capacity, the list will grow if more
+     * objects are added.
+     * @param capacity Initial capacity.
+     * @throws IllegalArgumentException If capacity < 1
+     */
+    public RenderList(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        mObjects = new Object[capacity];
+        mHandles = new int[capacity];
+        mIndexes = new int[capacity];
+        mFreeHandles = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mIndexes[i] = NO_INDEX;
+            //Free handles are popped from the end, push in reverse so that handle 0 is first.
+            mFreeHandles[i] = capacity - 1 - i;
+        }
+        mFreeCount = capacity;
+    }
+
+    /**
+     * Adds an object last in the list.
+     * @param object The object to add.
+     * @return The handle of the object, used to remove the object.
+     * @throws IllegalArgumentException If object is null.
+     */
+    public int add(T object) {
+        if (object == null) {
+            throw new IllegalArgumentException("Object is null");
+        }
+        if (mFreeCount == 0) {
+            grow(mObjects.length * 2);
+        }
+        int handle = mFreeHandles[--mFreeCount];
+        mObjects[mCount] = object;
+        mHandles[mCount] = handle;
+        mIndexes[handle] = mCount;
+        mCount++;
+        return handle;
+    }
+
+    /**
+     * Removes the object with the handle, the last object in the list is moved into the
+     * position of the removed object.
+     * @param handle Handle returned by add()
+     * @return The removed object.
+     * @throws IllegalArgumentException If the handle is not used.
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(int handle) {
+        int index = getIndex(handle);
+        T object = (T) mObjects[index];
+        int last = --mCount;
+        if (index != last) {
+            mObjects[index] = mObjects[last];
+            mHandles[index] = mHandles[last];
+            mIndexes[mHandles[index]] = index;
+        }
+        mObjects[last] = null;
+        mIndexes[handle] = NO_INDEX;
+        mFreeHandles[mFreeCount++] = handle;
+        return object;
+    }
+
+    /**
+     * Returns the object for a handle.
+     * @param handle Handle returned by add()
+     * @return The object.
+     * @throws IllegalArgumentException If the handle is not used.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int handle) {
+        return (T) mObjects[getIndex(handle)];
+    }
+
+    /**
+     * Returns the current index of the object with the handle, the index changes when
+     * objects are removed.
+     * @param handle Handle returned by add()
+     * @return Index of the object, 0 to size() - 1
+     * @throws IllegalArgumentException If the handle is not used.
+     */
+    public int getIndex(int handle) {
+        if (handle < 0 || handle >= mIndexes.length || mIndexes[handle] == NO_INDEX) {
+            throw new IllegalArgumentException(INVALID_HANDLE_STR + handle);
+        }
+        return mIndexes[handle];
+    }
+
+    /**
+     * Returns the object at the index.
+     * @param index Index of the object, 0 to size() - 1
+     * @return The object.
+     */
+    @SuppressWarnings("unchecked")
+    public T elementAt(int index) {
+        if (index >= mCount) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return (T) mObjects[index];
+    }
+
+    /**
+     * Returns the number of objects in the list.
+     * @return Number of objects.
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Returns the array holding the objects, the objects are stored from index 0 to
+     * size() - 1. This is used by the renderer to iterate the objects, the array
+     * shall not be modified and is replaced when the list grows.
+     * @return The array with objects.
+     */
+    public Object[] getObjects() {
+        return mObjects;
+    }
+
+    /**
+     * Removes all objects from the list, all handles are released.
+     */
+    public void clear() {
+        while (mCount > 0) {
+            remove(mHandles[mCount - 1]);
+        }
+    }
+
+    /**
+     * Grows the storage to the capacity, new handles are added to the free handles.
+     * @param capacity The new capacity, must be larger than the current.
+     */
+    protected void grow(int capacity) {
+        int old = mObjects.length;
+        Object[] objects = new Object[capacity];
+        System.arraycopy(mObjects, 0, objects, 0, mCount);
+        mObjects = objects;
+        int[] handles = new int[capacity];
+        System.arraycopy(mHandles, 0, handles, 0, mCount);
+        mHandles = handles;
+        int[] indexes = new int[capacity];
+        System.arraycopy(mIndexes, 0, indexes, 0, old);
+        mIndexes = indexes;
+        int[] free = new int[capacity];
+        System.arraycopy(mFreeHandles, 0, free, 0, mFreeCount);
+        mFreeHandles = free;
+        for (int i = capacity - 1; i >= old; i--) {
+            mIndexes[i] = NO_INDEX;
+            mFreeHandles[mFreeCount++] = i;
+        }
+    }
+
+}
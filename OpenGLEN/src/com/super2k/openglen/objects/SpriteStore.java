@@ -0,0 +1,248 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.objects;
+
+import java.util.Vector;
+
+/**
+ * Store for sprites where position, scale, rotation, diffuse color and renderflag of all
+ * sprites are kept in contiguous arrays, with the same layout as FrameState.
+ * The GLBlitObject of a sprite only provides the geometry and material, the values in the
+ * store are used when rendering, the position, scale and rotation arrays of the object
+ * are not used.
+ * Render the sprites with Renderer.renderGLBlitObjects(store.getObjects(), store)
+ * Values are updated by handle using the set methods, or by iterating the arrays directly,
+ * values for the sprite with handle h are at index getOffset(h) in each array.
+ * Removing a sprite moves the last sprite into the removed position, handles are stable.
+ * Calling capture(frame) copies the values from the objects into the store, sprites can only
+ * be added with add() so capturing another list is not allowed.
+ * This class is not thread safe.
+ * @author Richard Sahlin
+ *
+ */
+public class SpriteStore extends FrameState {
+
+    protected RenderList<GLBlitObject> mObjects;
+
+    /**
+     * Creates a new store with room for the specified number of sprites, the store will
+     * grow if more sprites are added.
+     * @param capacity Initial number of sprites.
+     * @throws IllegalArgumentException If capacity < 1
+     */
+    public SpriteStore(int capacity) {
+        super(capacity);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        mObjects = new RenderList<GLBlitObject>(capacity);
+    }
+
+    /**
+     * Adds a sprite to the store, the position, scale, rotation, diffuse color and renderflag
+     * are copied from the object.
+     * @param blit The object with geometry and material for the sprite.
+     * @return Handle of the sprite.
+     * @throws IllegalArgumentException If blit is null.
+     */
+    public int add(GLBlitObject blit) {
+        int handle = mObjects.add(blit);
+        if (mCount == mRenderFlag.length) {
+            grow(mRenderFlag.length * 2);
+        }
+        capture(blit, mCount);
+        mCount++;
+        return handle;
+    }
+
+    /**
+     * Copies the position, scale, rotation, diffuse color and renderflag from the objects of
+     * the sprites into the store.
+     * @param frame The frame number.
+     */
+    public void capture(long frame) {
+        Object[] objects = mObjects.getObjects();
+        for (int i = 0; i < mCount; i++) {
+            capture((GLBlitObject) objects[i], i);
+        }
+        mFrame = frame;
+    }
+
+    /**
+     * Not supported, the objects of a store are only changed with add() and remove()
+     * @throws IllegalArgumentException Always, use capture(frame)
+     */
+    @Override
+    public void capture(Vector<GLBlitObject> list, long frame) {
+        throw new IllegalArgumentException("Cannot capture list to SpriteStore");
+    }
+
+    /**
+     * Copies the values from the objects of the sprites into the store, list must be the
+     * list returned by getObjects(). This is the same as calling capture(frame)
+     * @param list The objects of the store.
+     * @param frame The frame number.
+     * @throws IllegalArgumentException If list is not the objects of the store.
+     */
+    @Override
+    public void capture(RenderList<GLBlitObject> list, long frame) {
+        if (list != mObjects) {
+            throw new IllegalArgumentException("Can only capture the objects of the store");
+        }
+        capture(frame);
+    }
+
+    /**
+     * Removes the sprite with the handle, the last sprite is moved into the position of the
+     * removed sprite.
+     * @param handle Handle of the sprite.
+     * @return The removed object.
+     * @throws IllegalArgumentException If the handle is not used.
+     */
+    public GLBlitObject remove(int handle) {
+        int index = mObjects.getIndex(handle);
+        int last = mCount - 1;
+        if (index != last) {
+            int dest = index * COMPONENTS;
+            int source = last * COMPONENTS;
+            System.arraycopy(mPosition, source, mPosition, dest, COMPONENTS);
+            System.arraycopy(mScale, source, mScale, dest, COMPONENTS);
+            System.arraycopy(mRotation, source, mRotation, dest, COMPONENTS);
+            System.arraycopy(mDiffuse, source, mDiffuse, dest, COMPONENTS);
+            mRenderFlag[index] = mRenderFlag[last];
+        }
+        mCount = last;
+        return mObjects.remove(handle);
+    }
+
+    /**
+     * Returns the offset to the values for a sprite, the offset changes when sprites
+     * are removed.
+     * @param handle Handle of the sprite.
+     * @return Offset into the position, scale, rotation and diffuse arrays.
+     * @throws IllegalArgumentException If the handle is not used.
+     */
+    public int getOffset(int handle) {
+        return mObjects.getIndex(handle) * COMPONENTS;
+    }
+
+    /**
+     * Sets the position of a sprite.
+     * @param handle Handle of the sprite.
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void setPosition(int handle, float x, float y, float z) {
+        int offset = getOffset(handle);
+        mPosition[offset++] = x;
+        mPosition[offset++] = y;
+        mPosition[offset] = z;
+    }
+
+    /**
+     * Sets the scale of a sprite.
+     * @param handle Handle of the sprite.
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void setScale(int handle, float x, float y, float z) {
+        int offset = getOffset(handle);
+        mScale[offset++] = x;
+        mScale[offset++] = y;
+        mScale[offset] = z;
+    }
+
+    /**
+     * Sets the euler rotation of a sprite, in radians.
+     * @param handle Handle of the sprite.
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void setRotation(int handle, float x, float y, float z) {
+        int offset = getOffset(handle);
+        mRotation[offset++] = x;
+        mRotation[offset++] = y;
+        mRotation[offset] = z;
+    }
+
+    /**
+     * Sets the diffuse color of a sprite.
+     * @param handle Handle of the sprite.
+     * @param r
+     * @param g
+     * @param b
+     * @param a
+     */
+    public void setDiffuse(int handle, float r, float g, float b, float a) {
+        int offset = getOffset(handle);
+        mDiffuse[offset++] = r;
+        mDiffuse[offset++] = g;
+        mDiffuse[offset++] = b;
+        mDiffuse[offset] = a;
+    }
+
+    /**
+     * Sets the renderflag of a sprite.
+     * @param handle Handle of the sprite.
+     * @param render True to render the sprite.
+     */
+    public void setRenderFlag(int handle, boolean render) {
+        mRenderFlag[mObjects.getIndex(handle)] = render;
+    }
+
+    /**
+     * Adds the delta to the position of all sprites.
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void translate(float x, float y, float z) {
+        int end = mCount * COMPONENTS;
+        for (int i = 0; i < end; i += COMPONENTS) {
+            mPosition[i] += x;
+            mPosition[i + 1] += y;
+            mPosition[i + 2] += z;
+        }
+    }
+
+    /**
+     * Returns the objects of the sprites, in the same order as the values in the arrays.
+     * @return List with the objects.
+     */
+    public RenderList<GLBlitObject> getObjects() {
+        return mObjects;
+    }
+
+    /**
+     * Grows the arrays to the capacity, values are kept.
+     * @param capacity New number of sprites, larger than the current.
+     */
+    protected void grow(int capacity) {
+        float[] position = mPosition;
+        float[] scale = mScale;
+        float[] rotation = mRotation;
+        float[] diffuse = mDiffuse;
+        boolean[] renderFlag = mRenderFlag;
+        createStorage(capacity);
+        int length = mCount * COMPONENTS;
+        System.arraycopy(position, 0, mPosition, 0, length);
+        System.arraycopy(scale, 0, mScale, 0, length);
+        System.arraycopy(rotation, 0, mRotation, 0, length);
+        System.arraycopy(diffuse, 0, mDiffuse, 0, length);
+        System.arraycopy(renderFlag, 0, mRenderFlag, 0, mCount);
+    }
+
+}
@@ -14,17 +14,18 @@
 package com.super2k.openglen.particles;
 
 import java.util.Random;
-import java.util.Vector;
 
 import android.util.Log;
 
 import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.EGLRenderer;
 import com.super2k.openglen.OpenGLENException;
 import com.super2k.openglen.Renderer;
 import com.super2k.openglen.animation.LinearAnimation;
 import com.super2k.openglen.geometry.Material;
 import com.super2k.openglen.objects.GLBlitObject;
 import com.super2k.openglen.objects.GLParticleArray;
+import com.super2k.openglen.objects.RenderList;
 import com.super2k.openglen.texture.Texture2D;
 import com.super2k.openglen.texture.TextureHandler;
 import com.super2k.openglen.utils.GraphicsLibraryHandler;
@@ -114,8 +115,8 @@ public class ParticleGenerator {
     private final Random rand = new Random(0761442435);
 
     protected GLParticleArray mParticleArray;
-    protected Vector<GLParticleArray> mList = new Vector<GLParticleArray>();
-    protected Vector<GLBlitObject> mFBOList = new Vector<GLBlitObject>();
+    protected RenderList<GLParticleArray> mList = new RenderList<GLParticleArray>();
+    protected RenderList<GLBlitObject> mFBOList = new RenderList<GLBlitObject>();
     private int mParticleOffset = 0;
     private final float[] mFBOMatrix = new float[16];
     private final float[] mScreenMatrix = new float[16];
@@ -524,12 +525,20 @@ public class ParticleGenerator {
             }
         }
 
-        int ticks = mRenderer.getProfileInfo().getFrameTicks();
-        int millis = ticks/1000;
-        if (millis>100) {
-            millis = 100;
+        int millis;
+        float time;
+        if (mRenderer instanceof EGLRenderer) {
+            //Smoothed delta is already clamped by the pacer.
+            time = ((EGLRenderer) mRenderer).getFramePacer().getSmoothedDelta();
+            millis = (int) (time * 1000);
+        } else {
+            int ticks = mRenderer.getProfileInfo().getFrameTicks();
+            millis = ticks/1000;
+            if (millis>100) {
+                millis = 100;
+            }
+            time = (float)millis/1000;
         }
-        float time = (float)millis/1000;
         if (mBGCycleAnim!=null) {
             mBGCycleAnim.animate(time);
         }
@@ -787,9 +796,7 @@ public class ParticleGenerator {
         Log.d(TAG, "destroy()");
         if (mParticleArray != null) {
             if (mParticleArray.arrayVBOName > 0) {
-                int[] vboname = new int[] { mParticleArray.arrayVBOName };
-                mRenderer.getGraphicsUtilities().deleteVBOBuffer(vboname, 1, 0,
-                                                                 ConstantValues.ARRAY_BUFFER);
+                mRenderer.getGraphicsUtilities().deleteVBOBuffers(mParticleArray);
                 if (mParticleArray.material.texture != null) {
                     Texture2D[] tex = mParticleArray.material.texture;
                     for (int loop = 0; loop < tex.length; loop++) {
@@ -25,42 +25,59 @@ public class BlitProgramCollection extends ProgramCollection {
     public final static int[] BIND_ATTRIBS = new int[] {0,1,2};
 
     /**
-     * Definition of the programs to load.
+     * Definition of the programs to load, all programs are variants of the same sources.
      */
+    protected final static String[] BLIT_VERTEXSHADER = new String[] {
+        "blit/vertexshader_blit.essl"};
+    protected final static String[] BLIT_FRAGMENTSHADER = new String[] {
+        "blit/fragmentshader_blit.essl"};
+
     protected final static String[][] BLIT_VERTEXSHADER_NAMES = {
-        new String[]{"blit/vertexshader_unlit1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_lambert1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_phonghq1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_lambert1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_unlit1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_unlit1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_unlit1texture.essl", "vertexshader_libtransform.essl"},
+        BLIT_VERTEXSHADER, BLIT_VERTEXSHADER, BLIT_VERTEXSHADER, BLIT_VERTEXSHADER,
+        BLIT_VERTEXSHADER, BLIT_VERTEXSHADER, BLIT_VERTEXSHADER,
         //2 textures
-        new String[]{"blit/vertexshader_unlit2texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_lambert1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_phonghq1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_lambert1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_unlit2texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_unlit1texture.essl", "vertexshader_libtransform.essl"},
-        new String[]{"blit/vertexshader_unlit1texture.essl", "vertexshader_libtransform.essl"}
+        BLIT_VERTEXSHADER, BLIT_VERTEXSHADER, BLIT_VERTEXSHADER, BLIT_VERTEXSHADER,
+        BLIT_VERTEXSHADER, BLIT_VERTEXSHADER, BLIT_VERTEXSHADER
     };
 
     protected final static String[][] BLIT_FRAGMENTSHADER_NAMES = {
-        new String[]{"blit/fragmentshader_unlit1texture.essl"},
-        new String[]{"blit/fragmentshader_lambert1texture.essl"},
-        new String[]{"blit/fragmentshader_phonghq1texture.essl"},
-        new String[]{"blit/fragmentshader_littexture.essl"},
-        new String[]{"blit/fragmentshader_coloredtexture.essl"},
-        new String[]{"blit/fragmentshader_blur5_1texture.essl"},
-        new String[]{"blit/fragmentshader_blur9_1texture.essl"},
+        BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER,
+        BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER,
         //2 textures
-        new String[]{"blit/fragmentshader_unlit2texture.essl"},
-        new String[]{"blit/fragmentshader_lambert1texture.essl"},
-        new String[]{"blit/fragmentshader_phonghq1texture.essl"},
-        new String[]{"blit/fragmentshader_littexture.essl"},
-        new String[]{"blit/fragmentshader_colored2texture.essl"},
-        new String[]{"blit/fragmentshader_blur5_1texture.essl"},
-        new String[]{"blit/fragmentshader_blur9_1texture.essl"}
+        BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER,
+        BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER, BLIT_FRAGMENTSHADER
+    };
+
+    /**
+     * Defines selecting the variant of each program, vertex shaders only depend on lighting
+     * so programs with the same lighting share the vertex shader.
+     */
+    protected final static String[] UNLIT = new String[] {};
+    protected final static String[] LAMBERT = new String[] {"LIGHTING_LAMBERT"};
+    protected final static String[] PHONG = new String[] {"LIGHTING_PHONG"};
+
+    protected final static String[][] BLIT_VERTEXSHADER_DEFINES = {
+        UNLIT, LAMBERT, PHONG, LAMBERT, UNLIT, UNLIT, UNLIT,
+        //2 textures
+        UNLIT, LAMBERT, PHONG, LAMBERT, UNLIT, UNLIT, UNLIT
+    };
+
+    protected final static String[][] BLIT_FRAGMENTSHADER_DEFINES = {
+        new String[] {"SHADING_UNLIT", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_LAMBERT", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_PHONG", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_LIT", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_COLORED", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_BLUR5", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_BLUR9", "TEXTURE_COUNT 1"},
+        //2 textures
+        new String[] {"SHADING_UNLIT", "TEXTURE_COUNT 2"},
+        new String[] {"SHADING_LAMBERT", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_PHONG", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_LIT", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_COLORED", "TEXTURE_COUNT 2"},
+        new String[] {"SHADING_BLUR5", "TEXTURE_COUNT 1"},
+        new String[] {"SHADING_BLUR9", "TEXTURE_COUNT 1"}
     };
 
     /**
@@ -102,39 +119,38 @@ public class BlitProgramCollection extends ProgramCollection {
                 UNIFORM_COUNT,
                 BIND_ATTRIB_NAMES,
                 BIND_ATTRIBS);
+        setDefines(BLIT_VERTEXSHADER_DEFINES, BLIT_FRAGMENTSHADER_DEFINES);
     }
     @Override
-    public void setUniformLocations() throws OpenGLENException{
+    public void setUniformLocations(int i) throws OpenGLENException{
 
         mGraphicHandler.clearError();
-        for (int i = 0; i < mProgramCount; i++) {
-            getUniformLocations(i)[DIRECTIONALLIGHT_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "DirLight_uniform");
-            getUniformLocations(i)[LIGHTPOSITION_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "LightPosition_uniform");
-            getUniformLocations(i)[AMBIENTMATERIAL_UNIFORM]=
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatAmbient_uniform");
-            getUniformLocations(i)[SPECULARMATERIAL_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatSpecular_uniform");
-            getUniformLocations(i)[DIFFUSEMATERIAL_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatDiffuse_uniform");
-            getUniformLocations(i)[SHINEMATERIAL_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatShine_uniform");
-            getUniformLocations(i)[LIGHTCOLOR_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "LightColor_uniform");
-            getUniformLocations(i)[PERSPECTIVEMATRIX_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"PerspectiveMatrix_uniform");
-            getUniformLocations(i)[TEXTURE1_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Texture_uniform");
-            getUniformLocations(i)[TEXTURE2_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Texture2_uniform");
-            getUniformLocations(i)[TRANSLATE_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Translate_uniform");
-            getUniformLocations(i)[SCALE_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Scale_uniform");
-            getUniformLocations(i)[ROTATE_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Rotate_uniform");
-        }
+        getUniformLocations(i)[DIRECTIONALLIGHT_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "DirLight_uniform");
+        getUniformLocations(i)[LIGHTPOSITION_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "LightPosition_uniform");
+        getUniformLocations(i)[AMBIENTMATERIAL_UNIFORM]=
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatAmbient_uniform");
+        getUniformLocations(i)[SPECULARMATERIAL_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatSpecular_uniform");
+        getUniformLocations(i)[DIFFUSEMATERIAL_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatDiffuse_uniform");
+        getUniformLocations(i)[SHINEMATERIAL_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatShine_uniform");
+        getUniformLocations(i)[LIGHTCOLOR_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "LightColor_uniform");
+        getUniformLocations(i)[PERSPECTIVEMATRIX_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"PerspectiveMatrix_uniform");
+        getUniformLocations(i)[TEXTURE1_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Texture_uniform");
+        getUniformLocations(i)[TEXTURE2_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Texture2_uniform");
+        getUniformLocations(i)[TRANSLATE_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Translate_uniform");
+        getUniformLocations(i)[SCALE_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Scale_uniform");
+        getUniformLocations(i)[ROTATE_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Rotate_uniform");
         int result = mGraphicHandler.checkError();
         if (result != ConstantValues.NO_ERROR){
             throw new OpenGLENException(COULD_NOT_GET_UNIFORM, result);
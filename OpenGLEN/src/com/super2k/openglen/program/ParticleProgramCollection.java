@@ -72,39 +72,37 @@ public class ParticleProgramCollection extends ProgramCollection {
     }
 
     @Override
-    public void setUniformLocations() throws OpenGLENException {
+    public void setUniformLocations(int i) throws OpenGLENException {
         mGraphicHandler.clearError();
-        for (int i = 0; i < mProgramCount; i++) {
-            getUniformLocations(i)[PERSPECTIVEMATRIX_UNIFORM] =
+        getUniformLocations(i)[PERSPECTIVEMATRIX_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),
+            "PerspectiveMatrix_uniform");
+        getUniformLocations(i)[DIFFUSEMATERIAL_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatDiffuse_uniform");
+        /**
+         * Storage of data uniforms, instead of taking up several float values
+         * (which are vectors anyway) put data into one vec4
+         */
+        getUniformLocations(i)[DATA_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "Data_uniform");
+        //Gravity
+        getUniformLocations(i)[GRAVITY_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "Gravity_uniform");
+        //Texture sample, used for image particles
+        getUniformLocations(i)[TEXTURE1_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Texture_uniform");
+        //1 / Texturesize, used for image particles
+        getUniformLocations(i)[BUFFERSIZE_UNIFORM] =
                 mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),
-                "PerspectiveMatrix_uniform");
-            getUniformLocations(i)[DIFFUSEMATERIAL_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "MatDiffuse_uniform");
-            /**
-             * Storage of data uniforms, instead of taking up several float values
-             * (which are vectors anyway) put data into one vec4
-             */
-            getUniformLocations(i)[DATA_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "Data_uniform");
-            //Gravity
-            getUniformLocations(i)[GRAVITY_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i), "Gravity_uniform");
-            //Texture sample, used for image particles
-            getUniformLocations(i)[TEXTURE1_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Texture_uniform");
-            //1 / Texturesize, used for image particles
-            getUniformLocations(i)[BUFFERSIZE_UNIFORM] =
-                    mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),
-                    "Buffersize_uniform");
-            //Texture 2 uniform
-            getUniformLocations(i)[TEXTURE2_UNIFORM] =
-                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Texture2_uniform");
-            //Rotate matrix
-            getUniformLocations(i)[ROTATE_MATRIX_UNIFORM] =
-                    mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),
-                    "RotateMatrix_uniform");
+                "Buffersize_uniform");
+        //Texture 2 uniform
+        getUniformLocations(i)[TEXTURE2_UNIFORM] =
+            mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),"Texture2_uniform");
+        //Rotate matrix
+        getUniformLocations(i)[ROTATE_MATRIX_UNIFORM] =
+                mGraphicHandler.getUniformLocation(getProgramNameByIndex(i),
+                "RotateMatrix_uniform");
 
-        }
         int result = mGraphicHandler.checkError();
         if (result != ConstantValues.NO_ERROR){
             throw new OpenGLENException(COULD_NOT_GET_UNIFORM, result);
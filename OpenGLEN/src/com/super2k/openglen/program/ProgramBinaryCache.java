@@ -0,0 +1,252 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.program;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.super2k.openglen.RendererInfo;
+import com.super2k.openglen.utils.Log;
+
+/**
+ * On disk cache of linked program binaries, binaries are stored in one file for each program
+ * in a directory.
+ * The key of a program is a hash of the shader sources, the attribute names, and the
+ * vendor, renderer and version of the GL driver. A new driver will not find old binaries.
+ * Errors reading or writing the cache are logged and treated as a miss, the program is then
+ * compiled from source.
+ * @author Richard Sahlin
+ *
+ */
+public class ProgramBinaryCache {
+
+    private final static String TAG = ProgramBinaryCache.class.getSimpleName();
+
+    protected final static String FILE_SUFFIX = ".bin";
+    protected final static String TEMP_SUFFIX = ".tmp";
+    /**
+     * Size of the header, version, format and binary length.
+     */
+    protected final static int HEADER_SIZE = 12;
+    protected final static int FILE_VERSION = 1;
+    protected final static char[] HEX = "0123456789abcdef".toCharArray();
+
+    protected final File mDirectory;
+    protected String mDriver = "";
+
+    protected int mHits;
+    protected int mMisses;
+
+    /**
+     * Creates a new cache storing binaries in the directory, the directory is created if
+     * it does not exist.
+     * @param directory Directory to store binaries in.
+     * @throws IllegalArgumentException If directory is null or not a directory.
+     */
+    public ProgramBinaryCache(File directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory is null");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        mDirectory = directory;
+    }
+
+    /**
+     * Sets the renderer info of the current GL driver, this is included in the key
+     * of programs.
+     * @param info The renderer info.
+     */
+    public void setRendererInfo(RendererInfo info) {
+        mDriver = info.getVendor() + "\n" + info.getRenderer() + "\n" + info.getVersion();
+    }
+
+    /**
+     * Returns the key for a program.
+     * @param vertexSource The vertex shader source.
+     * @param fragmentSource The fragment shader source.
+     * @param bindAttribNames Names of attributes bound to the program, or null.
+     * @return Key of the program.
+     */
+    public String getKey(String vertexSource, String fragmentSource, String[] bindAttribNames) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            update(digest, mDriver);
+            update(digest, vertexSource);
+            update(digest, fragmentSource);
+            if (bindAttribNames != null) {
+                for (int i = 0; i < bindAttribNames.length; i++) {
+                    update(digest, bindAttribNames[i]);
+                }
+            }
+            byte[] hash = digest.digest();
+            char[] key = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                key[i * 2] = HEX[(hash[i] >> 4) & 0x0f];
+                key[i * 2 + 1] = HEX[hash[i] & 0x0f];
+            }
+            return new String(key);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a string, followed by a separator, to the digest.
+     * @param digest
+     * @param value
+     * @throws UnsupportedEncodingException
+     */
+    protected void update(MessageDigest digest, String value)
+            throws UnsupportedEncodingException {
+        digest.update(value.getBytes("UTF-8"));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Loads a program binary from the cache.
+     * A file that is truncated, has another version or an invalid length is removed and
+     * treated as a miss.
+     * @param key Key of the program, from getKey()
+     * @param format The binary format is stored here, at index 0.
+     * @return The binary, or null if not found.
+     */
+    public byte[] load(String key, int[] format) {
+        File file = new File(mDirectory, key + FILE_SUFFIX);
+        if (!file.isFile()) {
+            mMisses++;
+            return null;
+        }
+        DataInputStream in = null;
+        boolean corrupt = true;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            if (in.readInt() != FILE_VERSION) {
+                throw new IOException("Invalid file version");
+            }
+            format[0] = in.readInt();
+            int length = in.readInt();
+            if (length < 0 || length > file.length() - HEADER_SIZE) {
+                throw new IOException("Invalid binary length: " + length);
+            }
+            byte[] binary = new byte[length];
+            in.readFully(binary);
+            corrupt = false;
+            mHits++;
+            return binary;
+        } catch (IOException e) {
+            Log.d(TAG, "Could not read program binary: " + e.toString());
+        } catch (OutOfMemoryError e) {
+            Log.d(TAG, "Could not read program binary: " + e.toString());
+        } finally {
+            close(in);
+            if (corrupt) {
+                //Remove so that the program is stored again when compiled from source.
+                file.delete();
+            }
+        }
+        mMisses++;
+        return null;
+    }
+
+    /**
+     * Stores a program binary in the cache.
+     * The binary is written to a temporary file that is renamed when complete, a partially
+     * written file is never found by load().
+     * @param key Key of the program, from getKey()
+     * @param format The binary format.
+     * @param binary The program binary.
+     * @return True if the binary was stored.
+     */
+    public boolean store(String key, int format, byte[] binary) {
+        File file = new File(mDirectory, key + FILE_SUFFIX);
+        File temp = new File(mDirectory, key + TEMP_SUFFIX);
+        DataOutputStream out = null;
+        boolean stored = false;
+        try {
+            out = new DataOutputStream(new FileOutputStream(temp));
+            out.writeInt(FILE_VERSION);
+            out.writeInt(format);
+            out.writeInt(binary.length);
+            out.write(binary);
+            out.close();
+            out = null;
+            //Rename does not replace an existing file on all platforms.
+            file.delete();
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp + " to " + file);
+            }
+            stored = true;
+        } catch (IOException e) {
+            Log.d(TAG, "Could not write program binary: " + e.toString());
+        } finally {
+            close(out);
+            if (!stored) {
+                temp.delete();
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Removes a program binary from the cache, this shall be done if the binary could
+     * not be loaded by the driver.
+     * @param key Key of the program.
+     */
+    public void remove(String key) {
+        new File(mDirectory, key + FILE_SUFFIX).delete();
+    }
+
+    /**
+     * Returns the number of programs loaded from the cache.
+     * @return Number of cache hits.
+     */
+    public int getHits() {
+        return mHits;
+    }
+
+    /**
+     * Returns the number of programs not found in the cache.
+     * @return Number of cache misses.
+     */
+    public int getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * Closes a stream, errors are ignored.
+     * @param stream Stream to close, may be null.
+     */
+    protected void close(Closeable stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                //Cant do anything.
+                Log.d(TAG, e.toString());
+            }
+        }
+    }
+
+}
@@ -14,10 +14,13 @@ package com.super2k.openglen.program;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Hashtable;
 import java.util.Vector;
 
 import com.super2k.openglen.ConstantValues;
 import com.super2k.openglen.OpenGLENException;
+import com.super2k.openglen.geometry.VertexFormat;
 import com.super2k.openglen.nibbler.InputStreamResolver;
 import com.super2k.openglen.utils.GraphicsLibraryHandler;
 import com.super2k.openglen.utils.Log;
@@ -43,17 +46,35 @@ public abstract class ProgramCollection {
     protected final static String SHADER_NAMES_NULL = "Shader names is NULL";
     protected final static String COULD_NOT_GET_UNIFORM = "Could not get uniform location for program:";
     protected final static String INVALID_PROGRAM_INDEX = "Invalid program index:";
+    protected final static String PROGRAM_FAILED = "Program failed to load, index:";
     protected final static String PARAMETER_NULL_STR = "Parameter is null";
 
     protected String[][] mVertexShaderNames = null;
     protected String[][] mFragmentShaderNames = null;
     protected int[] mEnableBlitArrays; //Attribute arrays to use
 
+    /**
+     * Vertex format of the attribute arrays used by the programs.
+     */
+    protected VertexFormat mVertexFormat;
+
+    /**
+     * Vertex formats for objects that use a subset of the attribute arrays, by enable mask.
+     */
+    protected Hashtable<Integer, VertexFormat> mVertexFormats =
+            new Hashtable<Integer, VertexFormat>();
+
     /**
      * String array with attribs to bind.
      */
     protected String[] mBindAttribNames = null;
 
+    /**
+     * Defines for each program, first array is for each program, may be null.
+     */
+    protected String[][] mVertexDefines;
+    protected String[][] mFragmentDefines;
+
 
 
 
@@ -69,6 +90,11 @@ public abstract class ProgramCollection {
      */
     protected ProgramHandler    mProgramHandler;
 
+    /**
+     * Preprocessor used to read shader sources.
+     */
+    protected ShaderPreprocessor mPreprocessor;
+
     /**
      * Handler to underlying graphics implementation (normally GL)
      */
@@ -110,6 +136,49 @@ public abstract class ProgramCollection {
      */
     protected boolean mDebugOutput = DEFAULT_DEBUG_OUTPUT;
 
+    /**
+     * Cache of program binaries, or null to always compile from source.
+     */
+    protected ProgramBinaryCache mBinaryCache;
+
+    /**
+     * Compiled shaders by source, shaders with the same source are compiled once and
+     * attached to all programs using the source. Shaders are detached when the program is
+     * linked and deleted when all programs are loaded, see deleteShaders()
+     */
+    protected Hashtable<String, Integer> mCompiledShaders = new Hashtable<String, Integer>();
+
+    /**
+     * If true programs are loaded the first time they are used, see getProgram()
+     */
+    protected boolean mLazyLoading = false;
+
+    /**
+     * Indexes of programs to load when loadPrograms() is called and lazy loading is enabled,
+     * may be null.
+     */
+    protected int[] mWarmupPrograms;
+
+    /**
+     * True for each program that is loaded and linked.
+     * Written on the thread owning the GL context, synchronized on mVertexSources.
+     */
+    protected boolean[] mLoaded;
+
+    /**
+     * True for each program that could not be loaded, compiled or linked, these are not
+     * loaded again. Written on the thread owning the GL context, synchronized on
+     * mVertexSources.
+     */
+    protected boolean[] mFailed;
+
+    /**
+     * Shader sources read by the prefetch thread, one for each program.
+     * Access must be synchronized on the array.
+     */
+    protected String[] mVertexSources;
+    protected String[] mFragmentSources;
+
     /**
      * Creates a new program collection with the specified ProgramHandler
      * and GraphcisLibraryHandler.
@@ -126,7 +195,7 @@ public abstract class ProgramCollection {
         }
         mProgramHandler = programHandler;
         mGraphicHandler = graphicHandler;
-
+        mPreprocessor = new ShaderPreprocessor(programHandler);
 
     }
 
@@ -161,11 +230,16 @@ public abstract class ProgramCollection {
         mProgramCount = programCount;  //Number of programs.
         mBindAttribNames = bindAttribNames;
         mEnableBlitArrays = enableAttribArrays;
+        mVertexFormat = new VertexFormat(enableAttribArrays);
 
         mPrograms = new int[programCount];
         mVertexShaders = new Vector<int[]>();
         mFragmentShaders = new Vector<int[]>();
         mUniformLocations = new int[programCount][uniformCount];
+        mLoaded = new boolean[programCount];
+        mFailed = new boolean[programCount];
+        mVertexSources = new String[programCount];
+        mFragmentSources = new String[programCount];
 
     }
 
@@ -216,6 +290,86 @@ public abstract class ProgramCollection {
         return mEnableBlitArrays;
     }
 
+    /**
+     * Returns the vertex format of the attribute arrays used by the programs.
+     * @return The vertex format.
+     */
+    public VertexFormat getVertexFormat() {
+        return mVertexFormat;
+    }
+
+    /**
+     * Returns the vertex format enabling the attribute arrays in the mask, use this for
+     * objects that do not store all attributes used by the programs. Attributes that are
+     * not enabled will read the current generic attribute value.
+     * The same format is returned for the same mask.
+     * @param enableMask Mask of attribute arrays to enable, bit n for attribute index n.
+     * @return The vertex format.
+     */
+    public VertexFormat getVertexFormat(int enableMask) {
+        if (enableMask == mVertexFormat.getEnableMask()) {
+            return mVertexFormat;
+        }
+        Integer key = Integer.valueOf(enableMask);
+        VertexFormat format = mVertexFormats.get(key);
+        if (format == null) {
+            int[] attributes = new int[Integer.bitCount(enableMask)];
+            int count = 0;
+            for (int i = 0; i < VertexFormat.MAX_ATTRIBUTES; i++) {
+                if ((enableMask & (1 << i)) != 0) {
+                    attributes[count++] = i;
+                }
+            }
+            format = new VertexFormat(attributes);
+            mVertexFormats.put(key, format);
+        }
+        return format;
+    }
+
+    /**
+     * Deletes the vertex array objects created for the vertex formats of this collection,
+     * the GL context must be current. Call this when the renderer is destroyed.
+     */
+    public void deleteVertexArrays() {
+        clearVertexArrays(true);
+    }
+
+    /**
+     * Clears the vertex array object names of the vertex formats without deleting them,
+     * call this when a new GL context is used since the names are not valid in the
+     * new context. Vertex array objects are created again when the formats are used.
+     */
+    public void resetVertexArrays() {
+        clearVertexArrays(false);
+    }
+
+    /**
+     * Clears the vertex array object names of the vertex formats, internal method.
+     * @param delete True to delete the vertex array objects.
+     */
+    protected void clearVertexArrays(boolean delete) {
+        if (mVertexFormat != null) {
+            clearVertexArray(mVertexFormat, delete);
+        }
+        Enumeration<VertexFormat> formats = mVertexFormats.elements();
+        while (formats.hasMoreElements()) {
+            clearVertexArray(formats.nextElement(), delete);
+        }
+    }
+
+    /**
+     * Clears the vertex array object name of a vertex format, internal method.
+     * @param format
+     * @param delete True to delete the vertex array object.
+     */
+    private void clearVertexArray(VertexFormat format, boolean delete) {
+        int array = format.getVertexArray();
+        if (array != 0 && delete) {
+            mGraphicHandler.deleteVertexArrays(1, new int[] {array}, 0);
+        }
+        format.setVertexArray(0);
+    }
+
     /**
      * Return the array containing vertex shader (names),
      * vertex shader names shall be setup by client.
@@ -250,14 +404,21 @@ public abstract class ProgramCollection {
      * This method MUST be implemented correctly by subclasses
      * to load and compile the programs that are needed by the renderer.
      * This has a tight connection to the Render implementation.
+     * If lazy loading is enabled only the warmup programs are loaded, other programs are
+     * loaded when fetched using getProgram().
+     * Uniform locations are set for each loaded program.
      * @throws IOEXception If there is an ioerror reading shader sources.
      * @throws OpenGLENException If there is an error compiling/linking sources.
      */
     public void loadPrograms() throws IOException, OpenGLENException{
-        for (int i = 0; i < mProgramCount; i++)  {
-            setProgramName(i, mProgramHandler.createProgram());
+        if (!mLazyLoading) {
+            loadPrograms(mVertexShaderNames, mFragmentShaderNames, mBindAttribNames);
+        } else if (mWarmupPrograms != null) {
+            for (int i = 0; i < mWarmupPrograms.length; i++) {
+                loadProgram(mWarmupPrograms[i], mVertexShaderNames, mFragmentShaderNames,
+                        mBindAttribNames);
+            }
         }
-        loadPrograms(mVertexShaderNames, mFragmentShaderNames, mBindAttribNames);
     }
 
     /**
@@ -278,52 +439,411 @@ public abstract class ProgramCollection {
 
         int len = vertexShaderNames.length;
         for (int i = 0; i < len; i++)       {
-            InputStream[] vin = null;
-            InputStream[] fin = null;
-            //Compile and attach shaders
-            try {
+            loadProgram(i, vertexShaderNames, fragmentShaderNames, bindAttribNames);
+        }
 
-                vin = openVertexShaderSource(getProgramNameByIndex(i),
-                        i, vertexShaderNames);
-                if (vin == null){
-                    //Could not load shader sources!
-                    throw new IOException("Could not load vertexshaders for program index " + i);
-                }
-                int vshader = mProgramHandler.compileAndAttachShader(getProgramNameByIndex(i), -1,
-                        ConstantValues.VERTEX_SHADER, vin, mGraphicHandler);
-
-                fin = openFragmentShaderSource(getProgramNameByIndex(i), i,
-                        fragmentShaderNames);
-                if (fin == null){
-                    //Could not load shader sources!
-                    throw new IOException("Could not load fragmentshaders for program index " + i);
+    }
+
+    /**
+     * Loads, compiles and links one program and sets the uniform locations, internal method.
+     * If the program is already loaded nothing is done.
+     * If program binaries are supported and a cache is set the program is loaded from the
+     * cache if possible.
+     * If the program cannot be loaded the program and shaders compiled for it are deleted,
+     * the failure is recorded and the program is not loaded again.
+     * @param index Index of the program to load.
+     * @param vertexShaderNames Arrays containing the vertex shader names for each program.
+     * @param fragmentShaderNames Arrays containing the fragment shader names for each program.
+     * @param bindAttribNames Array containing attribute names to bind.
+     * @throws IOEXception If there is an ioerror reading shader sources.
+     * @throws OpenGLENException If there is an error compiling/linking sources.
+     * @throws IllegalArgumentException If the program has failed to load before.
+     */
+    protected void loadProgram(int index, String[][] vertexShaderNames,
+            String[][] fragmentShaderNames, String[] bindAttribNames)
+            throws IOException, OpenGLENException {
+        if (mLoaded[index]) {
+            return;
+        }
+        if (mFailed[index]) {
+            throw new IllegalArgumentException(PROGRAM_FAILED + index);
+        }
+        boolean loaded = false;
+        String vertexKey = null;
+        String fragmentKey = null;
+        try {
+            String vsource;
+            String fsource;
+            synchronized (mVertexSources) {
+                vsource = mVertexSources[index];
+                fsource = mFragmentSources[index];
+                mVertexSources[index] = null;
+                mFragmentSources[index] = null;
+            }
+            if (vsource == null || fsource == null) {
+                vsource = readVertexShaderSource(index, vertexShaderNames);
+                fsource = readFragmentShaderSource(index, fragmentShaderNames);
+            }
+            //Shaders that are not already compiled are deleted if the program fails.
+            vertexKey = getShaderKey(ConstantValues.VERTEX_SHADER, vsource);
+            if (mCompiledShaders.containsKey(vertexKey)) {
+                vertexKey = null;
+            }
+            fragmentKey = getShaderKey(ConstantValues.FRAGMENT_SHADER, fsource);
+            if (mCompiledShaders.containsKey(fragmentKey)) {
+                fragmentKey = null;
+            }
+            setProgramName(index, mProgramHandler.createProgram());
+            loadProgram(index, vsource, fsource, bindAttribNames);
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                deleteFailedProgram(index, vertexKey, fragmentKey);
+            }
+        }
+        synchronized (mVertexSources) {
+            mLoaded[index] = true;
+        }
+        deleteShadersIfDone();
+    }
+
+    /**
+     * Compiles, or loads from the binary cache, and links one program and sets the uniform
+     * locations, internal method.
+     * The program name must be created.
+     * @param index Index of the program to load.
+     * @param vsource The vertex shader source.
+     * @param fsource The fragment shader source.
+     * @param bindAttribNames Array containing attribute names to bind.
+     * @throws OpenGLENException If there is an error compiling/linking sources.
+     */
+    protected void loadProgram(int index, String vsource, String fsource,
+            String[] bindAttribNames) throws OpenGLENException {
+        int program = getProgramNameByIndex(index);
+        boolean useBinary = mBinaryCache != null && mProgramHandler.isProgramBinarySupported();
+        boolean linked = false;
+        String key = null;
+        int[] format = new int[1];
+        if (useBinary) {
+            key = mBinaryCache.getKey(vsource, fsource, bindAttribNames);
+            byte[] binary = mBinaryCache.load(key, format);
+            if (binary != null) {
+                linked = mProgramHandler.programBinary(program, format[0], binary);
+                if (!linked) {
+                    //Binary not accepted by driver, compile from source.
+                    Log.d(TAG, "Could not load program binary for program index " + index);
+                    mBinaryCache.remove(key);
                 }
-                int fshader = mProgramHandler.compileAndAttachShader(getProgramNameByIndex(i), -1,
-                        ConstantValues.FRAGMENT_SHADER, fin, mGraphicHandler);
+            }
+        }
+        if (!linked) {
+            //Compile and attach shaders
+            int vertexShader = attachShader(program, ConstantValues.VERTEX_SHADER, vsource);
+            int fragmentShader = attachShader(program, ConstantValues.FRAGMENT_SHADER, fsource);
 
-                //Shaders compiled and attached ok, bind attributes.
-                //Bind attribs:
-                int program = getProgramNameByIndex(i);
-                bindAttributes(program, bindAttribNames);
+            //Shaders compiled and attached ok, bind attributes.
+            //Bind attribs:
+            bindAttributes(program, bindAttribNames);
 
-                mProgramHandler.linkProgram(program);
-                int error = mGraphicHandler.checkError();
+            if (useBinary) {
+                mProgramHandler.setBinaryRetrievableHint(program);
+            }
+            mProgramHandler.linkProgram(program);
+            int error = mGraphicHandler.checkError();
 
-                if (error != ConstantValues.NO_ERROR ||
-                        mProgramHandler.getProgramParam(program, ConstantValues.LINK_STATUS) !=
-                        ConstantValues.TRUE) {
+            if (error != ConstantValues.NO_ERROR ||
+                    mProgramHandler.getProgramParam(program, ConstantValues.LINK_STATUS) !=
+                    ConstantValues.TRUE) {
 
-                    mProgramHandler.logProgramInfo(program);
-                    throw new IllegalArgumentException("Error linking program " + program);
+                mProgramHandler.logProgramInfo(program);
+                throw new IllegalArgumentException("Error linking program " + program);
 
+            }
+            //The linked program does not need the shaders.
+            mProgramHandler.detachShader(program, vertexShader, false);
+            mProgramHandler.detachShader(program, fragmentShader, false);
+            if (useBinary) {
+                byte[] binary = mProgramHandler.getProgramBinary(program, format);
+                if (binary != null) {
+                    mBinaryCache.store(key, format[0], binary);
                 }
             }
-            finally {
-                closeInputStream(vin);
-                closeInputStream(fin);
+        }
+        setUniformLocations(index);
+    }
+
+    /**
+     * Deletes a program that could not be loaded and the shaders compiled for it, and
+     * records the failure, internal method.
+     * @param index Index of the program.
+     * @param vertexKey Key of the vertex shader compiled for the program, or null.
+     * @param fragmentKey Key of the fragment shader compiled for the program, or null.
+     */
+    protected void deleteFailedProgram(int index, String vertexKey, String fragmentKey) {
+        Log.d(TAG, PROGRAM_FAILED + index);
+        if (mPrograms[index] > 0) {
+            mProgramHandler.deleteProgram(mPrograms[index]);
+            mPrograms[index] = 0;
+        }
+        deleteShader(vertexKey);
+        deleteShader(fragmentKey);
+        synchronized (mVertexSources) {
+            mFailed[index] = true;
+        }
+        deleteShadersIfDone();
+    }
+
+    /**
+     * Removes the compiled shader with the key from the shader cache and deletes it.
+     * @param key The shader key, as returned by getShaderKey(), or null.
+     */
+    protected void deleteShader(String key) {
+        if (key == null) {
+            return;
+        }
+        Integer shader = mCompiledShaders.remove(key);
+        if (shader != null) {
+            mProgramHandler.deleteShader(shader.intValue());
+        }
+    }
+
+    /**
+     * Deletes the compiled shaders if all programs are loaded or have failed, internal method.
+     */
+    protected void deleteShadersIfDone() {
+        for (int i = 0; i < mProgramCount; i++) {
+            if (!mLoaded[i] && !mFailed[i]) {
+                return;
             }
         }
+        //All programs loaded, compiled shaders are not needed.
+        deleteShaders();
+    }
+
+    /**
+     * Deletes the compiled shaders, this is done when all programs are loaded.
+     * Call this to release the shaders if lazy loading is used and not all programs will
+     * be loaded, programs loaded after this call compile the shaders again.
+     * Must be called on the thread owning the GL context.
+     */
+    public void deleteShaders() {
+        Enumeration<Integer> shaders = mCompiledShaders.elements();
+        while (shaders.hasMoreElements()) {
+            mProgramHandler.deleteShader(shaders.nextElement().intValue());
+        }
+        mCompiledShaders.clear();
+    }
+
+    /**
+     * Reads the vertex shader source for a program using the preprocessor, internal method.
+     * @param index Index of the program.
+     * @param vertexShaderNames Arrays containing the vertex shader names for each program.
+     * @return The vertex shader source.
+     * @throws IOException If the source could not be read.
+     */
+    protected String readVertexShaderSource(int index, String[][] vertexShaderNames)
+            throws IOException {
+        return mPreprocessor.getSource(ConstantValues.VERTEX_SHADER, vertexShaderNames[index],
+                mVertexDefines != null ? mVertexDefines[index] : null);
+    }
+
+    /**
+     * Reads the fragment shader source for a program using the preprocessor, internal method.
+     * @param index Index of the program.
+     * @param fragmentShaderNames Arrays containing the fragment shader names for each program.
+     * @return The fragment shader source.
+     * @throws IOException If the source could not be read.
+     */
+    protected String readFragmentShaderSource(int index, String[][] fragmentShaderNames)
+            throws IOException {
+        return mPreprocessor.getSource(ConstantValues.FRAGMENT_SHADER,
+                fragmentShaderNames[index],
+                mFragmentDefines != null ? mFragmentDefines[index] : null);
+    }
+
+    /**
+     * Sets the defines used when reading the shader sources, this is used to create
+     * variants of programs from the same sources.
+     * Shall be called before loadPrograms()
+     * @param vertexDefines Defines for the vertex shaders, one array for each program,
+     * or null. Stores a reference, values are not copied.
+     * @param fragmentDefines Defines for the fragment shaders, one array for each program,
+     * or null. Stores a reference, values are not copied.
+     * @see ShaderPreprocessor#getSource(int, String[], String[])
+     */
+    public void setDefines(String[][] vertexDefines, String[][] fragmentDefines) {
+        mVertexDefines = vertexDefines;
+        mFragmentDefines = fragmentDefines;
+    }
+
+    /**
+     * Sets the preprocessor used to read shader sources, collections can share the
+     * same preprocessor so that files and sources are only read once.
+     * @param preprocessor The preprocessor.
+     * @throws IllegalArgumentException If preprocessor is null.
+     */
+    public void setShaderPreprocessor(ShaderPreprocessor preprocessor) {
+        if (preprocessor == null) {
+            throw new IllegalArgumentException(PARAMETER_NULL_STR);
+        }
+        mPreprocessor = preprocessor;
+    }
 
+    /**
+     * Returns the preprocessor used to read shader sources.
+     * @return The shader preprocessor.
+     */
+    public ShaderPreprocessor getShaderPreprocessor() {
+        return mPreprocessor;
+    }
+
+    /**
+     * Returns the GL name of the program at the index, if lazy loading is enabled and the
+     * program is not loaded it is loaded, compiled and linked.
+     * Must be called on the thread owning the GL context.
+     * @param programIndex Index of the program.
+     * @return Program name (ID)
+     * @throws IllegalArgumentException If programIndex is invalid or the program could not
+     * be loaded.
+     */
+    public int getProgram(int programIndex) {
+        if (programIndex < 0 || programIndex >= mPrograms.length) {
+            throw new IllegalArgumentException(INVALID_PROGRAM_INDEX + programIndex);
+        }
+        //Flags are only written on this thread, no need to synchronize the read.
+        if (!mLoaded[programIndex]) {
+            try {
+                loadProgram(programIndex, mVertexShaderNames, mFragmentShaderNames,
+                        mBindAttribNames);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            } catch (OpenGLENException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        return mPrograms[programIndex];
+    }
+
+    /**
+     * Returns true if the program at the index is loaded and linked.
+     * @param programIndex Index of the program.
+     * @return True if the program is loaded.
+     */
+    public boolean isLoaded(int programIndex) {
+        synchronized (mVertexSources) {
+            return mLoaded[programIndex];
+        }
+    }
+
+    /**
+     * Returns true if the program at the index could not be loaded, compiled or linked.
+     * Failed programs are not loaded again.
+     * @param programIndex Index of the program.
+     * @return True if the program failed to load.
+     */
+    public boolean isFailed(int programIndex) {
+        synchronized (mVertexSources) {
+            return mFailed[programIndex];
+        }
+    }
+
+    /**
+     * Enables or disables lazy loading of programs, when enabled only the warmup programs
+     * are loaded by loadPrograms(), other programs are loaded the first time they are
+     * fetched by getProgram().
+     * Shall be called before loadPrograms()
+     * @param lazy True to load programs on first use.
+     * @param warmup Indexes of programs to load in loadPrograms(), or null.
+     * Stores a reference, values are not copied.
+     */
+    public void setLazyLoading(boolean lazy, int[] warmup) {
+        mLazyLoading = lazy;
+        mWarmupPrograms = warmup;
+    }
+
+    /**
+     * Starts a background thread that reads the shader sources of programs that are not
+     * loaded, the sources are used when the program is loaded.
+     * This is a hint, compiling and linking must be done on the thread owning the GL context
+     * and is still done on first use. Errors are logged and sources are then read when the
+     * program is loaded.
+     */
+    public void prefetchSources() {
+        Thread prefetch = new Thread(TAG + "-prefetch") {
+            @Override
+            public void run() {
+                for (int i = 0; i < mProgramCount; i++) {
+                    synchronized (mVertexSources) {
+                        if (mLoaded[i] || mFailed[i]) {
+                            continue;
+                        }
+                    }
+                    try {
+                        String vsource = readVertexShaderSource(i, mVertexShaderNames);
+                        String fsource = readFragmentShaderSource(i, mFragmentShaderNames);
+                        synchronized (mVertexSources) {
+                            if (!mLoaded[i] && !mFailed[i]) {
+                                mVertexSources[i] = vsource;
+                                mFragmentSources[i] = fsource;
+                            }
+                        }
+                    } catch (IOException e) {
+                        Log.d(TAG, "Could not prefetch program index " + i + ": " +
+                                e.toString());
+                        return;
+                    }
+                }
+            }
+        };
+        prefetch.setDaemon(true);
+        prefetch.setPriority(Thread.MIN_PRIORITY);
+        prefetch.start();
+    }
+
+    /**
+     * Attaches a shader with the source to the program, if a shader with the same source
+     * has already been compiled it is attached, otherwise the source is compiled.
+     * @param program The program to attach the shader to.
+     * @param type Type of shader, ConstantValues.VERTEX_SHADER or
+     * ConstantValues.FRAGMENT_SHADER
+     * @param source The shader source.
+     * @return Name of the attached shader.
+     * @throws OpenGLENException If there is an error compiling or attaching the shader.
+     */
+    protected int attachShader(int program, int type, String source)
+            throws OpenGLENException {
+        String key = getShaderKey(type, source);
+        Integer shader = mCompiledShaders.get(key);
+        if (shader != null) {
+            mProgramHandler.attachShader(program, shader.intValue());
+            return shader.intValue();
+        }
+        int name = mProgramHandler.compileAndAttachShader(program, -1, type, source,
+                mGraphicHandler);
+        mCompiledShaders.put(key, Integer.valueOf(name));
+        return name;
+    }
+
+    /**
+     * Returns the key of a shader in the compiled shader cache.
+     * @param type Type of shader, ConstantValues.VERTEX_SHADER or
+     * ConstantValues.FRAGMENT_SHADER
+     * @param source The shader source.
+     * @return The key of the shader.
+     */
+    protected String getShaderKey(int type, String source) {
+        return type + source;
+    }
+
+    /**
+     * Sets the cache used for program binaries, if the program handler supports program
+     * binaries the programs are loaded from the cache, and stored in the cache when
+     * compiled from source.
+     * Shall be called before loadPrograms(), the renderer info of the cache must be set.
+     * @param cache The cache, or null to always compile programs from source.
+     */
+    public void setProgramBinaryCache(ProgramBinaryCache cache) {
+        mBinaryCache = cache;
     }
 
     /**
@@ -344,16 +864,34 @@ public abstract class ProgramCollection {
         }
     }
     /**
-     * Sets uniform locations that are needed to run the shaders, this method
-     * shall be called after loading and compiling of programs.
+     * Sets uniform locations that are needed to run the shaders, for all loaded programs.
+     * Uniform locations are set when a program is loaded, this method only needs to be
+     * called if programs are re-linked.
+     * @throws OpenGLENException If there is an error getting a uniform location.
+     * Note that this exception is NOT thrown if a uniform name cannot be found.
+     * If the exception is thrown it means a parameter was invalid (to GL) or that
+     * a program have not been linked.
+     */
+    public void setUniformLocations() throws OpenGLENException {
+        for (int i = 0; i < mProgramCount; i++) {
+            if (mLoaded[i]) {
+                setUniformLocations(i);
+            }
+        }
+    }
+
+    /**
+     * Sets uniform locations that are needed to run the shaders for one program, this method
+     * is called after the program is compiled and linked.
      * Subclasses shall implement this method to get the uniform locations that are
      * needed and store them for faster retrieval when rendering.
+     * @param programIndex Index of the program to set uniform locations for.
      * @throws OpenGLENException If there is an error getting a uniform location.
      * Note that this exception is NOT thrown if a uniform name cannot be found.
      * If the exception is thrown it means a parameter was invalid (to GL) or that
      * a program have not been linked.
      */
-    public abstract void setUniformLocations() throws OpenGLENException;
+    public abstract void setUniformLocations(int programIndex) throws OpenGLENException;
 
     /**
      * Bind the attributes for the specified program.
@@ -413,6 +951,7 @@ public abstract class ProgramCollection {
      */
     public void setInputStreamResolver(InputStreamResolver resolver) {
         mInputResolver = resolver;
+        mPreprocessor.setInputStreamResolver(resolver);
     }
 
     /**
@@ -18,10 +18,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.StringTokenizer;
 
 import com.super2k.openglen.ConstantValues;
 import com.super2k.openglen.OpenGLENException;
+import com.super2k.openglen.geometry.VertexFormat;
+import com.super2k.openglen.utils.GLStateCache;
 import com.super2k.openglen.utils.GraphicsLibraryHandler;
 import com.super2k.openglen.utils.Log;
 
@@ -50,6 +54,8 @@ public abstract class ProgramHandler {
     protected final static String GRAPHICS_LIBRARY_NULL_STR = "GraphicsLibraryHandler is NULL";
     protected final static String INVALID_PROGRAM_STR = "Could not use program, invalid program (program/error):";
     protected final static String INVALID_UNIFORM_STR = "Could not set uniform, invalid value";
+    protected final static String INVALID_FORMAT_STR = "Vertex format has no layout";
+    protected final static String INVALID_ATTRIB_STR = "Invalid value for attribute:";
 
     private final static int MATRIX_SIZE = 16;
     /**
@@ -57,11 +63,24 @@ public abstract class ProgramHandler {
      */
     protected GraphicsLibraryHandler mGraphicsLibrary;
 
+    /**
+     * Cache of GL state, from the graphics library handler. Used to drop calls to use the
+     * current program and to enable vertex attrib arrays that are already enabled.
+     */
+    protected GLStateCache mStateCache;
+
     /**
      * Controls if shader sources and extra info is output.
      */
     protected boolean mDebugOutput = false;
 
+    /**
+     * If true errors are checked after each call to use program and set uniforms, if false
+     * platform implementations shall not call glGetError in these methods.
+     * Compiling and linking is always checked.
+     */
+    protected boolean mCheckErrors = true;
+
     /**
      * Constructs a new ProgramHandler with the specified GraphicsLibraryHandler.
      * @param graphicsLibrary The GraphicsLibraryHandler to be used.
@@ -72,6 +91,7 @@ public abstract class ProgramHandler {
             throw new IllegalArgumentException(GRAPHICS_LIBRARY_NULL_STR);
         }
         mGraphicsLibrary = graphicsLibrary;
+        mStateCache = graphicsLibrary.getStateCache();
     }
 
     /**
@@ -93,11 +113,22 @@ public abstract class ProgramHandler {
      */
     public int compileAndAttachShader(int programName, int shaderName, int type, InputStream[] in,
             GraphicsLibraryHandler graphicsHandler) throws OpenGLENException, IOException {
+        return compileAndAttachShader(programName, shaderName, type, readShaderSource(type, in),
+                graphicsHandler);
+    }
 
-        if (shaderName == -1) {
-            shaderName = createShader(type);
-        }
-
+    /**
+     * Reads the source of a shader from an array of InputStream, all shader sources are
+     * combined into one source. The source is read using getShaderSource() so platform
+     * specific changes are included.
+     * The InputStream is left as is, caller shall close it when it is not needed anymore.
+     * @param type Type of shader. Currently ConstantValues.GL_VERTEX_SHADER or
+     * ConstantValues.GL_FRAGMENT_SHADER
+     * @param in The shader sources.
+     * @return The combined shader source.
+     * @throws IOException If there is an IO error reading the shader source.
+     */
+    public String readShaderSource(int type, InputStream[] in) throws IOException {
         /**
          * Combine sources into one.
          */
@@ -120,12 +151,36 @@ public abstract class ProgramHandler {
             mainFile = false;
             shaderReader.close();
         }
+        return shaderSource.toString();
+    }
+
+    /**
+     * Compiles a shader of the specified type using the source and attaches it to
+     * the specified program.
+     * If shaderName is -1 then a new name is allocated.
+     * The caller should delete the shader name when it is not needed anymore.
+     * @param programName The program to attach the shader to.
+     * @param type Type of shader. Currently ConstantValues.GL_VERTEX_SHADER or
+     * ConstantValues.GL_FRAGMENT_SHADER
+     * @param shaderSource The shader source, as returned by readShaderSource()
+     * @param graphicsHandler The {@link GraphicsLibraryHandler} to use
+     * @return Name of the shader.
+     * @throws OpenGLENException If there is a problem compiling or attaching shader sources.
+     */
+    public int compileAndAttachShader(int programName, int shaderName, int type,
+            String shaderSource, GraphicsLibraryHandler graphicsHandler)
+            throws OpenGLENException {
+
+        if (shaderName == -1) {
+            shaderName = createShader(type);
+        }
+
         //Make sure no error
         while (graphicsHandler.checkError() != ConstantValues.NO_ERROR);
 
         int error = ConstantValues.NO_ERROR;
         try {
-            setShaderSource(shaderName, shaderSource.toString());
+            setShaderSource(shaderName, shaderSource);
             error = graphicsHandler.checkError();
             if (error != ConstantValues.NO_ERROR)
                 throw new IllegalArgumentException("Error setting shader source : " + error);
@@ -154,7 +209,7 @@ public abstract class ProgramHandler {
 
         }
         catch (Exception e) {
-            Log.d(TAG, shaderSource.toString());
+            Log.d(TAG, shaderSource);
             if (shaderName != 0)    {
                 logShaderInfo(shaderName);
                 //Delete the shader
@@ -167,6 +222,24 @@ public abstract class ProgramHandler {
     }
 
 
+    /**
+     * Enables or disables error checking when using programs and setting uniforms,
+     * calling glGetError may force the driver to synchronize so this is normally disabled
+     * when not debugging.
+     * @param checkErrors True to check errors after each call.
+     */
+    public void setCheckErrors(boolean checkErrors) {
+        mCheckErrors = checkErrors;
+    }
+
+    /**
+     * Returns true if errors are checked when using programs and setting uniforms.
+     * @return True if errors are checked after each call.
+     */
+    public boolean isCheckErrors() {
+        return mCheckErrors;
+    }
+
     /**
      * Creates a program and returns the program name.
      * This is to abstract the need of calling the underlying graphics library to create a program.
@@ -182,13 +255,17 @@ public abstract class ProgramHandler {
     }
 
     /**
-     * Use the specified program.
+     * Use the specified program, nothing is done if the program is already in use.
      * @param program The program to use, shall be a compiled and linked program.
      * @throws IllegalArgumentException If program is not valid.
      */
     public void useProgram(int program) {
+        if (!mStateCache.useProgram(program)) {
+            return;
+        }
         int result = internalUseProgram(program);
         if (result != ConstantValues.NO_ERROR) {
+            mStateCache.invalidate();
             throw new IllegalArgumentException(INVALID_PROGRAM_STR + program + "/" + result);
         }
     }
@@ -482,6 +559,7 @@ public abstract class ProgramHandler {
      * @param program
      */
     public void deleteProgram(int program) {
+        mStateCache.deleteProgram(program);
         int result = internalDeleteProgram(program);
         if (result == ConstantValues.NO_ERROR){
             return;
@@ -561,6 +639,51 @@ public abstract class ProgramHandler {
         }
     }
 
+    /**
+     * Checks if program binaries can be read and loaded, this is normally done using
+     * the GL_OES_get_program_binary extension.
+     * Default implementation returns false, platforms that support program binaries shall
+     * override this method together with getProgramBinary() and programBinary()
+     * @return True if program binaries are supported.
+     */
+    public boolean isProgramBinarySupported() {
+        return false;
+    }
+
+    /**
+     * Returns the binary of a linked program, the binary can be loaded into a program
+     * with programBinary() on the same platform and driver.
+     * @param program The linked program.
+     * @param format The binary format is stored here, at index 0.
+     * @return The program binary, or null if not supported or the binary could not be read.
+     */
+    public byte[] getProgramBinary(int program, int[] format) {
+        return null;
+    }
+
+    /**
+     * Tells the driver that the binary of the program will be read with getProgramBinary(),
+     * this must be called before the program is linked.
+     * Default implementation does nothing, platforms that need the hint to return a binary
+     * (GL_PROGRAM_BINARY_RETRIEVABLE_HINT) shall override this method.
+     * @param program The program that will be linked.
+     */
+    public void setBinaryRetrievableHint(int program) {
+    }
+
+    /**
+     * Loads a program binary, as returned by getProgramBinary(), into a program.
+     * If this method returns true the program is linked and ready to use, the program shall
+     * be compiled from source if false is returned.
+     * @param program The program to load the binary into.
+     * @param format The format of the binary.
+     * @param binary The program binary.
+     * @return True if the binary was loaded and the program is linked.
+     */
+    public boolean programBinary(int program, int format, byte[] binary) {
+        return false;
+    }
+
 
     /**
      * Attach the specified shader to a program.
@@ -605,13 +728,31 @@ public abstract class ProgramHandler {
      * ConstantValues.DELETE_STATUS If deletion failed.
      */
     public void detachShader(int program, int shader) throws OpenGLENException  {
+        detachShader(program, shader, true);
+    }
+
+    /**
+     * Detaches the shader object specified by shader from the program object specified
+     * by program, if checkDeleted is false the shader does not have to be flagged for deletion.
+     * Use this to detach a shader from a linked program when the shader is still used by
+     * other programs.
+     * @param program
+     * @param shader
+     * @param checkDeleted True to check that the shader is flagged for deletion, as is done
+     * by detachShader(int, int)
+     * @throws OpenGLENException If the shader could not be detached, or checkDeleted is true
+     * and the shader is not flagged for deletion.
+     */
+    public void detachShader(int program, int shader, boolean checkDeleted)
+            throws OpenGLENException {
         int result = internalDetachShader(program, shader);
         if (result != ConstantValues.NO_ERROR){
             throw new OpenGLENException(DETACH_SHADER_ERROR_STR + shader + "," + program +
                     ERROR_STR + result, result);
         }
         //Check status of LINK_PROGRAM flag.
-        if (getShaderParam(shader, ConstantValues.DELETE_STATUS) != ConstantValues.TRUE)    {
+        if (checkDeleted &&
+                getShaderParam(shader, ConstantValues.DELETE_STATUS) != ConstantValues.TRUE) {
             throw new OpenGLENException(DETACH_SHADER_ERROR_STR + shader + "," + program +
                     ERROR_STR + "LINK_STATUS=false");
         }
@@ -665,10 +806,139 @@ public abstract class ProgramHandler {
     public abstract void bindAttributeLocation(int program,int index, String name);
 
     /**
-     * Enable a vertex attribute array.
+     * Enable a vertex attribute array, nothing is done if the array is already enabled.
+     * @param index
+     */
+    public void enableVertexAttribArray(int index) {
+        if (mStateCache.setVertexAttribArray(index, true)) {
+            internalEnableVertexAttribArray(index);
+        }
+    }
+
+    /**
+     * Disable a vertex attribute array, nothing is done if the array is already disabled.
+     * @param index
+     */
+    public void disableVertexAttribArray(int index) {
+        if (mStateCache.setVertexAttribArray(index, false)) {
+            internalDisableVertexAttribArray(index);
+        }
+    }
+
+    /**
+     * Enables the attribute arrays used by the vertex format and disables the others,
+     * only arrays that are not already in the wanted state are changed.
+     * @param format The vertex format.
+     */
+    public void setVertexAttribArrays(VertexFormat format) {
+        int mask = format.getEnableMask();
+        for (int i = 0; i < VertexFormat.MAX_ATTRIBUTES; i++) {
+            if ((mask & (1 << i)) != 0) {
+                enableVertexAttribArray(i);
+            } else {
+                disableVertexAttribArray(i);
+            }
+        }
+    }
+
+    /**
+     * Sets the attribute pointers for the attributes in the vertex format, the array buffer
+     * holding the vertex data shall be bound.
+     * @param format The vertex format, must have a layout.
+     * @param offset Byte offset into the bound array buffer where the vertex data starts.
+     * @throws IllegalArgumentException If format has no layout.
+     */
+    public void setVertexAttribPointers(VertexFormat format, int offset) {
+        if (!format.hasLayout()) {
+            throw new IllegalArgumentException(INVALID_FORMAT_STR);
+        }
+        int[] attributes = format.getAttributes();
+        int stride = format.getStride();
+        for (int i = 0; i < attributes.length; i++) {
+            internalVertexAttribPointer(attributes[i], format.getSize(i), format.getType(i),
+                    format.isNormalized(i), stride, offset + format.getOffset(i));
+        }
+    }
+
+    /**
+     * Sets the attribute pointers for the attributes in the vertex format to client memory,
+     * array buffer 0 shall be bound.
+     * The position of data is changed.
+     * @param format The vertex format, must have a layout.
+     * @param data The vertex data, starting at position 0.
+     * @throws IllegalArgumentException If format has no layout.
+     */
+    public void setVertexAttribPointers(VertexFormat format, ByteBuffer data) {
+        if (!format.hasLayout()) {
+            throw new IllegalArgumentException(INVALID_FORMAT_STR);
+        }
+        int[] attributes = format.getAttributes();
+        int stride = format.getStride();
+        for (int i = 0; i < attributes.length; i++) {
+            data.position(format.getOffset(i));
+            internalVertexAttribPointer(attributes[i], format.getSize(i), format.getType(i),
+                    format.isNormalized(i), stride, data);
+        }
+    }
+
+    /**
+     * Sets the current value of a generic vertex attribute, this value is used by programs
+     * when the attribute array is disabled.
+     * @param index The attribute index.
+     * @param values The x, y and z value.
+     * @param offset Offset into values.
+     * @throws IllegalArgumentException If values is null or values.length < offset + 3
+     */
+    public void setVertexAttrib3(int index, float[] values, int offset) {
+        if (values == null || values.length < offset + 3) {
+            throw new IllegalArgumentException(INVALID_ATTRIB_STR + index);
+        }
+        internalVertexAttrib3(index, values, offset);
+    }
+
+    /**
+     * Internal wrapper method for glVertexAttrib3fv
+     * @param index
+     * @param values
+     * @param offset
+     */
+    protected abstract void internalVertexAttrib3(int index, float[] values, int offset);
+
+    /**
+     * Internal wrapper method for glVertexAttribPointer using the bound array buffer.
+     * @param index
+     * @param size
+     * @param type
+     * @param normalized
+     * @param stride
+     * @param offset
+     */
+    protected abstract void internalVertexAttribPointer(int index, int size, int type,
+            boolean normalized, int stride, int offset);
+
+    /**
+     * Internal wrapper method for glVertexAttribPointer using client memory.
+     * @param index
+     * @param size
+     * @param type
+     * @param normalized
+     * @param stride
+     * @param data
+     */
+    protected abstract void internalVertexAttribPointer(int index, int size, int type,
+            boolean normalized, int stride, Buffer data);
+
+    /**
+     * Internal wrapper method for enableVertexAttribArray.
+     * @param index
+     */
+    protected abstract void internalEnableVertexAttribArray(int index);
+
+    /**
+     * Internal wrapper method for disableVertexAttribArray.
      * @param index
      */
-    public abstract void enableVertexAttribArray(int index);
+    protected abstract void internalDisableVertexAttribArray(int index);
 
 
 }
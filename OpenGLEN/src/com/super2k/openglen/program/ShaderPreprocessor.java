@@ -0,0 +1,246 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.program;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import com.super2k.openglen.nibbler.InputStreamResolver;
+
+/**
+ * Preprocessor for shader sources, resolves #include directives and adds #define
+ * directives so that variants of a program can be created from one source.
+ * Conditionals (#ifdef, #if, #else, #endif) are left to the shader compiler.
+ * Files are read once and kept in memory, the processed sources are cached by content so
+ * that variants with the same defines return the same String instance.
+ *
+ * An include is written as:
+ * #include "name"
+ * Where name is relative to the root of the shader sources, each file is included once.
+ * The precision of float is defined as PRECISION, this can be used by shaders as:
+ * precision PRECISION float;
+ * @author Richard Sahlin
+ *
+ */
+public class ShaderPreprocessor {
+
+    public final static String INCLUDE = "#include";
+    public final static String DEFINE = "#define ";
+    public final static String PRECISION = "PRECISION";
+    public final static String DEFAULT_PRECISION = "mediump";
+
+    protected final static String INVALID_INCLUDE = "Invalid include: ";
+
+    /**
+     * The handler used to apply platform specific changes to the source, or null.
+     */
+    protected ProgramHandler mProgramHandler;
+
+    /**
+     * InputStreamResolver to use for opening sources, if not set then
+     * class.getResourceAsStream is used.
+     */
+    protected InputStreamResolver mInputResolver;
+
+    /**
+     * Source files by name, as read from the stream.
+     */
+    protected Hashtable<String, String> mFiles = new Hashtable<String, String>();
+
+    /**
+     * Processed sources, the key is the source with includes and defines resolved.
+     * The value is the source after platform specific changes.
+     */
+    protected Hashtable<String, String> mSources = new Hashtable<String, String>();
+
+    protected String mPrecision = DEFAULT_PRECISION;
+
+    protected int mFileReads;
+    protected int mCacheHits;
+
+    /**
+     * Creates a new shader preprocessor.
+     * @param programHandler The handler used to make platform specific changes to the
+     * processed source, using getShaderSource(), may be null.
+     */
+    public ShaderPreprocessor(ProgramHandler programHandler) {
+        mProgramHandler = programHandler;
+    }
+
+    /**
+     * Sets the inputstreamresolver used to open sources, the cached files are cleared.
+     * @param resolver The resolver, or null to use class.getResourceAsStream
+     */
+    public void setInputStreamResolver(InputStreamResolver resolver) {
+        mInputResolver = resolver;
+        clear();
+    }
+
+    /**
+     * Sets the precision to use for float, this is added as a define of PRECISION.
+     * @param precision The precision, lowp, mediump or highp
+     * @throws IllegalArgumentException If precision is null.
+     */
+    public void setPrecision(String precision) {
+        if (precision == null) {
+            throw new IllegalArgumentException("Precision is null");
+        }
+        mPrecision = precision;
+    }
+
+    /**
+     * Returns the source for a shader, made from the named sources. Defines are added first,
+     * followed by the named sources with includes resolved.
+     * @param type Type of shader, ConstantValues.VERTEX_SHADER or
+     * ConstantValues.FRAGMENT_SHADER
+     * @param names Names of the sources, relative to the root of the shader sources.
+     * @param defines Defines to add, each is a name optionally followed by space and value,
+     * eg "TEXTURE_COUNT 2". May be null.
+     * @return The processed source.
+     * @throws IOException If a source could not be read.
+     */
+    public String getSource(int type, String[] names, String[] defines) throws IOException {
+        StringBuffer source = new StringBuffer();
+        source.append(DEFINE).append(PRECISION).append(' ').append(mPrecision).append('\n');
+        if (defines != null) {
+            for (int i = 0; i < defines.length; i++) {
+                source.append(DEFINE).append(defines[i]).append('\n');
+            }
+        }
+        Vector<String> included = new Vector<String>();
+        for (int i = 0; i < names.length; i++) {
+            include(names[i], source, included);
+        }
+        String key = source.toString();
+        String result = mSources.get(key);
+        if (result != null) {
+            mCacheHits++;
+            return result;
+        }
+        result = key;
+        if (mProgramHandler != null) {
+            result = mProgramHandler.getShaderSource(type,
+                    new BufferedReader(new StringReader(key)), true);
+        }
+        mSources.put(key, result);
+        return result;
+    }
+
+    /**
+     * Appends the named source, includes are resolved recursively, internal method.
+     * @param name Name of the source.
+     * @param source The resolved source is appended here.
+     * @param included Names of included sources, a source is only included once.
+     * @throws IOException If the source could not be read or an include is invalid.
+     */
+    protected void include(String name, StringBuffer source, Vector<String> included)
+            throws IOException {
+        if (included.contains(name)) {
+            return;
+        }
+        included.add(name);
+        BufferedReader reader = new BufferedReader(new StringReader(getFile(name)));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith(INCLUDE)) {
+                int start = trimmed.indexOf('"');
+                int end = trimmed.lastIndexOf('"');
+                if (start < 0 || end <= start) {
+                    throw new IOException(INVALID_INCLUDE + line + " in " + name);
+                }
+                include(trimmed.substring(start + 1, end), source, included);
+            } else {
+                source.append(line).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Returns the contents of a source file, the file is read the first time it is used.
+     * @param name Name of the source.
+     * @return The file contents.
+     * @throws IOException If the file could not be read.
+     */
+    protected String getFile(String name) throws IOException {
+        String file = mFiles.get(name);
+        if (file != null) {
+            return file;
+        }
+        InputStream in = openInputStream(name);
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+            StringBuffer buffer = new StringBuffer();
+            char[] chars = new char[1024];
+            int read;
+            while ((read = reader.read(chars)) > 0) {
+                buffer.append(chars, 0, read);
+            }
+            file = buffer.toString();
+        } finally {
+            in.close();
+        }
+        mFileReads++;
+        mFiles.put(name, file);
+        return file;
+    }
+
+    /**
+     * Opens an InputStream to a named source.
+     * @param name Name of the source, relative to the root of the shader sources.
+     * @return The opened stream.
+     * @throws IOException If the stream could not be opened.
+     */
+    protected InputStream openInputStream(String name) throws IOException {
+        InputStream in;
+        if (mInputResolver != null) {
+            in = mInputResolver.openInputStream("/" + name);
+        } else {
+            in = getClass().getResourceAsStream("/" + name);
+        }
+        if (in == null) {
+            throw new IOException(ProgramCollection.ERROR_OPENING_STREAM + name);
+        }
+        return in;
+    }
+
+    /**
+     * Clears the cached files and sources.
+     */
+    public void clear() {
+        mFiles.clear();
+        mSources.clear();
+    }
+
+    /**
+     * Returns the number of source files read.
+     * @return Number of files read.
+     */
+    public int getFileReads() {
+        return mFileReads;
+    }
+
+    /**
+     * Returns the number of sources that were returned from the cache.
+     * @return Number of cache hits.
+     */
+    public int getCacheHits() {
+        return mCacheHits;
+    }
+
+}
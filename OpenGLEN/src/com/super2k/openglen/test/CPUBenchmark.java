@@ -0,0 +1,652 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.test;
+
+import java.util.Random;
+import java.util.Vector;
+
+import com.super2k.openglen.easy3d.SpatialHashGrid;
+import com.super2k.openglen.geometry.Quaternion;
+import com.super2k.openglen.objects.GLBlitObject;
+import com.super2k.openglen.objects.RenderList;
+import com.super2k.openglen.objects.SpriteStore;
+import com.super2k.openglen.utils.FastMath;
+import com.super2k.openglen.utils.Matrix;
+
+/**
+ * Benchmarks of CPU side code paths that do not need GL, the result of each case is the
+ * time in nanos for one operation.
+ * Each case is run a number of rounds to warm up before it is measured, the result depends
+ * on the VM and device so only compare values from the same run.
+ * Run main() on J2SE to print the results, or call the cases from a benchmark activity.
+ * @author Richard Sahlin
+ *
+ */
+public class CPUBenchmark {
+
+    /**
+     * Default number of objects used by the cases.
+     */
+    public final static int DEFAULT_COUNT = 50000;
+
+    /**
+     * Default number of measured rounds, the same number of rounds is used for warmup.
+     */
+    public final static int DEFAULT_ROUNDS = 100;
+
+    /**
+     * Number of movers used for the spatial hash scaling cases.
+     */
+    public final static int[] GRID_COUNTS = new int[] {1000, 10000, 100000};
+
+    /**
+     * Number of mover updates measured for each spatial hash case, the number of rounds
+     * is this value divided by the number of movers.
+     */
+    public final static int GRID_UPDATES = 2000000;
+
+    /**
+     * Average distance between movers in the spatial hash cases, the area grows with the
+     * number of movers so that the density is constant.
+     */
+    public final static float GRID_SPACING = 10f;
+
+    /**
+     * One benchmark case, run() performs the operations that are measured.
+     */
+    protected abstract static class Case {
+
+        /**
+         * Written by the cases so that the measured code is not removed by the compiler.
+         */
+        protected float mSink;
+
+        /**
+         * Runs one round of the case.
+         */
+        protected abstract void run();
+    }
+
+    /**
+     * Runs the case for warmup and then measures the time.
+     * @param benchmark The case to measure.
+     * @param operations Number of operations in one round.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos for one operation.
+     */
+    protected static float measure(Case benchmark, int operations, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            benchmark.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            benchmark.run();
+        }
+        return (float) (System.nanoTime() - start) / ((long) operations * rounds);
+    }
+
+    /**
+     * Creates blit objects with the position set.
+     * @param count Number of objects.
+     * @return The objects.
+     */
+    protected static GLBlitObject[] createBlits(int count) {
+        GLBlitObject[] blits = new GLBlitObject[count];
+        for (int i = 0; i < count; i++) {
+            blits[i] = new GLBlitObject();
+            blits[i].position[0] = i;
+        }
+        return blits;
+    }
+
+    /**
+     * Creates an array with random values in the range 0 to 1
+     * @param count Number of values.
+     * @param seed Seed for the random values.
+     * @return The values.
+     */
+    protected static float[] createValues(int count, long seed) {
+        Random random = new Random(seed);
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextFloat();
+        }
+        return values;
+    }
+
+    /**
+     * Creates arrays of the specified size with random values in the range 0 to 1
+     * @param count Number of arrays.
+     * @param size Number of values in each array.
+     * @param seed Seed for the random values.
+     * @return The arrays.
+     */
+    protected static float[][] createArrays(int count, int size, long seed) {
+        float[] values = createValues(count * size, seed);
+        float[][] arrays = new float[count][size];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(values, i * size, arrays[i], 0, size);
+        }
+        return arrays;
+    }
+
+    /**
+     * Iterates objects in a Vector using elementAt(), as done by the Vector render methods
+     * before RenderList.
+     * @param count Number of objects.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per object.
+     */
+    public static float vectorIteration(int count, int rounds) {
+        final Vector<GLBlitObject> list = new Vector<GLBlitObject>();
+        GLBlitObject[] blits = createBlits(count);
+        for (int i = 0; i < count; i++) {
+            list.add(blits[i]);
+        }
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                int size = list.size();
+                for (int i = 0; i < size; i++) {
+                    mSink += list.elementAt(i).position[0];
+                }
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Iterates objects in the array of a RenderList.
+     * @param count Number of objects.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per object.
+     */
+    public static float renderListIteration(int count, int rounds) {
+        final RenderList<GLBlitObject> list = new RenderList<GLBlitObject>(count);
+        GLBlitObject[] blits = createBlits(count);
+        for (int i = 0; i < count; i++) {
+            list.add(blits[i]);
+        }
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                Object[] objects = list.getObjects();
+                int size = list.size();
+                for (int i = 0; i < size; i++) {
+                    mSink += ((GLBlitObject) objects[i]).position[0];
+                }
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Copies a Vector into an array, under the lock of the Vector, and iterates the array.
+     * This is what the renderer does for the Vector render methods.
+     * @param count Number of objects.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per object.
+     */
+    public static float copiedVectorIteration(int count, int rounds) {
+        final Vector<GLBlitObject> list = new Vector<GLBlitObject>();
+        final Object[] array = new Object[count];
+        GLBlitObject[] blits = createBlits(count);
+        for (int i = 0; i < count; i++) {
+            list.add(blits[i]);
+        }
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                int size = list.size();
+                list.copyInto(array);
+                for (int i = 0; i < size; i++) {
+                    mSink += ((GLBlitObject) array[i]).position[0];
+                }
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Translates sprites by updating the position array of each GLBlitObject.
+     * @param count Number of sprites.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per sprite.
+     */
+    public static float objectTranslate(int count, int rounds) {
+        final GLBlitObject[] blits = createBlits(count);
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                float[] position;
+                for (int i = 0; i < blits.length; i++) {
+                    position = blits[i].position;
+                    position[0] += 0.5f;
+                    position[1] += 0.25f;
+                    position[2] += 0.125f;
+                }
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Translates sprites using the contiguous position array of a SpriteStore.
+     * @param count Number of sprites.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per sprite.
+     */
+    public static float spriteStoreTranslate(int count, int rounds) {
+        final SpriteStore store = new SpriteStore(count);
+        GLBlitObject[] blits = createBlits(count);
+        for (int i = 0; i < count; i++) {
+            store.add(blits[i]);
+        }
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                store.translate(0.5f, 0.25f, 0.125f);
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Moves objects in a SpatialHashGrid and finds the pairs, once per round.
+     * The area grows with the number of movers so that the density is constant, the time
+     * per mover shall stay roughly the same as count increases.
+     * @param count Number of movers.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per mover for one update and pair search.
+     */
+    public static float spatialHashGrid(int count, int rounds) {
+        final float size = (float) Math.sqrt(count) * GRID_SPACING;
+        final float distance = GRID_SPACING;
+        final SpatialHashGrid grid = new SpatialHashGrid(distance * 2, count);
+        final float[] x = new float[count];
+        final float[] y = new float[count];
+        final float[] dx = new float[count];
+        final float[] dy = new float[count];
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextFloat() * size;
+            y[i] = random.nextFloat() * size;
+            dx[i] = random.nextFloat() - 0.5f;
+            dy[i] = random.nextFloat() - 0.5f;
+            grid.insert(i, x[i], y[i]);
+        }
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0; i < x.length; i++) {
+                    x[i] += dx[i];
+                    y[i] += dy[i];
+                    if (x[i] < 0 || x[i] > size) {
+                        dx[i] = -dx[i];
+                    }
+                    if (y[i] < 0 || y[i] > size) {
+                        dy[i] = -dy[i];
+                    }
+                    grid.update(i, x[i], y[i]);
+                }
+                mSink += grid.findPairs(distance, null);
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Transforms vectors, stored in one array each, by calling Matrix.mulVector3() for
+     * each vector.
+     * @param count Number of vectors.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per vector.
+     */
+    public static float transformVec3(int count, int rounds) {
+        final float[] matrix = createValues(16, 1);
+        final float[][] vectors = createArrays(count, 3, 2);
+        final float[][] result = new float[count][3];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0; i < vectors.length; i++) {
+                    Matrix.mulVector3(result[i], matrix, vectors[i]);
+                }
+                mSink += result[0][0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Transforms vectors, stored after each other in one array, with the batched
+     * Matrix.mulVector3()
+     * @param count Number of vectors.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per vector.
+     */
+    public static float batchedTransformVec3(final int count, int rounds) {
+        final float[] matrix = createValues(16, 1);
+        final float[] vectors = createValues(count * 3, 2);
+        final float[] result = new float[count * 3];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                Matrix.mulVector3(result, 0, matrix, 0, vectors, 0, count);
+                mSink += result[0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Concatenates matrix pairs, stored in one array each, by calling Matrix.mul4() for
+     * each pair.
+     * @param count Number of matrix pairs.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per matrix pair.
+     */
+    public static float mul4(int count, int rounds) {
+        final float[][] m1 = createArrays(count, 16, 1);
+        final float[][] m2 = createArrays(count, 16, 2);
+        final float[][] result = new float[count][16];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0; i < m1.length; i++) {
+                    Matrix.mul4(m1[i], m2[i], result[i]);
+                }
+                mSink += result[0][0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Concatenates matrix pairs, stored after each other in one array, with the batched
+     * Matrix.mul4()
+     * @param count Number of matrix pairs.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per matrix pair.
+     */
+    public static float batchedMul4(final int count, int rounds) {
+        final float[] m1 = createValues(count * 16, 1);
+        final float[] m2 = createValues(count * 16, 2);
+        final float[] result = new float[count * 16];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                Matrix.mul4(m1, 0, m2, 0, result, 0, count);
+                mSink += result[0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Creates translate * scale * rotate matrices, one array for each matrix, using
+     * Matrix.setRotateEulerM(), translateM(), scaleM() and mul4() for each object.
+     * @param count Number of matrices.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per matrix.
+     */
+    public static float composeTransform(int count, int rounds) {
+        final float[][] position = createArrays(count, 3, 1);
+        final float[][] scale = createArrays(count, 3, 2);
+        final float[][] rotation = createArrays(count, 3, 3);
+        final float[][] result = new float[count][16];
+        final float[] translateScale = new float[16];
+        final float[] rotate = new float[16];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                float[] p, s, r;
+                for (int i = 0; i < result.length; i++) {
+                    p = position[i];
+                    s = scale[i];
+                    r = rotation[i];
+                    Matrix.setIdentityM(translateScale, 0);
+                    Matrix.translateM(translateScale, 0, p[0], p[1], p[2]);
+                    Matrix.scaleM(translateScale, 0, s[0], s[1], s[2]);
+                    Matrix.setRotateEulerM(rotate, 0, r[0] * 360, r[1] * 360, r[2] * 360);
+                    Matrix.mul4(translateScale, rotate, result[i]);
+                }
+                mSink += result[0][0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Creates translate * scale * rotate matrices, stored after each other in one array,
+     * with Matrix.setTransformM() from position, scale and rotation stored as in FrameState.
+     * @param count Number of matrices.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per matrix.
+     */
+    public static float batchedComposeTransform(final int count, int rounds) {
+        final float[] position = createValues(count * 4, 1);
+        final float[] scale = createValues(count * 4, 2);
+        final float[] rotation = createValues(count * 4, 3);
+        final float[] result = new float[count * 16];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                Matrix.setTransformM(result, 0, position, scale, rotation, 0, count);
+                mSink += result[0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Creates angles in the range -2 PI to 2 PI
+     * @param count Number of angles.
+     * @return The angles, in radians.
+     */
+    protected static float[] createAngles(int count) {
+        float[] angles = createValues(count, count);
+        for (int i = 0; i < count; i++) {
+            angles[i] = (angles[i] * 4 - 2) * (float) Math.PI;
+        }
+        return angles;
+    }
+
+    /**
+     * Calculates sine with FastMath.tableSin()
+     * @param count Number of angles.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per sine.
+     */
+    public static float tableSine(int count, int rounds) {
+        final float[] angles = createAngles(count);
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0; i < angles.length; i++) {
+                    mSink += FastMath.tableSin(angles[i]);
+                }
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Calculates sine with FastMath.polySin()
+     * @param count Number of angles.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per sine.
+     */
+    public static float polynomialSine(int count, int rounds) {
+        final float[] angles = createAngles(count);
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0; i < angles.length; i++) {
+                    mSink += FastMath.polySin(angles[i]);
+                }
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Calculates sine with Math.sin()
+     * @param count Number of angles.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per sine.
+     */
+    public static float mathSine(int count, int rounds) {
+        final float[] angles = createAngles(count);
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0; i < angles.length; i++) {
+                    mSink += (float) Math.sin(angles[i]);
+                }
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Creates normalized quaternions, stored after each other with 4 values each.
+     * @param count Number of quaternions.
+     * @param seed Seed for the random rotations.
+     * @return The quaternions.
+     */
+    protected static float[] createQuaternions(int count, long seed) {
+        float[] axis = createValues(count * 4, seed);
+        float[] q = new float[count * Quaternion.SIZE];
+        for (int i = 0; i < count; i++) {
+            int index = i * 4;
+            Quaternion.setAxisAngle(q, i * Quaternion.SIZE, axis[index] * 6.28f,
+                    axis[index + 1] - 0.5f, axis[index + 2] - 0.5f, axis[index + 3] + 0.1f);
+        }
+        return q;
+    }
+
+    /**
+     * Interpolates quaternion pairs with Quaternion.slerp()
+     * @param count Number of quaternion pairs.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per interpolation.
+     */
+    public static float slerp(final int count, int rounds) {
+        final float[] a = createQuaternions(count, 1);
+        final float[] b = createQuaternions(count, 2);
+        final float[] result = new float[count * Quaternion.SIZE];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0; i < result.length; i += Quaternion.SIZE) {
+                    Quaternion.slerp(a, i, b, i, 0.3f, result, i);
+                }
+                mSink += result[0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Interpolates quaternion pairs with Quaternion.nlerp()
+     * @param count Number of quaternion pairs.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per interpolation.
+     */
+    public static float nlerp(final int count, int rounds) {
+        final float[] a = createQuaternions(count, 1);
+        final float[] b = createQuaternions(count, 2);
+        final float[] result = new float[count * Quaternion.SIZE];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0; i < result.length; i += Quaternion.SIZE) {
+                    Quaternion.nlerp(a, i, b, i, 0.3f, result, i);
+                }
+                mSink += result[0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Creates rotation matrices from quaternions with the batched Quaternion.toMatrix()
+     * @param count Number of matrices.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per matrix.
+     */
+    public static float batchedQuaternionToMatrix(final int count, int rounds) {
+        final float[] q = createQuaternions(count, 1);
+        final float[] result = new float[count * 16];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                Quaternion.toMatrix(q, 0, result, 0, count);
+                mSink += result[0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Creates rotation matrices from euler angles with Matrix.setRotateEulerM()
+     * @param count Number of matrices.
+     * @param rounds Number of measured rounds.
+     * @return Time in nanos per matrix.
+     */
+    public static float eulerToMatrix(final int count, int rounds) {
+        final float[] angles = createValues(count * 3, 1);
+        final float[] result = new float[count * 16];
+        return measure(new Case() {
+            @Override
+            protected void run() {
+                for (int i = 0, m = 0; i < angles.length; i += 3, m += 16) {
+                    Matrix.setRotateEulerM(result, m, angles[i] * 360, angles[i + 1] * 360,
+                            angles[i + 2] * 360);
+                }
+                mSink += result[0];
+            }
+        }, count, rounds);
+    }
+
+    /**
+     * Runs all cases with default values and prints the result.
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        System.out.println("Vector.elementAt ns/object: " +
+                vectorIteration(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("RenderList ns/object: " +
+                renderListIteration(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Vector copied to array ns/object: " +
+                copiedVectorIteration(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("GLBlitObject translate ns/sprite: " +
+                objectTranslate(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("SpriteStore translate ns/sprite: " +
+                spriteStoreTranslate(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        for (int i = 0; i < GRID_COUNTS.length; i++) {
+            System.out.println("SpatialHashGrid " + GRID_COUNTS[i] + " movers ns/mover: " +
+                    spatialHashGrid(GRID_COUNTS[i], GRID_UPDATES / GRID_COUNTS[i]));
+        }
+        System.out.println("Matrix.mulVector3 ns/vector: " +
+                transformVec3(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Batched Matrix.mulVector3 ns/vector: " +
+                batchedTransformVec3(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Matrix.mul4 ns/matrix: " +
+                mul4(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Batched Matrix.mul4 ns/matrix: " +
+                batchedMul4(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("TRS compose ns/matrix: " +
+                composeTransform(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Batched Matrix.setTransformM ns/matrix: " +
+                batchedComposeTransform(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("FastMath.tableSin ns/sine: " +
+                tableSine(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("FastMath.polySin ns/sine: " +
+                polynomialSine(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Math.sin ns/sine: " +
+                mathSine(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Quaternion.slerp ns/quaternion: " +
+                slerp(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Quaternion.nlerp ns/quaternion: " +
+                nlerp(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Batched Quaternion.toMatrix ns/matrix: " +
+                batchedQuaternionToMatrix(DEFAULT_COUNT, DEFAULT_ROUNDS));
+        System.out.println("Matrix.setRotateEulerM ns/matrix: " +
+                eulerToMatrix(DEFAULT_COUNT, DEFAULT_ROUNDS));
+    }
+
+}
@@ -61,6 +61,15 @@ public interface PerformanceBenchmark {
      */
     public void setTickTreshold(int mikros);
 
+    /**
+     * Sets the max average number of bytes the render thread may allocate per frame during a
+     * performance run. If the budget is exceeded the run has failed, this can be checked by
+     * calling ProfileInfo.isAllocationBudgetExceeded() on the result.
+     * @param bytes Max average allocated bytes per frame, -1 to disable.
+     * @throws IllegalArgumentException If bytes is < -1
+     */
+    public void setAllocationBudget(int bytes);
+
     /**
      * Adds a listener to recieve callback when performance benchmark has
      * finished.
@@ -399,6 +399,15 @@ public class Texture2D {
         return mHeight;
     }
 
+    /**
+     * Returns the size of the texture data in bytes, calculated from width, height and
+     * bits per pixel. Mipmap levels are not included.
+     * @return Size of the texture data in bytes.
+     */
+    public int getSizeInBytes() {
+        return (mWidth * mHeight * mBpp) >>> 3;
+    }
+
     /**
      * Set the texture name (ID) for this texture. This will not bind the
      * texture to that ID it will simply make it possible to easily fetch the
@@ -14,11 +14,13 @@ package com.super2k.openglen.texture;
 
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.util.Hashtable;
 
 import com.super2k.openglen.ConstantValues;
 import com.super2k.openglen.OpenGLENException;
 import com.super2k.openglen.geometry.Material;
 import com.super2k.openglen.texture.Texture2D.CompressedTextureFormat;
+import com.super2k.openglen.utils.GLStateCache;
 import com.super2k.openglen.utils.GraphicsLibraryHandler;
 
 
@@ -55,6 +57,28 @@ public abstract class TextureHandler {
      */
     protected GraphicsLibraryHandler mGraphicsLibrary;
 
+    /**
+     * Cache of GL state, from the graphics library handler. Used to drop binds of textures
+     * and framebuffers that are already bound.
+     */
+    protected GLStateCache mStateCache;
+
+    /**
+     * Size in bytes of textures set by this class, using texture name as key.
+     */
+    protected Hashtable<Integer, Integer> mTextureSizes = new Hashtable<Integer, Integer>();
+
+    /**
+     * Total number of bytes used by textures set by this class.
+     */
+    protected long mTextureBytes;
+
+    /**
+     * If true errors are checked when binding textures and framebuffers, if false
+     * platform implementations shall not call glGetError when binding.
+     */
+    protected boolean mCheckErrors = true;
+
     /**
      * Constructs a new texturehandler with specified GraphicsLibraryHandler
      * @param graphicsLibrary
@@ -65,6 +89,7 @@ public abstract class TextureHandler {
             throw new IllegalArgumentException(GRAPHICS_LIBRARY_NULL_STR);
         }
         mGraphicsLibrary = graphicsLibrary;
+        mStateCache = graphicsLibrary.getStateCache();
     }
 
     /**
@@ -153,15 +178,23 @@ public abstract class TextureHandler {
     }
 
     /**
-     * Binds a framebuffer object.
+     * Binds a framebuffer object, nothing is done if the framebuffer is already bound.
      * @see Khronos glbindframebuffer
      * @param frameBuffer The framebuffer object to bind.
      * @throws IllegalArgumentException If frameBuffer cannot be bound.
      */
     public void bindFrameBuffer(int frameBuffer)        {
+        if (!mStateCache.bindFrameBuffer(frameBuffer)) {
+            return;
+        }
+        if (!mCheckErrors) {
+            internalBindFrameBuffer(frameBuffer);
+            return;
+        }
         mGraphicsLibrary.clearError();
         int result = internalBindFrameBuffer(frameBuffer);
         if (result != ConstantValues.NO_ERROR)  {
+            mStateCache.invalidate();
             throw new IllegalArgumentException(BIND_FRAMEBUFFER_ERR_STR + frameBuffer);
         }
 
@@ -380,18 +413,44 @@ public abstract class TextureHandler {
      */
     protected abstract int internalCheckFrameBufferStatus();
 
+    /**
+     * Enables or disables error checking when binding textures and framebuffers,
+     * calling glGetError may force the driver to synchronize so this is normally disabled
+     * when not debugging.
+     * @param checkErrors True to check errors after each bind.
+     */
+    public void setCheckErrors(boolean checkErrors) {
+        mCheckErrors = checkErrors;
+    }
+
+    /**
+     * Returns true if errors are checked when binding textures and framebuffers.
+     * @return True if errors are checked after each bind.
+     */
+    public boolean isCheckErrors() {
+        return mCheckErrors;
+    }
+
     /**
      * Binds a texture to TEXTURE_2D, the texture is bound to the currently
-     * active texture unit.
+     * active texture unit. Nothing is done if the texture is already bound.
      * @param target Specifies the target of the active texture unit to which the texture is bound
      * @param texture The texture object to bind.
      * @throws IllegalArgumentException If texture is not a valid texture object.
      * In which case the texture is not bound.
      */
     public void bindTexture2D(int target, int texture)  {
+        if (!mStateCache.bindTexture(target, texture)) {
+            return;
+        }
+        if (!mCheckErrors) {
+            internalBindTexture2D(target, texture);
+            return;
+        }
         mGraphicsLibrary.clearError();
         int result = internalBindTexture2D(target, texture);
         if (result != ConstantValues.NO_ERROR) {
+            mStateCache.invalidate();
             throw new IllegalArgumentException(BIND_TEXTURE_ERR_STR + texture +"," +
                                                INVALID_PARAMETER_STR);
         }
@@ -399,14 +458,23 @@ public abstract class TextureHandler {
 
     /**
      * Sets the active texture unit, valid values are TEXTURE_0 up to MAX_TEXTURE_UNITS-1
+     * Nothing is done if the texture unit is already active.
      * @param texture
      * @throws IllegalArgumentException If texture is not in range for a texture unit.
      */
     public void activeTexture(int texture)  {
+        if (!mStateCache.activeTexture(texture)) {
+            return;
+        }
+        if (!mCheckErrors) {
+            internalActiveTexture(texture);
+            return;
+        }
         mGraphicsLibrary.clearError();
         internalActiveTexture(texture);
         int result = mGraphicsLibrary.checkError();
         if (result != ConstantValues.NO_ERROR) {
+            mStateCache.invalidate();
             throw new IllegalArgumentException(ACTIVE_TEXTURE_ERR_STR + texture + "," +
                                                INVALID_PARAMETER_STR);
         }
@@ -540,6 +608,23 @@ public abstract class TextureHandler {
             throw new IllegalArgumentException(INVALID_PARAMETER_STR);
         }
         internalDeleteTextures(count, textures, offset);
+        mStateCache.deleteTextures(count, textures, offset);
+        Integer size;
+        for (int i = offset; i < offset + count; i++) {
+            if ((size = mTextureSizes.remove(Integer.valueOf(textures[i]))) != null) {
+                mTextureBytes -= size.intValue();
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of bytes used by textures set with setTexture2D(),
+     * textures deleted by calling deleteTextures() are not counted.
+     * Size is calculated from the texture dimension and bits per pixel, mipmaps are not counted.
+     * @return Number of bytes used by textures.
+     */
+    public long getTextureBytes() {
+        return mTextureBytes;
     }
 
     /**
@@ -577,19 +662,27 @@ public abstract class TextureHandler {
         mGraphicsLibrary.clearError();
         Object textureData = texture.getTextureData();
 
+        int unit;
         switch (activeTexture)  {
             case 0:
-                internalActiveTexture(ConstantValues.TEXTURE0);
+                unit = ConstantValues.TEXTURE0;
                 break;
             case 1:
-                internalActiveTexture(ConstantValues.TEXTURE1);
+                unit = ConstantValues.TEXTURE1;
                 break;
 
             default:
                 throw new IllegalArgumentException(TEXTURE_UNIT_ERR_STR + ", " + activeTexture);
         }
-        int result = internalBindTexture2D(target, texName);
+        if (mStateCache.activeTexture(unit)) {
+            internalActiveTexture(unit);
+        }
+        int result = ConstantValues.NO_ERROR;
+        if (mStateCache.bindTexture(target, texName)) {
+            result = internalBindTexture2D(target, texName);
+        }
         if (result != ConstantValues.NO_ERROR) {
+            mStateCache.invalidate();
             throw new OpenGLENException("Could not bind texture " + texName, result);
         }
         internalPixelstore(ConstantValues.UNPACK_ALIGNMENT, PIXELSTORE_UNPACK_ALIGNMENT);
@@ -638,6 +731,12 @@ public abstract class TextureHandler {
                         ERROR_STR + "result= " + result);
             }
         }
+        Integer old = mTextureSizes.put(Integer.valueOf(texName),
+                Integer.valueOf(texture.getSizeInBytes()));
+        if (old != null) {
+            mTextureBytes -= old.intValue();
+        }
+        mTextureBytes += texture.getSizeInBytes();
 
     }
 
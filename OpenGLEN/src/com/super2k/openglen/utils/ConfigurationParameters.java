@@ -111,6 +111,32 @@ public class ConfigurationParameters {
     public final static String PROPERTY_OPENGLEN_USE_VBO =
         "com.super2k.openglen.usevbo";
 
+    /**
+     * Int property to export metrics over HTTP, in Prometheus text format, on the specified
+     * port. If not set metrics are not exported.
+     */
+    public final static String PROPERTY_OPENGLEN_METRICS_PORT =
+        "com.super2k.openglen.metricsport";
+
+    /**
+     * String property with the address to export metrics on, if not set metrics are only
+     * exported on the loopback address. Set to eg "0.0.0.0" to allow remote scraping.
+     */
+    public final static String PROPERTY_OPENGLEN_METRICS_ADDRESS =
+        "com.super2k.openglen.metricsaddress";
+
+    /**
+     * Address that metrics are exported on if the metricsaddress property is not set.
+     */
+    public final static String DEFAULT_METRICS_ADDRESS = "127.0.0.1";
+
+    /**
+     * How GL errors are checked while rendering, valid values are taken from the
+     * ERROR_CHECK_STR_TABLE
+     */
+    public final static String PROPERTY_OPENGLEN_ERROR_CHECK =
+        "com.super2k.openglen.errorcheck";
+
     public final static String CLEAR_FUNCTION_COLOR = "color";
     public final static String CLEAR_FUNCTION_DEPTH = "depth";
     public final static String CLEAR_FUNCTION_STENCIL = "stencil";
@@ -188,6 +214,23 @@ public class ConfigurationParameters {
                                                             ConstantValues.NEVER};
 
 
+    public final static String ERROR_CHECK_OFF = "off";
+    public final static String ERROR_CHECK_FRAME = "frame";
+    public final static String ERROR_CHECK_CALL = "call";
+
+    /**
+     * The defined error check modes.
+     */
+    public final static String[] ERROR_CHECK_STR_TABLE = new String[] {
+        ERROR_CHECK_OFF,
+        ERROR_CHECK_FRAME,
+        ERROR_CHECK_CALL };
+
+    protected final static int[] ERROR_CHECK_VALUE_TABLE = new int[] {
+                                                            RenderSetting.ERROR_CHECK_OFF,
+                                                            RenderSetting.ERROR_CHECK_FRAME,
+                                                            RenderSetting.ERROR_CHECK_CALL};
+
     /**
      * Windowformat, use any of the PixelFormat String values.
      * RGBX_8888, RGBA_8888, RGB_565, RGBA_5551, RGB_888 or RGBA_4444
@@ -232,6 +275,12 @@ public class ConfigurationParameters {
                                                             CLEAR_FUNCTION_VALUE_TABLE, "|"));
         }
 
+        String errorCheck = System.getProperty(PROPERTY_OPENGLEN_ERROR_CHECK);
+        if (errorCheck != null) {
+            renderSetting.setErrorCheck(getIntFromString(errorCheck, ERROR_CHECK_STR_TABLE,
+                                                         ERROR_CHECK_VALUE_TABLE));
+        }
+
     }
 
     /**
@@ -414,6 +463,27 @@ public class ConfigurationParameters {
         return str;
     }
 
+    /**
+     * Returns the port to export metrics on as set by the metricsport property.
+     * @return The metrics port, or -1 if property not set.
+     * @throws IllegalArgumentException If the value set cannot be parsed to an int.
+     */
+    public static int getMetricsPort() {
+        return getIntProperty(PROPERTY_OPENGLEN_METRICS_PORT);
+    }
+
+    /**
+     * Returns the address to export metrics on as set by the metricsaddress property.
+     * @return The metrics address, or DEFAULT_METRICS_ADDRESS if property not set.
+     */
+    public static String getMetricsAddress() {
+        String str = System.getProperty(PROPERTY_OPENGLEN_METRICS_ADDRESS);
+        if (str == null || str.length() == 0) {
+            str = DEFAULT_METRICS_ADDRESS;
+        }
+        return str;
+    }
+
     /**
      * Sets the system property for usevbo.
      * @param useVBO
@@ -0,0 +1,208 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.utils;
+
+/**
+ * Fast sine and cosine, used by animations and the rotation methods in Matrix and Vector3.
+ * The mode is global and selects how sin() and cos() are calculated:
+ * MODE_EXACT uses Math.sin and Math.cos, this is the default.
+ * MODE_TABLE uses a table with linear interpolation, max error is 1E-6.
+ * MODE_POLYNOMIAL uses a 7th degree minimax polynomial, max error is 1.5E-6.
+ * Errors are for angles between -100 and 100 radians, the argument is reduced to one period
+ * in double precision so the error grows slowly for larger angles.
+ * The mode shall be set before rendering starts, it is not synchronized between threads.
+ * @author Richard Sahlin
+ *
+ */
+public class FastMath {
+
+    /**
+     * Use Math.sin and Math.cos
+     */
+    public final static int MODE_EXACT = 0;
+    /**
+     * Use table lookup with linear interpolation.
+     */
+    public final static int MODE_TABLE = 1;
+    /**
+     * Use minimax polynomial.
+     */
+    public final static int MODE_POLYNOMIAL = 2;
+
+    /**
+     * Number of table entries for one period.
+     */
+    public final static int TABLE_SIZE = 4096;
+
+    private final static double TWO_PI = Math.PI * 2;
+    private final static double INV_TWO_PI = 1 / TWO_PI;
+    private final static double TABLE_SCALE = TABLE_SIZE / TWO_PI;
+    private final static float HALF_PI = (float) (Math.PI / 2);
+    private final static float PI = (float) Math.PI;
+
+    /**
+     * Minimax coefficients for sin(x), x in -PI/2 to PI/2, max error 7.5E-7
+     */
+    private final static float C1 = 0.99999661f;
+    private final static float C3 = -0.16664824f;
+    private final static float C5 = 0.00830629f;
+    private final static float C7 = -0.00018363f;
+
+    /**
+     * Sine table for one period, one extra value to interpolate the last entry.
+     */
+    private final static float[] SIN_TABLE = new float[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SIN_TABLE[i] = (float) Math.sin(i * TWO_PI / TABLE_SIZE);
+        }
+    }
+
+    private static int mMode = MODE_EXACT;
+
+    /**
+     * Sets the mode used by sin() and cos()
+     * @param mode MODE_EXACT, MODE_TABLE or MODE_POLYNOMIAL
+     * @throws IllegalArgumentException If mode is not valid.
+     */
+    public static void setMode(int mode) {
+        if (mode < MODE_EXACT || mode > MODE_POLYNOMIAL) {
+            throw new IllegalArgumentException("Invalid mode: " + mode);
+        }
+        mMode = mode;
+    }
+
+    /**
+     * Returns the mode used by sin() and cos()
+     * @return MODE_EXACT, MODE_TABLE or MODE_POLYNOMIAL
+     */
+    public static int getMode() {
+        return mMode;
+    }
+
+    /**
+     * Returns the sine of the angle using the current mode.
+     * @param radians Angle in radians.
+     * @return Sine of the angle.
+     */
+    public static float sin(float radians) {
+        switch (mMode) {
+        case MODE_TABLE:
+            return tableSin(radians);
+        case MODE_POLYNOMIAL:
+            return polySin(radians);
+        default:
+            return (float) Math.sin(radians);
+        }
+    }
+
+    /**
+     * Returns the cosine of the angle using the current mode.
+     * @param radians Angle in radians.
+     * @return Cosine of the angle.
+     */
+    public static float cos(float radians) {
+        switch (mMode) {
+        case MODE_TABLE:
+            return tableCos(radians);
+        case MODE_POLYNOMIAL:
+            return polyCos(radians);
+        default:
+            return (float) Math.cos(radians);
+        }
+    }
+
+    /**
+     * Returns the sine of the angle using table lookup.
+     * @param radians Angle in radians.
+     * @return Sine of the angle.
+     */
+    public static float tableSin(float radians) {
+        return lookup(radians * TABLE_SCALE);
+    }
+
+    /**
+     * Returns the cosine of the angle using table lookup.
+     * @param radians Angle in radians.
+     * @return Cosine of the angle.
+     */
+    public static float tableCos(float radians) {
+        return lookup(radians * TABLE_SCALE + (TABLE_SIZE >> 2));
+    }
+
+    /**
+     * Looks up and interpolates the table value at position.
+     * @param position Position in table units, one period is TABLE_SIZE.
+     * @return Interpolated table value.
+     */
+    private static float lookup(double position) {
+        long period = (long) (position / TABLE_SIZE);
+        if (position < 0) {
+            period--;
+        }
+        position -= period * TABLE_SIZE;
+        int index = (int) position;
+        if (index >= TABLE_SIZE) {
+            index = TABLE_SIZE - 1;
+        }
+        float fraction = (float) (position - index);
+        float value = SIN_TABLE[index];
+        return value + fraction * (SIN_TABLE[index + 1] - value);
+    }
+
+    /**
+     * Returns the sine of the angle using the minimax polynomial.
+     * @param radians Angle in radians.
+     * @return Sine of the angle.
+     */
+    public static float polySin(float radians) {
+        return polynomial(reduce(radians));
+    }
+
+    /**
+     * Returns the cosine of the angle using the minimax polynomial.
+     * @param radians Angle in radians.
+     * @return Cosine of the angle.
+     */
+    public static float polyCos(float radians) {
+        return polynomial(reduce(radians + (double) HALF_PI));
+    }
+
+    /**
+     * Reduces the angle to -PI to PI
+     * @param radians
+     * @return Angle between -PI and PI
+     */
+    private static float reduce(double radians) {
+        double turns = radians * INV_TWO_PI;
+        long period = (long) (turns + (turns < 0 ? -0.5 : 0.5));
+        return (float) (radians - period * TWO_PI);
+    }
+
+    /**
+     * Calculates sine for angle between -PI and PI, the angle is mirrored to -PI/2 to PI/2
+     * @param x
+     * @return Sine of x
+     */
+    private static float polynomial(float x) {
+        if (x > HALF_PI) {
+            x = PI - x;
+        } else if (x < -HALF_PI) {
+            x = -PI - x;
+        }
+        float x2 = x * x;
+        return x * (C1 + x2 * (C3 + x2 * (C5 + x2 * C7)));
+    }
+
+}
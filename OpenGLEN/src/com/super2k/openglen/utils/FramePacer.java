@@ -0,0 +1,399 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.utils;
+
+/**
+ * Paces frames so that they are released at a fixed period, call pace() once every frame,
+ * normally just before swapping buffers.
+ * The wait is done by sleeping until shortly before the deadline and then spinning,
+ * the time the thread oversleeps is measured and the sleep is shortened accordingly.
+ * Deadlines are kept on a fixed grid, if a frame is late the next deadline is taken from the
+ * grid and not from when the frame was released. If a refresh rate is set the period is
+ * rounded up to a whole number of refresh intervals.
+ * The pacer also keeps a smoothed frame delta, to be used for animations, and jitter
+ * statistics of how late frames were released compared to the deadline.
+ * If the period is 0 no waiting is done, frame deltas are still measured.
+ * @author Richard Sahlin
+ *
+ */
+public class FramePacer {
+
+    /**
+     * Default time, in nanos, before deadline when sleeping stops and spinning starts.
+     */
+    public final static int DEFAULT_SPIN_THRESHOLD = 1000000;
+
+    /**
+     * Default factor used to smooth frame delta.
+     */
+    public final static float DEFAULT_SMOOTHING = 0.1f;
+
+    /**
+     * Max frame delta used for smoothing, in nanos, larger deltas are clamped to this value
+     * so that a single stall does not affect the animation deltas for a long time.
+     */
+    public final static long MAX_DELTA = 100000000;
+
+    protected final static int NANOS_PER_MILLI = 1000000;
+
+    /**
+     * The requested min period, in nanos.
+     */
+    protected long mMinPeriod;
+
+    /**
+     * The period, in nanos, that frames are released at. This is the min period rounded
+     * up to whole refresh intervals if a refresh rate is set.
+     */
+    protected long mPeriod;
+
+    /**
+     * Refresh interval in nanos, 0 if not set.
+     */
+    protected long mRefreshInterval;
+
+    protected long mSpinThreshold = DEFAULT_SPIN_THRESHOLD;
+
+    /**
+     * Estimated number of nanos that a sleep overshoots the requested time.
+     */
+    protected long mSleepOvershoot;
+
+    /**
+     * Next deadline, 0 if not started.
+     */
+    protected long mDeadline;
+
+    /**
+     * Time, in nanos, when the previous frame was released, 0 for the first frame.
+     */
+    protected long mPreviousRelease;
+
+    /**
+     * Last frame delta, in nanos.
+     */
+    protected long mFrameDelta;
+
+    /**
+     * Smoothed frame delta in seconds.
+     */
+    protected float mSmoothedDelta;
+    protected float mSmoothing = DEFAULT_SMOOTHING;
+
+    /**
+     * Jitter statistics, values in nanos.
+     * Jitter is the time between deadline and release of frames where the pacer waited.
+     */
+    protected int mFrameCount;
+    protected int mJitterCount;
+    protected long mJitterSum;
+    protected long mJitterMax;
+    protected double mJitterSquareSum;
+    /**
+     * Number of frames that were not ready at the deadline.
+     */
+    protected int mLateFrames;
+    /**
+     * Number of deadlines that were skipped because a frame was later than one period.
+     */
+    protected int mSkippedDeadlines;
+
+    /**
+     * Creates a new framepacer with the specified min period.
+     * @param periodMikros Min time between frames in mikroseconds, or 0 to not wait.
+     * @throws IllegalArgumentException If periodMikros is negative.
+     */
+    public FramePacer(int periodMikros) {
+        setPeriod(periodMikros);
+    }
+
+    /**
+     * Sets the min period between frames.
+     * @param periodMikros Min time between frames in mikroseconds, or 0 to not wait.
+     * @throws IllegalArgumentException If periodMikros is negative.
+     */
+    public void setPeriod(int periodMikros) {
+        if (periodMikros < 0) {
+            throw new IllegalArgumentException("Invalid period: " + periodMikros);
+        }
+        mMinPeriod = periodMikros * 1000L;
+        updatePeriod();
+    }
+
+    /**
+     * Returns the min period between frames, as set by setPeriod()
+     * @return The min period in mikroseconds.
+     */
+    public int getMinPeriod() {
+        return (int) (mMinPeriod / 1000);
+    }
+
+    /**
+     * Sets the refresh rate of the display, the period will be rounded up to a whole number
+     * of refresh intervals so that frames are aligned with the display refresh.
+     * @param hz The refresh rate in Hz, or 0 to not align to display refresh.
+     * @throws IllegalArgumentException If hz is negative.
+     */
+    public void setRefreshRate(float hz) {
+        if (hz < 0) {
+            throw new IllegalArgumentException("Invalid refresh rate: " + hz);
+        }
+        mRefreshInterval = hz > 0 ? (long) (1000000000.0 / hz) : 0;
+        updatePeriod();
+    }
+
+    /**
+     * Calculates the period from min period and refresh interval, restarts deadlines.
+     */
+    protected void updatePeriod() {
+        if (mRefreshInterval > 0 && mMinPeriod > 0) {
+            mPeriod = ((mMinPeriod + mRefreshInterval - 1) / mRefreshInterval) *
+                    mRefreshInterval;
+        } else {
+            mPeriod = mMinPeriod;
+        }
+        mDeadline = 0;
+    }
+
+    /**
+     * Returns the period frames are released at.
+     * @return The period in mikroseconds, 0 if not waiting.
+     */
+    public int getPeriod() {
+        return (int) (mPeriod / 1000);
+    }
+
+    /**
+     * Sets the time before the deadline when the pacer stops sleeping and starts spinning,
+     * a larger value gives better precision but uses more cpu.
+     * @param mikros Spin threshold in mikroseconds.
+     * @throws IllegalArgumentException If mikros is negative.
+     */
+    public void setSpinThreshold(int mikros) {
+        if (mikros < 0) {
+            throw new IllegalArgumentException("Invalid spin threshold: " + mikros);
+        }
+        mSpinThreshold = mikros * 1000L;
+    }
+
+    /**
+     * Sets the factor used to smooth frame deltas, the smoothed delta moves this fraction
+     * towards the latest frame delta each frame.
+     * @param factor Value between 0 and 1, 1 means no smoothing.
+     * @throws IllegalArgumentException If factor is not > 0 and <= 1
+     */
+    public void setSmoothing(float factor) {
+        if (factor <= 0 || factor > 1) {
+            throw new IllegalArgumentException("Invalid smoothing: " + factor);
+        }
+        mSmoothing = factor;
+    }
+
+    /**
+     * Waits until the deadline for the current frame, then updates frame delta and statistics.
+     * If the frame is later than the deadline this method returns immediately.
+     * @return The time, from System.nanoTime(), when the frame was released.
+     */
+    public long pace() {
+        long now = nanoTime();
+        if (mPeriod > 0) {
+            if (mDeadline == 0) {
+                //First frame, start deadlines from now.
+                mDeadline = now;
+            } else if (now < mDeadline) {
+                waitUntil(mDeadline);
+                now = nanoTime();
+                long jitter = now - mDeadline;
+                if (jitter < 0) {
+                    jitter = 0;
+                }
+                mJitterCount++;
+                mJitterSum += jitter;
+                mJitterSquareSum += (double) jitter * jitter;
+                if (jitter > mJitterMax) {
+                    mJitterMax = jitter;
+                }
+            } else if (now > mDeadline) {
+                mLateFrames++;
+            }
+            mDeadline += mPeriod;
+            if (now >= mDeadline) {
+                //More than one period late, take the next deadline on the grid.
+                long skipped = (now - mDeadline) / mPeriod + 1;
+                mSkippedDeadlines += skipped;
+                mDeadline += skipped * mPeriod;
+            }
+        }
+        updateDelta(now);
+        return now;
+    }
+
+    /**
+     * Updates the frame delta and smoothed delta.
+     * @param now Time when frame was released.
+     */
+    protected void updateDelta(long now) {
+        if (mPreviousRelease != 0) {
+            mFrameDelta = now - mPreviousRelease;
+            long delta = mFrameDelta < MAX_DELTA ? mFrameDelta : MAX_DELTA;
+            mFrameCount++;
+            if (mSmoothedDelta == 0) {
+                mSmoothedDelta = delta / 1000000000f;
+            } else {
+                mSmoothedDelta += (delta / 1000000000f - mSmoothedDelta) * mSmoothing;
+            }
+        }
+        mPreviousRelease = now;
+    }
+
+    /**
+     * Waits until deadline by first sleeping then spinning.
+     * The sleep overshoot is measured and used to shorten the next sleep.
+     * @param deadline The time, in nanos, to wait until.
+     */
+    protected void waitUntil(long deadline) {
+        long remaining;
+        long sleep;
+        long before;
+        while ((remaining = deadline - nanoTime()) > mSpinThreshold + mSleepOvershoot) {
+            sleep = remaining - mSpinThreshold - mSleepOvershoot;
+            before = nanoTime();
+            sleep(sleep);
+            long overshoot = (nanoTime() - before) - sleep;
+            mSleepOvershoot += (overshoot - mSleepOvershoot) / 4;
+            if (mSleepOvershoot < 0) {
+                mSleepOvershoot = 0;
+            } else if (mPeriod > 0 && mSleepOvershoot > mPeriod) {
+                mSleepOvershoot = mPeriod;
+            }
+        }
+        while (deadline - nanoTime() > 0) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Returns the current time in nanos, subclasses may override to use another time source.
+     * @return Current time in nanos.
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Sleeps the calling thread.
+     * @param nanos Number of nanos to sleep.
+     */
+    protected void sleep(long nanos) {
+        try {
+            Thread.sleep(nanos / NANOS_PER_MILLI, (int) (nanos % NANOS_PER_MILLI));
+        } catch (InterruptedException e) {
+            //Nothing to do, waiting will continue.
+        }
+    }
+
+    /**
+     * Returns the time between the last 2 frames.
+     * @return Frame delta in mikroseconds.
+     */
+    public int getFrameDelta() {
+        return (int) (mFrameDelta / 1000);
+    }
+
+    /**
+     * Returns the smoothed frame delta, use this for animations to avoid uneven movement.
+     * @return Smoothed frame delta in seconds.
+     */
+    public float getSmoothedDelta() {
+        return mSmoothedDelta;
+    }
+
+    /**
+     * Returns the estimated time that a sleep overshoots the requested time.
+     * @return Sleep overshoot in mikroseconds.
+     */
+    public int getSleepOvershoot() {
+        return (int) (mSleepOvershoot / 1000);
+    }
+
+    /**
+     * Returns the number of frames that have been measured since statistics was reset.
+     * @return Number of frames.
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Returns the number of frames that were not ready at the deadline.
+     * @return Number of late frames.
+     */
+    public int getLateFrames() {
+        return mLateFrames;
+    }
+
+    /**
+     * Returns the number of deadlines that were skipped because frames were later
+     * than one period.
+     * @return Number of skipped deadlines.
+     */
+    public int getSkippedDeadlines() {
+        return mSkippedDeadlines;
+    }
+
+    /**
+     * Returns the average time between deadline and release, for frames where the pacer waited.
+     * @return Average jitter in mikroseconds.
+     */
+    public int getAverageJitter() {
+        if (mJitterCount == 0) {
+            return 0;
+        }
+        return (int) (mJitterSum / mJitterCount / 1000);
+    }
+
+    /**
+     * Returns the max time between deadline and release, for frames where the pacer waited.
+     * @return Max jitter in mikroseconds.
+     */
+    public int getMaxJitter() {
+        return (int) (mJitterMax / 1000);
+    }
+
+    /**
+     * Returns the standard deviation of the time between deadline and release.
+     * @return Jitter standard deviation in mikroseconds.
+     */
+    public int getJitterDeviation() {
+        if (mJitterCount == 0) {
+            return 0;
+        }
+        double mean = (double) mJitterSum / mJitterCount;
+        double variance = mJitterSquareSum / mJitterCount - mean * mean;
+        return variance > 0 ? (int) (Math.sqrt(variance) / 1000) : 0;
+    }
+
+    /**
+     * Resets the jitter and frame statistics, deadlines and smoothed delta are not changed.
+     */
+    public void resetStatistics() {
+        mFrameCount = 0;
+        mJitterCount = 0;
+        mJitterSum = 0;
+        mJitterMax = 0;
+        mJitterSquareSum = 0;
+        mLateFrames = 0;
+        mSkippedDeadlines = 0;
+    }
+
+}
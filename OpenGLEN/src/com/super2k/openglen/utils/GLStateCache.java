@@ -0,0 +1,391 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.utils;
+
+import java.util.Arrays;
+
+import com.super2k.openglen.ConstantValues;
+
+/**
+ * Shadow copy of GL state, used by the GraphicsLibraryHandler, TextureHandler and
+ * ProgramHandler to drop calls that would not change the state.
+ * Each method records the new state and returns true if the GL call must be made, false if
+ * the state is already set and the call is redundant.
+ * State that is not known, for instance after the context is created or after calls made
+ * outside of OpenGLEN, is always set. Call invalidate() when GL state may have been changed
+ * without going through the handlers.
+ * This class does not call GL and is not thread safe, it shall only be used on the GL thread.
+ * @author Richard Sahlin
+ *
+ */
+public class GLStateCache {
+
+    /**
+     * Value used for state that is not known.
+     */
+    public final static int UNKNOWN = -1;
+
+    /**
+     * Max number of texture units tracked, binds to other units are always made.
+     */
+    public final static int MAX_TEXTURE_UNITS = 16;
+
+    /**
+     * Max number of vertex attrib arrays tracked.
+     */
+    public final static int MAX_VERTEX_ATTRIBS = 16;
+
+    /**
+     * The capabilities that are tracked, enable and disable of other caps are always made.
+     */
+    protected final static int[] CAPS = new int[] {ConstantValues.TEXTURE_2D,
+            ConstantValues.CULL_FACE, ConstantValues.BLEND, ConstantValues.DITHER,
+            ConstantValues.STENCIL_TEST, ConstantValues.DEPTH_TEST,
+            ConstantValues.SCISSOR_TEST, ConstantValues.POLYGON_OFFSET_FILL,
+            ConstantValues.SAMPLE_ALPHA_TO_COVERAGE, ConstantValues.SAMPLE_COVERAGE};
+
+    protected int mProgram;
+    protected int mActiveTexture;
+    protected int[] mTexture2D = new int[MAX_TEXTURE_UNITS];
+    protected int[] mTextureCube = new int[MAX_TEXTURE_UNITS];
+    protected int mArrayBuffer;
+    protected int mElementArrayBuffer;
+    protected int mFrameBuffer;
+    protected int mVertexArray;
+    /**
+     * Enabled state of caps, same order as CAPS, 1 for enabled, 0 for disabled.
+     */
+    protected int[] mCaps = new int[CAPS.length];
+    protected int mSrcBlend;
+    protected int mDstBlend;
+    protected int[] mViewport = new int[4];
+    /**
+     * Enabled state of vertex attrib arrays, 1 for enabled, 0 for disabled.
+     */
+    protected int[] mVertexAttribArrays = new int[MAX_VERTEX_ATTRIBS];
+
+    protected int mCalls;
+    protected int mRedundantCalls;
+
+    /**
+     * Creates a new state cache, all state is unknown.
+     */
+    public GLStateCache() {
+        invalidate();
+    }
+
+    /**
+     * Sets all state to unknown, the next call of each kind will be made.
+     * Call this when the context is created or when GL state has been changed
+     * without using the handlers.
+     */
+    public void invalidate() {
+        mProgram = UNKNOWN;
+        mActiveTexture = UNKNOWN;
+        Arrays.fill(mTexture2D, UNKNOWN);
+        Arrays.fill(mTextureCube, UNKNOWN);
+        mArrayBuffer = UNKNOWN;
+        mElementArrayBuffer = UNKNOWN;
+        mFrameBuffer = UNKNOWN;
+        mVertexArray = UNKNOWN;
+        Arrays.fill(mCaps, UNKNOWN);
+        mSrcBlend = UNKNOWN;
+        mDstBlend = UNKNOWN;
+        Arrays.fill(mViewport, UNKNOWN);
+        Arrays.fill(mVertexAttribArrays, UNKNOWN);
+    }
+
+    /**
+     * Records the program in use.
+     * @param program The program.
+     * @return True if glUseProgram shall be called.
+     */
+    public boolean useProgram(int program) {
+        if (mProgram == program) {
+            return redundant();
+        }
+        mProgram = program;
+        return call();
+    }
+
+    /**
+     * Records that a program is deleted, a deleted program stays in use until another program
+     * is used, the name may however be reused so the program in use is set to unknown.
+     * @param program The deleted program.
+     */
+    public void deleteProgram(int program) {
+        if (mProgram == program) {
+            mProgram = UNKNOWN;
+        }
+    }
+
+    /**
+     * Records the active texture unit.
+     * @param texture The texture unit, ConstantValues.TEXTURE0 and up.
+     * @return True if glActiveTexture shall be called.
+     */
+    public boolean activeTexture(int texture) {
+        if (mActiveTexture == texture) {
+            return redundant();
+        }
+        mActiveTexture = texture;
+        return call();
+    }
+
+    /**
+     * Records the texture bound to the active texture unit.
+     * @param target ConstantValues.TEXTURE_2D or ConstantValues.TEXTURE_CUBE_MAP
+     * @param texture The texture name.
+     * @return True if glBindTexture shall be called.
+     */
+    public boolean bindTexture(int target, int texture) {
+        int unit = mActiveTexture - ConstantValues.TEXTURE0;
+        int[] bound = null;
+        if (target == ConstantValues.TEXTURE_2D) {
+            bound = mTexture2D;
+        } else if (target == ConstantValues.TEXTURE_CUBE_MAP) {
+            bound = mTextureCube;
+        }
+        if (bound == null || unit < 0 || unit >= MAX_TEXTURE_UNITS) {
+            return call();
+        }
+        if (bound[unit] == texture) {
+            return redundant();
+        }
+        bound[unit] = texture;
+        return call();
+    }
+
+    /**
+     * Records that textures are deleted, units that have a deleted texture bound
+     * will revert to texture 0.
+     * @param count Number of texture names.
+     * @param names The texture names.
+     * @param offset Offset into names.
+     */
+    public void deleteTextures(int count, int[] names, int offset) {
+        for (int i = offset; i < offset + count; i++) {
+            for (int unit = 0; unit < MAX_TEXTURE_UNITS; unit++) {
+                if (mTexture2D[unit] == names[i]) {
+                    mTexture2D[unit] = 0;
+                }
+                if (mTextureCube[unit] == names[i]) {
+                    mTextureCube[unit] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the buffer bound to a target.
+     * @param target ConstantValues.ARRAY_BUFFER or ConstantValues.ELEMENT_ARRAY_BUFFER
+     * @param buffer The buffer name.
+     * @return True if glBindBuffer shall be called.
+     */
+    public boolean bindBuffer(int target, int buffer) {
+        switch (target) {
+            case ConstantValues.ARRAY_BUFFER:
+                if (mArrayBuffer == buffer) {
+                    return redundant();
+                }
+                mArrayBuffer = buffer;
+                return call();
+            case ConstantValues.ELEMENT_ARRAY_BUFFER:
+                if (mElementArrayBuffer == buffer) {
+                    return redundant();
+                }
+                mElementArrayBuffer = buffer;
+                return call();
+            default:
+                return call();
+        }
+    }
+
+    /**
+     * Records that buffers are deleted, targets that have a deleted buffer bound
+     * will revert to buffer 0.
+     * @param count Number of buffer names.
+     * @param names The buffer names.
+     * @param offset Offset into names.
+     */
+    public void deleteBuffers(int count, int[] names, int offset) {
+        for (int i = offset; i < offset + count; i++) {
+            if (mArrayBuffer == names[i]) {
+                mArrayBuffer = 0;
+            }
+            if (mElementArrayBuffer == names[i]) {
+                mElementArrayBuffer = 0;
+            }
+        }
+    }
+
+    /**
+     * Records the bound vertex array object. The element array buffer and the enabled
+     * vertex attrib arrays are part of the vertex array object, when another vertex array
+     * is bound these are set to unknown.
+     * @param array The vertex array object name, 0 for the default vertex array.
+     * @return True if glBindVertexArray shall be called.
+     */
+    public boolean bindVertexArray(int array) {
+        if (mVertexArray == array) {
+            return redundant();
+        }
+        mVertexArray = array;
+        mElementArrayBuffer = UNKNOWN;
+        Arrays.fill(mVertexAttribArrays, UNKNOWN);
+        return call();
+    }
+
+    /**
+     * Records that vertex array objects are deleted, if the bound vertex array is deleted
+     * the default vertex array is bound.
+     * @param count Number of vertex array names.
+     * @param names The vertex array names.
+     * @param offset Offset into names.
+     */
+    public void deleteVertexArrays(int count, int[] names, int offset) {
+        for (int i = offset; i < offset + count; i++) {
+            if (mVertexArray == names[i]) {
+                mVertexArray = 0;
+                mElementArrayBuffer = UNKNOWN;
+                Arrays.fill(mVertexAttribArrays, UNKNOWN);
+            }
+        }
+    }
+
+    /**
+     * Records the bound framebuffer.
+     * @param frameBuffer The framebuffer name.
+     * @return True if glBindFramebuffer shall be called.
+     */
+    public boolean bindFrameBuffer(int frameBuffer) {
+        if (mFrameBuffer == frameBuffer) {
+            return redundant();
+        }
+        mFrameBuffer = frameBuffer;
+        return call();
+    }
+
+    /**
+     * Records the enabled state of a capability.
+     * @param cap The capability, eg ConstantValues.BLEND
+     * @param enable True if the capability is enabled, false if disabled.
+     * @return True if glEnable or glDisable shall be called.
+     */
+    public boolean setCapability(int cap, boolean enable) {
+        int value = enable ? 1 : 0;
+        for (int i = 0; i < CAPS.length; i++) {
+            if (CAPS[i] == cap) {
+                if (mCaps[i] == value) {
+                    return redundant();
+                }
+                mCaps[i] = value;
+                return call();
+            }
+        }
+        return call();
+    }
+
+    /**
+     * Records the blend function.
+     * @param sourceFactor The source blend factor.
+     * @param destFactor The destination blend factor.
+     * @return True if glBlendFunc shall be called.
+     */
+    public boolean blendFunc(int sourceFactor, int destFactor) {
+        if (mSrcBlend == sourceFactor && mDstBlend == destFactor) {
+            return redundant();
+        }
+        mSrcBlend = sourceFactor;
+        mDstBlend = destFactor;
+        return call();
+    }
+
+    /**
+     * Records the viewport.
+     * @return True if glViewport shall be called.
+     */
+    public boolean viewport(int x, int y, int width, int height) {
+        if (mViewport[0] == x && mViewport[1] == y && mViewport[2] == width &&
+                mViewport[3] == height) {
+            return redundant();
+        }
+        mViewport[0] = x;
+        mViewport[1] = y;
+        mViewport[2] = width;
+        mViewport[3] = height;
+        return call();
+    }
+
+    /**
+     * Records the enabled state of a vertex attrib array.
+     * @param index Index of the vertex attrib array.
+     * @param enable True if enabled, false if disabled.
+     * @return True if glEnableVertexAttribArray or glDisableVertexAttribArray shall be called.
+     */
+    public boolean setVertexAttribArray(int index, boolean enable) {
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            return call();
+        }
+        int value = enable ? 1 : 0;
+        if (mVertexAttribArrays[index] == value) {
+            return redundant();
+        }
+        mVertexAttribArrays[index] = value;
+        return call();
+    }
+
+    /**
+     * Returns the number of calls, made and dropped, since statistics were reset.
+     * @return Number of state calls.
+     */
+    public int getCalls() {
+        return mCalls;
+    }
+
+    /**
+     * Returns the number of dropped calls since statistics were reset.
+     * @return Number of redundant state calls.
+     */
+    public int getRedundantCalls() {
+        return mRedundantCalls;
+    }
+
+    /**
+     * Resets the call statistics, normally done once every frame.
+     */
+    public void resetStatistics() {
+        mCalls = 0;
+        mRedundantCalls = 0;
+    }
+
+    /**
+     * Counts a call that shall be made.
+     * @return true
+     */
+    private boolean call() {
+        mCalls++;
+        return true;
+    }
+
+    /**
+     * Counts a call that is redundant.
+     * @return false
+     */
+    private boolean redundant() {
+        mCalls++;
+        mRedundantCalls++;
+        return false;
+    }
+
+}
@@ -13,6 +13,9 @@
 package com.super2k.openglen.utils;
 
 import java.nio.Buffer;
+import java.nio.ShortBuffer;
+import java.util.Enumeration;
+import java.util.Hashtable;
 import java.util.Vector;
 
 import com.super2k.openglen.ConstantValues;
@@ -42,7 +45,35 @@ public abstract class GraphicsLibraryHandler {
     protected final static String VBO_CONVERT_ERROR = "Could not convert object to VBO.";
     protected final static String ILLEGAL_GET_NAME = "Could not get String, illegal name";
     protected final static String INVALID_PARAMETER = "Invalid paramter.";
+    protected final static String VERTEX_ARRAY_NOT_SUPPORTED = "Vertex arrays not supported.";
 
+    /**
+     * Size in bytes of buffer objects created by this class, using buffer name as key.
+     */
+    protected Hashtable<Integer, Integer> mVBOSizes = new Hashtable<Integer, Integer>();
+
+    /**
+     * Total number of bytes allocated in buffer objects created by this class.
+     */
+    protected long mVBOBytes;
+
+    /**
+     * Shared element buffer objects for quads, using subdivision as key.
+     * The value is the buffer name and number of references.
+     */
+    protected Hashtable<Integer, int[]> mElementVBOs = new Hashtable<Integer, int[]>();
+    protected final static int ELEMENT_VBO_NAME = 0;
+    protected final static int ELEMENT_VBO_REFERENCES = 1;
+
+    /**
+     * Cache of GL state, shared with the texture and program handlers.
+     */
+    protected final GLStateCache mStateCache = new GLStateCache();
+
+    /**
+     * Array buffer for vertex data that is uploaded every frame, created when first used.
+     */
+    protected StreamingBuffer mStreamingBuffer;
 
     /**
      * Setup GL to the default values, clear buffers before rendering takes place.
@@ -110,11 +141,20 @@ public abstract class GraphicsLibraryHandler {
      * @param target The target of the buffer, ARRAY_BUFFER or ELEMENT_ARRAY_BUFFER
      * @param size Size of the buffer in bytes.
      * @param data Data array to copy into buffer or null for no copy.
-     * @param usage Usage flag, STATIC_DRAW or DYNAMIC_DRAW
+     * @param usage Usage flag, STATIC_DRAW, DYNAMIC_DRAW or STREAM_DRAW
      * @return Result, NO_ERROR or errorcode
      */
     protected abstract int internalBufferData(int target, int size, Buffer data, int usage);
 
+    /**
+     * Internal wrapper method for bufferSubData.
+     * @param target The target of the buffer, ARRAY_BUFFER or ELEMENT_ARRAY_BUFFER
+     * @param offset Byte offset into the data store.
+     * @param size Number of bytes to copy.
+     * @param data Data to copy into the buffer.
+     */
+    protected abstract void internalBufferSubData(int target, int offset, int size, Buffer data);
+
     /**
      * Internal method to clear buffer, what buffers to clear is specified by parameter.
      * @param flags What buffers to clear, bitwise or of:
@@ -166,6 +206,8 @@ public abstract class GraphicsLibraryHandler {
 
     /**
      * Converts a GLBLitObject to use VBOs.
+     * The element buffer is shared by all blits with the same subdivision,
+     * see acquireElementVBO()
      * @param blit The blit object to convert to using VBOs.
      * @throws OpenGLENException If the object could not be converted to using VBOs.
      * TODO Use one method to convert buffer array that is shared with GLObject
@@ -175,38 +217,32 @@ public abstract class GraphicsLibraryHandler {
         int tries = 0;
         //Create the buffer
         boolean failed = false;
-        int[] bufferNames = new int[2];
-        int[] bufferTarget = new int[2];
+        int[] bufferNames = new int[1];
+        int bufferTarget = 0;
         boolean retry = true;
         while (retry) {
 
             retry = false; //set retry to true if out of memory error after calling gc.
+            failed = false;
+            bufferTarget = 0;
             try {
 
-                genBuffers(2, bufferNames, 0); //only reports error if count is negative
-                if (bufferNames[0] != 0 && bufferNames[1] != 0 )    {
-                    int vertexCount = blit.getVertexCount();     //Need to store 3 buffers,
-                    //vertices, normals tex coords.
+                genBuffers(1, bufferNames, 0); //only reports error if count is negative
+                if (bufferNames[0] != 0)    {
+                    //Size of interleaved array as described by the vertex format.
+                    int arraySize = blit.getVertexCount() * blit.getVertexFormat().getStride();
                     bindBuffer(ConstantValues.ARRAY_BUFFER, bufferNames[0]);
-                    bufferData(ConstantValues.ARRAY_BUFFER,
-                            (vertexCount * 3 + vertexCount * 3 + vertexCount * 2) * 4,
-                            blit.getArrayBuffer().rewind(), ConstantValues.STATIC_DRAW);
+                    bufferData(ConstantValues.ARRAY_BUFFER, arraySize,
+                            blit.arrayData.rewind(), ConstantValues.STATIC_DRAW);
                     int result = checkError();
                     if (result == ConstantValues.NO_ERROR) {
-                        bufferTarget[0] = ConstantValues.ARRAY_BUFFER;
+                        bufferTarget = ConstantValues.ARRAY_BUFFER;
+                        failed = true; //Until the element buffer is acquired.
+                        blit.setElementVBOName(acquireElementVBO(blit.getDivision(),
+                                blit.getElementBuffer()));
+                        failed = false;
                         blit.setArrayVBOName(bufferNames[0]);
-                        bindBuffer(ConstantValues.ELEMENT_ARRAY_BUFFER, bufferNames[1]);
-                        bufferData(ConstantValues.ELEMENT_ARRAY_BUFFER,
-                                blit.getIndexCount() * 2,
-                                blit.getElementBuffer().rewind(),
-                                ConstantValues.STATIC_DRAW);
-                        result = checkError();
-                        if (result != ConstantValues.NO_ERROR) {
-                            failed = true;
-                            throw new OpenGLENException(VBO_CONVERT_ERROR, result);
-                        }
-                        bufferTarget[1] = ConstantValues.ELEMENT_ARRAY_BUFFER;
-                        blit.setElementVBOName(bufferNames[1]);
+                        addVBOSize(bufferNames[0], arraySize);
                     }
                     else {
                         failed = true;
@@ -232,68 +268,151 @@ public abstract class GraphicsLibraryHandler {
             finally {
                 //Release buffers if not succesful
                 if (failed) {
-                    for (int i = 0; i < bufferTarget.length; i++) {
-                        if (bufferTarget[i] != 0) {
-                            clearError();
-                            bindBuffer(bufferTarget[i], bufferNames[i]);
-                            bufferData(bufferTarget[i], 0, null, ConstantValues.STATIC_DRAW);
-                        }
+                    if (bufferTarget != 0) {
+                        clearError();
+                        bindBuffer(bufferTarget, bufferNames[0]);
+                        bufferData(bufferTarget, 0, null, ConstantValues.STATIC_DRAW);
                     }
-                    deleteBuffers(2, bufferNames, 0);
+                    deleteBuffers(1, bufferNames, 0);
                 }
             }
         } //end while
     }
 
     /**
-     * Converts a GLParticleArray to use VBOs.
-     * @param blit The particles object to convert to using VBOs.
-     * @throws OpenGLENException If the object could not be converted to using VBOs.
-     * TODO Use one method to convert buffer array that is shared with GLObject
-     */
-    protected void convertParticleArrayTOVBO(GLParticleArray particles) throws OpenGLENException {
-
-        //Create the buffer
-        boolean failed = false;
-        int[] bufferNames = new int[1];
+     * Returns the element buffer object for quads with the subdivision, the buffer is
+     * created the first time it is used and shared by all blits with the same subdivision.
+     * Each call shall be matched by a call to releaseElementVBO().
+     * @param division The subdivision of the quads.
+     * @param indices The indices, used if the buffer is created.
+     * @return Name of the element buffer object.
+     * @throws OpenGLENException If the buffer object could not be created.
+     */
+    protected int acquireElementVBO(int division, ShortBuffer indices)
+            throws OpenGLENException {
+        Integer key = Integer.valueOf(division);
+        int[] element = mElementVBOs.get(key);
+        if (element != null) {
+            element[ELEMENT_VBO_REFERENCES]++;
+            return element[ELEMENT_VBO_NAME];
+        }
+        int[] names = new int[1];
+        genBuffers(1, names, 0);
+        if (names[0] == 0) {
+            throw new OpenGLENException(VBO_BUFFER_NAME_ERROR);
+        }
+        int size = indices.capacity() * 2;
+        bindBuffer(ConstantValues.ELEMENT_ARRAY_BUFFER, names[0]);
         try {
-            genBuffers(1, bufferNames, 0); //only reports error if count is negative
-            if (bufferNames[0] != 0 )    {
-                int vertexCount = particles.getMaxParticleCount();     //Need to store 3 buffers,
-                //vertices, speed and extra data.
-                bindBuffer(ConstantValues.ARRAY_BUFFER, bufferNames[0]);
-                bufferData(ConstantValues.ARRAY_BUFFER,
-                        (vertexCount * GLParticleArray.PARTICLE_FLOAT_COUNT) * 4,
-                        particles.arrayBuffer.rewind(), ConstantValues.DYNAMIC_DRAW);
-                int result = checkError();
-                if (result == ConstantValues.NO_ERROR) {
-
-                    result = checkError();
-                    if (result != ConstantValues.NO_ERROR) {
-                        failed = true;
-                        throw new OpenGLENException(VBO_CONVERT_ERROR, result);
-                    }
-                    particles.setArrayVBOName(bufferNames[0]);
-                }
-                else {
-                    failed = true;
-                    throw new OpenGLENException(VBO_CONVERT_ERROR, result);
+            bufferData(ConstantValues.ELEMENT_ARRAY_BUFFER, size, indices.rewind(),
+                    ConstantValues.STATIC_DRAW);
+        } catch (OutOfMemoryError oome) {
+            deleteBuffers(1, names, 0);
+            throw oome;
+        }
+        int result = checkError();
+        if (result != ConstantValues.NO_ERROR) {
+            deleteBuffers(1, names, 0);
+            throw new OpenGLENException(VBO_CONVERT_ERROR, result);
+        }
+        addVBOSize(names[0], size);
+        mElementVBOs.put(key, new int[] {names[0], 1});
+        return names[0];
+    }
+
+    /**
+     * Releases an element buffer object returned by acquireElementVBO(), the buffer is
+     * deleted when it is no longer used.
+     * @param name Name of the element buffer object.
+     * @return True if name is a shared element buffer, false otherwise.
+     */
+    protected boolean releaseElementVBO(int name) {
+        Enumeration<Integer> keys = mElementVBOs.keys();
+        while (keys.hasMoreElements()) {
+            Integer key = keys.nextElement();
+            int[] element = mElementVBOs.get(key);
+            if (element[ELEMENT_VBO_NAME] == name) {
+                if (--element[ELEMENT_VBO_REFERENCES] == 0) {
+                    mElementVBOs.remove(key);
+                    deleteVBOBuffer(new int[] {name}, 1, 0, ConstantValues.ELEMENT_ARRAY_BUFFER);
                 }
-            }
-            else {
-                failed = true;
-                throw new OpenGLENException(VBO_BUFFER_NAME_ERROR);
+                return true;
             }
         }
-        finally {
-            //Release buffers if not succesful
-            if (failed) {
-                deleteBuffers(1, bufferNames, 0);
-            }
+        return false;
+    }
+
+    /**
+     * Forgets the GL objects owned by this class, called by setupGL() implementations.
+     * Objects created in a previous GL context are not valid in a new context, they are
+     * created again when needed.
+     */
+    protected void resetContext() {
+        mStateCache.invalidate();
+        Enumeration<int[]> elements = mElementVBOs.elements();
+        while (elements.hasMoreElements()) {
+            removeVBOSize(elements.nextElement()[ELEMENT_VBO_NAME]);
+        }
+        mElementVBOs.clear();
+        if (mStreamingBuffer != null) {
+            mStreamingBuffer.reset();
+        }
+    }
+
+    /**
+     * Returns the number of shared element buffer objects.
+     * @return Number of element buffers, one for each subdivision in use.
+     */
+    public int getElementVBOCount() {
+        return mElementVBOs.size();
+    }
+
+    /**
+     * Converts a GLParticleArray to use VBOs.
+     * Particle data changes every frame, the particles are streamed into the shared
+     * streaming buffer when rendered and the array buffer name of the particles is set
+     * to the name of the streaming buffer.
+     * @param particles The particles object to convert to using VBOs.
+     * @throws OpenGLENException If the object could not be converted to using VBOs.
+     */
+    protected void convertParticleArrayTOVBO(GLParticleArray particles) throws OpenGLENException {
+        StreamingBuffer stream = getStreamingBuffer();
+        clearError();
+        stream.bind();
+        int result = checkError();
+        if (result != ConstantValues.NO_ERROR) {
+            throw new OpenGLENException(VBO_CONVERT_ERROR, result);
         }
+        particles.setArrayVBOName(stream.getName());
     }
 
+    /**
+     * Returns the buffer used to stream vertex data that is updated every frame,
+     * the buffer is created with the default size if needed.
+     * @return The streaming buffer.
+     */
+    public StreamingBuffer getStreamingBuffer() {
+        if (mStreamingBuffer == null) {
+            mStreamingBuffer = new StreamingBuffer(this, StreamingBuffer.DEFAULT_FRAME_SIZE,
+                    StreamingBuffer.DEFAULT_FRAMES);
+        }
+        return mStreamingBuffer;
+    }
 
+    /**
+     * Sets the size of the streaming buffer, any existing streaming buffer is deleted.
+     * Call this before converting objects that are streamed to VBO.
+     * @param frameSize Expected number of bytes streamed each frame.
+     * @param frames Number of frames of data the buffer shall hold before it is orphaned.
+     * @throws IllegalArgumentException If frameSize or frames < 1
+     */
+    public void setStreamingBufferSize(int frameSize, int frames) {
+        StreamingBuffer stream = new StreamingBuffer(this, frameSize, frames);
+        if (mStreamingBuffer != null) {
+            mStreamingBuffer.destroy();
+        }
+        mStreamingBuffer = stream;
+    }
 
     /**
      * Returns the uniform location for the specifid program and name.
@@ -373,13 +492,139 @@ public abstract class GraphicsLibraryHandler {
     public abstract void genBuffers(int count, int[] names, int offset);
 
     /**
-     * Binds a named buffer to the specified target.
+     * Binds a named buffer to the specified target, nothing is done if the buffer is
+     * already bound.
      * @param target The target to which the buffer is bound.
      * Must be ConstantValues.ARRAY_BUFFER or
      * ConstantValues.ELEMENT_ARRAY_BUFFER.
      * @param buffer The name of a buffer object.
      */
-    public abstract void bindBuffer(int target, int buffer);
+    public void bindBuffer(int target, int buffer) {
+        if (mStateCache.bindBuffer(target, buffer)) {
+            internalBindBuffer(target, buffer);
+        }
+    }
+
+    /**
+     * Internal wrapper method for bindBuffer.
+     * @param target The target to which the buffer is bound.
+     * @param buffer The name of a buffer object.
+     */
+    protected abstract void internalBindBuffer(int target, int buffer);
+
+    /**
+     * Sets the viewport, nothing is done if the viewport is already set.
+     * @param x Left of the viewport in pixels.
+     * @param y Bottom of the viewport in pixels.
+     * @param width Width of the viewport in pixels.
+     * @param height Height of the viewport in pixels.
+     */
+    public void viewport(int x, int y, int width, int height) {
+        if (mStateCache.viewport(x, y, width, height)) {
+            internalViewport(x, y, width, height);
+        }
+    }
+
+    /**
+     * Internal wrapper method for viewport.
+     * @param x Left of the viewport in pixels.
+     * @param y Bottom of the viewport in pixels.
+     * @param width Width of the viewport in pixels.
+     * @param height Height of the viewport in pixels.
+     */
+    protected abstract void internalViewport(int x, int y, int width, int height);
+
+    /**
+     * Returns true if vertex array objects are supported, for instance by the
+     * OES_vertex_array_object extension.
+     * Default implementation returns false, platforms that support vertex array objects
+     * shall override this method together with internalGenVertexArrays(),
+     * internalBindVertexArray() and internalDeleteVertexArrays()
+     * Call this method when context is current.
+     * @return True if vertex array objects are supported.
+     */
+    public boolean isVertexArraySupported() {
+        return false;
+    }
+
+    /**
+     * Generates vertex array object names.
+     * @param count Number of names to generate.
+     * @param names Array where names are returned.
+     * @param offset Offset into array.
+     * @throws IllegalArgumentException If count or offset is negative or names does not
+     * contain count + offset values.
+     * @throws IllegalStateException If vertex arrays are not supported.
+     */
+    public void genVertexArrays(int count, int[] names, int offset) {
+        if (count < 0 || offset < 0 || names == null || names.length < count + offset) {
+            throw new IllegalArgumentException(INVALID_PARAMETER);
+        }
+        internalGenVertexArrays(count, names, offset);
+    }
+
+    /**
+     * Binds a vertex array object, nothing is done if the vertex array is already bound.
+     * @param array The vertex array object name, or 0 for the default vertex array.
+     * @throws IllegalStateException If vertex arrays are not supported.
+     */
+    public void bindVertexArray(int array) {
+        if (mStateCache.bindVertexArray(array)) {
+            internalBindVertexArray(array);
+        }
+    }
+
+    /**
+     * Deletes the named vertex array objects.
+     * @param count Number of names to delete.
+     * @param names Array containing vertex array object names.
+     * @param offset Offset into the array.
+     * @throws IllegalStateException If vertex arrays are not supported.
+     */
+    public void deleteVertexArrays(int count, int[] names, int offset) {
+        internalDeleteVertexArrays(count, names, offset);
+        mStateCache.deleteVertexArrays(count, names, offset);
+    }
+
+    /**
+     * Internal wrapper method for genVertexArrays, parameters are checked before calling.
+     * @param count Number of names to generate.
+     * @param names Array where names are returned.
+     * @param offset Offset into array.
+     * @throws IllegalStateException If vertex arrays are not supported.
+     */
+    protected void internalGenVertexArrays(int count, int[] names, int offset) {
+        throw new IllegalStateException(VERTEX_ARRAY_NOT_SUPPORTED);
+    }
+
+    /**
+     * Internal wrapper method for bindVertexArray.
+     * @param array The vertex array object name.
+     * @throws IllegalStateException If vertex arrays are not supported.
+     */
+    protected void internalBindVertexArray(int array) {
+        throw new IllegalStateException(VERTEX_ARRAY_NOT_SUPPORTED);
+    }
+
+    /**
+     * Internal wrapper method for deleteVertexArrays.
+     * @param count Number of names to delete.
+     * @param names Array containing vertex array object names.
+     * @param offset Offset into the array.
+     * @throws IllegalStateException If vertex arrays are not supported.
+     */
+    protected void internalDeleteVertexArrays(int count, int[] names, int offset) {
+        throw new IllegalStateException(VERTEX_ARRAY_NOT_SUPPORTED);
+    }
+
+    /**
+     * Returns the cache of GL state, this is used by the handlers to drop redundant calls.
+     * Call invalidate() on the cache if GL state is changed without using the handlers.
+     * @return The GL state cache.
+     */
+    public GLStateCache getStateCache() {
+        return mStateCache;
+    }
 
     /**
      * Clears the currently bound framebuffer.
@@ -433,7 +678,7 @@ public abstract class GraphicsLibraryHandler {
      * @param data The data to store at initialization,
      * or NULL to not copy any data.
      * @param usage Expected usage pattern
-     * ConstantValues.StaticDraw or ConstantValues.DynamicDraw
+     * ConstantValues.STATIC_DRAW, ConstantValues.DYNAMIC_DRAW or ConstantValues.STREAM_DRAW
      * @throws IllegalArgumentException If any of the parameters are invalid.
      * @throws OutOfMemoryException if the bufferData call fails due to out of memory.
      */
@@ -442,7 +687,8 @@ public abstract class GraphicsLibraryHandler {
         if (target < 0 || target == 0 || size < 0 ||
                 (target != ConstantValues.ELEMENT_ARRAY_BUFFER &&
                  target != ConstantValues.ARRAY_BUFFER) ||
-                (usage != ConstantValues.STATIC_DRAW && usage != ConstantValues.DYNAMIC_DRAW)){
+                (usage != ConstantValues.STATIC_DRAW && usage != ConstantValues.DYNAMIC_DRAW &&
+                 usage != ConstantValues.STREAM_DRAW)){
             throw new IllegalArgumentException("Invalid parameter for bufferData.");
         }
         //Call should be OK unless out of memory.
@@ -455,13 +701,43 @@ public abstract class GraphicsLibraryHandler {
 
     }
 
+    /**
+     * Updates a subset of a buffer object's data store.
+     * @param target Specifies the target buffer object.
+     * Must be ConstantValues.ARRAY_BUFFER or
+     * ConstantValues.ELEMENT_ARRAY_BUFFER.
+     * @param offset Byte offset into the data store where data is copied.
+     * @param size Number of bytes to copy.
+     * @param data The data to copy, from the current position.
+     * @throws IllegalArgumentException If any of the parameters are invalid.
+     */
+    public void bufferSubData(int target, int offset, int size, Buffer data) {
+        if (offset < 0 || size < 0 || data == null ||
+                (target != ConstantValues.ELEMENT_ARRAY_BUFFER &&
+                 target != ConstantValues.ARRAY_BUFFER)) {
+            throw new IllegalArgumentException("Invalid parameter for bufferSubData.");
+        }
+        internalBufferSubData(target, offset, size, data);
+    }
+
     /**
      * Deletes the named buffers.
      * @param count Number of buffer object names to delete.
      * @param names Array containing buffer object names.
      * @param offset Offset into the array.
      */
-    public abstract void deleteBuffers(int count, int[] names, int offset);
+    public void deleteBuffers(int count, int[] names, int offset) {
+        internalDeleteBuffers(count, names, offset);
+        mStateCache.deleteBuffers(count, names, offset);
+    }
+
+    /**
+     * Internal wrapper method for deleteBuffers.
+     * @param count Number of buffer object names to delete.
+     * @param names Array containing buffer object names.
+     * @param offset Offset into the array.
+     */
+    protected abstract void internalDeleteBuffers(int count, int[] names, int offset);
 
     /**
      * Enable a capability in the underlying graphics library.
@@ -476,9 +752,20 @@ public abstract class GraphicsLibraryHandler {
      * POLYGON_OFFSET_FILL
      * SAMPLE_ALPHA_TO_COVERAGE
      * SAMPLE_COVERAGE
+     * Nothing is done if the capability is already enabled.
      * @param caps
      */
-    public abstract void enable(int cap);
+    public void enable(int cap) {
+        if (mStateCache.setCapability(cap, true)) {
+            internalEnable(cap);
+        }
+    }
+
+    /**
+     * Internal wrapper method for enable.
+     * @param cap The capability to enable.
+     */
+    protected abstract void internalEnable(int cap);
 
     /**
      * Disable a capability in the underlying graphics library.
@@ -493,9 +780,20 @@ public abstract class GraphicsLibraryHandler {
      * POLYGON_OFFSET_FILL
      * SAMPLE_ALPHA_TO_COVERAGE
      * SAMPLE_COVERAGE
+     * Nothing is done if the capability is already disabled.
      * @param caps
      */
-    public abstract void disable(int cap);
+    public void disable(int cap) {
+        if (mStateCache.setCapability(cap, false)) {
+            internalDisable(cap);
+        }
+    }
+
+    /**
+     * Internal wrapper method for disable.
+     * @param cap The capability to disable.
+     */
+    protected abstract void internalDisable(int cap);
 
     /**
      * @param sourceFactor Specifies how the red, green, blue,
@@ -507,8 +805,20 @@ public abstract class GraphicsLibraryHandler {
      * and alpha destination blending factors are computed.
      * ZERO, ONE, SRC_COLOR, ONE_MINUS_SRC_COLOR, SRC_ALPHA, ONE_MINUS_SRC_ALPHA,
      * DST_ALPHA, and ONE_MINUS_DST_ALPHA.
+     * Nothing is done if the blend function is already set.
+     */
+    public void blendFunc(int sourceFactor, int destFactor) {
+        if (mStateCache.blendFunc(sourceFactor, destFactor)) {
+            internalBlendFunc(sourceFactor, destFactor);
+        }
+    }
+
+    /**
+     * Internal wrapper method for blendFunc.
+     * @param sourceFactor The source blend factor.
+     * @param destFactor The destination blend factor.
      */
-    public abstract void blendFunc(int sourceFactor, int destFactor);
+    protected abstract void internalBlendFunc(int sourceFactor, int destFactor);
 
 
     /**
@@ -538,13 +848,30 @@ public abstract class GraphicsLibraryHandler {
         if (names[0] != 0) {
             deleteVBOBuffer(names, 1, 0, ConstantValues.ARRAY_BUFFER);
         }
-        if (blit.elementVBOName != 0) {
-            names[0] = blit.elementVBOName;
-            deleteVBOBuffer(names, 1, 0, ConstantValues.ELEMENT_ARRAY_BUFFER);
+        if (blit.elementVBOName > 0) {
+            //Element buffers are shared, only deleted when no longer used.
+            if (!releaseElementVBO(blit.elementVBOName)) {
+                names[0] = blit.elementVBOName;
+                deleteVBOBuffer(names, 1, 0, ConstantValues.ELEMENT_ARRAY_BUFFER);
+            }
+            blit.setElementVBOName(-1);
         }
 
     }
 
+    /**
+     * Releases the VBO used by the particles, particles are rendered using the streaming
+     * buffer which is shared so no buffer object is deleted.
+     * @param particles
+     * @throws IllegalArgumentException If particles is null.
+     */
+    public void deleteVBOBuffers(GLParticleArray particles) {
+        if (particles == null) {
+            throw new IllegalArgumentException(INVALID_PARAMETER + particles);
+        }
+        particles.setArrayVBOName(-1);
+    }
+
     /**
      * Delete VBO buffer and buffer object names.
      * @param names Name of buffer objects to delete, buffer and name will be deleted.
@@ -565,11 +892,47 @@ public abstract class GraphicsLibraryHandler {
                 //                bindBuffer(target, names[i]);
                 //                bufferData(target, 0, null, ConstantValues.STATIC_DRAW);
                 deleteBuffers(1, names, i);
+                removeVBOSize(names[i]);
             }
         }
 
     }
 
+    /**
+     * Stores the size of a buffer object created by this class, used to keep track of
+     * the total number of bytes allocated in buffer objects.
+     * @param name The buffer object name
+     * @param size Size of the buffer store in bytes.
+     */
+    protected void addVBOSize(int name, int size) {
+        Integer old = mVBOSizes.put(Integer.valueOf(name), Integer.valueOf(size));
+        if (old != null) {
+            mVBOBytes -= old.intValue();
+        }
+        mVBOBytes += size;
+    }
+
+    /**
+     * Removes the size of a deleted buffer object, if the buffer was not created by this
+     * class nothing is done.
+     * @param name The buffer object name.
+     */
+    protected void removeVBOSize(int name) {
+        Integer old = mVBOSizes.remove(Integer.valueOf(name));
+        if (old != null) {
+            mVBOBytes -= old.intValue();
+        }
+    }
+
+    /**
+     * Returns the total number of bytes allocated in buffer objects created by this class,
+     * buffers deleted by calling deleteVBOBuffer() or deleteVBOBuffers() are not counted.
+     * @return Number of bytes allocated in VBOs.
+     */
+    public long getVBOBytes() {
+        return mVBOBytes;
+    }
+
     /**
      * Logs the specifics of the EGLConfig.
      * This will log information regarding bitdepth, alpha size etc.
@@ -558,8 +558,8 @@ public class Matrix {
         rm[rmOffset + 14]= 0;
         rm[rmOffset + 15]= 1;
         a *= (float) (Math.PI / 180.0f);
-        float s = (float) Math.sin(a);
-        float c = (float) Math.cos(a);
+        float s = FastMath.sin(a);
+        float c = FastMath.cos(a);
         if (1.0f == x && 0.0f == y && 0.0f == z) {
             rm[rmOffset + 5] = c;   rm[rmOffset + 10]= c;
             rm[rmOffset + 6] = s;   rm[rmOffset + 9] = -s;
@@ -618,12 +618,12 @@ public class Matrix {
         x *= (float) (Math.PI / 180.0f);
         y *= (float) (Math.PI / 180.0f);
         z *= (float) (Math.PI / 180.0f);
-        float cx = (float) Math.cos(x);
-        float sx = (float) Math.sin(x);
-        float cy = (float) Math.cos(y);
-        float sy = (float) Math.sin(y);
-        float cz = (float) Math.cos(z);
-        float sz = (float) Math.sin(z);
+        float cx = FastMath.cos(x);
+        float sx = FastMath.sin(x);
+        float cy = FastMath.cos(y);
+        float sy = FastMath.sin(y);
+        float cz = FastMath.cos(z);
+        float sz = FastMath.sin(z);
         float cxsy = cx * sy;
         float sxsy = sx * sy;
 
@@ -737,4 +737,138 @@ public class Matrix {
         matrix[row + 8] = source[offset++];
         matrix[row + 12] = source[offset++];
     }
+
+    /**
+     * Multiply a number of 3 vectors with one matrix, vectors are stored after each other
+     * with 3 values each.
+     * The result for each vector is the same as for mulVector3(), the matrix is read once
+     * and the loop only accesses the arrays sequentially.
+     * Result and source vectors may be the same array if resultOffset equals vecOffset.
+     * @param resultVec Destination for the transformed vectors.
+     * @param resultOffset Offset into resultVec where the first result is stored.
+     * @param matrix The matrix to multiply the vectors with.
+     * @param matrixOffset Offset into matrix.
+     * @param vec Source vectors.
+     * @param vecOffset Offset into vec where the first vector is.
+     * @param count Number of vectors to transform.
+     */
+    public final static void mulVector3(float[] resultVec, int resultOffset, float[] matrix,
+            int matrixOffset, float[] vec, int vecOffset, int count) {
+        final float m0 = matrix[matrixOffset];
+        final float m1 = matrix[matrixOffset + 1];
+        final float m2 = matrix[matrixOffset + 2];
+        final float m4 = matrix[matrixOffset + 4];
+        final float m5 = matrix[matrixOffset + 5];
+        final float m6 = matrix[matrixOffset + 6];
+        final float m8 = matrix[matrixOffset + 8];
+        final float m9 = matrix[matrixOffset + 9];
+        final float m10 = matrix[matrixOffset + 10];
+        final float m12 = matrix[matrixOffset + 12];
+        final float m13 = matrix[matrixOffset + 13];
+        final float m14 = matrix[matrixOffset + 14];
+        float x, y, z;
+        int end = vecOffset + count * 3;
+        for (int v = vecOffset, r = resultOffset; v < end; v += 3, r += 3) {
+            x = vec[v];
+            y = vec[v + 1];
+            z = vec[v + 2];
+            resultVec[r] = m0 * x + m4 * y + m8 * z + m12;
+            resultVec[r + 1] = m1 * x + m5 * y + m9 * z + m13;
+            resultVec[r + 2] = m2 * x + m6 * y + m10 * z + m14;
+        }
+    }
+
+    /**
+     * Concatenate a number of matrix pairs, matrices are stored after each other with
+     * 16 values each. For each pair m1 is concatenated with m2 and stored in destination,
+     * the result is the same as for mul4(m1, m2, destination).
+     * Destination must not overlap m1 or m2.
+     * @param m1 Array with the first matrix of each pair.
+     * @param m1Offset Offset into m1
+     * @param m2 Array with the second matrix of each pair.
+     * @param m2Offset Offset into m2
+     * @param destination Destination for the result matrices.
+     * @param destOffset Offset into destination
+     * @param count Number of matrix pairs.
+     */
+    public final static void mul4(float[] m1, int m1Offset, float[] m2, int m2Offset,
+            float[] destination, int destOffset, int count) {
+        float a0, a1, a2, a3, b0, b1, b2, b3;
+        int d = destOffset;
+        int a = m1Offset;
+        int b = m2Offset;
+        for (int i = 0; i < count; i++) {
+            for (int col = 0; col < 16; col += 4) {
+                b0 = m2[b + col];
+                b1 = m2[b + col + 1];
+                b2 = m2[b + col + 2];
+                b3 = m2[b + col + 3];
+                for (int row = 0; row < 4; row++) {
+                    a0 = m1[a + row];
+                    a1 = m1[a + row + 4];
+                    a2 = m1[a + row + 8];
+                    a3 = m1[a + row + 12];
+                    destination[d + col + row] = (a0 * b0 + a1 * b1 + a2 * b2 + a3 * b3);
+                }
+            }
+            a += 16;
+            b += 16;
+            d += 16;
+        }
+    }
+
+    /**
+     * Creates transform matrices from position, scale and rotation values, this is the
+     * same transform as done in the vertex shader for blit objects:
+     * translate * scale * rotate, rotation is euler angles in radians.
+     * Source values are stored with 4 values for each object, as in FrameState, only x, y and z
+     * are used. Matrices are stored after each other with 16 values each.
+     * @param destination Destination for the matrices.
+     * @param destOffset Offset into destination
+     * @param position Position, x, y and z
+     * @param scale Scale, x, y and z
+     * @param rotation Rotation in radians, x, y and z.
+     * @param offset Offset into position, scale and rotation.
+     * @param count Number of matrices to create.
+     */
+    public final static void setTransformM(float[] destination, int destOffset,
+            float[] position, float[] scale, float[] rotation, int offset, int count) {
+        float cx, sx, cy, sy, cz, sz, cxsy, sxsy, scaleX, scaleY, scaleZ;
+        int d = destOffset;
+        int end = offset + count * 4;
+        for (int s = offset; s < end; s += 4) {
+            cx = FastMath.cos(rotation[s]);
+            sx = FastMath.sin(rotation[s]);
+            cy = FastMath.cos(rotation[s + 1]);
+            sy = FastMath.sin(rotation[s + 1]);
+            cz = FastMath.cos(rotation[s + 2]);
+            sz = FastMath.sin(rotation[s + 2]);
+            cxsy = cx * sy;
+            sxsy = sx * sy;
+            scaleX = scale[s];
+            scaleY = scale[s + 1];
+            scaleZ = scale[s + 2];
+
+            destination[d] = scaleX * (cy * cz);
+            destination[d + 1] = scaleY * (-cy * sz);
+            destination[d + 2] = scaleZ * sy;
+            destination[d + 3] = 0;
+
+            destination[d + 4] = scaleX * (cxsy * cz + cx * sz);
+            destination[d + 5] = scaleY * (-cxsy * sz + cx * cz);
+            destination[d + 6] = scaleZ * (-sx * cy);
+            destination[d + 7] = 0;
+
+            destination[d + 8] = scaleX * (-sxsy * cz + sx * sz);
+            destination[d + 9] = scaleY * (sxsy * sz + sx * cz);
+            destination[d + 10] = scaleZ * (cx * cy);
+            destination[d + 11] = 0;
+
+            destination[d + 12] = position[s];
+            destination[d + 13] = position[s + 1];
+            destination[d + 14] = position[s + 2];
+            destination[d + 15] = 1;
+            d += 16;
+        }
+    }
 }
@@ -0,0 +1,149 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.utils;
+
+/**
+ * Samples the number of bytes allocated by the calling thread and the number of, and time spent
+ * in, garbage collections.
+ * The values are read by platform specific implementations, this class keeps the sampled
+ * values and removes the bytes allocated by the sampling itself.
+ * Use createSampler() to create the sampler for the platform.
+ * @author Richard Sahlin
+ *
+ */
+public abstract class MemorySampler {
+
+    protected final static String J2SE_MEMORY_SAMPLER =
+            "com.super2k.openglen.j2se.utils.J2SEMemorySampler";
+
+    /**
+     * Number of bytes allocated by a call to readAllocatedBytes, this is subtracted
+     * from the sampled value.
+     */
+    protected long mSampleOverhead;
+
+    /**
+     * Accumulated sample overhead since the sampler was created.
+     */
+    protected long mTotalOverhead;
+
+    /**
+     * Values from the last call to sample()
+     */
+    protected long mAllocatedBytes = -1;
+    protected long mGCCount;
+    protected long mGCTime;
+
+    /**
+     * Creates the memory sampler for the platform.
+     * Only J2SE is supported, the sampler uses java.lang.management that is not present
+     * on Android.
+     * @return The memory sampler or null if not supported on the platform.
+     */
+    public static MemorySampler createSampler() {
+        try {
+            MemorySampler sampler =
+                    (MemorySampler) Class.forName(J2SE_MEMORY_SAMPLER).newInstance();
+            sampler.init();
+            return sampler;
+        } catch (ClassNotFoundException cnfe) {
+            return null;
+        } catch (IllegalAccessException iae) {
+            return null;
+        } catch (InstantiationException ie) {
+            return null;
+        } catch (LinkageError le) {
+            //java.lang.management not present on platform.
+            return null;
+        }
+    }
+
+    /**
+     * Measures the overhead of reading allocated bytes and takes the first sample, this
+     * must be called on the thread that shall be sampled before the sampler is used.
+     */
+    public void init() {
+        if (isAllocationSupported()) {
+            //Measure the cost of reading the value so that it is not counted.
+            readAllocatedBytes();
+            long first = readAllocatedBytes();
+            mSampleOverhead = readAllocatedBytes() - first;
+        }
+        sample();
+    }
+
+    /**
+     * Returns true if allocated bytes for threads can be sampled.
+     * @return True if getAllocatedBytes() returns the bytes allocated by the sampling thread.
+     */
+    public abstract boolean isAllocationSupported();
+
+    /**
+     * Reads the total number of bytes allocated by the calling thread.
+     * Only called if isAllocationSupported() returns true.
+     * @return Allocated bytes.
+     */
+    protected abstract long readAllocatedBytes();
+
+    /**
+     * Reads the total number of garbage collections.
+     * @return Number of collections.
+     */
+    protected abstract long readGCCount();
+
+    /**
+     * Reads the total time spent in garbage collection.
+     * @return Collection time in millis.
+     */
+    protected abstract long readGCTime();
+
+    /**
+     * Reads the current values for allocated bytes, gc count and gc time.
+     * Allocated bytes are for the calling thread, normally the render thread.
+     */
+    public void sample() {
+        if (isAllocationSupported()) {
+            mAllocatedBytes = readAllocatedBytes() - mTotalOverhead;
+            mTotalOverhead += mSampleOverhead;
+        }
+        mGCCount = readGCCount();
+        mGCTime = readGCTime();
+    }
+
+    /**
+     * Returns the total number of bytes allocated by the thread that called sample(), or -1 if
+     * not supported.
+     * @return Allocated bytes as of the last call to sample(), or -1
+     */
+    public long getAllocatedBytes() {
+        return mAllocatedBytes;
+    }
+
+    /**
+     * Returns the total number of garbage collections as of the last call to sample()
+     * @return Number of collections.
+     */
+    public long getGCCount() {
+        return mGCCount;
+    }
+
+    /**
+     * Returns the accumulated garbage collection time, in milliseconds, as of the last call
+     * to sample()
+     * @return Collection time in millis.
+     */
+    public long getGCTime() {
+        return mGCTime;
+    }
+
+}
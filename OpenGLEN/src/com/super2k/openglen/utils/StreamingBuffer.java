@@ -0,0 +1,226 @@
+/* Copyright 2012 Richard Sahlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.super2k.openglen.utils;
+
+import java.nio.Buffer;
+
+import com.super2k.openglen.ConstantValues;
+import com.super2k.openglen.OpenGLENException;
+
+/**
+ * Array buffer used for vertex data that is updated every frame, for instance particles.
+ * Data is appended to the buffer with glBufferSubData, each upload is placed after the
+ * previous one so that data used by draw calls that are still pending is not overwritten.
+ * When the buffer is full the data store is orphaned by calling glBufferData with a null
+ * pointer, the driver can then hand out a new store while the old one is still in use,
+ * instead of waiting for the GPU to finish.
+ * The size shall be large enough for a couple of frames of data, this keeps orphaning
+ * down to once every few frames.
+ * The buffer object is created when first used, this class shall only be used on the GL thread.
+ * @author Richard Sahlin
+ *
+ */
+public class StreamingBuffer {
+
+    /**
+     * Default number of bytes uploaded each frame.
+     */
+    public final static int DEFAULT_FRAME_SIZE = 64 * 1024;
+
+    /**
+     * Default number of frames of data the buffer can hold before it is orphaned.
+     */
+    public final static int DEFAULT_FRAMES = 3;
+
+    /**
+     * Uploads are aligned to this number of bytes.
+     */
+    public final static int ALIGNMENT = 4;
+
+    protected final static String INVALID_SIZE_STR = "Invalid size: ";
+
+    protected final GraphicsLibraryHandler mHandler;
+    /**
+     * The buffer object name, 0 if not created.
+     */
+    protected int mName;
+    /**
+     * Size of the data store in bytes.
+     */
+    protected int mSize;
+    /**
+     * Byte offset of the next upload.
+     */
+    protected int mOffset;
+
+    protected int mOrphanCount;
+    protected int mUploadedBytes;
+
+    /**
+     * Creates a new streaming buffer, the buffer object is created when first used.
+     * @param handler The graphics library handler used to create and update the buffer.
+     * @param frameSize Expected number of bytes uploaded each frame.
+     * @param frames Number of frames of data the buffer shall hold.
+     * @throws IllegalArgumentException If handler is null or frameSize or frames < 1
+     */
+    public StreamingBuffer(GraphicsLibraryHandler handler, int frameSize, int frames) {
+        if (handler == null || frameSize < 1 || frames < 1) {
+            throw new IllegalArgumentException(INVALID_SIZE_STR + frameSize + ", " + frames);
+        }
+        mHandler = handler;
+        mSize = align(frameSize) * frames;
+    }
+
+    /**
+     * Binds the buffer to ConstantValues.ARRAY_BUFFER, the buffer object is created if needed.
+     * @throws OpenGLENException If the buffer object could not be created.
+     */
+    public void bind() throws OpenGLENException {
+        if (mName == 0) {
+            int[] names = new int[1];
+            mHandler.genBuffers(1, names, 0);
+            if (names[0] == 0) {
+                throw new OpenGLENException(GraphicsLibraryHandler.VBO_BUFFER_NAME_ERROR);
+            }
+            mName = names[0];
+            mHandler.bindBuffer(ConstantValues.ARRAY_BUFFER, mName);
+            allocate();
+        } else {
+            mHandler.bindBuffer(ConstantValues.ARRAY_BUFFER, mName);
+        }
+    }
+
+    /**
+     * Copies data into the buffer and returns the byte offset where it is stored, use the
+     * offset when setting the vertex attrib pointers.
+     * The buffer is left bound to ConstantValues.ARRAY_BUFFER.
+     * If the data does not fit in the remaining space the buffer is orphaned and the data
+     * is stored at the beginning of the new data store. If the data is larger than the
+     * buffer the size of the buffer is increased.
+     * @param data The data to upload, copied from the current position.
+     * @param size Number of bytes to upload.
+     * @return Byte offset of the data in the buffer.
+     * @throws IllegalArgumentException If data is null or size < 0
+     * @throws OpenGLENException If the buffer object could not be created.
+     */
+    public int upload(Buffer data, int size) throws OpenGLENException {
+        if (data == null || size < 0) {
+            throw new IllegalArgumentException(INVALID_SIZE_STR + size);
+        }
+        bind();
+        if (size > mSize) {
+            mSize = Math.max(align(size), mSize * 2);
+            orphan();
+        } else if (mOffset + size > mSize) {
+            orphan();
+        }
+        int offset = mOffset;
+        mHandler.bufferSubData(ConstantValues.ARRAY_BUFFER, offset, size, data);
+        mOffset = align(offset + size);
+        mUploadedBytes += size;
+        return offset;
+    }
+
+    /**
+     * Orphans the data store, the next upload is placed at the beginning of a new store.
+     * The buffer must be bound.
+     */
+    protected void orphan() {
+        allocate();
+        mOrphanCount++;
+    }
+
+    /**
+     * Allocates the data store with streaming usage, the buffer must be bound.
+     */
+    protected void allocate() {
+        mHandler.bufferData(ConstantValues.ARRAY_BUFFER, mSize, null,
+                ConstantValues.STREAM_DRAW);
+        mHandler.addVBOSize(mName, mSize);
+        mOffset = 0;
+    }
+
+    /**
+     * Deletes the buffer object, it will be created again if the buffer is used.
+     */
+    public void destroy() {
+        if (mName != 0) {
+            mHandler.deleteVBOBuffer(new int[] {mName}, 1, 0, ConstantValues.ARRAY_BUFFER);
+        }
+        mName = 0;
+        mOffset = 0;
+    }
+
+    /**
+     * Forgets the buffer object without deleting it, call this when a new GL context is
+     * used since the name is not valid in the new context. The buffer object is created
+     * again when the buffer is used.
+     */
+    public void reset() {
+        if (mName != 0) {
+            mHandler.removeVBOSize(mName);
+        }
+        mName = 0;
+        mOffset = 0;
+    }
+
+    /**
+     * Returns the buffer object name.
+     * @return The buffer object name, 0 if not created.
+     */
+    public int getName() {
+        return mName;
+    }
+
+    /**
+     * Returns the size of the data store.
+     * @return Size in bytes.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Returns the number of times the buffer has been orphaned since statistics were reset.
+     * @return Number of orphaned data stores.
+     */
+    public int getOrphanCount() {
+        return mOrphanCount;
+    }
+
+    /**
+     * Returns the number of bytes uploaded since statistics were reset.
+     * @return Number of uploaded bytes.
+     */
+    public int getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    /**
+     * Resets the statistics, normally done once every frame.
+     */
+    public void resetStatistics() {
+        mOrphanCount = 0;
+        mUploadedBytes = 0;
+    }
+
+    /**
+     * Rounds size up to the alignment.
+     * @param size
+     * @return The aligned size.
+     */
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+}